@@ -0,0 +1,90 @@
+#!/usr/bin/env bash
+#
+# Compares request throughput with platform threads and with virtual threads
+# (spring.threads.virtual.enabled) against the same MongoDB.
+#
+# Requirements: a running MongoDB (e.g. `docker compose up mongodb` in Code/),
+# the `hey` load generator (https://github.com/rakyll/hey), curl and jq.
+#
+# Usage: loadtest/compare-thread-modes.sh [requests] [concurrency]
+#   Run from Code/backend. Results are written to loadtest/results/<mode>-<endpoint>.txt.
+#
+# Each mode is run with a fresh JVM and the `local` profile. The same user is used for
+# both runs, so the measured endpoints read identical data; upload some recordings for
+# that user (POST /api/v1/sensor-data/batch) before comparing read-heavy endpoints.
+
+set -euo pipefail
+
+REQUESTS="${1:-20000}"
+CONCURRENCY="${2:-400}"
+PORT="${PORT:-8080}"
+BASE="http://localhost:${PORT}"
+MANAGEMENT_PORT="${MANAGEMENT_PORT:-8081}"
+MANAGEMENT="http://localhost:${MANAGEMENT_PORT}"
+EMAIL="${LOADTEST_EMAIL:-loadtest@example.com}"
+PASSWORD="${LOADTEST_PASSWORD:-Loadtest#2024}"
+RESULTS="loadtest/results"
+
+mkdir -p "$RESULTS"
+set -a; source .env; set +a
+
+./mvnw -q -DskipTests package
+JAR="$(ls target/backend-*.jar | grep -v original | head -n 1)"
+
+wait_for_health() {
+    for _ in $(seq 1 60); do
+        if curl -sf "${MANAGEMENT}/actuator/health" > /dev/null; then
+            return 0
+        fi
+        sleep 1
+    done
+    echo "Backend did not become healthy" >&2
+    return 1
+}
+
+run_mode() {
+    local mode="$1" virtual="$2"
+    echo "== ${mode} threads"
+
+    VIRTUAL_THREADS_ENABLED="$virtual" java -jar "$JAR" \
+        --spring.profiles.active=local --server.port="$PORT" --management.server.port="$MANAGEMENT_PORT" > "${RESULTS}/${mode}-server.log" 2>&1 &
+    local pid=$!
+    trap "kill ${pid} 2> /dev/null || true" EXIT
+    wait_for_health
+
+    curl -s -o /dev/null -X POST "${BASE}/api/v1/user/register" -H 'Content-Type: application/json' \
+        -d "{\"email\":\"${EMAIL}\",\"password\":\"${PASSWORD}\",\"firstName\":\"Load\",\"lastName\":\"Test\"}" || true
+    local login token user
+    login="$(curl -sf -X POST "${BASE}/api/v1/user/login" -H 'Content-Type: application/json' \
+        -d "{\"email\":\"${EMAIL}\",\"password\":\"${PASSWORD}\"}")"
+    token="$(jq -r '.token' <<< "$login")"
+    user="$(jq -r '.user.id' <<< "$login")"
+
+    # Warm up the JIT, the connection pool and the principal cache.
+    hey -n 2000 -c 50 -H "Authorization: Bearer ${token}" \
+        "${BASE}/api/v1/sensor-data/user/${user}/range?limit=50" > /dev/null
+
+    hey -n "$REQUESTS" -c "$CONCURRENCY" -H "Authorization: Bearer ${token}" \
+        "${BASE}/api/v1/sensor-data/user/${user}/range?limit=50" > "${RESULTS}/${mode}-range.txt"
+    hey -n "$REQUESTS" -c "$CONCURRENCY" -H "Authorization: Bearer ${token}" \
+        "${BASE}/api/v1/processed-data/user/${user}/rollups?period=day&from=2024-01-01&to=2030-01-01" \
+        > "${RESULTS}/${mode}-rollups.txt"
+    curl -s "${MANAGEMENT}/actuator/prometheus" | grep -E '^(hrv_service|mongodb_driver_pool)' \
+        > "${RESULTS}/${mode}-metrics.txt" || true
+
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    trap - EXIT
+}
+
+run_mode platform false
+run_mode virtual true
+
+for endpoint in range rollups; do
+    echo "== ${endpoint}"
+    for mode in platform virtual; do
+        printf '%-9s ' "$mode"
+        grep -E 'Requests/sec' "${RESULTS}/${mode}-${endpoint}.txt" | tr -s ' '
+        grep -E '  99% in' "${RESULTS}/${mode}-${endpoint}.txt" | tr -s ' ' | sed 's/^/          p99:/'
+    done
+done
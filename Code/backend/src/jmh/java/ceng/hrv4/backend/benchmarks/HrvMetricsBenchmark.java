@@ -0,0 +1,68 @@
+package ceng.hrv4.backend.benchmarks;
+
+import ceng.hrv4.backend.analysis.HrvMetrics;
+import ceng.hrv4.backend.analysis.HrvMetricsEngine;
+import ceng.hrv4.backend.analysis.HrvWindowAnalyzer;
+import ceng.hrv4.backend.analysis.HrvWindowSeries;
+import ceng.hrv4.backend.analysis.NightSegmenter;
+import ceng.hrv4.backend.analysis.SpectralAnalyzer;
+import ceng.hrv4.backend.analysis.SpectralBands;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HRV metric computation at recording lengths from a 5-minute spot check to a full day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HrvMetricsBenchmark {
+
+    /** ~5 min, ~1 h, ~8 h and ~24 h at resting heart rate. */
+    @Param({"350", "4200", "34000", "100000"})
+    public int beats;
+
+    private static final Instant EVENING = Instant.parse("2024-01-01T18:00:00Z");
+
+    private double[] rr;
+    private HrvMetricsEngine engine;
+    private SpectralAnalyzer spectralAnalyzer;
+    private HrvWindowAnalyzer windowAnalyzer;
+
+    @Setup
+    public void setUp() {
+        rr = RrSeries.generate(beats, 42);
+        spectralAnalyzer = new SpectralAnalyzer();
+        engine = new HrvMetricsEngine(spectralAnalyzer, new NightSegmenter(LocalTime.of(22, 0), LocalTime.of(6, 0), ZoneOffset.UTC));
+        windowAnalyzer = new HrvWindowAnalyzer();
+    }
+
+    @Benchmark
+    public HrvMetrics compute() {
+        return engine.compute(rr);
+    }
+
+    /** Starting at 18:00, so recordings from ~8 h on are split into day and night (22:00-06:00). */
+    @Benchmark
+    public HrvMetrics computeWithNight() {
+        return engine.compute(rr, EVENING, null);
+    }
+
+    @Benchmark
+    public SpectralBands spectral() {
+        return spectralAnalyzer.analyze(rr, 0, rr.length);
+    }
+
+    /** A 100-beat window at every beat, the worst case for the rolling windows. */
+    @Benchmark
+    public HrvWindowSeries rollingWindows() {
+        return windowAnalyzer.analyze(rr, 100, 1);
+    }
+}
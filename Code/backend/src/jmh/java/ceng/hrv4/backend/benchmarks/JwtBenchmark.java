@@ -0,0 +1,50 @@
+package ceng.hrv4.backend.benchmarks;
+
+import ceng.hrv4.backend.service.JWTService;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuing and the two validation paths of the JWT filter: a full parse with signature
+ * check, and a repeat validation served from the verified-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-0123456789";
+
+    private JWTService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        jwtService = new JWTService(SECRET, 10_000);
+        // Normally injected from jwt.access-expiration-ms.
+        Field expiration = JWTService.class.getDeclaredField("accessExpirationMs");
+        expiration.setAccessible(true);
+        expiration.setLong(jwtService, TimeUnit.HOURS.toMillis(1));
+        token = jwtService.generateToken("user@example.com");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken("user@example.com");
+    }
+
+    @Benchmark
+    public String extractUserName() {
+        return jwtService.extractUserName(token);
+    }
+
+    @Benchmark
+    public JWTService.VerifiedToken validateCached() {
+        return jwtService.validate(token);
+    }
+}
@@ -0,0 +1,104 @@
+package ceng.hrv4.backend.benchmarks;
+
+import ceng.hrv4.backend.analysis.HrvMetrics;
+import ceng.hrv4.backend.analysis.HrvMetricsEngine;
+import ceng.hrv4.backend.analysis.NightSegmenter;
+import ceng.hrv4.backend.analysis.SpectralAnalyzer;
+import ceng.hrv4.backend.dto.request.ModelOutputRequestDto;
+import ceng.hrv4.backend.dto.request.RawDataRequestDto;
+import ceng.hrv4.backend.dto.response.ModelOutputResponseDto;
+import ceng.hrv4.backend.dto.response.ProcessedDataResponseDto;
+import ceng.hrv4.backend.dto.response.RawDataResponseDto;
+import ceng.hrv4.backend.entity.ModelOutput;
+import ceng.hrv4.backend.entity.ProcessedData;
+import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.mapper.ModelOutputMapper;
+import ceng.hrv4.backend.mapper.ProcessedDataMapper;
+import ceng.hrv4.backend.mapper.RawDataMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTO/entity mapping. RawData request mapping unboxes the whole RR list, so it is measured
+ * at realistic recording lengths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"350", "4200", "34000"})
+    public int beats;
+
+    private final RawDataMapper rawDataMapper = new RawDataMapper();
+    private final ProcessedDataMapper processedDataMapper = new ProcessedDataMapper();
+    private final ModelOutputMapper modelOutputMapper = new ModelOutputMapper();
+
+    private RawDataRequestDto rawDataRequest;
+    private RawData rawData;
+    private HrvMetrics metrics;
+    private ProcessedData processedData;
+    private ModelOutputRequestDto modelOutputRequest;
+    private ModelOutput modelOutput;
+
+    @Setup
+    public void setUp() {
+        double[] rr = RrSeries.generate(beats, 7);
+        List<Double> rrList = new ArrayList<>(rr.length);
+        for (double value : rr) {
+            rrList.add(value);
+        }
+        Instant start = Instant.parse("2024-01-01T22:00:00Z");
+        rawDataRequest = new RawDataRequestDto("user-1", "activity-1", start, start.plusSeconds(8 * 3600), "polar-h10", rrList);
+
+        rawData = rawDataMapper.toEntity(rawDataRequest);
+        rawData.setId("65a000000000000000000001");
+        metrics = new HrvMetricsEngine(new SpectralAnalyzer(),
+                new NightSegmenter(LocalTime.of(22, 0), LocalTime.of(6, 0), ZoneOffset.UTC)).compute(rr, start, null);
+        processedData = processedDataMapper.toEntity(rawData, metrics);
+
+        modelOutputRequest = new ModelOutputRequestDto("user-1", start, rawData.getId());
+        modelOutput = modelOutputMapper.toEntity(modelOutputRequest);
+        modelOutput.setStress(42.0);
+        modelOutput.setHealthState(71.0);
+    }
+
+    @Benchmark
+    public RawData rawDataToEntity() {
+        return rawDataMapper.toEntity(rawDataRequest);
+    }
+
+    @Benchmark
+    public RawDataResponseDto rawDataToDto() {
+        return rawDataMapper.toDto(rawData);
+    }
+
+    @Benchmark
+    public ProcessedData processedDataFromMetrics() {
+        return processedDataMapper.toEntity(rawData, metrics);
+    }
+
+    @Benchmark
+    public ProcessedDataResponseDto processedDataToDto() {
+        return processedDataMapper.toDto(processedData);
+    }
+
+    @Benchmark
+    public ModelOutput modelOutputToEntity() {
+        return modelOutputMapper.toEntity(modelOutputRequest);
+    }
+
+    @Benchmark
+    public ModelOutputResponseDto modelOutputToDto() {
+        return modelOutputMapper.toDto(modelOutput);
+    }
+}
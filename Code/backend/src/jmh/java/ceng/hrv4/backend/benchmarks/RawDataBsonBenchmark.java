@@ -0,0 +1,134 @@
+package ceng.hrv4.backend.benchmarks;
+
+import ceng.hrv4.backend.converter.RrIntervalCodec;
+import ceng.hrv4.backend.entity.RawData;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BSON mapping of RawData through the same MappingMongoConverter path the repositories use,
+ * including the packed RR interval encoding, and the round trip through the BSON bytes the
+ * driver sends to and receives from the server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RawDataBsonBenchmark {
+
+    @Param({"350", "4200", "34000"})
+    public int beats;
+
+    private MappingMongoConverter converter;
+    private RawData rawData;
+    private Document document;
+    private double[] rr;
+    private byte[] packed;
+    private DocumentCodec codec;
+    private byte[] bson;
+
+    @Setup
+    public void setUp() {
+        // Same wiring as Spring Boot's auto-configuration, minus the database.
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        rr = RrSeries.generate(beats, 11);
+        Instant start = Instant.parse("2024-01-01T22:00:00Z");
+        rawData = new RawData("user-1", start, start.plusSeconds(8 * 3600), rr);
+        rawData.setId("65a000000000000000000001");
+        rawData.setRrCount(rr.length);
+
+        document = new Document();
+        converter.write(rawData, document);
+        packed = RrIntervalCodec.encode(rr);
+
+        // The codecs the driver encodes and decodes documents with.
+        codec = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+        bson = toBson(document);
+    }
+
+    private byte[] toBson(Document source) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, source, EncoderContext.builder().isEncodingCollectibleDocument(true).build());
+        }
+        return buffer.toByteArray();
+    }
+
+    private Document fromBson(byte[] bytes) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bytes))) {
+            return codec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    @Benchmark
+    public Document write() {
+        Document target = new Document();
+        converter.write(rawData, target);
+        return target;
+    }
+
+    @Benchmark
+    public RawData read() {
+        return converter.read(RawData.class, document);
+    }
+
+    /**
+     * Entity to BSON bytes, as for an insert.
+     */
+    @Benchmark
+    public byte[] writeBson() {
+        Document target = new Document();
+        converter.write(rawData, target);
+        return toBson(target);
+    }
+
+    /**
+     * BSON bytes to entity, as for a query result.
+     */
+    @Benchmark
+    public RawData readBson() {
+        return converter.read(RawData.class, fromBson(bson));
+    }
+
+    @Benchmark
+    public RawData roundTrip() {
+        Document target = new Document();
+        converter.write(rawData, target);
+        return converter.read(RawData.class, fromBson(toBson(target)));
+    }
+
+    @Benchmark
+    public byte[] encodeRr() {
+        return RrIntervalCodec.encode(rr);
+    }
+
+    @Benchmark
+    public double[] decodeRr() {
+        return RrIntervalCodec.decode(packed);
+    }
+}
@@ -0,0 +1,27 @@
+package ceng.hrv4.backend.benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic RR tachograms for benchmarks: a resting heart rate with respiratory (HF) and
+ * baroreflex (LF) modulation plus noise, rounded to whole milliseconds like device output.
+ */
+final class RrSeries {
+
+    private RrSeries() {}
+
+    static double[] generate(int beats, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] rr = new double[beats];
+        double t = 0;
+        for (int i = 0; i < beats; i++) {
+            double value = 850
+                    + 40 * Math.sin(2 * Math.PI * 0.25 * t)
+                    + 25 * Math.sin(2 * Math.PI * 0.1 * t)
+                    + random.nextDouble(-15, 15);
+            rr[i] = Math.rint(value);
+            t += rr[i] / 1000.0;
+        }
+        return rr;
+    }
+}
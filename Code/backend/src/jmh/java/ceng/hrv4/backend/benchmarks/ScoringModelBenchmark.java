@@ -0,0 +1,149 @@
+package ceng.hrv4.backend.benchmarks;
+
+import ceng.hrv4.backend.entity.ModelOutput;
+import ceng.hrv4.backend.entity.ProcessedData;
+import ceng.hrv4.backend.scoring.BaselineModel;
+import ceng.hrv4.backend.scoring.HrvFeatures;
+import ceng.hrv4.backend.scoring.HrvScorer;
+import ceng.hrv4.backend.scoring.ScoreTarget;
+import ceng.hrv4.backend.scoring.ScoringModel;
+import ceng.hrv4.backend.scoring.ScoringModelLoader;
+import ceng.hrv4.backend.scoring.ScoringModelRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring one measurement with the built-in baseline, a linear model and a GBDT of
+ * {@code trees} complete trees of depth 6 per target, all ten targets produced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringModelBenchmark {
+
+    private static final int DEPTH = 6;
+
+    @Param({"100", "500"})
+    public int trees;
+
+    private ProcessedData processedData;
+    private double[] features;
+    private ScoringModel baseline;
+    private ScoringModel linear;
+    private ScoringModel gbdt;
+    private HrvScorer scorer;
+
+    @Setup
+    public void setUp() throws IOException {
+        processedData = new ProcessedData("user-1", Instant.parse("2024-01-01T22:00:00Z"));
+        processedData.setMeasurementId("measurement-1");
+        processedData.setRmssd(42.0);
+        processedData.setSdnn(55.0);
+        processedData.setPnn50(18.0);
+        processedData.setTp(3100.0);
+        processedData.setVlf(900.0);
+        processedData.setLf(1100.0);
+        processedData.setHf(950.0);
+        processedData.setMinHr(48.0);
+        processedData.setMaxHr(96.0);
+        processedData.setRmssdNight(55.0);
+        features = HrvFeatures.of(processedData, 35);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ScoringModelLoader loader = new ScoringModelLoader(objectMapper);
+        baseline = new BaselineModel();
+        linear = load(loader, linearModel(objectMapper));
+        gbdt = load(loader, gbdtModel(objectMapper, new Random(42)));
+        scorer = new HrvScorer(new ScoringModelRegistry(loader, ""));
+    }
+
+    @Benchmark
+    public double[] baseline() {
+        return baseline.score(features);
+    }
+
+    @Benchmark
+    public double[] linear() {
+        return linear.score(features);
+    }
+
+    @Benchmark
+    public double[] gbdt() {
+        return gbdt.score(features);
+    }
+
+    /** Feature extraction and output assembly around the GBDT, as the scoring workers run it. */
+    @Benchmark
+    public ModelOutput scoreMeasurement() {
+        return scorer.score(gbdt, processedData, 35);
+    }
+
+    private static ScoringModel load(ScoringModelLoader loader, ObjectNode model) throws IOException {
+        Path file = Files.createTempFile("scoring-model", ".json");
+        try {
+            Files.writeString(file, model.toString());
+            return loader.load(file);
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static ObjectNode linearModel(ObjectMapper objectMapper) {
+        ObjectNode model = objectMapper.createObjectNode().put("type", "linear").put("version", "linear-bench");
+        ObjectNode targets = model.putObject("targets");
+        for (ScoreTarget target : ScoreTarget.values()) {
+            ObjectNode spec = targets.putObject(target.key()).put("intercept", -1.0).put("link", "logistic").put("scale", 10);
+            ObjectNode weights = spec.putObject("weights");
+            for (String feature : HrvFeatures.NAMES) {
+                weights.put(feature, 0.05);
+            }
+        }
+        return model;
+    }
+
+    private ObjectNode gbdtModel(ObjectMapper objectMapper, Random random) {
+        ObjectNode model = objectMapper.createObjectNode().put("type", "gbdt").put("version", "gbdt-bench");
+        ArrayNode names = model.putArray("features");
+        HrvFeatures.NAMES.forEach(names::add);
+        ObjectNode targets = model.putObject("targets");
+        int inner = (1 << DEPTH) - 1;
+        int nodes = (1 << (DEPTH + 1)) - 1;
+        for (ScoreTarget target : ScoreTarget.values()) {
+            ArrayNode ensemble = targets.putObject(target.key()).put("link", "logistic").put("scale", 10).putArray("trees");
+            for (int t = 0; t < trees; t++) {
+                ObjectNode tree = ensemble.addObject();
+                ArrayNode feature = tree.putArray("feature");
+                ArrayNode threshold = tree.putArray("threshold");
+                ArrayNode left = tree.putArray("left");
+                ArrayNode right = tree.putArray("right");
+                ArrayNode value = tree.putArray("value");
+                // Complete binary tree in breadth-first order: the children of i are 2i+1 and 2i+2.
+                for (int i = 0; i < nodes; i++) {
+                    boolean leaf = i >= inner;
+                    int f = random.nextInt(HrvFeatures.NAMES.size());
+                    feature.add(leaf ? -1 : f);
+                    // Around the measurement's value, so both children are taken; any value for missing features.
+                    double center = Double.isNaN(features[f]) ? 0 : features[f];
+                    threshold.add(leaf ? 0 : center + random.nextGaussian() * 0.5);
+                    left.add(leaf ? -1 : 2 * i + 1);
+                    right.add(leaf ? -1 : 2 * i + 2);
+                    value.add(leaf ? random.nextGaussian() * 0.01 : 0);
+                }
+            }
+        }
+        return model;
+    }
+}
@@ -0,0 +1,35 @@
+package ceng.hrv4.backend.analysis;
+
+/**
+ * Result of a single HRV analysis run over an RR interval series.
+ * All values are primitives; a metric that cannot be computed for the
+ * given series (too short, no valid beats, ...) is {@link Double#NaN}.
+ *
+ * @param heartBeats number of beats in the series
+ * @param rmssd      root mean square of successive differences (ms)
+ * @param sdnn       standard deviation of NN intervals (ms)
+ * @param pnn50      percentage of successive differences above 50 ms
+ * @param minHr      minimum heart rate (bpm)
+ * @param maxHr      maximum heart rate (bpm)
+ * @param tp         total power up to 0.4 Hz (ms²)
+ * @param ulf        ultra low frequency power (ms²)
+ * @param vlf        very low frequency power (ms²)
+ * @param lf         low frequency power (ms²)
+ * @param hf         high frequency power (ms²)
+ * @param night      the same metrics over the night part of the recording, see
+ *                   {@link NightSegmenter}; null if no beat falls into the night
+ */
+public record HrvMetrics(
+        double heartBeats,
+        double rmssd,
+        double sdnn,
+        double pnn50,
+        double minHr,
+        double maxHr,
+        double tp,
+        double ulf,
+        double vlf,
+        double lf,
+        double hf,
+        HrvMetrics night
+) {}
@@ -0,0 +1,235 @@
+package ceng.hrv4.backend.analysis;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Computes time-domain and frequency-domain HRV metrics from RR intervals.
+ *
+ * Works directly on primitive {@code double[]} arrays: the time-domain metrics are
+ * accumulated in a single pass without allocation, the spectral part is delegated to
+ * {@link SpectralAnalyzer}. Intervals outside the physiological range are treated as
+ * artifacts and skipped, and successive differences are only taken between two
+ * consecutive valid beats.
+ *
+ * When the recording's start is known, the same pass places each beat in the day or night
+ * with a {@link NightSegmenter.Clock} and accumulates the night metrics over the night beats;
+ * successive differences are not taken across the day between two nights.
+ */
+@Component
+public class HrvMetricsEngine {
+
+    /** 200 bpm */
+    static final double MIN_VALID_RR_MS = 300.0;
+    /** 30 bpm */
+    static final double MAX_VALID_RR_MS = 2000.0;
+
+    static final double NN50_THRESHOLD_MS = 50.0;
+
+    private final SpectralAnalyzer spectralAnalyzer;
+    private final NightSegmenter nightSegmenter;
+
+    public HrvMetricsEngine(SpectralAnalyzer spectralAnalyzer, NightSegmenter nightSegmenter) {
+        this.spectralAnalyzer = spectralAnalyzer;
+        this.nightSegmenter = nightSegmenter;
+    }
+
+    static boolean isValidRr(double rrMs) {
+        return rrMs >= MIN_VALID_RR_MS && rrMs <= MAX_VALID_RR_MS;
+    }
+
+    /**
+     * Computes all metrics for the whole series, without night metrics.
+     *
+     * @param rrMs RR intervals in milliseconds
+     * @return the computed metrics; never null
+     */
+    public HrvMetrics compute(double[] rrMs) {
+        return compute(rrMs, 0, rrMs == null ? 0 : rrMs.length);
+    }
+
+    /**
+     * Computes all metrics for the whole recording, and the night metrics for its beats
+     * that fall into the night in the user's time zone.
+     *
+     * @param rrMs     RR intervals in milliseconds
+     * @param start    when the recording started, or null if unknown (no night metrics)
+     * @param timeZone the user's IANA time zone id, or null for the configured default
+     * @return the computed metrics; never null
+     */
+    public HrvMetrics compute(double[] rrMs, Instant start, String timeZone) {
+        if (rrMs == null) {
+            return compute(null, 0, 0);
+        }
+        return compute(rrMs, 0, rrMs.length, nightSegmenter.clock(start, timeZone));
+    }
+
+    /**
+     * Computes all metrics for {@code rrMs[from, to)}, without night metrics.
+     *
+     * @param rrMs RR intervals in milliseconds
+     * @param from first index (inclusive)
+     * @param to   last index (exclusive)
+     * @return the computed metrics; never null
+     */
+    public HrvMetrics compute(double[] rrMs, int from, int to) {
+        return compute(rrMs, from, to, null);
+    }
+
+    /**
+     * @param clock places the beats in the day or night, or null for no night metrics
+     */
+    private HrvMetrics compute(double[] rrMs, int from, int to, NightSegmenter.Clock clock) {
+        if (rrMs == null || to <= from) {
+            return new HrvMetrics(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+                    Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, null);
+        }
+
+        TimeDomain all = new TimeDomain();
+        TimeDomain night = null;
+        // Night beats as [from, to) index pairs, for the spectral part.
+        int[] nightRanges = new int[0];
+        int nightFrom = -1;
+        for (int i = from; i < to; i++) {
+            double rr = rrMs[i];
+            all.add(rr);
+            if (clock == null) {
+                continue;
+            }
+            if (clock.next(rr)) {
+                if (night == null) {
+                    night = new TimeDomain();
+                }
+                night.add(rr);
+                if (nightFrom < 0) {
+                    nightFrom = i;
+                }
+            }
+            else if (nightFrom >= 0) {
+                night.gap();
+                nightRanges = append(nightRanges, nightFrom, i);
+                nightFrom = -1;
+            }
+        }
+        if (nightFrom >= 0) {
+            nightRanges = append(nightRanges, nightFrom, to);
+        }
+
+        HrvMetrics nightMetrics = night != null ? night.metrics(nightBands(rrMs, nightRanges), null) : null;
+        return all.metrics(spectralAnalyzer.analyze(rrMs, from, to), nightMetrics);
+    }
+
+    private static int[] append(int[] ranges, int from, int to) {
+        int[] grown = Arrays.copyOf(ranges, ranges.length + 2);
+        grown[ranges.length] = from;
+        grown[ranges.length + 1] = to;
+        return grown;
+    }
+
+    /**
+     * Band powers of the night ranges, averaged weighted by their number of beats.
+     * Ranges too short for spectral analysis are left out.
+     */
+    private SpectralBands nightBands(double[] rrMs, int[] nightRanges) {
+        if (nightRanges.length == 2) {
+            return spectralAnalyzer.analyze(rrMs, nightRanges[0], nightRanges[1]);
+        }
+        double weight = 0;
+        double tp = 0, ulf = 0, vlf = 0, lf = 0, hf = 0;
+        for (int r = 0; r < nightRanges.length; r += 2) {
+            SpectralBands bands = spectralAnalyzer.analyze(rrMs, nightRanges[r], nightRanges[r + 1]);
+            if (Double.isNaN(bands.tp())) {
+                continue;
+            }
+            double beats = nightRanges[r + 1] - nightRanges[r];
+            weight += beats;
+            tp += beats * bands.tp();
+            ulf += beats * bands.ulf();
+            vlf += beats * bands.vlf();
+            lf += beats * bands.lf();
+            hf += beats * bands.hf();
+        }
+        return weight > 0
+                ? new SpectralBands(tp / weight, ulf / weight, vlf / weight, lf / weight, hf / weight)
+                : SpectralBands.EMPTY;
+    }
+
+    /**
+     * Running time-domain sums of one part of a recording.
+     */
+    private static final class TimeDomain {
+
+        private int beats;
+        private int count;
+        private double mean;
+        private double m2;
+        private double minRr = Double.MAX_VALUE;
+        private double maxRr;
+
+        private int diffs;
+        private double sumSquaredDiffs;
+        private int nn50;
+        private double previous = Double.NaN;
+
+        void add(double rr) {
+            beats++;
+            if (!isValidRr(rr)) {
+                previous = Double.NaN;
+                return;
+            }
+
+            // Welford's running variance
+            count++;
+            double delta = rr - mean;
+            mean += delta / count;
+            m2 += delta * (rr - mean);
+
+            if (rr < minRr) {
+                minRr = rr;
+            }
+            if (rr > maxRr) {
+                maxRr = rr;
+            }
+
+            if (!Double.isNaN(previous)) {
+                double diff = rr - previous;
+                sumSquaredDiffs += diff * diff;
+                if (Math.abs(diff) > NN50_THRESHOLD_MS) {
+                    nn50++;
+                }
+                diffs++;
+            }
+            previous = rr;
+        }
+
+        /** The next beat does not follow the previous one. */
+        void gap() {
+            previous = Double.NaN;
+        }
+
+        HrvMetrics metrics(SpectralBands bands, HrvMetrics night) {
+            double sdnn = count > 1 ? Math.sqrt(m2 / (count - 1)) : Double.NaN;
+            double rmssd = diffs > 0 ? Math.sqrt(sumSquaredDiffs / diffs) : Double.NaN;
+            double pnn50 = diffs > 0 ? 100.0 * nn50 / diffs : Double.NaN;
+            double minHr = count > 0 ? 60000.0 / maxRr : Double.NaN;
+            double maxHr = count > 0 ? 60000.0 / minRr : Double.NaN;
+
+            return new HrvMetrics(
+                    beats,
+                    rmssd,
+                    sdnn,
+                    pnn50,
+                    minHr,
+                    maxHr,
+                    bands.tp(),
+                    bands.ulf(),
+                    bands.vlf(),
+                    bands.lf(),
+                    bands.hf(),
+                    night
+            );
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ceng.hrv4.backend.analysis;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Computes rolling-window HRV metrics over a whole RR series in a single pass, using
+ * {@link RollingHrvWindow} so each beat is processed once regardless of the window size.
+ * Series that arrive in batches use {@link HrvWindowStream} directly.
+ */
+@Component
+public class HrvWindowAnalyzer {
+
+    /**
+     * Emits a window every {@code stepBeats} valid beats once the first {@code windowBeats}
+     * valid beats have been seen.
+     *
+     * @param rrMs        RR intervals in milliseconds
+     * @param windowBeats valid beats per window
+     * @param stepBeats   valid beats between two emitted windows
+     */
+    public HrvWindowSeries analyze(double[] rrMs, int windowBeats, int stepBeats) {
+        return new HrvWindowStream(windowBeats, stepBeats).feed(rrMs, 0, rrMs.length);
+    }
+}
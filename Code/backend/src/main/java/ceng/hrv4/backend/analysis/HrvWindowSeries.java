@@ -0,0 +1,34 @@
+package ceng.hrv4.backend.analysis;
+
+/**
+ * Metrics of consecutive rolling windows over one RR series, stored column-wise.
+ * Entry {@code i} of every array belongs to the window ending at {@code endOffsetsMs[i]},
+ * measured from the start of the series.
+ *
+ * @param windowBeats  valid beats per window
+ * @param stepBeats    valid beats between the ends of two consecutive windows
+ * @param endOffsetsMs end of each window relative to the series start (ms)
+ * @param meanRr       mean RR interval (ms)
+ * @param rmssd        root mean square of successive differences (ms)
+ * @param sdnn         standard deviation of NN intervals (ms)
+ * @param pnn50        percentage of successive differences above 50 ms
+ * @param mode         mode of the RR intervals, 50 ms bins (ms)
+ * @param amo          amplitude of the mode (%)
+ * @param stressIndex  Baevsky stress index
+ */
+public record HrvWindowSeries(
+        int windowBeats,
+        int stepBeats,
+        long[] endOffsetsMs,
+        double[] meanRr,
+        double[] rmssd,
+        double[] sdnn,
+        double[] pnn50,
+        double[] mode,
+        double[] amo,
+        double[] stressIndex
+) {
+    public int size() {
+        return endOffsetsMs.length;
+    }
+}
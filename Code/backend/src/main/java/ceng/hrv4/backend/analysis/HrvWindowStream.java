@@ -0,0 +1,95 @@
+package ceng.hrv4.backend.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Rolling-window HRV metrics of one RR series that is fed in consecutive batches, as a live
+ * recording is. Feeding a series in any number of batches emits the same windows as feeding
+ * it at once, which is what {@link HrvWindowAnalyzer} does.
+ *
+ * Not thread-safe; use one instance per series.
+ */
+public final class HrvWindowStream {
+
+    private final int windowBeats;
+    private final int stepBeats;
+    private final RollingHrvWindow window;
+
+    private long emitted;
+    private int sinceLast;
+    private double elapsedMs;
+
+    /**
+     * @param windowBeats valid beats per window
+     * @param stepBeats   valid beats between two emitted windows
+     */
+    public HrvWindowStream(int windowBeats, int stepBeats) {
+        if (stepBeats < 1) {
+            throw new IllegalArgumentException("Step must be at least 1");
+        }
+        this.windowBeats = windowBeats;
+        this.stepBeats = stepBeats;
+        this.window = new RollingHrvWindow(windowBeats);
+    }
+
+    /**
+     * Time covered by the beats fed so far (ms). Missing (NaN) and non-positive intervals add
+     * nothing, so one bad value does not shift the end of every later window.
+     */
+    public double elapsedMs() {
+        return elapsedMs;
+    }
+
+    /**
+     * Adds the next beats of the series.
+     *
+     * @return the windows completed by these beats, their ends measured from the series start
+     */
+    public HrvWindowSeries feed(double[] rrMs, int from, int to) {
+        // The first window is emitted once full, later ones every stepBeats valid beats.
+        int capacity = (to - from) / stepBeats + 1;
+        long[] ends = new long[capacity];
+        double[] meanRr = new double[capacity];
+        double[] rmssd = new double[capacity];
+        double[] sdnn = new double[capacity];
+        double[] pnn50 = new double[capacity];
+        double[] mode = new double[capacity];
+        double[] amo = new double[capacity];
+        double[] stressIndex = new double[capacity];
+
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            double rr = rrMs[i];
+            if (rr > 0 && Double.isFinite(rr)) {
+                elapsedMs += rr;
+            }
+            if (!window.add(rr) || !window.isFull()) {
+                continue;
+            }
+            if (emitted > 0 && ++sinceLast < stepBeats) {
+                continue;
+            }
+            sinceLast = 0;
+            ends[count] = Math.round(elapsedMs);
+            meanRr[count] = window.meanRr();
+            rmssd[count] = window.rmssd();
+            sdnn[count] = window.sdnn();
+            pnn50[count] = window.pnn50();
+            mode[count] = window.mode();
+            amo[count] = window.amo();
+            stressIndex[count] = window.stressIndex();
+            count++;
+            emitted++;
+        }
+
+        return new HrvWindowSeries(windowBeats, stepBeats,
+                Arrays.copyOf(ends, count),
+                Arrays.copyOf(meanRr, count),
+                Arrays.copyOf(rmssd, count),
+                Arrays.copyOf(sdnn, count),
+                Arrays.copyOf(pnn50, count),
+                Arrays.copyOf(mode, count),
+                Arrays.copyOf(amo, count),
+                Arrays.copyOf(stressIndex, count));
+    }
+}
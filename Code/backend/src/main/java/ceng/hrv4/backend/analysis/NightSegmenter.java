@@ -0,0 +1,116 @@
+package ceng.hrv4.backend.analysis;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+/**
+ * Tells which beats of a recording fall into the night, by the local time of day. The
+ * beats are placed with a {@link Clock} while the recording is walked through anyway, so
+ * this takes no pass of its own.
+ *
+ * A beat belongs to the night when the moment it ends, i.e. the recording start plus the
+ * sum of the RR intervals up to and including it, lies between {@code hrv.night.start} and
+ * {@code hrv.night.end} in the user's time zone. Night boundaries are taken per calendar day,
+ * so daylight saving changes move them with the wall clock. Users without a valid time zone
+ * use {@code hrv.night.zone}.
+ */
+@Component
+public class NightSegmenter {
+
+    private final LocalTime nightStart;
+    private final LocalTime nightEnd;
+    private final ZoneId defaultZone;
+
+    public NightSegmenter(@Value("${hrv.night.start:22:00}") LocalTime nightStart,
+                          @Value("${hrv.night.end:06:00}") LocalTime nightEnd,
+                          @Value("${hrv.night.zone:Europe/Istanbul}") ZoneId defaultZone) {
+        this.nightStart = nightStart;
+        this.nightEnd = nightEnd;
+        this.defaultZone = defaultZone;
+    }
+
+    /**
+     * @param start    when the recording started, or null if unknown
+     * @param timeZone the user's IANA time zone id, or null for the default
+     * @return a clock that follows the recording beat by beat, or null if the start is
+     *         unknown or the night is empty
+     */
+    public Clock clock(Instant start, String timeZone) {
+        if (start == null || nightStart.equals(nightEnd)) {
+            return null;
+        }
+        return new Clock(start, zone(timeZone));
+    }
+
+    /**
+     * @return the zone with the given id, or the default zone if the id is null or invalid
+     */
+    public ZoneId zone(String timeZone) {
+        if (timeZone == null || timeZone.isBlank()) {
+            return defaultZone;
+        }
+        try {
+            return ZoneId.of(timeZone);
+        }
+        catch (DateTimeException e) {
+            return defaultZone;
+        }
+    }
+
+    private long nightStartOf(LocalDate day, ZoneId zone) {
+        return day.atTime(nightStart).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    /** The night starting on {@code day} ends on the next day, unless it starts after midnight. */
+    private long nightEndOf(LocalDate day, ZoneId zone) {
+        LocalDate endDay = nightEnd.isAfter(nightStart) ? day : day.plusDays(1);
+        return endDay.atTime(nightEnd).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Local time of one recording, advanced by each beat's RR interval. Missing (NaN) and
+     * non-positive intervals do not move it, so one bad value does not shift every later beat.
+     */
+    public final class Clock {
+
+        private final ZoneId zone;
+        private final long startMs;
+        private LocalDate day;
+        private long windowStart;
+        private long windowEnd;
+        private double elapsedMs;
+
+        private Clock(Instant start, ZoneId zone) {
+            this.zone = zone;
+            this.startMs = start.toEpochMilli();
+            // The night that may still be running when the recording starts began the day before.
+            this.day = start.atZone(zone).toLocalDate().minusDays(1);
+            this.windowStart = nightStartOf(day, zone);
+            this.windowEnd = nightEndOf(day, zone);
+        }
+
+        /**
+         * Moves past the next beat.
+         *
+         * @return whether the beat ends in the night
+         */
+        public boolean next(double rrMs) {
+            if (rrMs > 0 && Double.isFinite(rrMs)) {
+                elapsedMs += rrMs;
+            }
+            long at = startMs + (long) elapsedMs;
+            while (at >= windowEnd) {
+                day = day.plusDays(1);
+                windowStart = nightStartOf(day, zone);
+                windowEnd = nightEndOf(day, zone);
+            }
+            return at >= windowStart;
+        }
+    }
+}
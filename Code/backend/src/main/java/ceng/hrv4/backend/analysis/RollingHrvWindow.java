@@ -0,0 +1,235 @@
+package ceng.hrv4.backend.analysis;
+
+/**
+ * HRV metrics over the last {@code size} valid beats of an RR series, updated per beat.
+ *
+ * Adding a beat costs O(1) amortized: RMSSD, SDNN and pNN50 are kept as running sums that
+ * are adjusted for the beat entering and the beat leaving the window, min and max RR come
+ * from monotonic deques, and the mode is read from a fixed 50 ms histogram over the valid
+ * RR range. Intervals rejected by {@link HrvMetricsEngine#isValidRr(double)} are not added
+ * and break the chain of successive differences, as in {@link HrvMetricsEngine}.
+ *
+ * Not thread-safe; use one instance per series.
+ */
+public final class RollingHrvWindow {
+
+    static final double BIN_WIDTH_MS = 50.0;
+    private static final int BINS =
+            (int) ((HrvMetricsEngine.MAX_VALID_RR_MS - HrvMetricsEngine.MIN_VALID_RR_MS) / BIN_WIDTH_MS) + 1;
+
+    /** Sums are taken around this offset to keep the variance numerically stable. */
+    private static final double SHIFT_MS = 800.0;
+
+    private final int size;
+    private final double[] values;
+    // Successive difference between a beat and the one before it, NaN after a gap.
+    private final double[] diffs;
+    private final int[] histogram = new int[BINS];
+    private final MonotonicDeque maxima;
+    private final MonotonicDeque minima;
+
+    private long added;
+    private int count;
+    private double sum;
+    private double sumSquares;
+    private int diffCount;
+    private double sumSquaredDiffs;
+    private int nn50;
+    private boolean gap = true;
+
+    public RollingHrvWindow(int size) {
+        if (size < 2) {
+            throw new IllegalArgumentException("Window size must be at least 2");
+        }
+        this.size = size;
+        this.values = new double[size];
+        this.diffs = new double[size];
+        this.maxima = new MonotonicDeque(size, true);
+        this.minima = new MonotonicDeque(size, false);
+    }
+
+    /**
+     * Adds the next RR interval of the series.
+     *
+     * @return whether the interval was valid and therefore added
+     */
+    public boolean add(double rrMs) {
+        if (!HrvMetricsEngine.isValidRr(rrMs)) {
+            gap = true;
+            return false;
+        }
+        if (count == size) {
+            evictOldest();
+        }
+
+        int slot = (int) (added % size);
+        double previous = values[(int) ((added + size - 1) % size)];
+        double diff = gap || count == 0 ? Double.NaN : rrMs - previous;
+        values[slot] = rrMs;
+        diffs[slot] = diff;
+        if (!Double.isNaN(diff)) {
+            addDiff(diff, 1);
+        }
+
+        double shifted = rrMs - SHIFT_MS;
+        sum += shifted;
+        sumSquares += shifted * shifted;
+        histogram[bin(rrMs)]++;
+        maxima.push(added, rrMs);
+        minima.push(added, rrMs);
+
+        added++;
+        count++;
+        gap = false;
+        return true;
+    }
+
+    private void evictOldest() {
+        long oldest = added - count;
+        double rr = values[(int) (oldest % size)];
+        double shifted = rr - SHIFT_MS;
+        sum -= shifted;
+        sumSquares -= shifted * shifted;
+        histogram[bin(rr)]--;
+        maxima.evictUpTo(oldest);
+        minima.evictUpTo(oldest);
+        count--;
+
+        // The difference to the evicted beat is stored on its successor.
+        int next = (int) ((oldest + 1) % size);
+        if (!Double.isNaN(diffs[next])) {
+            addDiff(diffs[next], -1);
+            diffs[next] = Double.NaN;
+        }
+    }
+
+    private void addDiff(double diff, int sign) {
+        diffCount += sign;
+        sumSquaredDiffs += sign * diff * diff;
+        if (Math.abs(diff) > HrvMetricsEngine.NN50_THRESHOLD_MS) {
+            nn50 += sign;
+        }
+    }
+
+    private static int bin(double rrMs) {
+        return Math.min(BINS - 1, (int) ((rrMs - HrvMetricsEngine.MIN_VALID_RR_MS) / BIN_WIDTH_MS));
+    }
+
+    /** Number of valid beats currently in the window. */
+    public int count() {
+        return count;
+    }
+
+    public boolean isFull() {
+        return count == size;
+    }
+
+    public double meanRr() {
+        return count > 0 ? sum / count + SHIFT_MS : Double.NaN;
+    }
+
+    public double sdnn() {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        double variance = (sumSquares - sum * sum / count) / (count - 1);
+        return Math.sqrt(Math.max(variance, 0));
+    }
+
+    public double rmssd() {
+        return diffCount > 0 ? Math.sqrt(Math.max(sumSquaredDiffs, 0) / diffCount) : Double.NaN;
+    }
+
+    public double pnn50() {
+        return diffCount > 0 ? 100.0 * nn50 / diffCount : Double.NaN;
+    }
+
+    /**
+     * Centre of the most populated 50 ms bin (ms); the shortest bin wins a tie.
+     */
+    public double mode() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return HrvMetricsEngine.MIN_VALID_RR_MS + (modalBin() + 0.5) * BIN_WIDTH_MS;
+    }
+
+    /**
+     * Amplitude of the mode: share of the beats in the modal bin (%).
+     */
+    public double amo() {
+        return count > 0 ? 100.0 * histogram[modalBin()] / count : Double.NaN;
+    }
+
+    /**
+     * Baevsky stress index, AMo / (2 * Mo * MxDMn) with Mo and MxDMn in seconds.
+     */
+    public double stressIndex() {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        double range = (maxima.peekValue() - minima.peekValue()) / 1000.0;
+        if (range <= 0) {
+            return Double.NaN;
+        }
+        return amo() / (2 * (mode() / 1000.0) * range);
+    }
+
+    private int modalBin() {
+        int best = 0;
+        for (int b = 1; b < BINS; b++) {
+            if (histogram[b] > histogram[best]) {
+                best = b;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Deque of (position, value) pairs whose values are monotonic, so the front is always
+     * the maximum (or minimum) of the window.
+     */
+    private static final class MonotonicDeque {
+
+        private final long[] positions;
+        private final double[] values;
+        private final boolean max;
+        private int head;
+        private int length;
+
+        MonotonicDeque(int capacity, boolean max) {
+            this.positions = new long[capacity];
+            this.values = new double[capacity];
+            this.max = max;
+        }
+
+        void push(long position, double value) {
+            while (length > 0) {
+                double last = values[index(length - 1)];
+                if (max ? last > value : last < value) {
+                    break;
+                }
+                length--;
+            }
+            int tail = index(length);
+            positions[tail] = position;
+            values[tail] = value;
+            length++;
+        }
+
+        void evictUpTo(long position) {
+            while (length > 0 && positions[head] <= position) {
+                head = (head + 1) % positions.length;
+                length--;
+            }
+        }
+
+        double peekValue() {
+            return values[head];
+        }
+
+        private int index(int offset) {
+            return (head + offset) % positions.length;
+        }
+    }
+}
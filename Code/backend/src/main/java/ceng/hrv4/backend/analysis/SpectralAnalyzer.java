@@ -0,0 +1,382 @@
+package ceng.hrv4.backend.analysis;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Frequency-domain HRV analysis.
+ *
+ * The unevenly sampled RR tachogram is resampled onto a 4 Hz grid with a natural cubic
+ * spline, which unlike linear interpolation does not damp the HF band. Recordings of up to
+ * {@link #SEGMENT} samples (about 68 minutes) are mean-removed, Hann-windowed and
+ * transformed as a whole. Longer ones use Welch's method: Hann-windowed segments of
+ * {@link #SEGMENT} samples overlapping by at least half, whose periodograms are averaged,
+ * which keeps the FFTs small and lowers the variance of the estimate. ULF periods do not
+ * fit in a segment, so for long recordings ULF power is taken from a periodogram of the
+ * whole recording averaged down to at most {@link #SEGMENT} points. Band powers are
+ * integrated from the one-sided spectrum using the Task Force (1996) limits.
+ *
+ * FFT twiddle factors come from one precomputed table and the work arrays are reused
+ * between calls, so an analysis allocates nothing once the buffers have grown to the
+ * recording length.
+ */
+@Component
+public class SpectralAnalyzer {
+
+    static final double SAMPLE_RATE_HZ = 4.0;
+
+    static final double ULF_MAX_HZ = 0.0033;
+    static final double VLF_MAX_HZ = 0.04;
+    static final double LF_MAX_HZ = 0.15;
+    static final double HF_MAX_HZ = 0.4;
+
+    /** Shorter recordings do not contain enough LF/HF cycles to be meaningful. */
+    static final double MIN_DURATION_SECONDS = 60.0;
+
+    /** Welch segment length and largest FFT size: 4096 s at 4 Hz, a frequency resolution of 0.24 mHz. */
+    static final int SEGMENT = 16384;
+
+    /** Buffers grown beyond two days of samples are not kept for later calls. */
+    private static final int MAX_POOLED_SAMPLES = (int) (2 * 24 * 3600 * SAMPLE_RATE_HZ);
+
+    // cos(2πk/SEGMENT) and -sin(2πk/SEGMENT) for k < SEGMENT/2; an FFT of size n uses every (SEGMENT/n)-th entry.
+    private static final double[] COS = new double[SEGMENT / 2];
+    private static final double[] SIN = new double[SEGMENT / 2];
+    private static final double[] SEGMENT_WINDOW = new double[SEGMENT];
+    private static final double SEGMENT_WINDOW_POWER;
+
+    static {
+        for (int k = 0; k < SEGMENT / 2; k++) {
+            COS[k] = Math.cos(2 * Math.PI * k / SEGMENT);
+            SIN[k] = -Math.sin(2 * Math.PI * k / SEGMENT);
+        }
+        double power = 0;
+        for (int s = 0; s < SEGMENT; s++) {
+            SEGMENT_WINDOW[s] = hann(s, SEGMENT);
+            power += SEGMENT_WINDOW[s] * SEGMENT_WINDOW[s];
+        }
+        SEGMENT_WINDOW_POWER = power;
+    }
+
+    // Idle work buffers, at most one per core. A pool rather than a ThreadLocal, so buffers
+    // are also reused when every request runs on a new virtual thread.
+    private final BlockingQueue<Workspace> workspaces = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Computes band powers for the RR intervals in {@code rrMs[from, to)}.
+     * Only intervals accepted by {@link HrvMetricsEngine#isValidRr(double)} are used as
+     * values; the others still count towards the beat times. Safe for concurrent use.
+     *
+     * @param rrMs RR intervals in milliseconds
+     * @param from first index (inclusive)
+     * @param to   last index (exclusive)
+     * @return band powers, or {@link SpectralBands#EMPTY} if the series is too short
+     */
+    public SpectralBands analyze(double[] rrMs, int from, int to) {
+        int valid = 0;
+        double durationMs = 0;
+        for (int i = from; i < to; i++) {
+            if (HrvMetricsEngine.isValidRr(rrMs[i])) {
+                valid++;
+                durationMs += rrMs[i];
+            }
+        }
+        if (valid < 2 || durationMs / 1000.0 < MIN_DURATION_SECONDS) {
+            return SpectralBands.EMPTY;
+        }
+
+        Workspace workspace = workspaces.poll();
+        if (workspace == null) {
+            workspace = new Workspace();
+        }
+        try {
+            return analyze(rrMs, from, to, valid, workspace);
+        }
+        finally {
+            if (workspace.grid.length <= MAX_POOLED_SAMPLES) {
+                workspaces.offer(workspace);
+            }
+        }
+    }
+
+    private SpectralBands analyze(double[] rrMs, int from, int to, int valid, Workspace workspace) {
+        workspace.ensureBeats(valid);
+        double[] beatTimes = workspace.beatTimes;
+        double[] beatValues = workspace.beatValues;
+        // Artifacts still take up time: the clock advances by every interval, only the
+        // invalid values are left out of the tachogram.
+        double t = 0;
+        int k = 0;
+        for (int i = from; i < to; i++) {
+            double rr = rrMs[i];
+            if (rr > 0 && Double.isFinite(rr)) {
+                t += rr / 1000.0;
+            }
+            if (HrvMetricsEngine.isValidRr(rr)) {
+                beatTimes[k] = t;
+                beatValues[k] = rr;
+                k++;
+            }
+        }
+
+        int samples = (int) ((beatTimes[valid - 1] - beatTimes[0]) * SAMPLE_RATE_HZ) + 1;
+        workspace.ensureSamples(samples);
+        resample(beatTimes, beatValues, valid, workspace.grid, samples, workspace);
+
+        double[] psd = workspace.psd;
+        if (samples <= SEGMENT) {
+            int n = Integer.highestOneBit(Math.max(samples - 1, 1)) << 1;
+            periodogram(workspace.grid, samples, n, SAMPLE_RATE_HZ, workspace);
+            return bands(psd, n, SAMPLE_RATE_HZ, 0);
+        }
+
+        welch(workspace.grid, samples, workspace);
+        SpectralBands segmented = bands(psd, SEGMENT, SAMPLE_RATE_HZ, ULF_MAX_HZ);
+
+        // ULF from the whole recording, averaged over blocks of `factor` samples to fit one FFT.
+        int factor = 2;
+        while ((samples + factor - 1) / factor > SEGMENT) {
+            factor <<= 1;
+        }
+        int blocks = samples / factor;
+        double[] averaged = workspace.decimated;
+        for (int b = 0; b < blocks; b++) {
+            double sum = 0;
+            for (int s = b * factor, end = s + factor; s < end; s++) {
+                sum += workspace.grid[s];
+            }
+            averaged[b] = sum / factor;
+        }
+        double decimatedRate = SAMPLE_RATE_HZ / factor;
+        int n = Integer.highestOneBit(Math.max(blocks - 1, 1)) << 1;
+        periodogram(averaged, blocks, n, decimatedRate, workspace);
+        double ulf = bands(psd, n, decimatedRate, 0).ulf();
+
+        return new SpectralBands(ulf + segmented.vlf() + segmented.lf() + segmented.hf(),
+                ulf, segmented.vlf(), segmented.lf(), segmented.hf());
+    }
+
+    /**
+     * Evaluates the natural cubic spline through the beats at every grid point.
+     */
+    private static void resample(double[] x, double[] y, int beats, double[] grid, int samples, Workspace workspace) {
+        // Second derivatives at the knots from the tridiagonal system, by the Thomas algorithm;
+        // zero at both ends.
+        double[] m = workspace.curvature;
+        double[] c = workspace.scratch;
+        m[0] = 0;
+        c[0] = 0;
+        for (int i = 1; i < beats - 1; i++) {
+            double h0 = x[i] - x[i - 1];
+            double h1 = x[i + 1] - x[i];
+            double rhs = 6 * ((y[i + 1] - y[i]) / h1 - (y[i] - y[i - 1]) / h0);
+            double pivot = 2 * (h0 + h1) - h0 * c[i - 1];
+            c[i] = h1 / pivot;
+            m[i] = (rhs - h0 * m[i - 1]) / pivot;
+        }
+        m[beats - 1] = 0;
+        for (int i = beats - 2; i > 0; i--) {
+            m[i] -= c[i] * m[i + 1];
+        }
+
+        double step = 1.0 / SAMPLE_RATE_HZ;
+        int seg = 0;
+        for (int s = 0; s < samples; s++) {
+            double ts = x[0] + s * step;
+            while (seg < beats - 2 && x[seg + 1] < ts) {
+                seg++;
+            }
+            double h = x[seg + 1] - x[seg];
+            double b = (ts - x[seg]) / h;
+            double a = 1 - b;
+            grid[s] = a * y[seg] + b * y[seg + 1]
+                    + ((a * a * a - a) * m[seg] + (b * b * b - b) * m[seg + 1]) * h * h / 6;
+        }
+    }
+
+    /**
+     * Averaged one-sided PSD of {@link #SEGMENT}-sample segments into {@code workspace.psd}.
+     * Segments are spread evenly from the first to the last sample, overlapping by at least
+     * half. Two real segments go through one complex FFT, as real and imaginary part.
+     */
+    private static void welch(double[] grid, int samples, Workspace workspace) {
+        double[] re = workspace.re;
+        double[] im = workspace.im;
+        double[] psd = workspace.psd;
+        int half = SEGMENT / 2;
+        int segments = (samples - SEGMENT + half - 1) / half + 1;
+        Arrays.fill(psd, 0);
+
+        for (int first = 0; first < segments; first += 2) {
+            window(grid, start(first, segments, samples), re);
+            if (first + 1 < segments) {
+                window(grid, start(first + 1, segments, samples), im);
+            }
+            else {
+                Arrays.fill(im, 0);
+            }
+            fft(re, im, SEGMENT);
+            // Spectra of the two segments: A = (X[k] + conj X[n-k]) / 2, B = (X[k] - conj X[n-k]) / 2i.
+            for (int bin = 1; bin <= half; bin++) {
+                int mirror = SEGMENT - bin;
+                double sumRe = re[bin] + re[mirror];
+                double diffIm = im[bin] - im[mirror];
+                double sumIm = im[bin] + im[mirror];
+                double diffRe = re[bin] - re[mirror];
+                psd[bin] += (sumRe * sumRe + diffIm * diffIm + sumIm * sumIm + diffRe * diffRe) / 4;
+            }
+        }
+        double scale = 2 / (SAMPLE_RATE_HZ * SEGMENT_WINDOW_POWER * segments);
+        for (int bin = 1; bin <= half; bin++) {
+            psd[bin] *= scale;
+        }
+    }
+
+    private static int start(int segment, int segments, int samples) {
+        return (int) ((long) segment * (samples - SEGMENT) / (segments - 1));
+    }
+
+    /** Copies a segment into {@code out}, mean-removed and Hann-windowed. */
+    private static void window(double[] grid, int start, double[] out) {
+        double mean = 0;
+        for (int s = 0; s < SEGMENT; s++) {
+            mean += grid[start + s];
+        }
+        mean /= SEGMENT;
+        for (int s = 0; s < SEGMENT; s++) {
+            out[s] = (grid[start + s] - mean) * SEGMENT_WINDOW[s];
+        }
+    }
+
+    /**
+     * One-sided PSD of {@code series[0, length)}, mean-removed, Hann-windowed and zero-padded
+     * to {@code n} points, into {@code workspace.psd}.
+     */
+    private static void periodogram(double[] series, int length, int n, double sampleRate, Workspace workspace) {
+        double[] re = workspace.re;
+        double[] im = workspace.im;
+        double mean = 0;
+        for (int s = 0; s < length; s++) {
+            mean += series[s];
+        }
+        mean /= length;
+        double windowPower = 0;
+        for (int s = 0; s < length; s++) {
+            double w = hann(s, length);
+            re[s] = (series[s] - mean) * w;
+            windowPower += w * w;
+        }
+        Arrays.fill(re, length, n, 0);
+        Arrays.fill(im, 0, n, 0);
+
+        fft(re, im, n);
+
+        double scale = 2 / (sampleRate * windowPower);
+        for (int bin = 1; bin <= n / 2; bin++) {
+            workspace.psd[bin] = (re[bin] * re[bin] + im[bin] * im[bin]) * scale;
+        }
+    }
+
+    /**
+     * Integrates the PSD of an {@code n}-point FFT over the bands, leaving out bins at or
+     * below {@code skipBelowHz}.
+     */
+    private static SpectralBands bands(double[] psd, int n, double sampleRate, double skipBelowHz) {
+        double df = sampleRate / n;
+        double ulf = 0, vlf = 0, lf = 0, hf = 0;
+        for (int bin = 1; bin <= n / 2; bin++) {
+            double f = bin * df;
+            if (f > HF_MAX_HZ) {
+                break;
+            }
+            double power = psd[bin] * df;
+            if (f <= skipBelowHz) {
+                continue;
+            }
+            if (f <= ULF_MAX_HZ) {
+                ulf += power;
+            } else if (f <= VLF_MAX_HZ) {
+                vlf += power;
+            } else if (f <= LF_MAX_HZ) {
+                lf += power;
+            } else {
+                hf += power;
+            }
+        }
+        return new SpectralBands(ulf + vlf + lf + hf, ulf, vlf, lf, hf);
+    }
+
+    private static double hann(int s, int length) {
+        return length > 1 ? 0.5 - 0.5 * Math.cos(2 * Math.PI * s / (length - 1)) : 1;
+    }
+
+    /**
+     * In-place iterative radix-2 Cooley-Tukey FFT of {@code re[0, n)} and {@code im[0, n)}.
+     * {@code n} must be a power of two no larger than {@link #SEGMENT}.
+     */
+    static void fft(double[] re, double[] im, int n) {
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double tr = re[i]; re[i] = re[j]; re[j] = tr;
+                double ti = im[i]; im[i] = im[j]; im[j] = ti;
+            }
+        }
+        for (int len = 2; len <= n; len <<= 1) {
+            int half = len >> 1;
+            int stride = SEGMENT / len;
+            for (int i = 0; i < n; i += len) {
+                for (int j = 0, k = 0; j < half; j++, k += stride) {
+                    double cr = COS[k];
+                    double ci = SIN[k];
+                    int a = i + j;
+                    int b = a + half;
+                    double xr = re[b] * cr - im[b] * ci;
+                    double xi = re[b] * ci + im[b] * cr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+
+    /**
+     * Work arrays of one analysis; the per-beat and per-sample ones grow with the recording.
+     */
+    private static final class Workspace {
+
+        final double[] re = new double[SEGMENT];
+        final double[] im = new double[SEGMENT];
+        final double[] psd = new double[SEGMENT / 2 + 1];
+        final double[] decimated = new double[SEGMENT];
+        double[] beatTimes = new double[0];
+        double[] beatValues = new double[0];
+        double[] curvature = new double[0];
+        double[] scratch = new double[0];
+        double[] grid = new double[0];
+
+        void ensureBeats(int beats) {
+            if (beatTimes.length < beats) {
+                beatTimes = new double[beats];
+                beatValues = new double[beats];
+                curvature = new double[beats];
+                scratch = new double[beats];
+            }
+        }
+
+        void ensureSamples(int samples) {
+            if (grid.length < samples) {
+                grid = new double[samples];
+            }
+        }
+    }
+}
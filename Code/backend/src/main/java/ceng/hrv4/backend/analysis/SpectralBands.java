@@ -0,0 +1,14 @@
+package ceng.hrv4.backend.analysis;
+
+/**
+ * Band powers (ms²) of an RR series. Unavailable bands are {@link Double#NaN}.
+ */
+public record SpectralBands(
+        double tp,
+        double ulf,
+        double vlf,
+        double lf,
+        double hf
+) {
+    public static final SpectralBands EMPTY = new SpectralBands(Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+}
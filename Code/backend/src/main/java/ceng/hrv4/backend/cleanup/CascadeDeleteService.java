@@ -0,0 +1,209 @@
+package ceng.hrv4.backend.cleanup;
+
+import ceng.hrv4.backend.dto.response.DeletionJobResponseDto;
+import ceng.hrv4.backend.entity.Activity;
+import ceng.hrv4.backend.entity.DeletionJob;
+import ceng.hrv4.backend.entity.HrvRollup;
+import ceng.hrv4.backend.entity.HrvWindowBucket;
+import ceng.hrv4.backend.entity.ImportCheckpoint;
+import ceng.hrv4.backend.entity.ModelOutput;
+import ceng.hrv4.backend.entity.ProcessedData;
+import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.entity.RawDataChunk;
+import ceng.hrv4.backend.entity.RefreshToken;
+import ceng.hrv4.backend.entity.ScoringJob;
+import ceng.hrv4.backend.repository.DeletionJobRepository;
+import ceng.hrv4.backend.service.LeasedJobRunner;
+import ceng.hrv4.backend.service.LeasedJobs;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Removes the documents that belong to a deleted user, off the request thread.
+ *
+ * Deleting a user only removes the {@code users} document and queues a {@link DeletionJob};
+ * the queue is then worked through on a dedicated thread, one job at a time (see
+ * {@link LeasedJobRunner}), so the throttled batches of a large user do not hold up the other
+ * scheduled tasks. Each collection is emptied in batches of {@code hrv.cascade-delete.batch-size}
+ * documents, looked up through the user's index and removed by {@code _id}, with a pause of
+ * {@code hrv.cascade-delete.pause} between batches so a user with years of recordings does
+ * not saturate the database. Chunks and window buckets are removed through their RawData ids,
+ * which their indexes are keyed by. Scoring jobs are removed first, so no worker writes a new
+ * ModelOutput of the user while the outputs are being removed.
+ */
+@Slf4j
+@Service
+public class CascadeDeleteService {
+
+    private static final EnumSet<DeletionJob.Status> ACTIVE =
+            EnumSet.of(DeletionJob.Status.PENDING, DeletionJob.Status.RUNNING);
+
+    private final MongoTemplate mongoTemplate;
+    private final DeletionJobRepository deletionJobRepository;
+    private final int batchSize;
+    private final Duration pause;
+    private final LeasedJobRunner<DeletionJob> runner;
+
+    public CascadeDeleteService(MongoTemplate mongoTemplate, DeletionJobRepository deletionJobRepository,
+                                @Value("${hrv.cascade-delete.batch-size:500}") int batchSize,
+                                @Value("${hrv.cascade-delete.pause:PT0.1S}") Duration pause,
+                                @Value("${hrv.cascade-delete.lease:PT5M}") Duration lease) {
+        this.mongoTemplate = mongoTemplate;
+        this.deletionJobRepository = deletionJobRepository;
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.runner = new LeasedJobRunner<>("cascade-delete", new LeasedJobs<>(mongoTemplate, DeletionJob.class,
+                DeletionJob.Status.PENDING, DeletionJob.Status.RUNNING, lease), this::run);
+    }
+
+    /**
+     * Queues the removal of a user's documents. The user document itself must already be gone,
+     * otherwise the user could keep writing while the job runs.
+     *
+     * @param email the user's email, used to find their refresh tokens; may be null
+     */
+    public DeletionJob enqueue(String userId, String email, DeletionJob.Trigger trigger) {
+        DeletionJob job = deletionJobRepository.save(new DeletionJob(userId, email, trigger));
+        runner.wakeUp();
+        return job;
+    }
+
+    /**
+     * Whether a job for the user is queued or running.
+     */
+    public boolean hasActiveJob(String userId) {
+        return deletionJobRepository.existsByUserIdAndStatusIn(userId, ACTIVE);
+    }
+
+    public Optional<DeletionJobResponseDto> find(String jobId) {
+        return deletionJobRepository.findById(jobId).map(CascadeDeleteService::toDto);
+    }
+
+    /**
+     * Picks up jobs queued on other instances and jobs left behind by a stopped instance.
+     * Only hands the work to the runner thread, so the scheduler thread is never blocked.
+     */
+    @Scheduled(initialDelayString = "${hrv.cascade-delete.poll-interval:PT10S}",
+            fixedDelayString = "${hrv.cascade-delete.poll-interval:PT10S}")
+    public void poll() {
+        runner.wakeUp();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdown();
+    }
+
+    private void run(DeletionJob job) {
+        String userId = job.getUserId();
+        try {
+            deleteInBatches(job.getId(), ScoringJob.class, Criteria.where("user_id").is(userId));
+            String rawData = mongoTemplate.getCollectionName(RawData.class);
+            List<Object> rawIds;
+            while (!(rawIds = nextIds(rawData, Criteria.where("user_id").is(userId))).isEmpty()) {
+                List<String> rawDataIds = rawIds.stream().map(String::valueOf).toList();
+                deleteInBatches(job.getId(), RawDataChunk.class, Criteria.where("raw_data_id").in(rawDataIds));
+                deleteInBatches(job.getId(), HrvWindowBucket.class, Criteria.where("raw_data_id").in(rawDataIds));
+                remove(job.getId(), rawData, rawIds);
+            }
+            deleteInBatches(job.getId(), ProcessedData.class, Criteria.where("user_id").is(userId));
+            deleteInBatches(job.getId(), ModelOutput.class, Criteria.where("user_id").is(userId));
+            deleteInBatches(job.getId(), HrvRollup.class, Criteria.where("user_id").is(userId));
+            deleteInBatches(job.getId(), Activity.class, Criteria.where("userId").is(userId));
+            deleteInBatches(job.getId(), ImportCheckpoint.class, Criteria.where("user_id").is(userId));
+            if (job.getEmail() != null) {
+                deleteInBatches(job.getId(), RefreshToken.class, Criteria.where("username").is(job.getEmail()));
+            }
+            finish(job.getId(), DeletionJob.Status.DONE, null);
+            log.info("Removed the documents of deleted user {} (job {})", userId, job.getId());
+        }
+        catch (Exception e) {
+            log.error("Cascade delete of user {} failed (job {})", userId, job.getId(), e);
+            finish(job.getId(), DeletionJob.Status.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes every document of the entity's collection matching the criteria, one batch at a time.
+     *
+     * @param jobId job to record the progress on, or null
+     * @return the number of documents removed
+     */
+    long deleteInBatches(String jobId, Class<?> entityClass, Criteria criteria) {
+        String collection = mongoTemplate.getCollectionName(entityClass);
+        long total = 0;
+        List<Object> ids;
+        while (!(ids = nextIds(collection, criteria)).isEmpty()) {
+            total += remove(jobId, collection, ids);
+        }
+        return total;
+    }
+
+    private List<Object> nextIds(String collection, Criteria criteria) {
+        Query query = new Query(criteria).limit(batchSize);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Document.class, collection).stream()
+                .map(document -> document.get("_id"))
+                .toList();
+    }
+
+    private long remove(String jobId, String collection, List<Object> ids) {
+        long removed = mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), collection).getDeletedCount();
+        if (jobId != null) {
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(jobId)),
+                    new Update().inc("deleted." + collection, removed).set("updated_at", Instant.now()),
+                    DeletionJob.class);
+        }
+        throttle();
+        return removed;
+    }
+
+    private void throttle() {
+        if (pause.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(pause);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+
+    private void finish(String jobId, DeletionJob.Status status, String error) {
+        Instant now = Instant.now();
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(jobId)),
+                new Update().set("status", status).set("error", error).set("finished_at", now).set("updated_at", now),
+                DeletionJob.class);
+    }
+
+    private static DeletionJobResponseDto toDto(DeletionJob job) {
+        return new DeletionJobResponseDto(
+                job.getId(),
+                job.getUserId(),
+                job.getTrigger() != null ? job.getTrigger().name() : null,
+                job.getStatus() != null ? job.getStatus().name() : null,
+                job.getDeleted(),
+                job.getAttempts(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt(),
+                job.getError()
+        );
+    }
+}
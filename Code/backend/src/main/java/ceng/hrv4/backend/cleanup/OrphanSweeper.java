@@ -0,0 +1,140 @@
+package ceng.hrv4.backend.cleanup;
+
+import ceng.hrv4.backend.entity.Activity;
+import ceng.hrv4.backend.entity.DeletionJob;
+import ceng.hrv4.backend.entity.HrvRollup;
+import ceng.hrv4.backend.entity.HrvWindowBucket;
+import ceng.hrv4.backend.entity.ImportCheckpoint;
+import ceng.hrv4.backend.entity.ModelOutput;
+import ceng.hrv4.backend.entity.ProcessedData;
+import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.entity.RawDataChunk;
+import ceng.hrv4.backend.entity.ScoringJob;
+import ceng.hrv4.backend.repository.RawDataRepository;
+import ceng.hrv4.backend.repository.UserRepository;
+import ceng.hrv4.backend.repository.projection.IdOnly;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Periodically finds documents whose owner no longer exists.
+ *
+ * Users deleted before cascade deletes existed, or whose job failed, are found through the
+ * distinct user ids of each user-keyed collection and get a {@link DeletionJob} queued.
+ * Chunks and window buckets whose RawData is gone, for example after a failed write, are
+ * removed directly. The distinct values are read through a sorted {@code $group}, which
+ * the (user_id, ...) and (raw_data_id, ...) indexes turn into a scan of the index keys.
+ *
+ * Refresh tokens are not swept; the TTL index on their expiry date removes them.
+ * Runs on {@code hrv.cascade-delete.orphan-sweep-cron}, nightly by default; "-" disables it.
+ */
+@Slf4j
+@Component
+public class OrphanSweeper {
+
+    private static final int CHECK_BATCH = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final UserRepository userRepository;
+    private final RawDataRepository rawDataRepository;
+    private final CascadeDeleteService cascadeDeleteService;
+
+    public OrphanSweeper(MongoTemplate mongoTemplate, UserRepository userRepository,
+                         RawDataRepository rawDataRepository, CascadeDeleteService cascadeDeleteService) {
+        this.mongoTemplate = mongoTemplate;
+        this.userRepository = userRepository;
+        this.rawDataRepository = rawDataRepository;
+        this.cascadeDeleteService = cascadeDeleteService;
+    }
+
+    @Scheduled(cron = "${hrv.cascade-delete.orphan-sweep-cron:0 30 3 * * *}")
+    public void sweep() {
+        try {
+            Set<String> queued = new HashSet<>();
+            queueOrphanedUsers(RawData.class, "user_id", queued);
+            queueOrphanedUsers(ProcessedData.class, "user_id", queued);
+            queueOrphanedUsers(ModelOutput.class, "user_id", queued);
+            queueOrphanedUsers(ScoringJob.class, "user_id", queued);
+            queueOrphanedUsers(HrvRollup.class, "user_id", queued);
+            queueOrphanedUsers(Activity.class, "userId", queued);
+            queueOrphanedUsers(ImportCheckpoint.class, "user_id", queued);
+            long parts = deleteOrphanedParts(RawDataChunk.class) + deleteOrphanedParts(HrvWindowBucket.class);
+            log.info("Orphan sweep queued {} cascade deletes and removed {} chunks and window buckets",
+                    queued.size(), parts);
+        }
+        catch (Exception e) {
+            log.warn("Orphan sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private void queueOrphanedUsers(Class<?> entityClass, String userField, Set<String> queued) {
+        forEachDistinct(entityClass, userField, userIds -> {
+            Set<String> existing = ids(userRepository.findByIdIn(userIds));
+            for (String userId : userIds) {
+                if (!existing.contains(userId) && queued.add(userId) && !cascadeDeleteService.hasActiveJob(userId)) {
+                    cascadeDeleteService.enqueue(userId, null, DeletionJob.Trigger.ORPHAN_SWEEP);
+                }
+            }
+        });
+    }
+
+    private long deleteOrphanedParts(Class<?> entityClass) {
+        long[] removed = {0};
+        forEachDistinct(entityClass, "raw_data_id", rawDataIds -> {
+            Set<String> existing = ids(rawDataRepository.findByIdIn(rawDataIds));
+            List<String> missing = rawDataIds.stream().filter(id -> !existing.contains(id)).toList();
+            if (!missing.isEmpty()) {
+                removed[0] += cascadeDeleteService.deleteInBatches(null, entityClass, Criteria.where("raw_data_id").in(missing));
+            }
+        });
+        return removed[0];
+    }
+
+    /**
+     * Streams the distinct non-null values of a field and hands them on in batches.
+     */
+    private void forEachDistinct(Class<?> entityClass, String field, Consumer<List<String>> batchConsumer) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                        Aggregation.sort(Sort.Direction.ASC, field),
+                        Aggregation.group(field))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        String collection = mongoTemplate.getCollectionName(entityClass);
+
+        List<String> batch = new ArrayList<>(CHECK_BATCH);
+        try (Stream<Document> values = mongoTemplate.aggregateStream(aggregation, collection, Document.class)) {
+            for (Document value : (Iterable<Document>) values::iterator) {
+                Object id = value.get("_id");
+                if (id == null) {
+                    continue;
+                }
+                batch.add(id.toString());
+                if (batch.size() == CHECK_BATCH) {
+                    batchConsumer.accept(List.copyOf(batch));
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(List.copyOf(batch));
+        }
+    }
+
+    private static Set<String> ids(List<IdOnly> found) {
+        return found.stream().map(IdOnly::getId).collect(Collectors.toSet());
+    }
+}
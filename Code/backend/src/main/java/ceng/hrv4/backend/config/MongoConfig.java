@@ -0,0 +1,37 @@
+package ceng.hrv4.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes the MongoDB connection pool.
+ *
+ * With virtual threads ({@code spring.threads.virtual.enabled}) Tomcat no longer caps the
+ * number of requests in flight, so the pool is what bounds the concurrent work sent to the
+ * database. A short {@code max-wait} makes an overloaded pool fail requests quickly instead
+ * of letting an unbounded number of virtual threads queue for a connection.
+ *
+ * The settings apply to the blocking and the reactive client alike, and each keeps its own
+ * pool, so the server sees up to twice {@code max-size} connections per instance.
+ */
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer connectionPoolCustomizer(
+            @Value("${hrv.mongo.pool.max-size:100}") int maxSize,
+            @Value("${hrv.mongo.pool.min-size:10}") int minSize,
+            @Value("${hrv.mongo.pool.max-wait:PT2S}") Duration maxWait,
+            @Value("${hrv.mongo.pool.max-connecting:4}") int maxConnecting) {
+        return builder -> builder.applyToConnectionPoolSettings(pool -> pool
+                .maxSize(maxSize)
+                .minSize(minSize)
+                .maxWaitTime(maxWait.toMillis(), TimeUnit.MILLISECONDS)
+                .maxConnecting(maxConnecting));
+    }
+}
@@ -1,5 +1,9 @@
 package ceng.hrv4.backend.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -35,9 +39,24 @@ public class SecurityConfig {
                         "/api/v1/user/login",
                         "/api/v1/user/refresh",
                         "/api/v1/test",
+                        "/actuator/health",
                 };
     }
 
+    /**
+     * The metrics endpoint is served on the management port, which is not published outside
+     * the deployment; it needs no token there so Prometheus can scrape it. On any other port
+     * it requires authentication like the rest of the API.
+     */
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
+    private boolean isMetricsScrape(HttpServletRequest request) {
+        return managementPort > 0
+                && request.getLocalPort() == managementPort
+                && "/actuator/prometheus".equals(request.getRequestURI());
+    }
+
     @Bean //we say to Spring: don't go for default, this is the security chain you have to go for
     public SecurityFilterChain securityFilterChain(HttpSecurity http, JWTFilter jwtFilter) throws Exception {
         return http
@@ -45,7 +64,11 @@ public class SecurityConfig {
                 .csrf(CsrfConfigurer::disable) //disable csrf token protection
                 .authorizeHttpRequests(request -> request
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // Streamed responses finish in an async dispatch, which the JWT filter does not see;
+                        // the request itself was already authorized when the stream started.
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(WHITELIST).permitAll()
+                        .requestMatchers(this::isMetricsScrape).permitAll()
                         .anyRequest().authenticated()) //enforce authentication for all incoming requests
                 //.formLogin(Customizer.withDefaults()) //enable the spring security's login page
                 //.httpBasic(Customizer.withDefaults()) //enable http basic authentication with default settings, I make use of this config in postman
@@ -85,7 +108,10 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(@Value("${hrv.auth.bcrypt.strength:12}") int strength,
+                                           MeterRegistry meterRegistry) {
+        // Raising the strength rehashes existing passwords on their next successful login,
+        // see UserServiceImpl#updatePassword.
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(strength), meterRegistry);
     }
 }
@@ -0,0 +1,72 @@
+package ceng.hrv4.backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Times every public method of the {@code service.*Impl} classes as {@code hrv.service},
+ * tagged with the class, the method and the HTTP status of the returned ResponseEntity.
+ *
+ * The services catch their own exceptions and return 500, so the status tag is what makes
+ * those failures visible. Methods returning a CompletableFuture are timed until the future
+ * completes; streamed responses are timed until the body is handed to Spring MVC, not
+ * until it is fully written.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    static final String METRIC = "hrv.service";
+
+    private final MeterRegistry meterRegistry;
+
+    public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * ceng.hrv4.backend.service.*Impl.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        String type = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        String method = joinPoint.getSignature().getName();
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        }
+        catch (Throwable e) {
+            stop(sample, type, method, "exception");
+            throw e;
+        }
+
+        if (result instanceof CompletableFuture<?> future) {
+            return future.whenComplete((value, error) ->
+                    stop(sample, type, method, error != null ? "exception" : status(value)));
+        }
+        stop(sample, type, method, status(result));
+        return result;
+    }
+
+    private void stop(Timer.Sample sample, String type, String method, String status) {
+        sample.stop(Timer.builder(METRIC)
+                .description("Service method latency")
+                .tag("class", type)
+                .tag("method", method)
+                .tag("status", status)
+                .register(meterRegistry));
+    }
+
+    private static String status(Object result) {
+        if (result instanceof ResponseEntity<?> response) {
+            return String.valueOf(response.getStatusCode().value());
+        }
+        return "none";
+    }
+}
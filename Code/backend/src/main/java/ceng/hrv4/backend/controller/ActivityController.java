@@ -2,10 +2,13 @@ package ceng.hrv4.backend.controller;
 
 import ceng.hrv4.backend.dto.request.ActivityRequestDto;
 import ceng.hrv4.backend.dto.response.ActivityResponseDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
 import ceng.hrv4.backend.service.ActivityService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -28,6 +31,14 @@ public class ActivityController {
         return activityService.saveActivity(activityRequestDto);
     }
 
+    /**
+     * POST /api/v1/activities/batch
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponseDto> createActivities(@RequestBody List<ActivityRequestDto> activityRequestDtos) {
+        return activityService.saveActivityBatch(activityRequestDtos);
+    }
+
     /**
      * GET /api/v1/activities
      */
@@ -36,6 +47,24 @@ public class ActivityController {
         return activityService.findAllActivities();
     }
 
+    /**
+     * GET /api/v1/activities/page?cursor=...&limit=50
+     */
+    @GetMapping("/page")
+    public ResponseEntity<PageResponseDto<ActivityResponseDto>> getActivityPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return activityService.findActivityPage(cursor, limit);
+    }
+
+    /**
+     * GET /api/v1/activities/stream (application/x-ndjson)
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamActivities() {
+        return activityService.streamAllActivities();
+    }
+
     /**
      * GET /api/v1/activities/{id}
      */
@@ -60,6 +89,25 @@ public class ActivityController {
         return activityService.findActivityByUserId(userId);
     }
 
+    /**
+     * GET /api/v1/activities/user/{userId}/page?cursor=...&limit=50
+     */
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<PageResponseDto<ActivityResponseDto>> getActivityPageByUser(
+            @PathVariable("userId") String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return activityService.findActivityPageByUserId(userId, cursor, limit);
+    }
+
+    /**
+     * GET /api/v1/activities/user/{userId}/stream (application/x-ndjson)
+     */
+    @GetMapping("/user/{userId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamActivitiesByUser(@PathVariable("userId") String userId) {
+        return activityService.streamActivitiesByUserId(userId);
+    }
+
     /**
      * DELETE /api/v1/activities/{id}
      */
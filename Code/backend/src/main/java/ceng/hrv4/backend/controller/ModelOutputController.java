@@ -0,0 +1,213 @@
+package ceng.hrv4.backend.controller;
+
+import ceng.hrv4.backend.dto.request.ModelOutputRequestDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
+import ceng.hrv4.backend.dto.response.ModelOutputResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
+import ceng.hrv4.backend.dto.response.RescoringJobResponseDto;
+import ceng.hrv4.backend.dto.response.ScoringJobResponseDto;
+import ceng.hrv4.backend.dto.response.ScoringModelResponseDto;
+import ceng.hrv4.backend.service.ModelOutputService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/model-outputs")
+public class ModelOutputController {
+
+    private final ModelOutputService modelOutputService;
+
+    @Autowired
+    public ModelOutputController(ModelOutputService modelOutputService) {
+        this.modelOutputService = modelOutputService;
+    }
+
+    /**
+     * POST /api/v1/model-outputs
+     */
+    @PostMapping
+    public ResponseEntity<ModelOutputResponseDto> createModelOutput(@RequestBody ModelOutputRequestDto modelOutputRequestDto) {
+        return modelOutputService.createModelOutput(modelOutputRequestDto);
+    }
+
+    /**
+     * POST /api/v1/model-outputs/batch
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponseDto> createModelOutputs(@RequestBody List<ModelOutputRequestDto> modelOutputRequestDtos) {
+        return modelOutputService.createModelOutputBatch(modelOutputRequestDtos);
+    }
+
+    /**
+     * GET /api/v1/model-outputs
+     */
+    @GetMapping
+    public ResponseEntity<List<ModelOutputResponseDto>> getAllModelOutputs() {
+        return modelOutputService.findAllModelOutputs();
+    }
+
+    /**
+     * GET /api/v1/model-outputs/page?cursor=...&limit=50
+     */
+    @GetMapping("/page")
+    public ResponseEntity<PageResponseDto<ModelOutputResponseDto>> getModelOutputPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return modelOutputService.findModelOutputPage(cursor, limit);
+    }
+
+    /**
+     * GET /api/v1/model-outputs/stream (application/x-ndjson)
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamModelOutputs() {
+        return modelOutputService.streamAllModelOutputs();
+    }
+
+    /**
+     * GET /api/v1/model-outputs/reactive?userIds=a,b,c&from=2024-01-01T00:00:00Z&to=2024-02-01T00:00:00Z (application/x-ndjson)
+     */
+    @GetMapping(value = "/reactive", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<ModelOutputResponseDto>> streamModelOutputsForUsersReactive(
+            @RequestParam List<String> userIds,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return modelOutputService.streamOutputsForUsersReactive(userIds, from, to);
+    }
+
+    /**
+     * GET /api/v1/model-outputs/jobs?measurementId=...
+     */
+    @GetMapping("/jobs")
+    public ResponseEntity<List<ScoringJobResponseDto>> getScoringJobsByMeasurement(@RequestParam String measurementId) {
+        return modelOutputService.getScoringJobsByMeasurementId(measurementId);
+    }
+
+    /**
+     * GET /api/v1/model-outputs/jobs/{jobId}
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ScoringJobResponseDto> getScoringJob(@PathVariable("jobId") String jobId) {
+        return modelOutputService.getScoringJob(jobId);
+    }
+
+    /**
+     * GET /api/v1/model-outputs/model
+     */
+    @GetMapping("/model")
+    public ResponseEntity<ScoringModelResponseDto> getScoringModel() {
+        return modelOutputService.getScoringModel();
+    }
+
+    /**
+     * POST /api/v1/model-outputs/model/reload
+     * Only for the users listed in hrv.rescoring.operators.
+     */
+    @PostMapping("/model/reload")
+    public ResponseEntity<ScoringModelResponseDto> reloadScoringModel(Principal principal) {
+        return modelOutputService.reloadScoringModel(principal != null ? principal.getName() : null);
+    }
+
+    /**
+     * POST /api/v1/model-outputs/rescoring?userId=...
+     * Only for the users listed in hrv.rescoring.operators.
+     */
+    @PostMapping("/rescoring")
+    public ResponseEntity<RescoringJobResponseDto> startRescoring(@RequestParam(required = false) String userId,
+                                                                  Principal principal) {
+        return modelOutputService.startRescoring(userId, principal != null ? principal.getName() : null);
+    }
+
+    /**
+     * GET /api/v1/model-outputs/rescoring/{jobId}
+     */
+    @GetMapping("/rescoring/{jobId}")
+    public ResponseEntity<RescoringJobResponseDto> getRescoringJob(@PathVariable("jobId") String jobId) {
+        return modelOutputService.getRescoringJob(jobId);
+    }
+
+    /**
+     * POST /api/v1/model-outputs/rescoring/{jobId}/cancel
+     * Only for the users listed in hrv.rescoring.operators.
+     */
+    @PostMapping("/rescoring/{jobId}/cancel")
+    public ResponseEntity<RescoringJobResponseDto> cancelRescoring(@PathVariable("jobId") String jobId,
+                                                                   Principal principal) {
+        return modelOutputService.cancelRescoring(jobId, principal != null ? principal.getName() : null);
+    }
+
+    /**
+     * GET /api/v1/model-outputs/{id}
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ModelOutputResponseDto> getModelOutputById(@PathVariable("id") String measurementId) {
+        return modelOutputService.getOutputByMeasurementId(measurementId);
+    }
+
+    /**
+     * GET /api/v1/model-outputs/user/{userId}
+     */
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<List<ModelOutputResponseDto>> getModelOutputsByUser(@PathVariable("userId") String userId) {
+        return modelOutputService.getOutputsByUserId(userId);
+    }
+
+    /**
+     * GET /api/v1/model-outputs/user/{userId}/page?cursor=...&limit=50
+     */
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<PageResponseDto<ModelOutputResponseDto>> getModelOutputPageByUser(
+            @PathVariable("userId") String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return modelOutputService.getOutputPageByUserId(userId, cursor, limit);
+    }
+
+    /**
+     * GET /api/v1/model-outputs/user/{userId}/range?from=2024-01-01T00:00:00Z&to=2024-02-01T00:00:00Z&limit=100
+     */
+    @GetMapping("/user/{userId}/range")
+    public ResponseEntity<List<ModelOutputResponseDto>> getModelOutputsInRange(
+            @PathVariable("userId") String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "100") int limit) {
+        return modelOutputService.getOutputsInRange(userId, from, to, limit);
+    }
+
+    /**
+     * GET /api/v1/model-outputs/user/{userId}/stream (application/x-ndjson)
+     */
+    @GetMapping("/user/{userId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamModelOutputsByUser(@PathVariable("userId") String userId) {
+        return modelOutputService.streamOutputsByUserId(userId);
+    }
+
+    /**
+     * GET /api/v1/model-outputs/user/{userId}/reactive?from=2024-01-01T00:00:00Z&to=2024-02-01T00:00:00Z (application/x-ndjson)
+     */
+    @GetMapping(value = "/user/{userId}/reactive", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<ModelOutputResponseDto>> streamModelOutputsInRangeReactive(
+            @PathVariable("userId") String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return modelOutputService.streamOutputsInRangeReactive(userId, from, to);
+    }
+
+    /**
+     * DELETE /api/v1/model-outputs/{id}
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<String> deleteModelOutput(@PathVariable("id") String measurementId) {
+        return modelOutputService.deleteModelOutput(measurementId);
+    }
+}
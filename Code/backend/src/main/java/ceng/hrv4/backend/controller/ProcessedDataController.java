@@ -0,0 +1,162 @@
+package ceng.hrv4.backend.controller;
+
+import ceng.hrv4.backend.dto.request.ProcessedDataRequestDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
+import ceng.hrv4.backend.dto.response.HrvRollupResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
+import ceng.hrv4.backend.dto.response.ProcessedDataResponseDto;
+import ceng.hrv4.backend.service.ProcessedDataService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/processed-data")
+public class ProcessedDataController {
+
+    private final ProcessedDataService processedDataService;
+
+    @Autowired
+    public ProcessedDataController(ProcessedDataService processedDataService) {
+        this.processedDataService = processedDataService;
+    }
+
+    /**
+     * POST /api/v1/processed-data
+     */
+    @PostMapping
+    public ResponseEntity<ProcessedDataResponseDto> createProcessedData(@RequestBody ProcessedDataRequestDto processedDataRequestDto) {
+        return processedDataService.saveProcessedData(processedDataRequestDto);
+    }
+
+    /**
+     * POST /api/v1/processed-data/batch
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponseDto> createProcessedDataBatch(@RequestBody List<ProcessedDataRequestDto> processedDataRequestDtos) {
+        return processedDataService.saveProcessedDataBatch(processedDataRequestDtos);
+    }
+
+    /**
+     * GET /api/v1/processed-data
+     */
+    @GetMapping
+    public ResponseEntity<List<ProcessedDataResponseDto>> getAllProcessedData() {
+        return processedDataService.findAllProcessedData();
+    }
+
+    /**
+     * GET /api/v1/processed-data/page?cursor=...&limit=50
+     */
+    @GetMapping("/page")
+    public ResponseEntity<PageResponseDto<ProcessedDataResponseDto>> getProcessedDataPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return processedDataService.findProcessedDataPage(cursor, limit);
+    }
+
+    /**
+     * GET /api/v1/processed-data/stream (application/x-ndjson)
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamProcessedData() {
+        return processedDataService.streamAllProcessedData();
+    }
+
+    /**
+     * GET /api/v1/processed-data/reactive?userIds=a,b,c&from=2024-01-01T00:00:00Z&to=2024-02-01T00:00:00Z (application/x-ndjson)
+     */
+    @GetMapping(value = "/reactive", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<ProcessedDataResponseDto>> streamProcessedDataForUsersReactive(
+            @RequestParam List<String> userIds,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return processedDataService.streamProcessedDataForUsersReactive(userIds, from, to);
+    }
+
+    /**
+     * GET /api/v1/processed-data/{id}
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ProcessedDataResponseDto> getProcessedDataById(@PathVariable("id") String measurementId) {
+        return processedDataService.findProcessedDataByMeasurementID(measurementId);
+    }
+
+    /**
+     * GET /api/v1/processed-data/user/{userId}
+     */
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<List<ProcessedDataResponseDto>> getProcessedDataByUser(@PathVariable("userId") String userId) {
+        return processedDataService.findProcessedDataByUserID(userId);
+    }
+
+    /**
+     * GET /api/v1/processed-data/user/{userId}/rollups?period=day&from=2024-01-01&to=2024-04-01
+     */
+    @GetMapping("/user/{userId}/rollups")
+    public ResponseEntity<List<HrvRollupResponseDto>> getRollupsByUser(
+            @PathVariable("userId") String userId,
+            @RequestParam(defaultValue = "day") String period,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return processedDataService.findRollupsByUserID(userId, period, from, to);
+    }
+
+    /**
+     * GET /api/v1/processed-data/user/{userId}/page?cursor=...&limit=50
+     */
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<PageResponseDto<ProcessedDataResponseDto>> getProcessedDataPageByUser(
+            @PathVariable("userId") String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return processedDataService.findProcessedDataPageByUserID(userId, cursor, limit);
+    }
+
+    /**
+     * GET /api/v1/processed-data/user/{userId}/range?from=2024-01-01T00:00:00Z&to=2024-02-01T00:00:00Z&limit=100
+     */
+    @GetMapping("/user/{userId}/range")
+    public ResponseEntity<List<ProcessedDataResponseDto>> getProcessedDataInRange(
+            @PathVariable("userId") String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "100") int limit) {
+        return processedDataService.findProcessedDataInRange(userId, from, to, limit);
+    }
+
+    /**
+     * GET /api/v1/processed-data/user/{userId}/stream (application/x-ndjson)
+     */
+    @GetMapping("/user/{userId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamProcessedDataByUser(@PathVariable("userId") String userId) {
+        return processedDataService.streamProcessedDataByUserID(userId);
+    }
+
+    /**
+     * GET /api/v1/processed-data/user/{userId}/reactive?from=2024-01-01T00:00:00Z&to=2024-02-01T00:00:00Z (application/x-ndjson)
+     */
+    @GetMapping(value = "/user/{userId}/reactive", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<ProcessedDataResponseDto>> streamProcessedDataInRangeReactive(
+            @PathVariable("userId") String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return processedDataService.streamProcessedDataInRangeReactive(userId, from, to);
+    }
+
+    /**
+     * DELETE /api/v1/processed-data/{id}
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<String> deleteProcessedData(@PathVariable("id") String measurementId) {
+        return processedDataService.deleteProcessedDataByMeasurementID(measurementId);
+    }
+}
@@ -1,5 +1,178 @@
 package ceng.hrv4.backend.controller;
 
+import ceng.hrv4.backend.dto.request.RawDataRequestDto;
+import ceng.hrv4.backend.dto.request.StreamSessionRequestDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
+import ceng.hrv4.backend.dto.response.HrvWindowsResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
+import ceng.hrv4.backend.dto.response.RawDataResponseDto;
+import ceng.hrv4.backend.dto.response.RrIntervalsResponseDto;
+import ceng.hrv4.backend.dto.response.StreamIngestResponseDto;
+import ceng.hrv4.backend.service.RawDataService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/sensor-data")
 public class SensorDataController {
 
+    private final RawDataService rawDataService;
+
+    @Autowired
+    public SensorDataController(RawDataService rawDataService) {
+        this.rawDataService = rawDataService;
+    }
+
+    /**
+     * POST /api/v1/sensor-data
+     */
+    @PostMapping
+    public ResponseEntity<RawDataResponseDto> createRawData(@RequestBody RawDataRequestDto rawDataRequestDto) {
+        return rawDataService.saveRawData(rawDataRequestDto);
+    }
+
+    /**
+     * POST /api/v1/sensor-data/batch
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponseDto> createRawDataBatch(@RequestBody List<RawDataRequestDto> rawDataRequestDtos) {
+        return rawDataService.saveRawDataBatch(rawDataRequestDtos);
+    }
+
+    /**
+     * GET /api/v1/sensor-data
+     */
+    @GetMapping
+    public ResponseEntity<List<RawDataResponseDto>> getAllRawData() {
+        return rawDataService.findAllRawData();
+    }
+
+    /**
+     * GET /api/v1/sensor-data/page?cursor=...&limit=50
+     */
+    @GetMapping("/page")
+    public ResponseEntity<PageResponseDto<RawDataResponseDto>> getRawDataPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return rawDataService.findRawDataPage(cursor, limit);
+    }
+
+    /**
+     * GET /api/v1/sensor-data/stream (application/x-ndjson)
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamRawData() {
+        return rawDataService.streamAllRawData();
+    }
+
+    /**
+     * GET /api/v1/sensor-data/{id}
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<RawDataResponseDto> getRawDataById(@PathVariable("id") String measurementId) {
+        return rawDataService.findRawDataByMeasurementID(measurementId);
+    }
+
+    /**
+     * GET /api/v1/sensor-data/user/{userId}
+     */
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<List<RawDataResponseDto>> getRawDataByUser(@PathVariable("userId") String userId) {
+        return rawDataService.findRawDataByUserID(userId);
+    }
+
+    /**
+     * GET /api/v1/sensor-data/user/{userId}/page?cursor=...&limit=50
+     */
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<PageResponseDto<RawDataResponseDto>> getRawDataPageByUser(
+            @PathVariable("userId") String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return rawDataService.findRawDataPageByUserID(userId, cursor, limit);
+    }
+
+    /**
+     * GET /api/v1/sensor-data/user/{userId}/range?from=2024-01-01T00:00:00Z&to=2024-02-01T00:00:00Z&limit=100
+     */
+    @GetMapping("/user/{userId}/range")
+    public ResponseEntity<List<RawDataResponseDto>> getRawDataInRange(
+            @PathVariable("userId") String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "100") int limit) {
+        return rawDataService.findRawDataInRange(userId, from, to, limit);
+    }
+
+    /**
+     * GET /api/v1/sensor-data/user/{userId}/stream (application/x-ndjson)
+     */
+    @GetMapping("/user/{userId}/stream")
+    public ResponseEntity<StreamingResponseBody> streamRawDataByUser(@PathVariable("userId") String userId) {
+        return rawDataService.streamRawDataByUserID(userId);
+    }
+
+    /**
+     * GET /api/v1/sensor-data/{id}/rr-intervals?from=2024-01-01T22:00:00Z&to=2024-01-01T23:00:00Z
+     */
+    @GetMapping("/{id}/rr-intervals")
+    public ResponseEntity<RrIntervalsResponseDto> getRrIntervals(
+            @PathVariable("id") String measurementId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return rawDataService.findRrIntervals(measurementId, from, to);
+    }
+
+    /**
+     * GET /api/v1/sensor-data/{id}/windows
+     */
+    @GetMapping("/{id}/windows")
+    public ResponseEntity<HrvWindowsResponseDto> getHrvWindows(@PathVariable("id") String measurementId) {
+        return rawDataService.findHrvWindows(measurementId);
+    }
+
+    /**
+     * DELETE /api/v1/sensor-data/{id}
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<String> deleteRawData(@PathVariable("id") String measurementId) {
+        return rawDataService.deleteRawDataByMeasurementID(measurementId);
+    }
+
+    /**
+     * POST /api/v1/sensor-data/sessions
+     * Opens a live recording that samples are streamed into.
+     */
+    @PostMapping("/sessions")
+    public ResponseEntity<RawDataResponseDto> startSession(@RequestBody StreamSessionRequestDto streamSessionRequestDto) {
+        return rawDataService.startStreamSession(streamSessionRequestDto);
+    }
+
+    /**
+     * POST /api/v1/sensor-data/sessions/{id}/samples
+     * Body: NDJSON of RR samples, may be sent with chunked transfer encoding and kept open.
+     * Can be called repeatedly; each call appends to the recording. The rolling windows of
+     * the appended beats are available from GET /api/v1/sensor-data/{id}/windows right away.
+     */
+    @PostMapping(value = "/sessions/{id}/samples",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<StreamIngestResponseDto> streamSamples(@PathVariable("id") String measurementId, InputStream body) {
+        return rawDataService.appendStream(measurementId, body);
+    }
+
+    /**
+     * POST /api/v1/sensor-data/sessions/{id}/close
+     */
+    @PostMapping("/sessions/{id}/close")
+    public ResponseEntity<RawDataResponseDto> closeSession(@PathVariable("id") String measurementId) {
+        return rawDataService.closeStreamSession(measurementId);
+    }
 }
@@ -3,11 +3,15 @@ package ceng.hrv4.backend.controller;
 import ceng.hrv4.backend.dto.request.LoginRequestDto;
 import ceng.hrv4.backend.dto.request.UserUpdateDto;
 import ceng.hrv4.backend.dto.request.UserRegisterDto;
+import ceng.hrv4.backend.dto.response.DeletionJobResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
 import ceng.hrv4.backend.dto.response.UserResponseDto;
 import ceng.hrv4.backend.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.springframework.beans.factory.annotation.Autowired;
 
 
@@ -23,13 +27,14 @@ public class UserController {
     }
 
     @PostMapping("/register")
-    public ResponseEntity<UserResponseDto> registerUser(@RequestBody UserRegisterDto registerDto) {
+    public CompletableFuture<ResponseEntity<UserResponseDto>> registerUser(@RequestBody UserRegisterDto registerDto) {
         return userService.registerUser(registerDto);
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@RequestBody LoginRequestDto loginRequestDto) {
+    public CompletableFuture<ResponseEntity<?>> loginUser(@RequestBody LoginRequestDto loginRequestDto) {
         // Endpoint for user login, receives LoginRequestDto and returns access and refresh tokens
+        // The password check runs on the BCrypt pool; the request thread is released meanwhile
         return userService.loginUser(loginRequestDto);
     }
 
@@ -49,6 +54,20 @@ public class UserController {
         return userService.findAllUsers();
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<PageResponseDto<UserResponseDto>> getUserPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        // Endpoint to page through users; pass nextCursor back as cursor to get the following page
+        return userService.findUserPage(cursor, limit);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        // Endpoint to stream all users as NDJSON without loading them into memory
+        return userService.streamAllUsers();
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<UserResponseDto> getUserById(@PathVariable("id") String userId) {
         // Endpoint to get a single user by their ID
@@ -92,6 +111,14 @@ public class UserController {
         return userService.updateUser(userId, dto);
     }
 
+    @PatchMapping("/{id}/time-zone")
+    public ResponseEntity<UserResponseDto> updateTimeZone(
+            @PathVariable("id") String userId,
+            @RequestBody String timeZone) {
+        UserUpdateDto dto = new UserUpdateDto(null, null, null, null, timeZone);
+        return userService.updateUser(userId, dto);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<UserResponseDto> updateUser(
             @PathVariable("id") String userId,
@@ -105,5 +132,11 @@ public class UserController {
         // Endpoint to delete a user by ID, returns a confirmation message
         return userService.deleteUser(userId);
     }
+
+    @GetMapping("/deletions/{jobId}")
+    public ResponseEntity<DeletionJobResponseDto> getDeletionJob(@PathVariable("jobId") String jobId) {
+        // Endpoint to follow the background removal of a deleted user's data
+        return userService.findDeletionJob(jobId);
+    }
 }
 
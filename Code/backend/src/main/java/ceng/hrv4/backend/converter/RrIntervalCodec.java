@@ -0,0 +1,117 @@
+package ceng.hrv4.backend.converter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Packs RR interval series into a compact byte layout.
+ *
+ * Layout: one codec byte, the element count as an unsigned varint, then the payload.
+ * <ul>
+ *     <li>{@link #INT_DELTA}: every value is a whole number of milliseconds (the usual case
+ *     for Polar PPI/RR data), stored as zigzag varint deltas. Consecutive beats rarely
+ *     differ by more than 63 ms, so most beats take a single byte.</li>
+ *     <li>{@link #FLOAT32}: fallback for fractional, non-finite or out-of-range values,
+ *     4 bytes little-endian per beat.</li>
+ * </ul>
+ */
+public final class RrIntervalCodec {
+
+    static final byte INT_DELTA = 1;
+    static final byte FLOAT32 = 2;
+
+    /**
+     * Largest magnitude stored as {@link #INT_DELTA}. The delta of two such values stays
+     * within ±2^30, so it is not lost when zigzag-shifted into an int. Larger values fall
+     * back to {@link #FLOAT32}.
+     */
+    static final int MAX_INT_DELTA_VALUE = (1 << 29) - 1;
+
+    private RrIntervalCodec() {}
+
+    public static byte[] encode(double[] values) {
+        int n = values.length;
+        boolean integral = true;
+        for (double v : values) {
+            if (v != Math.rint(v) || Math.abs(v) > MAX_INT_DELTA_VALUE) {
+                integral = false;
+                break;
+            }
+        }
+
+        if (!integral) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + 5 + 4 * n).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(FLOAT32);
+            putVarint(buffer, n);
+            for (double v : values) {
+                buffer.putFloat((float) v);
+            }
+            return trim(buffer);
+        }
+
+        // Worst case 5 bytes per varint.
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 5 + 5 * n);
+        buffer.put(INT_DELTA);
+        putVarint(buffer, n);
+        int previous = 0;
+        for (double v : values) {
+            int current = (int) v;
+            int delta = current - previous;
+            putVarint(buffer, (delta << 1) ^ (delta >> 31));
+            previous = current;
+        }
+        return trim(buffer);
+    }
+
+    public static double[] decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        byte codec = buffer.get();
+        int n = getVarint(buffer);
+        double[] values = new double[n];
+
+        switch (codec) {
+            case INT_DELTA -> {
+                int previous = 0;
+                for (int i = 0; i < n; i++) {
+                    int zigzag = getVarint(buffer);
+                    previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                    values[i] = previous;
+                }
+            }
+            case FLOAT32 -> {
+                for (int i = 0; i < n; i++) {
+                    values[i] = buffer.getFloat();
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown RR interval codec: " + codec);
+        }
+        return values;
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static byte[] trim(ByteBuffer buffer) {
+        byte[] out = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(out);
+        return out;
+    }
+}
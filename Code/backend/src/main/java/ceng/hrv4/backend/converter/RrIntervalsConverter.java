@@ -0,0 +1,40 @@
+package ceng.hrv4.backend.converter;
+
+import org.bson.BsonBinarySubType;
+import org.bson.types.Binary;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+import org.springframework.data.mongodb.core.convert.MongoValueConverter;
+
+import java.util.List;
+
+/**
+ * Stores a {@code double[]} RR series as a single BSON binary (user-defined subtype)
+ * packed by {@link RrIntervalCodec} instead of an array of boxed doubles.
+ *
+ * Documents written before the packed format still hold a plain BSON array;
+ * those are read as well, so no migration is required. Null elements in them are read
+ * as NaN.
+ */
+public class RrIntervalsConverter implements MongoValueConverter<double[], Object> {
+
+    @Override
+    public double[] read(Object value, MongoConversionContext context) {
+        if (value instanceof Binary binary) {
+            return RrIntervalCodec.decode(binary.getData());
+        }
+        if (value instanceof List<?> list) {
+            double[] values = new double[list.size()];
+            for (int i = 0; i < values.length; i++) {
+                // Same as RawDataMapper: a missing element reads as NaN, an invalid beat.
+                values[i] = list.get(i) instanceof Number number ? number.doubleValue() : Double.NaN;
+            }
+            return values;
+        }
+        throw new IllegalArgumentException("Cannot read RR intervals from " + value.getClass().getName());
+    }
+
+    @Override
+    public Object write(double[] value, MongoConversionContext context) {
+        return new Binary(BsonBinarySubType.USER_DEFINED, RrIntervalCodec.encode(value));
+    }
+}
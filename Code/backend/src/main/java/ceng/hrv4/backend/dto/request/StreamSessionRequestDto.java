@@ -0,0 +1,18 @@
+package ceng.hrv4.backend.dto.request;
+
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+
+public record StreamSessionRequestDto(
+
+        @NotBlank(message = "User ID cannot be empty.")
+        String userId,
+        String activityId,
+
+        @NotNull(message = "Measurement start time is required.")
+        Instant measurementStartTime,
+
+        String deviceName
+) {}
@@ -1,6 +1,5 @@
 package ceng.hrv4.backend.dto.request;
 
-import ceng.hrv4.backend.entity.Activity;
 import java.util.List;
 
 public record UserUpdateDto(
@@ -8,6 +7,6 @@ public record UserUpdateDto(
         String gender,
         String clinicalStory,
         List<String> notes,
-        List<Activity> activities
+        String timeZone
 ) {}
 
@@ -0,0 +1,16 @@
+package ceng.hrv4.backend.dto.response;
+
+/**
+ * Outcome of one item of a batch request.
+ *
+ * @param index  position of the item in the request
+ * @param status HTTP status the item would have received as a single request
+ * @param id     id of the created document, null if it was not created
+ * @param error  reason the item was rejected, null if it was created
+ */
+public record BatchItemResultDto(
+        int index,
+        int status,
+        String id,
+        String error
+) {}
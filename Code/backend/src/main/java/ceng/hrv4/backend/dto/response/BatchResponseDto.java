@@ -0,0 +1,10 @@
+package ceng.hrv4.backend.dto.response;
+
+import java.util.List;
+
+public record BatchResponseDto(
+        int requested,
+        int created,
+        int failed,
+        List<BatchItemResultDto> items
+) {}
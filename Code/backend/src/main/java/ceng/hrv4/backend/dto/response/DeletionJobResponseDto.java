@@ -0,0 +1,22 @@
+package ceng.hrv4.backend.dto.response;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Progress of a background cascade delete.
+ *
+ * @param deleted documents removed so far, by collection name
+ */
+public record DeletionJobResponseDto(
+        String id,
+        String userId,
+        String trigger,
+        String status,
+        Map<String, Long> deleted,
+        int attempts,
+        Instant createdAt,
+        Instant startedAt,
+        Instant finishedAt,
+        String error
+) {}
@@ -0,0 +1,21 @@
+package ceng.hrv4.backend.dto.response;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One day, week or month of a user's ProcessedData, aggregated per metric.
+ */
+public record HrvRollupResponseDto(
+        String period,
+        Instant bucketStart,
+        long measurements,
+        Map<String, Metric> metrics
+) {
+    /**
+     * @param count number of measurements that had the metric
+     * @param mean  mean of the metric, or null if count is 0
+     * @param sd    sample standard deviation, or null if count is below 2
+     */
+    public record Metric(long count, Double mean, Double sd) {}
+}
@@ -0,0 +1,22 @@
+package ceng.hrv4.backend.dto.response;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Rolling-window metrics of a measurement; entry {@code i} of every list belongs to the
+ * window ending at {@code endTimes[i]}. Metrics that could not be computed are null.
+ */
+public record HrvWindowsResponseDto(
+        String measurementId,
+        Integer windowBeats,
+        Integer stepBeats,
+        List<Instant> endTimes,
+        List<Double> meanRr,
+        List<Double> rmssd,
+        List<Double> sdnn,
+        List<Double> pnn50,
+        List<Double> mode,
+        List<Double> amo,
+        List<Double> stressIndex
+) {}
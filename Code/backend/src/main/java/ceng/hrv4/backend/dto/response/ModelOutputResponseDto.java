@@ -16,7 +16,8 @@ public record ModelOutputResponseDto(
         Double stress,
         Double stressPercentage,
         Double healthState,
-        Double healthStatePercentage
+        Double healthStatePercentage,
+        String modelVersion
 ) {}
 
 
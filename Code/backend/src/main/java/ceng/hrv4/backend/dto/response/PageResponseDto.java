@@ -0,0 +1,13 @@
+package ceng.hrv4.backend.dto.response;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ * {@code nextCursor} is passed back as {@code cursor} to fetch the following page;
+ * it is null on the last page.
+ */
+public record PageResponseDto<T>(
+        List<T> items,
+        String nextCursor
+) {}
@@ -0,0 +1,27 @@
+package ceng.hrv4.backend.dto.response;
+
+import java.time.Instant;
+
+/**
+ * Progress of a bulk rescoring of stored ProcessedData.
+ *
+ * @param userId the user whose records are rescored, or null for all records
+ * @param total estimated number of records, known once the job started
+ * @param recordsPerSecond average speed since the job started
+ */
+public record RescoringJobResponseDto(
+        String id,
+        String userId,
+        String status,
+        String modelVersion,
+        Long total,
+        long processed,
+        long written,
+        long skipped,
+        Double recordsPerSecond,
+        boolean cancelRequested,
+        Instant createdAt,
+        Instant startedAt,
+        Instant finishedAt,
+        String error
+) {}
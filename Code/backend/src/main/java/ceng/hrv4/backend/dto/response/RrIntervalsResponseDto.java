@@ -0,0 +1,10 @@
+package ceng.hrv4.backend.dto.response;
+
+import java.time.Instant;
+
+public record RrIntervalsResponseDto(
+        String measurementId,
+        Instant from,
+        Instant to,
+        double[] rrIntervalsMs
+) {}
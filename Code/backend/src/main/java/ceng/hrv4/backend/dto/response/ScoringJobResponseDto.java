@@ -0,0 +1,21 @@
+package ceng.hrv4.backend.dto.response;
+
+import java.time.Instant;
+
+/**
+ * State of the asynchronous scoring of one measurement.
+ *
+ * @param modelOutputId the ModelOutput written by the job, once it is DONE
+ */
+public record ScoringJobResponseDto(
+        String id,
+        String measurementId,
+        String userId,
+        String status,
+        int attempts,
+        String modelOutputId,
+        Instant createdAt,
+        Instant startedAt,
+        Instant finishedAt,
+        String error
+) {}
@@ -0,0 +1,15 @@
+package ceng.hrv4.backend.dto.response;
+
+import java.time.Instant;
+
+/**
+ * The scoring model new ModelOutputs are computed with.
+ *
+ * @param source the model file, or null for the built-in baseline
+ */
+public record ScoringModelResponseDto(
+        String version,
+        String type,
+        String source,
+        Instant loadedAt
+) {}
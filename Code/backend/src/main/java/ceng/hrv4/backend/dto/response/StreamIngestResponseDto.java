@@ -0,0 +1,11 @@
+package ceng.hrv4.backend.dto.response;
+
+import java.time.Instant;
+
+public record StreamIngestResponseDto(
+        String measurementId,
+        long received,
+        long stored,
+        Instant measurementEndTime,
+        String error
+) {}
@@ -2,7 +2,7 @@ package ceng.hrv4.backend.dto.response;
 
 
 import java.util.List;
-import ceng.hrv4.backend.entity.Activity;
+import ceng.hrv4.backend.entity.User;
 
 public record UserResponseDto(
         String id,
@@ -13,7 +13,8 @@ public record UserResponseDto(
         String gender,
         List<String> notes,
         String clinicalStory,
-        List<Activity> activities
+        String timeZone,
+        List<User.RecentActivity> recentActivities
 
 
 ) {}
@@ -1,5 +1,6 @@
 package ceng.hrv4.backend.entity;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import lombok.Getter;
@@ -8,6 +9,7 @@ import lombok.Setter;
 @Setter
 @Getter
 @Document(collection = "activities")
+@CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'created_at': -1}")
 public class Activity extends BaseDocument {
 
     @Field("name")
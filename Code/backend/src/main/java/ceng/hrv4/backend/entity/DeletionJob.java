@@ -0,0 +1,72 @@
+package ceng.hrv4.backend.entity;
+
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Background removal of a deleted user's dependent documents.
+ *
+ * A job is created PENDING when the user document is deleted, or by the orphan sweeper for
+ * users that disappeared without one. A worker claims it by setting it RUNNING and removes
+ * the documents collection by collection in bounded batches, adding each batch to
+ * {@code deleted} and refreshing {@code updated_at}; a RUNNING job whose {@code updated_at}
+ * stops moving is claimed again. The deletes are idempotent, so a reclaimed job simply
+ * continues with whatever is left.
+ */
+@Setter
+@Getter
+@Document(collection = "deletion_jobs")
+@CompoundIndex(name = "status_updated_idx", def = "{'status': 1, 'updated_at': 1}")
+public class DeletionJob extends BaseDocument {
+
+    public enum Status { PENDING, RUNNING, DONE, FAILED }
+
+    public enum Trigger { USER_DELETED, ORPHAN_SWEEP }
+
+    @Indexed
+    @Field("user_id")
+    private String userId;
+
+    // Refresh tokens are keyed by the email; unknown for jobs created by the sweeper.
+    @Field("email")
+    private String email;
+
+    @Field("trigger")
+    private Trigger trigger;
+
+    @Field("status")
+    private Status status;
+
+    // Documents removed so far, by collection name.
+    @Field("deleted")
+    private Map<String, Long> deleted = new LinkedHashMap<>();
+
+    @Field("attempts")
+    private int attempts;
+
+    @Field("started_at")
+    private Instant startedAt;
+
+    @Field("finished_at")
+    private Instant finishedAt;
+
+    @Field("error")
+    private String error;
+
+    public DeletionJob() {}
+
+    public DeletionJob(String userId, String email, Trigger trigger) {
+        this.userId = userId;
+        this.email = email;
+        this.trigger = trigger;
+        this.status = Status.PENDING;
+    }
+}
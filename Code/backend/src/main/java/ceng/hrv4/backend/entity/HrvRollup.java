@@ -0,0 +1,68 @@
+package ceng.hrv4.backend.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Per-user aggregate of the ProcessedData measured in one day, week or month.
+ *
+ * Each metric keeps a count, sum and sum of squares, so the aggregate can be updated with
+ * {@code $inc} when a measurement is added or removed, and mean and standard deviation can
+ * be derived from it. The id is {@code userId:period:bucketStart}, so updates upsert the
+ * document without reading it first.
+ */
+@Setter
+@Getter
+@Document(collection = "hrv_rollups")
+@CompoundIndex(name = "user_period_start_idx", def = "{'user_id': 1, 'period': 1, 'bucket_start': 1}")
+public class HrvRollup {
+
+    public enum Period { DAY, WEEK, MONTH }
+
+    @Id
+    private String id;
+
+    @Field("user_id")
+    private String userId;
+
+    @Field("period")
+    private Period period;
+
+    // Start of the day, ISO week (Monday) or month in the rollup time zone.
+    @Field("bucket_start")
+    private Instant bucketStart;
+
+    @Field("measurements")
+    private long measurements;
+
+    @Field("metrics")
+    private Map<String, Stat> metrics;
+
+    @Field("updated_at")
+    private Instant updatedAt;
+
+    public HrvRollup() {}
+
+    @Setter
+    @Getter
+    public static class Stat {
+
+        @Field("n")
+        private long n;
+
+        @Field("sum")
+        private double sum;
+
+        @Field("sum_sq")
+        private double sumSq;
+
+        public Stat() {}
+    }
+}
@@ -0,0 +1,63 @@
+package ceng.hrv4.backend.entity;
+
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A run of consecutive rolling-window HRV metrics of one RawData recording, stored
+ * column-wise. Long recordings are split over several buckets, ordered by sequence.
+ * Metrics that could not be computed for a window are NaN.
+ */
+@Setter
+@Getter
+@Document(collection = "hrv_windows")
+@CompoundIndex(name = "raw_data_sequence_idx", def = "{'raw_data_id': 1, 'sequence': 1}")
+public class HrvWindowBucket extends BaseDocument {
+
+    @Field("raw_data_id")
+    private String rawDataId;
+
+    @Field("user_id")
+    private String userId;
+
+    @Field("sequence")
+    private Integer sequence;
+
+    @Field("window_beats")
+    private Integer windowBeats;
+
+    @Field("step_beats")
+    private Integer stepBeats;
+
+    @Field("end_times")
+    private List<Instant> endTimes;
+
+    @Field("mean_rr")
+    private double[] meanRr;
+
+    @Field("rmssd")
+    private double[] rmssd;
+
+    @Field("sdnn")
+    private double[] sdnn;
+
+    @Field("pnn50")
+    private double[] pnn50;
+
+    @Field("mode")
+    private double[] mode;
+
+    @Field("amo")
+    private double[] amo;
+
+    @Field("stress_index")
+    private double[] stressIndex;
+
+    public HrvWindowBucket() {}
+}
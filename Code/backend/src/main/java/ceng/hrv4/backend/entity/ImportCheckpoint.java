@@ -0,0 +1,59 @@
+package ceng.hrv4.backend.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Import progress of one RR txt file, keyed by the file's path relative to the import root.
+ *
+ * A checkpoint is written as PENDING, with the id reserved for the RawData document, before
+ * anything of the file is stored, and set to DONE once its RawData, chunks and ProcessedData
+ * are written. After a crash the documents of a PENDING file are removed and it is imported
+ * again; DONE files are skipped unless their size or modification time changed.
+ */
+@Setter
+@Getter
+@Document(collection = "import_checkpoints")
+public class ImportCheckpoint {
+
+    public enum Status { PENDING, DONE, FAILED }
+
+    @Id
+    private String id;
+
+    @Indexed
+    @Field("user_folder")
+    private String userFolder;
+
+    @Field("user_id")
+    private String userId;
+
+    @Field("raw_data_id")
+    private String rawDataId;
+
+    @Field("status")
+    private Status status;
+
+    @Field("file_size")
+    private long fileSize;
+
+    @Field("file_modified_at")
+    private Instant fileModifiedAt;
+
+    @Field("rr_count")
+    private Integer rrCount;
+
+    @Field("error")
+    private String error;
+
+    @Field("updated_at")
+    private Instant updatedAt;
+
+    public ImportCheckpoint() {}
+}
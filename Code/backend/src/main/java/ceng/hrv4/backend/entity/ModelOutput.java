@@ -1,5 +1,6 @@
 package ceng.hrv4.backend.entity;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
@@ -11,19 +12,18 @@ import lombok.Setter;
 @Setter
 @Getter
 @Document(collection = "model_outputs")
+@CompoundIndex(name = "user_time_idx", def = "{'user_id': 1, 'measurement_time': -1}")
 public class ModelOutput extends BaseDocument {
     public ModelOutput() {}
     public ModelOutput(String userId, Instant measurementTime) {
         this.userId = userId;
         this.measurementTime = measurementTime;
     }
-    @Indexed
+    // Unique; the index is built by ModelOutputIndexRunner once duplicates are removed.
     @Field("measurement_id")
     private String measurementId;
-    @Indexed
     @Field("user_id")
     private String userId;
-    @Indexed
     @Field("measurement_time")
     private Instant measurementTime;
     @Field("biological_age")
@@ -56,6 +56,10 @@ public class ModelOutput extends BaseDocument {
     @Field("health_state_percentage")
     private Double healthStatePercentage;
 
+    // Scoring model the scores were computed with; null for outputs posted by clients.
+    @Field("model_version")
+    private String modelVersion;
+
     @Override
     public String toString() {
         return "ModelOutput{" +
@@ -64,6 +68,7 @@ public class ModelOutput extends BaseDocument {
                 ", measurementTime=" + measurementTime +
                 ", biologicalAge=" + biologicalAge +
                 ", stress=" + stress +
+                ", modelVersion='" + modelVersion + '\'' +
                 ", createdAt=" + getCreatedAt() +
                 '}';
     }
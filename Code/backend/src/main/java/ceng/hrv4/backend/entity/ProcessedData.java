@@ -1,5 +1,6 @@
 package ceng.hrv4.backend.entity;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
@@ -11,6 +12,7 @@ import lombok.Setter;
 @Setter
 @Getter
 @Document(collection = "processed_datas")
+@CompoundIndex(name = "user_time_idx", def = "{'user_id': 1, 'measurement_time': -1}")
 public class ProcessedData extends BaseDocument {
     public ProcessedData() {}
 
@@ -21,10 +23,8 @@ public class ProcessedData extends BaseDocument {
     @Indexed
     @Field("measurement_id")
     private String measurementId;
-    @Indexed
     @Field("user_id")
     private String userId;
-    @Indexed
     @Field("measurement_time")
     private Instant measurementTime;
 
@@ -1,10 +1,11 @@
 package ceng.hrv4.backend.entity;
 
-import org.springframework.data.mongodb.core.index.Indexed;
+import ceng.hrv4.backend.converter.RrIntervalsConverter;
+import org.springframework.data.convert.ValueConverter;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import java.time.Instant;
-import java.util.List;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -12,16 +13,14 @@ import lombok.Setter;
 @Setter
 @Getter
 @Document(collection = "raw_datas")
+@CompoundIndex(name = "user_start_time_idx", def = "{'user_id': 1, 'measurement_start_time': -1}")
 public class RawData extends BaseDocument {
 
-    @Indexed
     @Field("user_id")
     private String userId;
 
-    @Indexed
     @Field("measurement_start_time")
     private Instant measurementStartTime;
-    @Indexed
     @Field("measurement_end_time")
     private Instant measurementEndTime;
     @Field("activity_id")
@@ -30,15 +29,35 @@ public class RawData extends BaseDocument {
     private String deviceName;
 
 
+    @ValueConverter(RrIntervalsConverter.class)
     @Field("rr_intervals_ms")
-    private List<Double> rrIntervalsMs;
+    private double[] rrIntervalsMs;
+
+    // Number of RR intervals, kept so listings do not need to load the array.
+    @Field("rr_count")
+    private Integer rrCount;
+
+    // True when the RR intervals are stored in raw_data_chunks instead of inline.
+    @Field("chunked")
+    private boolean chunked;
+
+    @Field("chunk_count")
+    private Integer chunkCount;
+
+    // Sum of the RR intervals appended to a streamed recording so far, advanced atomically per batch.
+    @Field("stream_elapsed_ms")
+    private Double streamElapsedMs;
+
+    // True once a streamed recording has been closed; no further samples are accepted.
+    @Field("stream_closed")
+    private boolean streamClosed;
 
     @Field("raw_duration_seconds")
     private Double rawDurationSeconds;
 
     public RawData() {}
 
-    public RawData(String userId, Instant measurementStartTime, Instant measurementEndTime, List<Double> rrIntervalsMs) {
+    public RawData(String userId, Instant measurementStartTime, Instant measurementEndTime, double[] rrIntervalsMs) {
         this.userId = userId;
         this.measurementStartTime = measurementStartTime;
         this.measurementEndTime = measurementEndTime;
@@ -51,7 +70,7 @@ public class RawData extends BaseDocument {
                 "id='" + getId() + '\'' +
                 ", userId='" + userId + '\'' +
                 ", measurementStartTime=" + measurementStartTime +
-                ", rrIntervalsCount=" + (rrIntervalsMs != null ? rrIntervalsMs.size() : 0) +
+                ", rrIntervalsCount=" + (rrIntervalsMs != null ? rrIntervalsMs.length : 0) +
                 ", createdAt=" + getCreatedAt() +
                 '}';
     }
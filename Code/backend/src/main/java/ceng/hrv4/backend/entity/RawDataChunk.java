@@ -0,0 +1,54 @@
+package ceng.hrv4.backend.entity;
+
+import ceng.hrv4.backend.converter.RrIntervalsConverter;
+import org.springframework.data.convert.ValueConverter;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A fixed-duration slice of a long RawData recording.
+ * The chunk covers the beats whose intervals fall in [startTime, endTime).
+ */
+@Setter
+@Getter
+@Document(collection = "raw_data_chunks")
+@CompoundIndex(name = "raw_data_start_idx", def = "{'raw_data_id': 1, 'start_time': 1}")
+public class RawDataChunk extends BaseDocument {
+
+    @Field("raw_data_id")
+    private String rawDataId;
+
+    @Field("user_id")
+    private String userId;
+
+    @Field("sequence")
+    private Integer sequence;
+
+    @Field("start_time")
+    private Instant startTime;
+
+    @Field("end_time")
+    private Instant endTime;
+
+    @ValueConverter(RrIntervalsConverter.class)
+    @Field("rr_intervals_ms")
+    private double[] rrIntervalsMs;
+
+    public RawDataChunk() {}
+
+    @Override
+    public String toString() {
+        return "RawDataChunk{" +
+                "id='" + getId() + '\'' +
+                ", rawDataId='" + rawDataId + '\'' +
+                ", sequence=" + sequence +
+                ", startTime=" + startTime +
+                ", rrIntervalsCount=" + (rrIntervalsMs != null ? rrIntervalsMs.length : 0) +
+                '}';
+    }
+}
@@ -20,6 +20,7 @@ public class RefreshToken {
     @Indexed(unique = true)
     private String token;
 
+    @Indexed
     private String username;
 
     //MongoDB can auto-delete expired refresh tokens
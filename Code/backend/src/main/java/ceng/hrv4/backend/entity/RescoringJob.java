@@ -0,0 +1,90 @@
+package ceng.hrv4.backend.entity;
+
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Recomputation of the ModelOutputs of all stored ProcessedData, or of one user's, with the
+ * current scoring model.
+ *
+ * The records are read in {@code _id} order; after each batch is written, {@code last_id}
+ * is set to the last record of the batch and the counters are advanced. A RUNNING job whose
+ * {@code updated_at} stops moving is claimed again and continues after {@code last_id}.
+ * Setting {@code cancel_requested} stops the job after the batch in progress.
+ *
+ * While a job is PENDING or RUNNING its {@code active_slot} is set to {@link #ACTIVE_SLOT};
+ * the field is removed when the job ends. Its unique sparse index lets only one job be
+ * active at a time, even when two are started at once.
+ */
+@Setter
+@Getter
+@Document(collection = "rescoring_jobs")
+@CompoundIndex(name = "status_updated_idx", def = "{'status': 1, 'updated_at': 1}")
+public class RescoringJob extends BaseDocument {
+
+    public enum Status { PENDING, RUNNING, DONE, FAILED, CANCELLED }
+
+    public static final String ACTIVE_SLOT = "active";
+
+    @Indexed(name = "active_slot_unique_idx", unique = true, sparse = true)
+    @Field("active_slot")
+    private String activeSlot;
+
+    // Only this user's records; null for all records.
+    @Field("user_id")
+    private String userId;
+
+    @Field("status")
+    private Status status;
+
+    // Version of the scoring model the outputs are being written with.
+    @Field("model_version")
+    private String modelVersion;
+
+    // Number of records to go through, estimated when the job starts.
+    @Field("total")
+    private Long total;
+
+    @Field("processed")
+    private long processed;
+
+    @Field("written")
+    private long written;
+
+    // Records without a measurement id or without the metrics to score.
+    @Field("skipped")
+    private long skipped;
+
+    // Checkpoint: id of the last ProcessedData whose output was written.
+    @Field("last_id")
+    private String lastId;
+
+    @Field("cancel_requested")
+    private boolean cancelRequested;
+
+    @Field("attempts")
+    private int attempts;
+
+    @Field("started_at")
+    private Instant startedAt;
+
+    @Field("finished_at")
+    private Instant finishedAt;
+
+    @Field("error")
+    private String error;
+
+    public RescoringJob() {}
+
+    public RescoringJob(String userId) {
+        this.userId = userId;
+        this.status = Status.PENDING;
+        this.activeSlot = ACTIVE_SLOT;
+    }
+}
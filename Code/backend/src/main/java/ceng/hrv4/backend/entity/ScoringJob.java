@@ -0,0 +1,67 @@
+package ceng.hrv4.backend.entity;
+
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Computation of the ModelOutput scores of one ProcessedData record.
+ *
+ * A job is created QUEUED when ProcessedData is saved. A worker claims it by setting it
+ * RUNNING, scores the record and upserts the ModelOutput with the same measurement id;
+ * a RUNNING job whose {@code updated_at} stops moving is claimed again. A failed attempt
+ * puts the job back in the queue until it runs out of attempts. Finished jobs are removed
+ * a week after {@code finished_at}.
+ */
+@Setter
+@Getter
+@Document(collection = "scoring_jobs")
+@CompoundIndex(name = "status_updated_idx", def = "{'status': 1, 'updated_at': 1}")
+public class ScoringJob extends BaseDocument {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    @Indexed
+    @Field("measurement_id")
+    private String measurementId;
+
+    @Field("processed_data_id")
+    private String processedDataId;
+
+    @Indexed
+    @Field("user_id")
+    private String userId;
+
+    @Field("status")
+    private Status status;
+
+    @Field("attempts")
+    private int attempts;
+
+    @Field("model_output_id")
+    private String modelOutputId;
+
+    @Field("started_at")
+    private Instant startedAt;
+
+    @Indexed(expireAfter = "7d")
+    @Field("finished_at")
+    private Instant finishedAt;
+
+    @Field("error")
+    private String error;
+
+    public ScoringJob() {}
+
+    public ScoringJob(ProcessedData processed) {
+        this.measurementId = processed.getMeasurementId();
+        this.processedDataId = processed.getId();
+        this.userId = processed.getUserId();
+        this.status = Status.QUEUED;
+    }
+}
@@ -3,6 +3,7 @@ package ceng.hrv4.backend.entity;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
+import java.time.Instant;
 import java.util.List;
 
 import lombok.Getter;
@@ -21,7 +22,8 @@ public class User extends BaseDocument {
         private String firstName;
         @Field("last_name")
         private String lastName;
-        @Indexed(unique = true)
+        // Sparse: users created by the txt importer have no email.
+        @Indexed(unique = true, sparse = true)
         @Field("email")
         private String email;
         @Field("password")
@@ -32,8 +34,23 @@ public class User extends BaseDocument {
         private String clinicalStory;
         @Field("notes")
         private List<String> notes;
+        // IANA zone id, e.g. "Europe/Istanbul". Decides which part of a recording is night;
+        // null uses hrv.night.zone.
+        @Field("time_zone")
+        private String timeZone;
+        // The latest few activities, newest first, maintained by RecentActivityService.
+        // The activities themselves live in the activities collection, keyed by userId.
+        @Field("recent_activities")
+        private List<RecentActivity> recentActivities;
+        // Activities embedded by earlier versions. Moved to the activities collection by
+        // UserActivitiesMigrationRunner; mapped only so saving a user that has not been
+        // migrated yet does not drop them.
         @Field("activities")
-        private List<Activity> activities;
+        private List<Activity> legacyActivities;
+        // Folder name of the user in the legacy txt data set, e.g. "1013".
+        @Indexed(unique = true, sparse = true)
+        @Field("legacy_id")
+        private String legacyId;
 
 
 
@@ -64,10 +81,45 @@ public class User extends BaseDocument {
                 ", phone='" + phone + '\'' +
                 ", age=" + age +
                 ", gender='" + gender + '\'' +
+                ", timeZone='" + timeZone + '\'' +
                 ", createdAt=" + getCreatedAt() +
                 ", updatedAt=" + getUpdatedAt() +
                 '}';
     }
 
+    /**
+     * Summary of one activity, enough to show it in a list without loading it.
+     */
+    @Getter
+    @Setter
+    public static class RecentActivity {
+        @Field("activity_id")
+        private String activityId;
+        @Field("name")
+        private String name;
+        @Field("category")
+        private String category;
+        @Field("duration_min")
+        private Integer durationMin;
+        @Field("date")
+        private String date;
+        @Field("time")
+        private String time;
+        @Field("created_at")
+        private Instant createdAt;
 
+        public RecentActivity() {}
+
+        public static RecentActivity of(Activity activity) {
+            RecentActivity recent = new RecentActivity();
+            recent.activityId = activity.getId();
+            recent.name = activity.getName();
+            recent.category = activity.getCategory();
+            recent.durationMin = activity.getDurationMin();
+            recent.date = activity.getDate();
+            recent.time = activity.getTime();
+            recent.createdAt = activity.getCreatedAt();
+            return recent;
+        }
+    }
 }
@@ -1,6 +1,9 @@
 package ceng.hrv4.backend.filter;
 
 import ceng.hrv4.backend.service.JWTService;
+import ceng.hrv4.backend.service.UserDetailsCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -23,11 +26,31 @@ public class JWTFilter extends OncePerRequestFilter {
 
     private final JWTService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserDetailsCache userDetailsCache;
+
+    // hrv.auth.jwt, one counter per outcome of the token check
+    private final Counter missing;
+    private final Counter invalid;
+    private final Counter authenticated;
+    private final Counter unknownUser;
 
     @Autowired
-    public JWTFilter(JWTService jwtService, UserDetailsService userDetailsService) {
+    public JWTFilter(JWTService jwtService, UserDetailsService userDetailsService, UserDetailsCache userDetailsCache,
+                     MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.userDetailsCache = userDetailsCache;
+        this.missing = outcome(meterRegistry, "missing");
+        this.invalid = outcome(meterRegistry, "invalid");
+        this.authenticated = outcome(meterRegistry, "authenticated");
+        this.unknownUser = outcome(meterRegistry, "unknown_user");
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("hrv.auth.jwt")
+                .description("Requests by outcome of the bearer token check")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
     @Override
@@ -42,31 +65,33 @@ public class JWTFilter extends OncePerRequestFilter {
         }
 
         String authHeader = request.getHeader("Authorization"); // from the request we obtain: Bearer {token}
-        String token = null;
-        String username = null;
+        JWTService.VerifiedToken verified = null;
 
-        try {
-            if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                token = authHeader.substring(7); // starts with Bearer_
-                username = jwtService.extractUserName(token);
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String token = authHeader.substring(7); // starts with Bearer_
+            // one signature check and expiry check per token, null if either fails
+            verified = jwtService.validate(token);
+            if (verified == null) {
+                invalid.increment();
             }
         }
-        catch (Exception e) {
-            System.out.println("Invalid jwt token"); //JWT Token invalid
+        else {
+            missing.increment();
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if (verified != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                if (jwtService.isNotTokenExpired(token)) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                // cached per subject, so only the first request of a user hits the database
+                UserDetails userDetails = userDetailsCache.get(verified.subject(), userDetailsService::loadUserByUsername);
+                UsernamePasswordAuthenticationToken authToken =
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
 
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+                authenticated.increment();
             } catch (Exception e) {
                 // ignore errors
+                unknownUser.increment();
             }
         }
         filterChain.doFilter(request, response);
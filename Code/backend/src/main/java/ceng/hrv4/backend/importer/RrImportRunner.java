@@ -0,0 +1,45 @@
+package ceng.hrv4.backend.importer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Startup job that imports the legacy RR txt data set from {@code hrv.import.root}.
+ * Replaces {@code db_update/HRVParserAndDBIntegrator.py}, which wrote to PostgreSQL.
+ * Running it again only imports new, changed or previously interrupted files.
+ *
+ * Enabled with {@code hrv.import.enabled=true}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "hrv.import.enabled", havingValue = "true")
+public class RrImportRunner implements ApplicationRunner {
+
+    private final RrImportService rrImportService;
+    private final String root;
+
+    public RrImportRunner(RrImportService rrImportService, @Value("${hrv.import.root:}") String root) {
+        this.rrImportService = rrImportService;
+        this.root = root;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Path rootPath = Path.of(root);
+        if (root.isBlank() || !Files.isDirectory(rootPath)) {
+            log.error("hrv.import.root is not a directory: '{}'", root);
+            return;
+        }
+        long started = System.nanoTime();
+        RrImportService.Result result = rrImportService.importAll(rootPath);
+        log.info("RR import finished in {} ms: {} imported, {} up to date, {} failed",
+                (System.nanoTime() - started) / 1_000_000, result.imported(), result.skipped(), result.failed());
+    }
+}
@@ -0,0 +1,348 @@
+package ceng.hrv4.backend.importer;
+
+import ceng.hrv4.backend.analysis.HrvMetricsEngine;
+import ceng.hrv4.backend.entity.HrvWindowBucket;
+import ceng.hrv4.backend.entity.ImportCheckpoint;
+import ceng.hrv4.backend.entity.ProcessedData;
+import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.entity.RawDataChunk;
+import ceng.hrv4.backend.entity.User;
+import ceng.hrv4.backend.mapper.ProcessedDataMapper;
+import ceng.hrv4.backend.repository.ImportCheckpointRepository;
+import ceng.hrv4.backend.repository.UserRepository;
+import ceng.hrv4.backend.scoring.ScoringQueue;
+import ceng.hrv4.backend.service.HrvRollupService;
+import ceng.hrv4.backend.service.HrvWindowService;
+import ceng.hrv4.backend.service.RawDataChunkService;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bulk import of the legacy RR txt data set into raw_datas and processed_datas.
+ *
+ * The import root holds one folder per user (named by the user's legacy ID, e.g. "1013"),
+ * each with any number of date folders containing the txt recordings. User folders are
+ * imported in parallel; within a folder the files are written in batches with one bulk
+ * insert per collection. Progress is tracked per file in {@link ImportCheckpoint}, so an
+ * interrupted import can simply be run again.
+ */
+@Slf4j
+@Service
+public class RrImportService {
+
+    /** Totals of one import run. */
+    public record Result(int imported, int skipped, int failed) {
+        Result plus(Result other) {
+            return new Result(imported + other.imported, skipped + other.skipped, failed + other.failed);
+        }
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final UserRepository userRepository;
+    private final ImportCheckpointRepository checkpointRepository;
+    private final RawDataChunkService rawDataChunkService;
+    private final HrvMetricsEngine hrvMetricsEngine;
+    private final ProcessedDataMapper processedDataMapper;
+    private final HrvWindowService hrvWindowService;
+    private final HrvRollupService hrvRollupService;
+    private final ScoringQueue scoringQueue;
+    private final int threads;
+    private final boolean virtualThreads;
+    private final int batchSize;
+    private final ZoneId zone;
+
+    public RrImportService(MongoTemplate mongoTemplate, UserRepository userRepository,
+                           ImportCheckpointRepository checkpointRepository, RawDataChunkService rawDataChunkService,
+                           HrvMetricsEngine hrvMetricsEngine, ProcessedDataMapper processedDataMapper,
+                           HrvWindowService hrvWindowService, HrvRollupService hrvRollupService,
+                           ScoringQueue scoringQueue,
+                           @Value("${hrv.import.threads:4}") int threads,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                           @Value("${hrv.import.batch-size:50}") int batchSize,
+                           @Value("${hrv.import.zone:Europe/Istanbul}") ZoneId zone) {
+        this.mongoTemplate = mongoTemplate;
+        this.userRepository = userRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.rawDataChunkService = rawDataChunkService;
+        this.hrvMetricsEngine = hrvMetricsEngine;
+        this.processedDataMapper = processedDataMapper;
+        this.hrvWindowService = hrvWindowService;
+        this.hrvRollupService = hrvRollupService;
+        this.scoringQueue = scoringQueue;
+        this.threads = threads;
+        this.virtualThreads = virtualThreads;
+        this.batchSize = batchSize;
+        this.zone = zone;
+    }
+
+    /**
+     * Imports every user folder under {@code root}, {@code hrv.import.threads} folders at a time.
+     */
+    public Result importAll(Path root) throws IOException, InterruptedException {
+        List<Path> userFolders;
+        try (Stream<Path> children = Files.list(root)) {
+            userFolders = children.filter(Files::isDirectory).sorted().toList();
+        }
+
+        // The folders are mostly waiting on file and database I/O, so in virtual-thread mode
+        // they run on virtual threads; the pool size still bounds the load on MongoDB.
+        ThreadFactory factory = virtualThreads
+                ? Thread.ofVirtual().name("rr-import-", 1).factory()
+                : Thread.ofPlatform().name("rr-import-", 1).factory();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, factory);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (Path folder : userFolders) {
+                futures.add(executor.submit(() -> importUserFolder(root, folder)));
+            }
+            Result total = new Result(0, 0, 0);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    total = total.plus(futures.get(i).get());
+                }
+                catch (ExecutionException e) {
+                    log.error("Import of user folder {} failed: {}", userFolders.get(i), e.getCause().getMessage());
+                }
+            }
+            return total;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Imports the txt files of one user folder, skipping those already imported.
+     */
+    Result importUserFolder(Path root, Path folder) throws IOException {
+        String legacyId = folder.getFileName().toString();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(folder)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().toLowerCase().endsWith(".txt"))
+                    .sorted()
+                    .toList();
+        }
+        if (files.isEmpty()) {
+            return new Result(0, 0, 0);
+        }
+
+        Map<String, ImportCheckpoint> checkpoints = checkpointRepository.findByUserFolder(legacyId).stream()
+                .collect(Collectors.toMap(ImportCheckpoint::getId, Function.identity()));
+
+        List<Path> todo = new ArrayList<>();
+        int skipped = 0;
+        for (Path file : files) {
+            ImportCheckpoint checkpoint = checkpoints.get(key(root, file));
+            if (checkpoint != null && checkpoint.getStatus() == ImportCheckpoint.Status.DONE
+                    && checkpoint.getFileSize() == Files.size(file)
+                    && Files.getLastModifiedTime(file).toInstant().equals(checkpoint.getFileModifiedAt())) {
+                skipped++;
+            }
+            else {
+                todo.add(file);
+            }
+        }
+        if (todo.isEmpty()) {
+            return new Result(0, skipped, 0);
+        }
+
+        String userId = resolveUser(legacyId);
+        int imported = 0;
+        int failed = 0;
+        for (int from = 0; from < todo.size(); from += batchSize) {
+            List<Path> batch = todo.subList(from, Math.min(from + batchSize, todo.size()));
+            int ok = importBatch(root, legacyId, userId, batch, checkpoints);
+            imported += ok;
+            failed += batch.size() - ok;
+        }
+        log.info("Imported user folder {}: {} imported, {} up to date, {} failed", legacyId, imported, skipped, failed);
+        return new Result(imported, skipped, failed);
+    }
+
+    /**
+     * Writes one batch of files: PENDING checkpoints first, then the RawData headers, chunks,
+     * ProcessedData and HRV windows with one bulk insert each, then the checkpoints are set to DONE.
+     *
+     * @return the number of files imported
+     */
+    private int importBatch(Path root, String legacyId, String userId, List<Path> files,
+                            Map<String, ImportCheckpoint> checkpoints) throws IOException {
+        Instant now = Instant.now();
+        List<ImportCheckpoint> pending = new ArrayList<>();
+        List<ImportCheckpoint> failed = new ArrayList<>();
+        List<RawData> headers = new ArrayList<>();
+        List<RawDataChunk> chunks = new ArrayList<>();
+        List<ProcessedData> processed = new ArrayList<>();
+        List<HrvWindowBucket> windows = new ArrayList<>();
+
+        for (Path file : files) {
+            String key = key(root, file);
+            ImportCheckpoint previous = checkpoints.get(key);
+            if (previous != null && previous.getRawDataId() != null) {
+                // Left over from an interrupted run, or the file changed since it was imported.
+                deleteImported(previous.getRawDataId());
+            }
+
+            ImportCheckpoint checkpoint = new ImportCheckpoint();
+            checkpoint.setId(key);
+            checkpoint.setUserFolder(legacyId);
+            checkpoint.setUserId(userId);
+            checkpoint.setFileSize(Files.size(file));
+            checkpoint.setFileModifiedAt(Files.getLastModifiedTime(file).toInstant());
+            checkpoint.setUpdatedAt(now);
+
+            RrTextFile recording;
+            try {
+                recording = RrTextFile.read(file);
+            }
+            catch (IOException e) {
+                log.warn("Skipping {}: {}", file, e.getMessage());
+                checkpoint.setStatus(ImportCheckpoint.Status.FAILED);
+                checkpoint.setError(e.getMessage());
+                failed.add(checkpoint);
+                continue;
+            }
+
+            RawData raw = toRawData(userId, recording, now);
+            double[] rr = recording.rrIntervalsMs();
+            if (rawDataChunkService.shouldChunk(raw, rr)) {
+                List<RawDataChunk> parts = rawDataChunkService.split(raw, rr, 0);
+                for (RawDataChunk chunk : parts) {
+                    chunk.setCreatedAt(now);
+                    chunk.setUpdatedAt(now);
+                }
+                raw.setRrIntervalsMs(null);
+                raw.setChunked(true);
+                raw.setChunkCount(parts.size());
+                chunks.addAll(parts);
+            }
+            // The txt files hold local times of the import zone, so the night is taken there too.
+            ProcessedData metrics = processedDataMapper.toEntity(raw,
+                    hrvMetricsEngine.compute(rr, raw.getMeasurementStartTime(), zone.getId()));
+            metrics.setCreatedAt(now);
+            metrics.setUpdatedAt(now);
+            processed.add(metrics);
+            for (HrvWindowBucket bucket : hrvWindowService.buckets(raw, rr)) {
+                bucket.setCreatedAt(now);
+                bucket.setUpdatedAt(now);
+                windows.add(bucket);
+            }
+            headers.add(raw);
+
+            checkpoint.setStatus(ImportCheckpoint.Status.PENDING);
+            checkpoint.setRawDataId(raw.getId());
+            checkpoint.setRrCount(rr.length);
+            pending.add(checkpoint);
+        }
+
+        saveCheckpoints(failed);
+        if (headers.isEmpty()) {
+            return 0;
+        }
+        saveCheckpoints(pending);
+        insert(headers, RawData.class);
+        insert(chunks, RawDataChunk.class);
+        insert(processed, ProcessedData.class);
+        hrvRollupService.add(processed);
+        scoringQueue.enqueue(processed);
+        insert(windows, HrvWindowBucket.class);
+
+        Instant done = Instant.now();
+        for (ImportCheckpoint checkpoint : pending) {
+            checkpoint.setStatus(ImportCheckpoint.Status.DONE);
+            checkpoint.setUpdatedAt(done);
+        }
+        saveCheckpoints(pending);
+        return pending.size();
+    }
+
+    private RawData toRawData(String userId, RrTextFile recording, Instant now) {
+        Instant start = recording.start().atZone(zone).toInstant();
+        double durationMs = 0;
+        for (double rr : recording.rrIntervalsMs()) {
+            durationMs += rr;
+        }
+
+        RawData raw = new RawData(userId, start, start.plusMillis(Math.round(durationMs)), recording.rrIntervalsMs());
+        // The id is chosen here so the checkpoint can point at it before anything is written.
+        raw.setId(new ObjectId().toHexString());
+        raw.setRrCount(recording.rrIntervalsMs().length);
+        raw.setRawDurationSeconds(durationMs / 1000.0);
+        raw.setCreatedAt(now);
+        raw.setUpdatedAt(now);
+        return raw;
+    }
+
+    /**
+     * Finds the user of a legacy folder, by ID or legacy ID, or creates one.
+     * Each folder is imported by a single thread, so there is no race on creation.
+     */
+    private String resolveUser(String legacyId) {
+        if (ObjectId.isValid(legacyId) && userRepository.existsById(legacyId)) {
+            return legacyId;
+        }
+        return userRepository.findByLegacyId(legacyId)
+                .map(User::getId)
+                .orElseGet(() -> {
+                    User user = new User();
+                    user.setLegacyId(legacyId);
+                    return userRepository.save(user).getId();
+                });
+    }
+
+    private void deleteImported(String rawDataId) {
+        mongoTemplate.remove(Query.query(Criteria.where("raw_data_id").is(rawDataId)), RawDataChunk.class);
+        hrvRollupService.remove(mongoTemplate.findAllAndRemove(
+                Query.query(Criteria.where("measurement_id").is(rawDataId)), ProcessedData.class));
+        mongoTemplate.remove(Query.query(Criteria.where("raw_data_id").is(rawDataId)), HrvWindowBucket.class);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(rawDataId)), RawData.class);
+    }
+
+    private <E> void insert(List<E> documents, Class<E> type) {
+        if (!documents.isEmpty()) {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type).insert(documents).execute();
+        }
+    }
+
+    private void saveCheckpoints(List<ImportCheckpoint> checkpoints) {
+        if (checkpoints.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ImportCheckpoint.class);
+        for (ImportCheckpoint checkpoint : checkpoints) {
+            bulk.replaceOne(Query.query(Criteria.where("_id").is(checkpoint.getId())), checkpoint,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        bulk.execute();
+    }
+
+    /** Checkpoint key of a file: its path relative to the import root, with forward slashes. */
+    private static String key(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+}
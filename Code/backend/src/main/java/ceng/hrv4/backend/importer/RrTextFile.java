@@ -0,0 +1,79 @@
+package ceng.hrv4.backend.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * A recording in the legacy txt format: the start time as {@code yyyy-MM-dd HH:mm:ss} on the
+ * first line, followed by one RR interval in whole milliseconds per line. Blank lines are
+ * ignored.
+ *
+ * @param start         local start time of the recording
+ * @param rrIntervalsMs the RR intervals in milliseconds
+ */
+public record RrTextFile(LocalDateTime start, double[] rrIntervalsMs) {
+
+    static final DateTimeFormatter START_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * Parses the file without boxing the intervals.
+     *
+     * @throws IOException if the file cannot be read or is not in the expected format
+     */
+    public static RrTextFile read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("Empty file");
+            }
+            LocalDateTime start;
+            try {
+                start = LocalDateTime.parse(stripBom(header).trim(), START_FORMAT);
+            }
+            catch (DateTimeParseException e) {
+                throw new IOException("Invalid start time on line 1: " + header);
+            }
+
+            double[] values = new double[4096];
+            int count = 0;
+            int lineNumber = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int rr;
+                try {
+                    rr = Integer.parseInt(line);
+                }
+                catch (NumberFormatException e) {
+                    throw new IOException("Invalid RR interval on line " + lineNumber + ": " + line);
+                }
+                if (rr <= 0) {
+                    throw new IOException("Non-positive RR interval on line " + lineNumber + ": " + line);
+                }
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                values[count++] = rr;
+            }
+            if (count == 0) {
+                throw new IOException("No RR intervals");
+            }
+            return new RrTextFile(start, Arrays.copyOf(values, count));
+        }
+    }
+
+    private static String stripBom(String line) {
+        return !line.isEmpty() && line.charAt(0) == '﻿' ? line.substring(1) : line;
+    }
+}
@@ -30,7 +30,8 @@ public class ModelOutputMapper {
                 output.getStress(),
                 output.getStressPercentage(),
                 output.getHealthState(),
-                output.getHealthStatePercentage()
+                output.getHealthStatePercentage(),
+                output.getModelVersion()
         );
     }
 }
\ No newline at end of file
@@ -1,8 +1,10 @@
 package ceng.hrv4.backend.mapper;
 
+import ceng.hrv4.backend.analysis.HrvMetrics;
 import ceng.hrv4.backend.dto.request.ProcessedDataRequestDto;
 import ceng.hrv4.backend.dto.response.ProcessedDataResponseDto;
 import ceng.hrv4.backend.entity.ProcessedData;
+import ceng.hrv4.backend.entity.RawData;
 import org.springframework.stereotype.Component;
 
 
@@ -20,6 +22,48 @@ public class ProcessedDataMapper {
         return entity;
     }
 
+    /**
+     * Builds the ProcessedData record of a RawData measurement from its computed metrics.
+     * The night fields stay null if the recording has no night part.
+     */
+    public ProcessedData toEntity(RawData raw, HrvMetrics metrics) {
+        ProcessedData entity = new ProcessedData();
+
+        entity.setUserId(raw.getUserId());
+        entity.setMeasurementId(raw.getId());
+        entity.setMeasurementTime(raw.getMeasurementStartTime());
+
+        entity.setHeartBeats(metrics.heartBeats());
+        entity.setRmssd(nullable(metrics.rmssd()));
+        entity.setSdnn(nullable(metrics.sdnn()));
+        entity.setPnn50(nullable(metrics.pnn50()));
+        entity.setMinHr(nullable(metrics.minHr()));
+        entity.setMaxHr(nullable(metrics.maxHr()));
+        entity.setTp(nullable(metrics.tp()));
+        entity.setUlf(nullable(metrics.ulf()));
+        entity.setVlf(nullable(metrics.vlf()));
+        entity.setLf(nullable(metrics.lf()));
+        entity.setHf(nullable(metrics.hf()));
+
+        HrvMetrics night = metrics.night();
+        if (night != null) {
+            entity.setRmssdNight(nullable(night.rmssd()));
+            entity.setSdnnNight(nullable(night.sdnn()));
+            entity.setPnn50Night(nullable(night.pnn50()));
+            entity.setTpNight(nullable(night.tp()));
+            entity.setUlfNight(nullable(night.ulf()));
+            entity.setVlfNight(nullable(night.vlf()));
+            entity.setLfNight(nullable(night.lf()));
+            entity.setHfNight(nullable(night.hf()));
+        }
+
+        return entity;
+    }
+
+    private static Double nullable(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
     public ProcessedDataResponseDto toDto(ProcessedData entity) {
         return new ProcessedDataResponseDto(
                 entity.getId(),
@@ -1,10 +1,14 @@
 package ceng.hrv4.backend.mapper;
 
 import ceng.hrv4.backend.dto.request.RawDataRequestDto;
+import ceng.hrv4.backend.dto.request.StreamSessionRequestDto;
 import ceng.hrv4.backend.dto.response.RawDataResponseDto;
 import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.repository.projection.RawDataSummary;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 
 @Component
 public class RawDataMapper {
@@ -17,10 +21,45 @@ public class RawDataMapper {
         entity.setActivityId(dto.activityId());
         entity.setMeasurementStartTime(dto.measurementStartTime());
         entity.setMeasurementEndTime(dto.measurementEndTime());
-        entity.setRrIntervalsMs(dto.rrIntervalsMs());
+        entity.setRrIntervalsMs(toArray(dto.rrIntervalsMs()));
+        entity.setRrCount(entity.getRrIntervalsMs().length);
         return entity;
     }
 
+    /**
+     * Creates the header of a streamed recording; its RR intervals arrive later as chunks.
+     */
+    public RawData toEntity(StreamSessionRequestDto dto) {
+        RawData entity = new RawData();
+        entity.setDeviceName(dto.deviceName());
+        entity.setUserId(dto.userId());
+        entity.setActivityId(dto.activityId());
+        entity.setMeasurementStartTime(dto.measurementStartTime());
+        entity.setMeasurementEndTime(dto.measurementStartTime());
+        entity.setChunked(true);
+        entity.setChunkCount(0);
+        entity.setRrCount(0);
+        entity.setStreamElapsedMs(0.0);
+        return entity;
+    }
+
+    /**
+     * Unboxes the request's RR list into the primitive array stored on the entity.
+     * A missing list gives an empty array; a missing value becomes NaN, which the
+     * metrics treat as an artifact.
+     */
+    public double[] toArray(List<Double> rrIntervalsMs) {
+        if (rrIntervalsMs == null) {
+            return new double[0];
+        }
+        double[] values = new double[rrIntervalsMs.size()];
+        int i = 0;
+        for (Double value : rrIntervalsMs) {
+            values[i++] = value != null ? value : Double.NaN;
+        }
+        return values;
+    }
+
 
 
     public RawDataResponseDto toDto(RawData entity) {
@@ -31,8 +70,29 @@ public class RawDataMapper {
                 entity.getMeasurementStartTime(),
                 entity.getMeasurementEndTime(),
                 entity.getDeviceName(),
-                entity.getRrIntervalsMs() != null ? entity.getRrIntervalsMs().size() : 0,
+                rrCount(entity),
                 entity.getCreatedAt()
         );
     }
+
+    public RawDataResponseDto toDto(RawDataSummary summary) {
+        return new RawDataResponseDto(
+                summary.getId(),
+                summary.getUserId(),
+                summary.getActivityId(),
+                summary.getMeasurementStartTime(),
+                summary.getMeasurementEndTime(),
+                summary.getDeviceName(),
+                summary.getRrCount(),
+                summary.getCreatedAt()
+        );
+    }
+
+    private static Integer rrCount(RawData entity) {
+        if (entity.getRrCount() != null) {
+            return entity.getRrCount();
+        }
+        // Documents written before rr_count was persisted.
+        return entity.getRrIntervalsMs() != null ? entity.getRrIntervalsMs().length : null;
+    }
 }
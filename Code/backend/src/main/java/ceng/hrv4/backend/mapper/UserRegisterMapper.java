@@ -32,7 +32,8 @@ public class UserRegisterMapper {
                 user.getGender(),
                 user.getNotes(),
                 user.getClinicalStory(),
-                user.getActivities()
+                user.getTimeZone(),
+                user.getRecentActivities()
         );
     }
 }
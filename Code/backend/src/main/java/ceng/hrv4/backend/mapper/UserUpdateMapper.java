@@ -18,7 +18,7 @@ public class UserUpdateMapper {
         user.setGender(dto.gender());
         user.setNotes(dto.notes());
         user.setClinicalStory(dto.clinicalStory());
-        user.setActivities(dto.activities());
+        user.setTimeZone(dto.timeZone());
         return user;
     }
 
@@ -32,7 +32,8 @@ public class UserUpdateMapper {
                 user.getGender(),
                 user.getNotes(),
                 user.getClinicalStory(),
-                user.getActivities()
+                user.getTimeZone(),
+                user.getRecentActivities()
         );
     }
 }
@@ -1,10 +1,12 @@
 package ceng.hrv4.backend.repository;
 
 import ceng.hrv4.backend.entity.Activity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ActivityRepository extends MongoRepository<Activity, String> {
@@ -14,4 +16,14 @@ public interface ActivityRepository extends MongoRepository<Activity, String> {
     boolean existsByCategory(String category);
 
     List<Activity> findByUserId(String userId);
+
+    List<Activity> findByUserId(String userId, Pageable pageable);
+
+    List<Activity> findByIdGreaterThan(String id, Pageable pageable);
+
+    List<Activity> findByUserIdAndIdGreaterThan(String userId, String id, Pageable pageable);
+
+    Stream<Activity> streamAllBy();
+
+    Stream<Activity> streamByUserId(String userId);
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package ceng.hrv4.backend.repository;
+
+import ceng.hrv4.backend.entity.DeletionJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface DeletionJobRepository extends MongoRepository<DeletionJob, String> {
+
+    boolean existsByUserIdAndStatusIn(String userId, Collection<DeletionJob.Status> statuses);
+}
@@ -0,0 +1,20 @@
+package ceng.hrv4.backend.repository;
+
+import ceng.hrv4.backend.entity.HrvRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface HrvRollupRepository extends MongoRepository<HrvRollup, String> {
+
+    /**
+     * Rollups of a user and period whose bucket starts within [from, to), oldest first.
+     */
+    @Query(value = "{ 'user_id': ?0, 'period': ?1, 'bucket_start': { $gte: ?2, $lt: ?3 } }",
+            sort = "{ 'bucket_start': 1 }")
+    List<HrvRollup> findRange(String userId, HrvRollup.Period period, Instant from, Instant to);
+}
@@ -0,0 +1,15 @@
+package ceng.hrv4.backend.repository;
+
+import ceng.hrv4.backend.entity.HrvWindowBucket;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface HrvWindowBucketRepository extends MongoRepository<HrvWindowBucket, String> {
+
+    List<HrvWindowBucket> findByRawDataIdOrderBySequenceAsc(String rawDataId);
+
+    void deleteByRawDataId(String rawDataId);
+}
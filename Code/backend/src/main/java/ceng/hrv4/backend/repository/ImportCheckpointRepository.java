@@ -0,0 +1,13 @@
+package ceng.hrv4.backend.repository;
+
+import ceng.hrv4.backend.entity.ImportCheckpoint;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ImportCheckpointRepository extends MongoRepository<ImportCheckpoint, String> {
+
+    List<ImportCheckpoint> findByUserFolder(String userFolder);
+}
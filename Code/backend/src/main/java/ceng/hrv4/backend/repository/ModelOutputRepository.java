@@ -1,11 +1,30 @@
 package ceng.hrv4.backend.repository;
 
 import ceng.hrv4.backend.entity.ModelOutput;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 @Repository
 public interface ModelOutputRepository extends MongoRepository<ModelOutput, String> {
      List<ModelOutput> findByUserId(String userId);
 
+     List<ModelOutput> findByIdGreaterThan(String id, Pageable pageable);
+
+     List<ModelOutput> findByUserIdAndIdGreaterThan(String userId, String id, Pageable pageable);
+
+     Stream<ModelOutput> streamAllBy();
+
+     Stream<ModelOutput> streamByUserId(String userId);
+
+     /**
+      * A user's outputs for measurements taken within [from, to), newest first.
+      */
+     @Query(value = "{ 'user_id': ?0, 'measurement_time': { $gte: ?1, $lt: ?2 } }",
+             sort = "{ 'measurement_time': -1 }")
+     List<ModelOutput> findInRange(String userId, Instant from, Instant to, Pageable pageable);
+
 }
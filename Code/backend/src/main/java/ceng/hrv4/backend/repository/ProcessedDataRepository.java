@@ -1,12 +1,35 @@
 package ceng.hrv4.backend.repository;
 
 import ceng.hrv4.backend.entity.ProcessedData;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProcessedDataRepository extends MongoRepository<ProcessedData, String> {
     List<ProcessedData> findByUserId(String userId);
 
+    List<ProcessedData> findByMeasurementId(String measurementId);
+
+    void deleteByMeasurementId(String measurementId);
+
+    List<ProcessedData> findByIdGreaterThan(String id, Pageable pageable);
+
+    List<ProcessedData> findByUserIdAndIdGreaterThan(String userId, String id, Pageable pageable);
+
+    Stream<ProcessedData> streamAllBy();
+
+    Stream<ProcessedData> streamByUserId(String userId);
+
+    /**
+     * A user's measurements taken within [from, to), newest first.
+     */
+    @Query(value = "{ 'user_id': ?0, 'measurement_time': { $gte: ?1, $lt: ?2 } }",
+            sort = "{ 'measurement_time': -1 }")
+    List<ProcessedData> findInRange(String userId, Instant from, Instant to, Pageable pageable);
+
 }
@@ -0,0 +1,25 @@
+package ceng.hrv4.backend.repository;
+
+import ceng.hrv4.backend.entity.RawDataChunk;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RawDataChunkRepository extends MongoRepository<RawDataChunk, String> {
+
+    List<RawDataChunk> findByRawDataIdOrderBySequenceAsc(String rawDataId);
+
+    /**
+     * Chunks of a recording that overlap [from, to), in recording order. A chunk whose last
+     * beat ends exactly at {@code from} is included, as that beat is within the window.
+     */
+    @Query(value = "{ 'raw_data_id': ?0, 'start_time': { $lt: ?2 }, 'end_time': { $gte: ?1 } }",
+            sort = "{ 'sequence': 1 }")
+    List<RawDataChunk> findOverlapping(String rawDataId, Instant from, Instant to);
+
+    void deleteByRawDataId(String rawDataId);
+}
@@ -1,13 +1,44 @@
 package ceng.hrv4.backend.repository;
 
 import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.repository.projection.IdOnly;
+import ceng.hrv4.backend.repository.projection.RawDataSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
+import java.util.stream.Stream;
 @Repository
-public interface RawDataRepository extends MongoRepository<RawData, String> {
+public interface RawDataRepository extends MongoRepository<RawData, String>, RawDataRepositoryCustom {
     List<RawData> findByUserId(String userId);
 
+    // Listing queries return RawDataSummary so the RR interval array is never fetched.
 
+    List<RawDataSummary> findSummariesBy();
+
+    List<RawDataSummary> findSummariesByUserId(String userId);
+
+    List<RawDataSummary> findSummariesByIdGreaterThan(String id, Pageable pageable);
+
+    List<RawDataSummary> findSummariesByUserIdAndIdGreaterThan(String userId, String id, Pageable pageable);
+
+    Stream<RawDataSummary> streamSummariesBy();
+
+    Stream<RawDataSummary> streamSummariesByUserId(String userId);
+
+    /**
+     * A user's recordings starting within [from, to), newest first.
+     */
+    @Query(value = "{ 'user_id': ?0, 'measurement_start_time': { $gte: ?1, $lt: ?2 } }",
+            fields = "{ 'rr_intervals_ms': 0 }",
+            sort = "{ 'measurement_start_time': -1 }")
+    List<RawDataSummary> findSummariesInRange(String userId, Instant from, Instant to, Pageable pageable);
+
+    Stream<RawData> streamByRrCountIsNull();
+
+    List<IdOnly> findByIdIn(Collection<String> ids);
 }
@@ -0,0 +1,50 @@
+package ceng.hrv4.backend.repository;
+
+import ceng.hrv4.backend.entity.RawData;
+
+/**
+ * Atomic update operations on RawData that derived queries cannot express.
+ */
+public interface RawDataRepositoryCustom {
+
+    /**
+     * Reserves {@code count} chunk sequence numbers and the next {@code durationMs} of the
+     * time axis for a batch of a streamed recording, and adds {@code samples} to its RR count,
+     * in one atomic update. Concurrent appends therefore get consecutive, non-overlapping
+     * ranges. The end time is then moved forward with {@code $max}, so it never goes back.
+     *
+     * @return the reservation, or null if the RawData does not exist or has been closed
+     */
+    ChunkReservation reserveChunks(String rawDataId, int count, int samples, double durationMs);
+
+    /**
+     * Marks a streamed recording as closed, unless it already is.
+     *
+     * @return the header as it is after closing, or null if it does not exist, is not a
+     *         stream session or was already closed
+     */
+    RawData closeStream(String rawDataId);
+
+    /**
+     * Sets the missing rr_count of documents whose RR intervals are still stored as a plain
+     * BSON array, computing it with {@code $size} on the server.
+     *
+     * @return the number of documents updated
+     */
+    long setRrCountFromArraySize();
+
+    void setRrCount(String rawDataId, int rrCount);
+
+    /**
+     * Sets the chunk sequence counter; sequences of a compacted recording continue after
+     * the ones it replaced, so this is not necessarily the number of stored chunks.
+     */
+    void setChunkCount(String rawDataId, int chunkCount);
+
+    /**
+     * @param firstSequence sequence number of the batch's first chunk
+     * @param startOffsetMs time from the measurement start to where the batch begins
+     */
+    record ChunkReservation(int firstSequence, double startOffsetMs) {
+    }
+}
@@ -0,0 +1,86 @@
+package ceng.hrv4.backend.repository;
+
+import ceng.hrv4.backend.entity.RawData;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+
+public class RawDataRepositoryCustomImpl implements RawDataRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public RawDataRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public ChunkReservation reserveChunks(String rawDataId, int count, int samples, double durationMs) {
+        Query query = new Query(Criteria.where("id").is(rawDataId).and("stream_closed").ne(true));
+        query.fields().include("chunk_count", "stream_elapsed_ms", "measurement_start_time", "measurement_end_time");
+
+        Update update = new Update()
+                .inc("chunk_count", count)
+                .inc("rr_count", samples)
+                .inc("stream_elapsed_ms", durationMs);
+
+        RawData before = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false), RawData.class);
+        if (before == null) {
+            return null;
+        }
+        int firstSequence = before.getChunkCount() != null ? before.getChunkCount() : 0;
+        double startOffsetMs = before.getStreamElapsedMs() != null ? before.getStreamElapsedMs() : elapsedMs(before);
+
+        Instant batchEnd = before.getMeasurementStartTime().plusMillis(Math.round(startOffsetMs + durationMs));
+        Update end = new Update().max("measurement_end_time", batchEnd);
+        if (before.getStreamElapsedMs() == null) {
+            // The $inc above started the counter at zero; add what was appended before it existed.
+            end.inc("stream_elapsed_ms", startOffsetMs);
+        }
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(rawDataId)), end, RawData.class);
+        return new ChunkReservation(firstSequence, startOffsetMs);
+    }
+
+    /** Sessions started before stream_elapsed_ms existed only have their end time. */
+    private static double elapsedMs(RawData raw) {
+        if (raw.getMeasurementEndTime() == null) {
+            return 0;
+        }
+        return raw.getMeasurementEndTime().toEpochMilli() - raw.getMeasurementStartTime().toEpochMilli();
+    }
+
+    @Override
+    public RawData closeStream(String rawDataId) {
+        Query query = new Query(Criteria.where("id").is(rawDataId)
+                .and("chunked").is(true)
+                .and("stream_closed").ne(true));
+        return mongoTemplate.findAndModify(query, Update.update("stream_closed", true),
+                FindAndModifyOptions.options().returnNew(true), RawData.class);
+    }
+
+    @Override
+    public long setRrCountFromArraySize() {
+        Query query = new Query(Criteria.where("rr_count").exists(false)
+                .and("rr_intervals_ms").type(org.bson.BsonType.ARRAY.getValue()));
+        AggregationUpdate update = AggregationUpdate.update()
+                .set("rr_count").toValue(ArrayOperators.Size.lengthOfArray("rr_intervals_ms"));
+        return mongoTemplate.updateMulti(query, update, "raw_datas").getModifiedCount();
+    }
+
+    @Override
+    public void setRrCount(String rawDataId, int rrCount) {
+        Query query = new Query(Criteria.where("id").is(rawDataId));
+        mongoTemplate.updateFirst(query, Update.update("rr_count", rrCount), RawData.class);
+    }
+
+    @Override
+    public void setChunkCount(String rawDataId, int chunkCount) {
+        Query query = new Query(Criteria.where("id").is(rawDataId));
+        mongoTemplate.updateFirst(query, Update.update("chunk_count", chunkCount), RawData.class);
+    }
+}
@@ -0,0 +1,13 @@
+package ceng.hrv4.backend.repository;
+
+import ceng.hrv4.backend.entity.RescoringJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+@Repository
+public interface RescoringJobRepository extends MongoRepository<RescoringJob, String> {
+
+    boolean existsByStatusIn(Collection<RescoringJob.Status> statuses);
+}
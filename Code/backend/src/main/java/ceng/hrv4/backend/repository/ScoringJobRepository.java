@@ -0,0 +1,14 @@
+package ceng.hrv4.backend.repository;
+
+import ceng.hrv4.backend.entity.ScoringJob;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ScoringJobRepository extends MongoRepository<ScoringJob, String> {
+
+    List<ScoringJob> findByMeasurementId(String measurementId, Sort sort);
+}
@@ -1,15 +1,29 @@
 package ceng.hrv4.backend.repository;
 
 import ceng.hrv4.backend.entity.User;
+import ceng.hrv4.backend.repository.projection.IdOnly;
+import ceng.hrv4.backend.repository.projection.UserCredentials;
+import ceng.hrv4.backend.repository.projection.UserTimeZone;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
+import java.util.stream.Stream;
 @Repository
 public interface UserRepository extends MongoRepository<User, String> {
 
     boolean existsByEmail(String email);
     Optional<User> findByEmail(String email);
+    Optional<UserCredentials> findCredentialsByEmail(String email);
+    Optional<User> findByLegacyId(String legacyId);
 
+    List<User> findByIdGreaterThan(String id, Pageable pageable);
 
+    Stream<User> streamAllBy();
+
+    List<IdOnly> findByIdIn(Collection<String> ids);
+
+    List<UserTimeZone> findTimeZonesByIdIn(Collection<String> ids);
 }
@@ -0,0 +1,9 @@
+package ceng.hrv4.backend.repository.projection;
+
+/**
+ * Projection fetching nothing but the document id, for existence checks on many ids at once.
+ */
+public interface IdOnly {
+
+    String getId();
+}
@@ -0,0 +1,26 @@
+package ceng.hrv4.backend.repository.projection;
+
+import java.time.Instant;
+
+/**
+ * Closed projection of RawData used by listing queries.
+ * Only these fields are fetched, so the RR interval array never leaves the database.
+ */
+public interface RawDataSummary {
+
+    String getId();
+
+    String getUserId();
+
+    String getActivityId();
+
+    Instant getMeasurementStartTime();
+
+    Instant getMeasurementEndTime();
+
+    String getDeviceName();
+
+    Integer getRrCount();
+
+    Instant getCreatedAt();
+}
@@ -0,0 +1,12 @@
+package ceng.hrv4.backend.repository.projection;
+
+/**
+ * Closed projection of User used to authenticate requests.
+ * Only these fields are fetched, so the lookup stays small however much else the user document holds.
+ */
+public interface UserCredentials {
+
+    String getEmail();
+
+    String getPassword();
+}
@@ -0,0 +1,11 @@
+package ceng.hrv4.backend.repository.projection;
+
+/**
+ * Closed projection of User fetching the time zone its recordings are split into day and night by.
+ */
+public interface UserTimeZone {
+
+    String getId();
+
+    String getTimeZone();
+}
@@ -0,0 +1,34 @@
+package ceng.hrv4.backend.repository.reactive;
+
+import ceng.hrv4.backend.entity.ModelOutput;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Non-blocking read access to ModelOutput for streamed responses. Writes stay on
+ * {@link ceng.hrv4.backend.repository.ModelOutputRepository}.
+ */
+@Repository
+public interface ReactiveModelOutputRepository extends ReactiveMongoRepository<ModelOutput, String> {
+
+    /**
+     * A user's outputs for measurements taken within [from, to), newest first.
+     */
+    @Query(value = "{ 'user_id': ?0, 'measurement_time': { $gte: ?1, $lt: ?2 } }",
+            sort = "{ 'measurement_time': -1 }")
+    Flux<ModelOutput> findInRange(String userId, Instant from, Instant to);
+
+    /**
+     * Several users' outputs for measurements taken within [from, to), grouped by user and
+     * newest first within each user, so the compound (user_id, measurement_time) index
+     * serves the sort.
+     */
+    @Query(value = "{ 'user_id': { $in: ?0 }, 'measurement_time': { $gte: ?1, $lt: ?2 } }",
+            sort = "{ 'user_id': 1, 'measurement_time': -1 }")
+    Flux<ModelOutput> findForUsersInRange(Collection<String> userIds, Instant from, Instant to);
+}
@@ -0,0 +1,111 @@
+package ceng.hrv4.backend.scoring;
+
+import java.util.Arrays;
+
+/**
+ * Built-in model used until a model file is configured or when it cannot be loaded.
+ *
+ * Every score is the position of the measurement in an age-matched reference population:
+ * the features are turned into z-scores against population norms, the percentage is the
+ * share of the population the measurement is better than and the score is the same on the
+ * 0-10 scale the clients show. Higher is better for all of them, so "stress" is how well
+ * stress is handled. The biological age is the age whose average ln RMSSD equals the
+ * measured one. The norms are rough published resting values for short-term recordings.
+ * Nothing is scored without RMSSD.
+ */
+public final class BaselineModel implements ScoringModel {
+
+    public static final String VERSION = "baseline-1";
+
+    // ln RMSSD (ms) falls by about 0.02 per year of age, from about 40 ms at 25 to 20 ms at 60.
+    private static final double LN_RMSSD_AT_0 = 4.2;
+    private static final double LN_RMSSD_PER_YEAR = -0.02;
+    private static final double LN_RMSSD_SD = 0.45;
+    // ln SDNN (ms), about 55 ms at 25 and 35 ms at 60.
+    private static final double LN_SDNN_AT_0 = 4.33;
+    private static final double LN_SDNN_PER_YEAR = -0.013;
+    private static final double LN_SDNN_SD = 0.4;
+    // ln total and HF power (ms²), and ln LF/HF.
+    private static final double LN_TP_AT_0 = 8.3;
+    private static final double LN_TP_PER_YEAR = -0.03;
+    private static final double LN_TP_SD = 0.9;
+    private static final double LN_HF_AT_0 = 7.0;
+    private static final double LN_HF_PER_YEAR = -0.035;
+    private static final double LN_HF_SD = 1.0;
+    private static final double LN_LF_HF_MEAN = 0.5;
+    private static final double LN_LF_HF_SD = 0.8;
+
+    // Age the norms are taken at when the user's age is unknown.
+    private static final int REFERENCE_AGE = 40;
+    private static final double MIN_BIOLOGICAL_AGE = 18;
+    private static final double MAX_BIOLOGICAL_AGE = 90;
+
+    @Override
+    public String version() {
+        return VERSION;
+    }
+
+    @Override
+    public String type() {
+        return "baseline";
+    }
+
+    @Override
+    public double[] score(double[] features) {
+        double[] scores = new double[ScoreTarget.count()];
+        Arrays.fill(scores, Double.NaN);
+        double lnRmssd = features[HrvFeatures.LN_RMSSD];
+        if (Double.isNaN(lnRmssd)) {
+            return scores;
+        }
+        double years = Double.isNaN(features[HrvFeatures.AGE]) ? REFERENCE_AGE : features[HrvFeatures.AGE];
+
+        double rmssd = z(lnRmssd, LN_RMSSD_AT_0, LN_RMSSD_PER_YEAR, LN_RMSSD_SD, years);
+        double sdnn = z(features[HrvFeatures.LN_SDNN], LN_SDNN_AT_0, LN_SDNN_PER_YEAR, LN_SDNN_SD, years);
+        double tp = z(features[HrvFeatures.LN_TP], LN_TP_AT_0, LN_TP_PER_YEAR, LN_TP_SD, years);
+        double hf = z(features[HrvFeatures.LN_HF], LN_HF_AT_0, LN_HF_PER_YEAR, LN_HF_SD, years);
+        double nightRmssd = z(features[HrvFeatures.LN_RMSSD_NIGHT], LN_RMSSD_AT_0, LN_RMSSD_PER_YEAR, LN_RMSSD_SD, years);
+        // A low LF/HF ratio means vagal tone dominates, which is the better side.
+        double balance = -(features[HrvFeatures.LN_LF_HF] - LN_LF_HF_MEAN) / LN_LF_HF_SD;
+
+        set(scores, ScoreTarget.HEALTH_STATE, ScoreTarget.HEALTH_STATE_PERCENTAGE, mean(rmssd, sdnn));
+        set(scores, ScoreTarget.STRESS, ScoreTarget.STRESS_PERCENTAGE, mean(rmssd, balance));
+        // Resistance to burnout shows in the overall variability and in the recovery at night.
+        set(scores, ScoreTarget.BURNOUT_RESISTANCE, ScoreTarget.BURNOUT_RESISTANCE_PERCENTAGE,
+                mean(Double.isNaN(tp) ? rmssd : tp, nightRmssd));
+        set(scores, ScoreTarget.PERFORMANCE_POTENTIAL, ScoreTarget.PERFORMANCE_POTENTIAL_PERCENTAGE,
+                mean(Double.isNaN(sdnn) ? rmssd : sdnn, hf));
+
+        double biologicalAge = (lnRmssd - LN_RMSSD_AT_0) / LN_RMSSD_PER_YEAR;
+        scores[ScoreTarget.BIOLOGICAL_AGE.ordinal()] = Math.max(MIN_BIOLOGICAL_AGE, Math.min(MAX_BIOLOGICAL_AGE, biologicalAge));
+        // Share of people of the same age whose HRV is lower, i.e. who are biologically older.
+        scores[ScoreTarget.BIOLOGICAL_AGE_PERCENTAGE.ordinal()] = 100 * normalCdf(rmssd);
+        return scores;
+    }
+
+    private static double z(double feature, double atZero, double perYear, double sd, double years) {
+        return (feature - (atZero + perYear * years)) / sd;
+    }
+
+    private static double mean(double first, double second) {
+        return Double.isNaN(second) ? first : (first + second) / 2;
+    }
+
+    private static void set(double[] scores, ScoreTarget score, ScoreTarget percentage, double z) {
+        double share = normalCdf(z);
+        scores[score.ordinal()] = 10 * share;
+        scores[percentage.ordinal()] = 100 * share;
+    }
+
+    /**
+     * Standard normal CDF, through the Abramowitz and Stegun approximation of erf
+     * (absolute error below 1.5e-7).
+     */
+    static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double poly = t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))));
+        double erf = 1 - poly * Math.exp(-x * x);
+        return z >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+}
@@ -0,0 +1,85 @@
+package ceng.hrv4.backend.scoring;
+
+import java.util.Arrays;
+
+/**
+ * Gradient-boosted decision trees, one ensemble per target.
+ *
+ * An inner node sends a feature value below its threshold to the left child and a missing
+ * value to its default side; a leaf holds the value added to the target's base score.
+ * The trees of a target are packed into one array of two longs per node, with the two
+ * children of a node next to each other, which takes less memory than a node object per
+ * node. Children always come after their parent, which the loader checks, so a traversal
+ * always ends at a leaf.
+ */
+final class GbdtModel implements ScoringModel {
+
+    /**
+     * The trees of one target.
+     *
+     * @param nodes per node, first {@link #inner} or {@link #LEAF}, then the bits of the
+     *              split threshold or leaf value
+     * @param roots node index of each tree's root
+     */
+    record Ensemble(double base, long[] nodes, int[] roots, ScoreTransform transform) {
+
+        // Upper half of a leaf's first long: negative, which ends the traversal.
+        static final long LEAF = -1L << 32;
+
+        /**
+         * First long of an inner node: the feature and missing-value side in the upper half,
+         * the index of the left child in the lower half; the right child follows it.
+         */
+        static long inner(int feature, boolean defaultLeft, int left) {
+            long meta = ((long) feature << 1) | (defaultLeft ? 1 : 0);
+            return (meta << 32) | (left & 0xFFFFFFFFL);
+        }
+
+        double score(double[] features) {
+            double sum = base;
+            for (int root : roots) {
+                int node = root;
+                long word;
+                while ((word = nodes[2 * node]) >= 0) {
+                    int meta = (int) (word >>> 32);
+                    double x = features[meta >>> 1];
+                    boolean goLeft = Double.isNaN(x) ? (meta & 1) != 0 : x < Double.longBitsToDouble(nodes[2 * node + 1]);
+                    node = (int) word + (goLeft ? 0 : 1);
+                }
+                sum += Double.longBitsToDouble(nodes[2 * node + 1]);
+            }
+            return transform.apply(sum);
+        }
+    }
+
+    private final String version;
+    // Per target: null when the model does not produce it.
+    private final Ensemble[] ensembles;
+
+    GbdtModel(String version, Ensemble[] ensembles) {
+        this.version = version;
+        this.ensembles = ensembles;
+    }
+
+    @Override
+    public String version() {
+        return version;
+    }
+
+    @Override
+    public String type() {
+        return "gbdt";
+    }
+
+    @Override
+    public double[] score(double[] features) {
+        double[] scores = new double[ensembles.length];
+        Arrays.fill(scores, Double.NaN);
+        for (int target = 0; target < ensembles.length; target++) {
+            if (ensembles[target] != null) {
+                scores[target] = ensembles[target].score(features);
+            }
+        }
+        return scores;
+    }
+}
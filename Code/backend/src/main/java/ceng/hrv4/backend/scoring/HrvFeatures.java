@@ -0,0 +1,79 @@
+package ceng.hrv4.backend.scoring;
+
+import ceng.hrv4.backend.entity.ProcessedData;
+
+import java.util.List;
+
+/**
+ * The feature vector scoring models read, built from a ProcessedData record.
+ *
+ * Variabilities and spectral powers enter as natural logarithms, which is how they are close
+ * to normally distributed. A missing or non-positive metric is {@code NaN}; models decide how
+ * to treat it. The names are the ones model files refer to features by.
+ */
+public final class HrvFeatures {
+
+    public static final int LN_RMSSD = 0;
+    public static final int LN_SDNN = 1;
+    public static final int PNN50 = 2;
+    public static final int LN_TP = 3;
+    public static final int LN_VLF = 4;
+    public static final int LN_LF = 5;
+    public static final int LN_HF = 6;
+    public static final int LN_LF_HF = 7;
+    public static final int MIN_HR = 8;
+    public static final int MAX_HR = 9;
+    public static final int LN_RMSSD_NIGHT = 10;
+    public static final int LN_SDNN_NIGHT = 11;
+    public static final int LN_TP_NIGHT = 12;
+    public static final int LN_HF_NIGHT = 13;
+    public static final int AGE = 14;
+
+    public static final List<String> NAMES = List.of(
+            "ln_rmssd", "ln_sdnn", "pnn50", "ln_tp", "ln_vlf", "ln_lf", "ln_hf", "ln_lf_hf",
+            "min_hr", "max_hr", "ln_rmssd_night", "ln_sdnn_night", "ln_tp_night", "ln_hf_night", "age");
+
+    private HrvFeatures() {}
+
+    /**
+     * @param age the user's age in years, or null if unknown
+     */
+    public static double[] of(ProcessedData processed, Integer age) {
+        double[] features = new double[NAMES.size()];
+        features[LN_RMSSD] = ln(processed.getRmssd());
+        features[LN_SDNN] = ln(processed.getSdnn());
+        features[PNN50] = value(processed.getPnn50());
+        features[LN_TP] = ln(processed.getTp());
+        features[LN_VLF] = ln(processed.getVlf());
+        features[LN_LF] = ln(processed.getLf());
+        features[LN_HF] = ln(processed.getHf());
+        features[LN_LF_HF] = features[LN_LF] - features[LN_HF];
+        features[MIN_HR] = value(processed.getMinHr());
+        features[MAX_HR] = value(processed.getMaxHr());
+        features[LN_RMSSD_NIGHT] = ln(processed.getRmssdNight());
+        features[LN_SDNN_NIGHT] = ln(processed.getSdnnNight());
+        features[LN_TP_NIGHT] = ln(processed.getTpNight());
+        features[LN_HF_NIGHT] = ln(processed.getHfNight());
+        features[AGE] = age != null && age > 0 ? age : Double.NaN;
+        return features;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no feature has the name
+     */
+    public static int index(String name) {
+        int index = NAMES.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown feature: " + name);
+        }
+        return index;
+    }
+
+    private static double ln(Double value) {
+        return value != null && value > 0 && !value.isInfinite() ? Math.log(value) : Double.NaN;
+    }
+
+    private static double value(Double value) {
+        return value != null && !value.isInfinite() ? value : Double.NaN;
+    }
+}
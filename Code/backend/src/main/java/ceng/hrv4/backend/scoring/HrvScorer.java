@@ -0,0 +1,53 @@
+package ceng.hrv4.backend.scoring;
+
+import ceng.hrv4.backend.entity.ModelOutput;
+import ceng.hrv4.backend.entity.ProcessedData;
+import org.springframework.stereotype.Component;
+
+/**
+ * Derives the ModelOutput scores of a measurement from its HRV metrics with the scoring
+ * model currently in use, see {@link ScoringModelRegistry}. The output records the model's
+ * version, so outputs of an older model can be found and scored again. Scores are rounded
+ * to one decimal; a score the model does not produce stays null.
+ */
+@Component
+public class HrvScorer {
+
+    private final ScoringModelRegistry scoringModelRegistry;
+
+    public HrvScorer(ScoringModelRegistry scoringModelRegistry) {
+        this.scoringModelRegistry = scoringModelRegistry;
+    }
+
+    /**
+     * @param age the user's age in years, or null if unknown
+     * @return the scores, with the measurement's user, time and id
+     * @throws IllegalArgumentException if the model cannot score the measurement at all
+     */
+    public ModelOutput score(ProcessedData processed, Integer age) {
+        return score(scoringModelRegistry.current(), processed, age);
+    }
+
+    /**
+     * Scores with the given model rather than the current one, e.g. to keep a long batch
+     * on one version.
+     */
+    public ModelOutput score(ScoringModel model, ProcessedData processed, Integer age) {
+        double[] scores = model.score(HrvFeatures.of(processed, age));
+        ModelOutput output = new ModelOutput(processed.getUserId(), processed.getMeasurementTime());
+        output.setMeasurementId(processed.getMeasurementId());
+        output.setModelVersion(model.version());
+        boolean scored = false;
+        for (ScoreTarget target : ScoreTarget.values()) {
+            double value = scores[target.ordinal()];
+            if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+                target.set(output, Math.round(value * 10) / 10.0);
+                scored = true;
+            }
+        }
+        if (!scored) {
+            throw new IllegalArgumentException("Model " + model.version() + " cannot score the measurement");
+        }
+        return output;
+    }
+}
@@ -0,0 +1,64 @@
+package ceng.hrv4.backend.scoring;
+
+import java.util.Arrays;
+
+/**
+ * Linear model with one weight vector per target. A missing feature is replaced by its
+ * imputation value; a target that needs a missing feature without one is not scored.
+ */
+final class LinearModel implements ScoringModel {
+
+    private final String version;
+    // Per target: null when the model does not produce it.
+    private final double[] intercepts;
+    private final double[][] weights;
+    private final ScoreTransform[] transforms;
+    private final double[] imputation;
+
+    /**
+     * @param weights    per target, one weight per feature or null; 0 for unused features
+     * @param imputation per feature, the value used when it is missing, or {@code NaN}
+     */
+    LinearModel(String version, double[] intercepts, double[][] weights, ScoreTransform[] transforms,
+                double[] imputation) {
+        this.version = version;
+        this.intercepts = intercepts;
+        this.weights = weights;
+        this.transforms = transforms;
+        this.imputation = imputation;
+    }
+
+    @Override
+    public String version() {
+        return version;
+    }
+
+    @Override
+    public String type() {
+        return "linear";
+    }
+
+    @Override
+    public double[] score(double[] features) {
+        double[] scores = new double[weights.length];
+        Arrays.fill(scores, Double.NaN);
+        for (int target = 0; target < weights.length; target++) {
+            double[] w = weights[target];
+            if (w == null) {
+                continue;
+            }
+            double sum = intercepts[target];
+            for (int i = 0; i < w.length; i++) {
+                if (w[i] != 0) {
+                    double x = Double.isNaN(features[i]) ? imputation[i] : features[i];
+                    sum += w[i] * x;
+                }
+            }
+            // NaN when a used feature was missing and had no imputation value.
+            if (!Double.isNaN(sum)) {
+                scores[target] = transforms[target].apply(sum);
+            }
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,130 @@
+package ceng.hrv4.backend.scoring;
+
+import ceng.hrv4.backend.entity.ModelOutput;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Startup job that makes measurement_id unique on model_outputs, so concurrent upserts of
+ * the same measurement cannot insert two outputs.
+ *
+ * The earlier non-unique index is dropped. If the unique index cannot be built because
+ * measurements already have several outputs, startup fails and names the measurements.
+ * With {@code hrv.model-outputs.remove-duplicates=true} the most recently updated output of
+ * each is kept instead, the ids of the others are logged before they are removed, and the
+ * index is built again. Outputs without a measurement id (posted by clients) are left out of
+ * the index.
+ *
+ * Runs with the other index creation, i.e. when {@code spring.data.mongodb.auto-index-creation=true}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.data.mongodb.auto-index-creation", havingValue = "true")
+public class ModelOutputIndexRunner implements ApplicationRunner {
+
+    static final String INDEX_NAME = "measurement_id_unique";
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean removeDuplicates;
+
+    public ModelOutputIndexRunner(MongoTemplate mongoTemplate,
+                                  @Value("${hrv.model-outputs.remove-duplicates:false}") boolean removeDuplicates) {
+        this.mongoTemplate = mongoTemplate;
+        this.removeDuplicates = removeDuplicates;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        IndexOperations indexOps = mongoTemplate.indexOps(ModelOutput.class);
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+            if (!info.isUnique() && info.isIndexForFields(List.of("measurement_id"))) {
+                indexOps.dropIndex(info.getName());
+            }
+        }
+
+        Index index = new Index()
+                .on("measurement_id", Sort.Direction.ASC)
+                .unique()
+                .named(INDEX_NAME)
+                .partial(PartialIndexFilter.of(Criteria.where("measurement_id").type(2)));
+        try {
+            indexOps.createIndex(index);
+        }
+        catch (DuplicateKeyException e) {
+            if (!removeDuplicates) {
+                throw new IllegalStateException("Cannot build the unique measurement_id index on model_outputs, "
+                        + "these measurements have several outputs: " + duplicateMeasurements()
+                        + ". Remove the extra outputs, or restart once with hrv.model-outputs.remove-duplicates=true "
+                        + "to keep the most recently updated output of each", e);
+            }
+            long removed = removeDuplicates();
+            log.warn("Removed {} duplicate model outputs before building the unique measurement_id index; "
+                    + "rebuild the HRV rollups (hrv.rollups.rebuild=true) if they counted them", removed);
+            indexOps.createIndex(index);
+        }
+    }
+
+    /**
+     * @return up to 100 ids of measurements with several outputs
+     */
+    private List<Object> duplicateMeasurements() {
+        try (Stream<Document> duplicates = duplicates()) {
+            return duplicates.limit(100).map(duplicate -> duplicate.get("_id")).toList();
+        }
+    }
+
+    /**
+     * Removes all outputs of each measurement but the most recently updated one, logging the
+     * ids of the removed outputs.
+     *
+     * @return the number of outputs removed
+     */
+    long removeDuplicates() {
+        String collection = mongoTemplate.getCollectionName(ModelOutput.class);
+        long removed = 0;
+        try (Stream<Document> duplicates = duplicates()) {
+            for (Document duplicate : (Iterable<Document>) duplicates::iterator) {
+                List<Object> ids = duplicate.getList("ids", Object.class);
+                // The first id is the most recently updated output, which is kept.
+                List<Object> extra = ids.subList(1, ids.size());
+                log.warn("Removing model outputs {} of measurement {}, keeping {}", extra, duplicate.get("_id"), ids.get(0));
+                removed += mongoTemplate.remove(new Query(Criteria.where("_id").in(extra)), collection).getDeletedCount();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return one document per measurement with several outputs: the measurement id as
+     *         {@code _id} and the ids of its outputs, most recently updated first, as {@code ids}
+     */
+    private Stream<Document> duplicates() {
+        String collection = mongoTemplate.getCollectionName(ModelOutput.class);
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("measurement_id").type(2)),
+                Aggregation.sort(Sort.Direction.DESC, "updated_at"),
+                Aggregation.group("measurement_id").push("_id").as("ids").count().as("count"),
+                Aggregation.match(Criteria.where("count").gt(1))
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        return mongoTemplate.aggregateStream(aggregation, collection, Document.class);
+    }
+}
@@ -0,0 +1,160 @@
+package ceng.hrv4.backend.scoring;
+
+import ceng.hrv4.backend.entity.ModelOutput;
+import ceng.hrv4.backend.service.HrvRollupService;
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes computed scores to the ModelOutput of their measurement, creating it if needed.
+ * Outputs are matched by measurement id, so scoring a measurement again replaces its scores
+ * and keeps the output's id and creation time.
+ *
+ * measurement_id has a unique index (see {@link ModelOutputIndexRunner}). When two writers
+ * upsert the same new measurement at once, the one whose insert loses the race gets a
+ * duplicate key error; its write is then retried, which now matches and updates the output.
+ *
+ * The scores of every write replace those of the previous version in the HRV rollups.
+ */
+@Component
+public class ModelOutputWriter {
+
+    private final MongoTemplate mongoTemplate;
+    private final HrvRollupService hrvRollupService;
+
+    public ModelOutputWriter(MongoTemplate mongoTemplate, HrvRollupService hrvRollupService) {
+        this.mongoTemplate = mongoTemplate;
+        this.hrvRollupService = hrvRollupService;
+    }
+
+    /**
+     * @return the id of the ModelOutput
+     */
+    public String upsert(ModelOutput output) {
+        Instant now = Instant.now();
+        // The previous version is returned so that its scores can be taken out of the rollups.
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(false);
+        ModelOutput previous;
+        try {
+            previous = mongoTemplate.findAndModify(byMeasurement(output), update(output, now), options, ModelOutput.class);
+        }
+        catch (DuplicateKeyException e) {
+            previous = mongoTemplate.findAndModify(byMeasurement(output), update(output, now), options, ModelOutput.class);
+        }
+        written(output, previous, now);
+        hrvRollupService.replaceScores(previous != null ? List.of(previous) : List.of(), List.of(output));
+        if (previous != null) {
+            return previous.getId();
+        }
+        ModelOutput inserted = mongoTemplate.findOne(byMeasurement(output), ModelOutput.class);
+        return inserted != null ? inserted.getId() : null;
+    }
+
+    /**
+     * Upserts the outputs with one unordered bulk write.
+     *
+     * @return the number of outputs written
+     */
+    public int upsertAll(Collection<ModelOutput> outputs) {
+        if (outputs.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        List<ModelOutput> batch = List.copyOf(outputs);
+        // Read before the write, for the rollups. An output written by someone else in between
+        // leaves drift that a rollup rebuild repairs.
+        Map<String, ModelOutput> previous = new HashMap<>();
+        for (ModelOutput existing : mongoTemplate.find(Query.query(Criteria.where("measurement_id")
+                .in(batch.stream().map(ModelOutput::getMeasurementId).toList())), ModelOutput.class)) {
+            previous.put(existing.getMeasurementId(), existing);
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ModelOutput.class);
+        for (ModelOutput output : batch) {
+            bulk.upsert(byMeasurement(output), update(output, now));
+        }
+        BulkWriteResult result;
+        Set<Integer> failed = new HashSet<>();
+        List<ModelOutput> retry = new ArrayList<>();
+        try {
+            result = bulk.execute();
+        }
+        catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+                failed.add(error.getIndex());
+                retry.add(batch.get(error.getIndex()));
+            }
+            result = e.getResult();
+        }
+
+        List<ModelOutput> replaced = new ArrayList<>();
+        List<ModelOutput> written = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (failed.contains(i)) {
+                continue;
+            }
+            ModelOutput output = batch.get(i);
+            ModelOutput old = previous.get(output.getMeasurementId());
+            if (old != null) {
+                replaced.add(old);
+            }
+            written(output, old, now);
+            written.add(output);
+        }
+        hrvRollupService.replaceScores(replaced, written);
+        return result.getMatchedCount() + result.getUpserts().size() + upsertAll(retry);
+    }
+
+    /**
+     * Gives the output the creation time it has in the database, which the rollups fall
+     * back to when it has no measurement time.
+     */
+    private static void written(ModelOutput output, ModelOutput previous, Instant now) {
+        output.setCreatedAt(previous != null ? previous.getCreatedAt() : now);
+    }
+
+    private static Query byMeasurement(ModelOutput output) {
+        return Query.query(Criteria.where("measurement_id").is(output.getMeasurementId()));
+    }
+
+    private static Update update(ModelOutput output, Instant now) {
+        return new Update()
+                .set("user_id", output.getUserId())
+                .set("measurement_time", output.getMeasurementTime())
+                .set("biological_age", output.getBiologicalAge())
+                .set("biological_age_percentage", output.getBiologicalAgePercentage())
+                .set("burnout_resistance", output.getBurnoutResistance())
+                .set("burnout_resistance_percentage", output.getBurnoutResistancePercentage())
+                .set("performance_potential", output.getPerformancePotential())
+                .set("performance_potential_percentage", output.getPerformancePotentialPercentage())
+                .set("stress", output.getStress())
+                .set("stress_percentage", output.getStressPercentage())
+                .set("health_state", output.getHealthState())
+                .set("health_state_percentage", output.getHealthStatePercentage())
+                .set("model_version", output.getModelVersion())
+                .set("updated_at", now)
+                .setOnInsert("created_at", now);
+    }
+}
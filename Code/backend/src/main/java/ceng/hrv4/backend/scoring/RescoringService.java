@@ -0,0 +1,377 @@
+package ceng.hrv4.backend.scoring;
+
+import ceng.hrv4.backend.dto.response.RescoringJobResponseDto;
+import ceng.hrv4.backend.entity.ModelOutput;
+import ceng.hrv4.backend.entity.ProcessedData;
+import ceng.hrv4.backend.entity.RescoringJob;
+import ceng.hrv4.backend.entity.User;
+import ceng.hrv4.backend.repository.RescoringJobRepository;
+import ceng.hrv4.backend.service.LeasedJobRunner;
+import ceng.hrv4.backend.service.LeasedJobs;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Recomputes stored ModelOutputs in bulk with the current scoring model, e.g. after a new
+ * model version was deployed.
+ *
+ * A {@link RescoringJob} streams processed_datas through one cursor in {@code _id} order and
+ * works in batches of {@code hrv.rescoring.batch-size} records: the users' ages are read with
+ * one query, the records are scored on a fork/join pool of {@code hrv.rescoring.parallelism}
+ * threads and the outputs are upserted by measurement id with one unordered bulk write.
+ * After each batch the job's counters and checkpoint are updated, so a job whose instance
+ * went away is picked up again and continues after the last written batch, as long as the
+ * current model is still the one the job started with. Throughput is
+ * capped at {@code hrv.rescoring.max-rate} records per second to leave the database room
+ * for regular traffic. One job runs at a time, on its own thread.
+ *
+ * Only the users listed in {@code hrv.rescoring.operators} (by email) may start or cancel jobs.
+ */
+@Slf4j
+@Service
+public class RescoringService {
+
+    private static final EnumSet<RescoringJob.Status> ACTIVE = EnumSet.of(RescoringJob.Status.PENDING, RescoringJob.Status.RUNNING);
+    // Records scored by one fork/join task before it stops splitting.
+    private static final int SLICE = 64;
+
+    private final MongoTemplate mongoTemplate;
+    private final RescoringJobRepository rescoringJobRepository;
+    private final ScoringModelRegistry scoringModelRegistry;
+    private final HrvScorer hrvScorer;
+    private final ModelOutputWriter modelOutputWriter;
+    private final Counter rescored;
+    private final int batchSize;
+    private final int maxRate;
+    private final Set<String> operators;
+    private final ForkJoinPool pool;
+    private final LeasedJobRunner<RescoringJob> runner;
+
+    /**
+     * @param parallelism threads scoring a batch; 0 uses all available cores
+     * @param maxRate     records per second at most; 0 for no limit
+     * @param operators   emails of the users allowed to start and cancel jobs
+     */
+    public RescoringService(MongoTemplate mongoTemplate, RescoringJobRepository rescoringJobRepository,
+                            ScoringModelRegistry scoringModelRegistry, HrvScorer hrvScorer,
+                            ModelOutputWriter modelOutputWriter, MeterRegistry meterRegistry,
+                            @Value("${hrv.rescoring.batch-size:1000}") int batchSize,
+                            @Value("${hrv.rescoring.parallelism:0}") int parallelism,
+                            @Value("${hrv.rescoring.max-rate:0}") int maxRate,
+                            @Value("${hrv.rescoring.lease:PT5M}") Duration lease,
+                            @Value("${hrv.rescoring.operators:}") List<String> operators) {
+        this.mongoTemplate = mongoTemplate;
+        this.rescoringJobRepository = rescoringJobRepository;
+        this.scoringModelRegistry = scoringModelRegistry;
+        this.hrvScorer = hrvScorer;
+        this.modelOutputWriter = modelOutputWriter;
+        this.rescored = meterRegistry.counter("hrv.rescoring.records");
+        this.batchSize = batchSize;
+        this.maxRate = maxRate;
+        this.operators = operators.stream()
+                .map(String::trim)
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.runner = new LeasedJobRunner<>("rescoring", new LeasedJobs<>(mongoTemplate, RescoringJob.class,
+                RescoringJob.Status.PENDING, RescoringJob.Status.RUNNING, lease), this::run);
+    }
+
+    /**
+     * Whether the user with the given email may start and cancel rescoring jobs and reload
+     * the scoring model.
+     */
+    public boolean isOperator(String email) {
+        return email != null && operators.contains(email);
+    }
+
+    /**
+     * Queues the rescoring of all records, or of one user's.
+     *
+     * @param userId the user whose records to rescore, or null for all records
+     * @throws IllegalStateException if a rescoring job is already queued or running
+     */
+    public RescoringJobResponseDto start(String userId) {
+        // Jobs queued before active_slot existed are not covered by its index.
+        if (rescoringJobRepository.existsByStatusIn(ACTIVE)) {
+            throw new IllegalStateException("A rescoring job is already queued or running");
+        }
+        RescoringJob job;
+        try {
+            job = rescoringJobRepository.insert(new RescoringJob(userId));
+        }
+        catch (DuplicateKeyException e) {
+            throw new IllegalStateException("A rescoring job is already queued or running");
+        }
+        runner.wakeUp();
+        return toDto(job);
+    }
+
+    public Optional<RescoringJobResponseDto> find(String jobId) {
+        return rescoringJobRepository.findById(jobId).map(RescoringService::toDto);
+    }
+
+    /**
+     * Cancels a job: a queued job at once, a running one after the batch in progress.
+     * Outputs written so far are kept.
+     *
+     * @return the job, or empty if it does not exist
+     */
+    public Optional<RescoringJobResponseDto> cancel(String jobId) {
+        Instant now = Instant.now();
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(jobId).and("status").is(RescoringJob.Status.PENDING)),
+                new Update().set("status", RescoringJob.Status.CANCELLED).set("cancel_requested", true)
+                        .set("finished_at", now).set("updated_at", now).unset("active_slot"),
+                RescoringJob.class);
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(jobId).and("status").is(RescoringJob.Status.RUNNING)),
+                new Update().set("cancel_requested", true),
+                RescoringJob.class);
+        return find(jobId);
+    }
+
+    /**
+     * Picks up jobs queued on other instances and jobs left behind by a stopped instance.
+     */
+    @Scheduled(initialDelayString = "${hrv.rescoring.poll-interval:PT30S}",
+            fixedDelayString = "${hrv.rescoring.poll-interval:PT30S}")
+    public void poll() {
+        runner.wakeUp();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdown();
+        pool.shutdownNow();
+    }
+
+    private void run(RescoringJob job) {
+        try {
+            // One model for the whole job, even if a new version is swapped in meanwhile. A job
+            // taken over from a stopped instance only goes on with the model it started with,
+            // so its outputs never mix two model versions.
+            ScoringModel model = scoringModelRegistry.current();
+            if (job.getModelVersion() != null && !job.getModelVersion().equals(model.version())) {
+                log.warn("Rescoring job {} started with model {}, not resuming it with model {}",
+                        job.getId(), job.getModelVersion(), model.version());
+                finish(job.getId(), RescoringJob.Status.FAILED, "Started with model " + job.getModelVersion()
+                        + " but the current model is " + model.version() + "; start a new rescoring job");
+                return;
+            }
+            Update start = new Update().set("model_version", model.version());
+            if (job.getTotal() == null) {
+                start.set("total", job.getUserId() == null
+                        ? mongoTemplate.estimatedCount(ProcessedData.class)
+                        : mongoTemplate.count(Query.query(Criteria.where("user_id").is(job.getUserId())), ProcessedData.class));
+            }
+            mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(job.getId())), start, RescoringJob.class);
+
+            Query query = new Query().with(Sort.by("id")).cursorBatchSize(batchSize);
+            if (job.getUserId() != null) {
+                query.addCriteria(Criteria.where("user_id").is(job.getUserId()));
+            }
+            if (job.getLastId() != null) {
+                query.addCriteria(Criteria.where("id").gt(job.getLastId()));
+            }
+
+            long started = System.nanoTime();
+            long processed = 0;
+            try (Stream<ProcessedData> stream = mongoTemplate.stream(query, ProcessedData.class)) {
+                Iterator<ProcessedData> records = stream.iterator();
+                List<ProcessedData> batch = new ArrayList<>(batchSize);
+                while (records.hasNext()) {
+                    batch.add(records.next());
+                    if (batch.size() < batchSize && records.hasNext()) {
+                        continue;
+                    }
+                    RescoringJob progress = writeBatch(job.getId(), model, batch);
+                    processed += batch.size();
+                    batch.clear();
+                    if (progress == null || progress.isCancelRequested()) {
+                        finish(job.getId(), RescoringJob.Status.CANCELLED, null);
+                        log.info("Rescoring job {} cancelled", job.getId());
+                        return;
+                    }
+                    throttle(started, processed);
+                }
+            }
+            finish(job.getId(), RescoringJob.Status.DONE, null);
+            log.info("Rescoring job {} rescored {} records with model {} in {} s", job.getId(), processed,
+                    model.version(), Duration.ofNanos(System.nanoTime() - started).toSeconds());
+        }
+        catch (Exception e) {
+            log.error("Rescoring job {} failed", job.getId(), e);
+            finish(job.getId(), RescoringJob.Status.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Scores a batch in parallel, upserts the outputs and moves the checkpoint past the batch.
+     *
+     * @return the job after the update
+     */
+    private RescoringJob writeBatch(String jobId, ScoringModel model, List<ProcessedData> batch) {
+        ModelOutput[] outputs = new ModelOutput[batch.size()];
+        pool.invoke(new ScoreSlice(hrvScorer, model, batch, ages(batch), outputs, 0, outputs.length));
+        List<ModelOutput> scored = new ArrayList<>(outputs.length);
+        for (ModelOutput output : outputs) {
+            if (output != null) {
+                scored.add(output);
+            }
+        }
+        int written = modelOutputWriter.upsertAll(scored);
+        rescored.increment(batch.size());
+
+        Update checkpoint = new Update()
+                .set("last_id", batch.get(batch.size() - 1).getId())
+                .set("updated_at", Instant.now())
+                .inc("processed", batch.size())
+                .inc("written", written)
+                .inc("skipped", batch.size() - scored.size());
+        return mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(jobId)), checkpoint,
+                FindAndModifyOptions.options().returnNew(true), RescoringJob.class);
+    }
+
+    private Map<String, Integer> ages(List<ProcessedData> batch) {
+        Set<String> userIds = batch.stream()
+                .map(ProcessedData::getUserId)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+        Query query = Query.query(Criteria.where("id").in(userIds));
+        query.fields().include("age");
+        Map<String, Integer> ages = new HashMap<>();
+        for (User user : mongoTemplate.find(query, User.class)) {
+            ages.put(user.getId(), user.getAge());
+        }
+        return ages;
+    }
+
+    /**
+     * Waits as long as needed to stay below the configured rate.
+     */
+    private void throttle(long started, long processed) throws InterruptedException {
+        if (maxRate <= 0) {
+            return;
+        }
+        long ahead = processed * 1_000_000_000L / maxRate - (System.nanoTime() - started);
+        if (ahead > 0) {
+            Thread.sleep(Duration.ofNanos(ahead));
+        }
+    }
+
+    private void finish(String jobId, RescoringJob.Status status, String error) {
+        Instant now = Instant.now();
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(jobId)),
+                new Update().set("status", status).set("error", error).set("finished_at", now).set("updated_at", now)
+                        .unset("active_slot"),
+                RescoringJob.class);
+    }
+
+    /**
+     * Scores a range of a batch, splitting it in halves until it is small enough.
+     */
+    private static final class ScoreSlice extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are Serializable through ForkJoinTask but are never serialized.
+        private final transient HrvScorer hrvScorer;
+        private final transient ScoringModel model;
+        private final transient List<ProcessedData> batch;
+        private final transient Map<String, Integer> ages;
+        private final transient ModelOutput[] outputs;
+        private final int from;
+        private final int to;
+
+        ScoreSlice(HrvScorer hrvScorer, ScoringModel model, List<ProcessedData> batch, Map<String, Integer> ages,
+                   ModelOutput[] outputs, int from, int to) {
+            this.hrvScorer = hrvScorer;
+            this.model = model;
+            this.batch = batch;
+            this.ages = ages;
+            this.outputs = outputs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SLICE) {
+                for (int i = from; i < to; i++) {
+                    outputs[i] = score(batch.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScoreSlice(hrvScorer, model, batch, ages, outputs, from, mid),
+                    new ScoreSlice(hrvScorer, model, batch, ages, outputs, mid, to));
+        }
+
+        private ModelOutput score(ProcessedData processed) {
+            if (processed.getMeasurementId() == null) {
+                return null;
+            }
+            try {
+                return hrvScorer.score(model, processed, ages.get(processed.getUserId()));
+            }
+            catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private static RescoringJobResponseDto toDto(RescoringJob job) {
+        Double rate = null;
+        if (job.getStartedAt() != null) {
+            Instant end = job.getFinishedAt() != null ? job.getFinishedAt() : Instant.now();
+            double seconds = Duration.between(job.getStartedAt(), end).toMillis() / 1000.0;
+            if (seconds > 0) {
+                rate = job.getProcessed() / seconds;
+            }
+        }
+        return new RescoringJobResponseDto(
+                job.getId(),
+                job.getUserId(),
+                job.getStatus() != null ? job.getStatus().name() : null,
+                job.getModelVersion(),
+                job.getTotal(),
+                job.getProcessed(),
+                job.getWritten(),
+                job.getSkipped(),
+                rate,
+                job.isCancelRequested(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt(),
+                job.getError()
+        );
+    }
+}
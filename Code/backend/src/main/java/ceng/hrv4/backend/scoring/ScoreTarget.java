@@ -0,0 +1,56 @@
+package ceng.hrv4.backend.scoring;
+
+import ceng.hrv4.backend.entity.ModelOutput;
+
+import java.util.function.BiConsumer;
+
+/**
+ * The ModelOutput fields a scoring model produces, named as in the model files.
+ */
+public enum ScoreTarget {
+
+    BIOLOGICAL_AGE("biological_age", ModelOutput::setBiologicalAge),
+    BIOLOGICAL_AGE_PERCENTAGE("biological_age_percentage", ModelOutput::setBiologicalAgePercentage),
+    BURNOUT_RESISTANCE("burnout_resistance", ModelOutput::setBurnoutResistance),
+    BURNOUT_RESISTANCE_PERCENTAGE("burnout_resistance_percentage", ModelOutput::setBurnoutResistancePercentage),
+    PERFORMANCE_POTENTIAL("performance_potential", ModelOutput::setPerformancePotential),
+    PERFORMANCE_POTENTIAL_PERCENTAGE("performance_potential_percentage", ModelOutput::setPerformancePotentialPercentage),
+    STRESS("stress", ModelOutput::setStress),
+    STRESS_PERCENTAGE("stress_percentage", ModelOutput::setStressPercentage),
+    HEALTH_STATE("health_state", ModelOutput::setHealthState),
+    HEALTH_STATE_PERCENTAGE("health_state_percentage", ModelOutput::setHealthStatePercentage);
+
+    private static final ScoreTarget[] VALUES = values();
+
+    private final String key;
+    private final BiConsumer<ModelOutput, Double> setter;
+
+    ScoreTarget(String key, BiConsumer<ModelOutput, Double> setter) {
+        this.key = key;
+        this.setter = setter;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    void set(ModelOutput output, Double value) {
+        setter.accept(output, value);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no target has the key
+     */
+    public static ScoreTarget of(String key) {
+        for (ScoreTarget target : VALUES) {
+            if (target.key.equals(key)) {
+                return target;
+            }
+        }
+        throw new IllegalArgumentException("Unknown score target: " + key);
+    }
+
+    static int count() {
+        return VALUES.length;
+    }
+}
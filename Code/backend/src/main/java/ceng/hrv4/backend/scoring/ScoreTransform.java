@@ -0,0 +1,18 @@
+package ceng.hrv4.backend.scoring;
+
+/**
+ * Turns the raw output of a model into a score: through the link function, times the scale,
+ * clamped to [min, max].
+ *
+ * @param logistic whether the raw output is a log-odds, e.g. of a classifier
+ */
+record ScoreTransform(boolean logistic, double scale, double min, double max) {
+
+    static final ScoreTransform IDENTITY =
+            new ScoreTransform(false, 1, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    double apply(double raw) {
+        double value = logistic ? 1 / (1 + Math.exp(-raw)) : raw;
+        return Math.max(min, Math.min(max, value * scale));
+    }
+}
@@ -0,0 +1,26 @@
+package ceng.hrv4.backend.scoring;
+
+/**
+ * A loaded scoring model. Implementations are immutable, so a model can be swapped for
+ * another while workers are scoring with it.
+ */
+public interface ScoringModel {
+
+    /**
+     * Identifies the model in the ModelOutputs it produced, e.g. "gbdt-2024-06-01".
+     */
+    String version();
+
+    /**
+     * The kind of model, e.g. "linear".
+     */
+    String type();
+
+    /**
+     * Scores one feature vector laid out as in {@link HrvFeatures}.
+     *
+     * @return the scores indexed by {@link ScoreTarget#ordinal()}, {@code NaN} for each target
+     *         the model does not produce or cannot compute from the features given
+     */
+    double[] score(double[] features);
+}
@@ -0,0 +1,265 @@
+package ceng.hrv4.backend.scoring;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads scoring models from JSON files.
+ *
+ * Every file has a {@code type}, a {@code version} and a {@code targets} object keyed by
+ * {@link ScoreTarget#key()}; targets left out are not produced. Each target may give a
+ * {@code link} ("identity" or "logistic"), a {@code scale} and {@code min}/{@code max}
+ * bounds, see {@link ScoreTransform}. Features are referred to by their
+ * {@link HrvFeatures#NAMES name}.
+ *
+ * <pre>
+ * { "type": "linear", "version": "linear-2024-06-01",
+ *   "imputation": { "ln_sdnn": 3.9 },
+ *   "targets": { "stress": { "intercept": -7.5, "weights": { "ln_rmssd": 2.1 },
+ *                            "link": "logistic", "scale": 10 } } }
+ *
+ * { "type": "gbdt", "version": "gbdt-2024-06-01",
+ *   "features": [ "ln_rmssd", "ln_hf" ],
+ *   "targets": { "stress": { "base": 0.0, "link": "logistic", "scale": 10,
+ *     "trees": [ { "feature": [0, -1, -1], "threshold": [3.4, 0, 0],
+ *                  "left": [1, -1, -1], "right": [2, -1, -1],
+ *                  "default_left": [true, false, false], "value": [0, -0.4, 0.6] } ] } } }
+ * </pre>
+ *
+ * In a tree, {@code feature} indexes the file's {@code features} list and is -1 for leaves;
+ * children are indexes within the tree. A file that does not match the format is rejected
+ * with an {@link IllegalArgumentException} naming the problem.
+ */
+@Component
+public class ScoringModelLoader {
+
+    private final ObjectMapper objectMapper;
+
+    public ScoringModelLoader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @throws IOException              if the file cannot be read or is not JSON
+     * @throws IllegalArgumentException if the JSON is not a valid model
+     */
+    public ScoringModel load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(objectMapper.readTree(in));
+        }
+    }
+
+    ScoringModel read(JsonNode root) {
+        String version = text(root, "version");
+        JsonNode targets = root.path("targets");
+        if (!targets.isObject() || targets.isEmpty()) {
+            throw new IllegalArgumentException("Model " + version + " has no targets");
+        }
+        String type = text(root, "type");
+        return switch (type) {
+            case "linear" -> linear(version, root, targets);
+            case "gbdt" -> gbdt(version, root, targets);
+            default -> throw new IllegalArgumentException("Unknown model type: " + type);
+        };
+    }
+
+    private LinearModel linear(String version, JsonNode root, JsonNode targets) {
+        int features = HrvFeatures.NAMES.size();
+        double[] imputation = new double[features];
+        Arrays.fill(imputation, Double.NaN);
+        for (Map.Entry<String, JsonNode> entry : root.path("imputation").properties()) {
+            imputation[HrvFeatures.index(entry.getKey())] = number(entry.getValue(), "imputation." + entry.getKey());
+        }
+
+        double[] intercepts = new double[ScoreTarget.count()];
+        double[][] weights = new double[ScoreTarget.count()][];
+        ScoreTransform[] transforms = new ScoreTransform[ScoreTarget.count()];
+        for (Map.Entry<String, JsonNode> entry : targets.properties()) {
+            int target = ScoreTarget.of(entry.getKey()).ordinal();
+            JsonNode spec = entry.getValue();
+            intercepts[target] = spec.has("intercept") ? number(spec.get("intercept"), entry.getKey() + ".intercept") : 0;
+            weights[target] = new double[features];
+            for (Map.Entry<String, JsonNode> weight : spec.path("weights").properties()) {
+                weights[target][HrvFeatures.index(weight.getKey())] =
+                        number(weight.getValue(), entry.getKey() + ".weights." + weight.getKey());
+            }
+            transforms[target] = transform(spec, entry.getKey());
+        }
+        return new LinearModel(version, intercepts, weights, transforms, imputation);
+    }
+
+    private GbdtModel gbdt(String version, JsonNode root, JsonNode targets) {
+        JsonNode names = root.path("features");
+        if (!names.isArray() || names.isEmpty()) {
+            throw new IllegalArgumentException("Model " + version + " lists no features");
+        }
+        int[] featureIndex = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            featureIndex[i] = HrvFeatures.index(names.get(i).asText());
+        }
+
+        GbdtModel.Ensemble[] ensembles = new GbdtModel.Ensemble[ScoreTarget.count()];
+        for (Map.Entry<String, JsonNode> entry : targets.properties()) {
+            ensembles[ScoreTarget.of(entry.getKey()).ordinal()] = ensemble(entry.getKey(), entry.getValue(), featureIndex);
+        }
+        return new GbdtModel(version, ensembles);
+    }
+
+    private GbdtModel.Ensemble ensemble(String target, JsonNode spec, int[] featureIndex) {
+        JsonNode trees = spec.path("trees");
+        if (!trees.isArray() || trees.isEmpty()) {
+            throw new IllegalArgumentException(target + " has no trees");
+        }
+        List<long[]> packed = new ArrayList<>();
+        int[] roots = new int[trees.size()];
+        int offset = 0;
+        for (int t = 0; t < trees.size(); t++) {
+            JsonNode tree = trees.get(t);
+            String name = target + ".trees[" + t + "]";
+            int[] f = ints(tree, "feature", name);
+            int nodes = f.length;
+            double[] th = doubles(tree, "threshold", name, nodes);
+            int[] l = ints(tree, "left", name);
+            int[] r = ints(tree, "right", name);
+            double[] v = doubles(tree, "value", name, nodes);
+            boolean[] d = new boolean[nodes];
+            Arrays.fill(d, true);
+            JsonNode defaults = tree.path("default_left");
+            if (!defaults.isMissingNode()) {
+                if (defaults.size() != nodes) {
+                    throw new IllegalArgumentException(name + ".default_left must have " + nodes + " entries");
+                }
+                for (int i = 0; i < nodes; i++) {
+                    d[i] = defaults.get(i).asBoolean();
+                }
+            }
+            if (l.length != nodes || r.length != nodes) {
+                throw new IllegalArgumentException(name + " arrays must all have " + nodes + " entries");
+            }
+            for (int i = 0; i < nodes; i++) {
+                if (f[i] < 0) {
+                    continue;
+                }
+                if (f[i] >= featureIndex.length) {
+                    throw new IllegalArgumentException(name + " node " + i + " uses unknown feature " + f[i]);
+                }
+                // Children after their parent: rules out cycles, so every path ends at a leaf.
+                if (l[i] <= i || l[i] >= nodes || r[i] <= i || r[i] >= nodes) {
+                    throw new IllegalArgumentException(name + " node " + i + " has invalid children");
+                }
+            }
+
+            // Renumber breadth-first from the root, which puts the two children of a node next
+            // to each other. Nodes that cannot be reached are dropped.
+            int[] order = new int[nodes];
+            int[] position = new int[nodes];
+            boolean[] reached = new boolean[nodes];
+            reached[0] = true;
+            int size = 1;
+            for (int k = 0; k < size; k++) {
+                int node = order[k];
+                if (f[node] < 0) {
+                    continue;
+                }
+                for (int child : new int[] {l[node], r[node]}) {
+                    if (reached[child]) {
+                        throw new IllegalArgumentException(name + " node " + child + " has more than one parent");
+                    }
+                    reached[child] = true;
+                    position[child] = size;
+                    order[size++] = child;
+                }
+            }
+            long[] words = new long[2 * size];
+            for (int k = 0; k < size; k++) {
+                int node = order[k];
+                if (f[node] < 0) {
+                    words[2 * k] = GbdtModel.Ensemble.LEAF;
+                    words[2 * k + 1] = Double.doubleToRawLongBits(v[node]);
+                }
+                else {
+                    words[2 * k] = GbdtModel.Ensemble.inner(featureIndex[f[node]], d[node], offset + position[l[node]]);
+                    words[2 * k + 1] = Double.doubleToRawLongBits(th[node]);
+                }
+            }
+            packed.add(words);
+            roots[t] = offset;
+            offset += size;
+        }
+        double base = spec.has("base") ? number(spec.get("base"), target + ".base") : 0;
+        return new GbdtModel.Ensemble(base, concat(packed, 2 * offset), roots, transform(spec, target));
+    }
+
+    private ScoreTransform transform(JsonNode spec, String target) {
+        String link = spec.path("link").asText("identity");
+        if (!link.equals("identity") && !link.equals("logistic")) {
+            throw new IllegalArgumentException(target + " has unknown link: " + link);
+        }
+        return new ScoreTransform(link.equals("logistic"),
+                spec.has("scale") ? number(spec.get("scale"), target + ".scale") : 1,
+                spec.has("min") ? number(spec.get("min"), target + ".min") : Double.NEGATIVE_INFINITY,
+                spec.has("max") ? number(spec.get("max"), target + ".max") : Double.POSITIVE_INFINITY);
+    }
+
+    private static String text(JsonNode node, String field) {
+        String value = node.path(field).asText("");
+        if (value.isBlank()) {
+            throw new IllegalArgumentException("Model has no " + field);
+        }
+        return value;
+    }
+
+    private static double number(JsonNode node, String name) {
+        if (!node.isNumber()) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+        return node.doubleValue();
+    }
+
+    private static int[] ints(JsonNode tree, String field, String name) {
+        JsonNode array = tree.path(field);
+        if (!array.isArray() || array.isEmpty()) {
+            throw new IllegalArgumentException(name + "." + field + " must be a non-empty array");
+        }
+        int[] values = new int[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            if (!array.get(i).canConvertToInt()) {
+                throw new IllegalArgumentException(name + "." + field + " must hold integers");
+            }
+            values[i] = array.get(i).intValue();
+        }
+        return values;
+    }
+
+    private static double[] doubles(JsonNode tree, String field, String name, int nodes) {
+        JsonNode array = tree.path(field);
+        if (!array.isArray() || array.size() != nodes) {
+            throw new IllegalArgumentException(name + "." + field + " must have " + nodes + " entries");
+        }
+        double[] values = new double[nodes];
+        for (int i = 0; i < nodes; i++) {
+            values[i] = number(array.get(i), name + "." + field);
+        }
+        return values;
+    }
+
+    private static long[] concat(List<long[]> parts, int length) {
+        long[] all = new long[length];
+        int at = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, all, at, part.length);
+            at += part.length;
+        }
+        return all;
+    }
+}
@@ -0,0 +1,116 @@
+package ceng.hrv4.backend.scoring;
+
+import ceng.hrv4.backend.dto.response.ScoringModelResponseDto;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the scoring model in use and swaps it for a new version without a restart.
+ *
+ * The model is read from {@code hrv.scoring.model.path}; without one, or until a file loads,
+ * the built-in {@link BaselineModel} is used. The file is checked for changes every
+ * {@code hrv.scoring.model.check-interval} and can be reloaded on demand. A new version is
+ * loaded and validated completely before it replaces the current one in a single reference
+ * swap, so a job scores with either the old or the new model, never a mix, and a broken file
+ * leaves the current model in place. Replace the file by moving the new one over it, so it is
+ * never read half-written.
+ */
+@Slf4j
+@Service
+public class ScoringModelRegistry {
+
+    private record Loaded(ScoringModel model, Path source, FileTime modified, Instant loadedAt) {}
+
+    private final ScoringModelLoader loader;
+    private final Path path;
+    private final AtomicReference<Loaded> current;
+    // Not synchronized: a reload reads a file, which would pin a virtual thread's carrier.
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    // Modification time of a file that failed to load, so it is not retried until it changes.
+    private volatile FileTime rejected;
+
+    public ScoringModelRegistry(ScoringModelLoader loader, @Value("${hrv.scoring.model.path:}") String path) {
+        this.loader = loader;
+        this.path = path.isBlank() ? null : Path.of(path);
+        this.current = new AtomicReference<>(new Loaded(new BaselineModel(), null, null, Instant.now()));
+    }
+
+    @PostConstruct
+    public void init() {
+        if (path == null) {
+            return;
+        }
+        try {
+            reload();
+        }
+        catch (Exception e) {
+            log.error("Cannot load scoring model {}, using {}: {}", path, current().version(), e.getMessage());
+        }
+    }
+
+    public ScoringModel current() {
+        return current.get().model();
+    }
+
+    public ScoringModelResponseDto describe() {
+        Loaded loaded = current.get();
+        return new ScoringModelResponseDto(loaded.model().version(), loaded.model().type(),
+                loaded.source() != null ? loaded.source().toString() : null, loaded.loadedAt());
+    }
+
+    /**
+     * Loads the model file again and makes it the current model.
+     *
+     * @return the model now in use
+     * @throws IllegalStateException    if no model file is configured
+     * @throws IllegalArgumentException if the file is not a valid model
+     * @throws IOException              if the file cannot be read
+     */
+    public ScoringModel reload() throws IOException {
+        if (path == null) {
+            throw new IllegalStateException("No scoring model file is configured");
+        }
+        reloadLock.lock();
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            ScoringModel model = loader.load(path);
+            Loaded previous = current.getAndSet(new Loaded(model, path, modified, Instant.now()));
+            log.info("Loaded scoring model {} ({}) from {}, replacing {}",
+                    model.version(), model.type(), path, previous.model().version());
+            return model;
+        }
+        finally {
+            reloadLock.unlock();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${hrv.scoring.model.check-interval:PT30S}",
+            fixedDelayString = "${hrv.scoring.model.check-interval:PT30S}")
+    public void reloadIfChanged() {
+        if (path == null) {
+            return;
+        }
+        FileTime modified = null;
+        try {
+            modified = Files.getLastModifiedTime(path);
+            if (!modified.equals(current.get().modified()) && !modified.equals(rejected)) {
+                reload();
+            }
+        }
+        catch (Exception e) {
+            rejected = modified;
+            log.warn("Cannot reload scoring model {}, keeping {}: {}", path, current().version(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ceng.hrv4.backend.scoring;
+
+import ceng.hrv4.backend.dto.response.ScoringJobResponseDto;
+import ceng.hrv4.backend.entity.ProcessedData;
+import ceng.hrv4.backend.entity.ScoringJob;
+import ceng.hrv4.backend.repository.ScoringJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mongo-backed queue of {@link ScoringJob}s, filled when ProcessedData is saved and drained
+ * by {@link ScoringWorkers}.
+ *
+ * Enqueueing is a single bulk insert and wakes the local workers, so a saved measurement is
+ * usually scored within moments while the upload request has long returned. Workers of other
+ * instances find the jobs on their next poll. Like the rollups, a failure to enqueue is logged
+ * and does not fail the write of the data; ProcessedData without a measurement id is not
+ * queued, since its output could not be linked to it.
+ */
+@Slf4j
+@Service
+public class ScoringQueue {
+
+    private final MongoTemplate mongoTemplate;
+    private final ScoringJobRepository scoringJobRepository;
+    private final Semaphore wakeups = new Semaphore(0);
+    private final int workers;
+
+    public ScoringQueue(MongoTemplate mongoTemplate, ScoringJobRepository scoringJobRepository,
+                        @Value("${hrv.scoring.workers:2}") int workers) {
+        this.mongoTemplate = mongoTemplate;
+        this.scoringJobRepository = scoringJobRepository;
+        this.workers = workers;
+    }
+
+    /**
+     * Queues the scoring of saved ProcessedData records.
+     */
+    public void enqueue(Collection<ProcessedData> saved) {
+        try {
+            Instant now = Instant.now();
+            List<ScoringJob> jobs = saved.stream()
+                    .filter(Objects::nonNull)
+                    .filter(processed -> processed.getId() != null && processed.getMeasurementId() != null)
+                    .map(processed -> {
+                        ScoringJob job = new ScoringJob(processed);
+                        // Inserted directly, so the auditing fields are not filled in for us.
+                        job.setCreatedAt(now);
+                        job.setUpdatedAt(now);
+                        return job;
+                    })
+                    .toList();
+            if (jobs.isEmpty()) {
+                return;
+            }
+            mongoTemplate.insertAll(jobs);
+            wakeUp(jobs.size());
+        }
+        catch (Exception e) {
+            log.error("Error queueing the scoring of {} measurements: {}", saved.size(), e.getMessage());
+        }
+    }
+
+    public Optional<ScoringJobResponseDto> find(String jobId) {
+        return scoringJobRepository.findById(jobId).map(ScoringQueue::toDto);
+    }
+
+    /**
+     * The jobs of a measurement, newest first.
+     */
+    public List<ScoringJobResponseDto> findByMeasurementId(String measurementId) {
+        return scoringJobRepository.findByMeasurementId(measurementId, Sort.by(Sort.Direction.DESC, "createdAt"))
+                .stream()
+                .map(ScoringQueue::toDto)
+                .toList();
+    }
+
+    /**
+     * Blocks a worker until jobs were queued on this instance or the timeout passes.
+     */
+    void awaitWork(Duration timeout) throws InterruptedException {
+        wakeups.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wakes up to one worker per queued job. A woken worker keeps claiming until the queue is
+     * empty, so the permits are capped at the number of workers rather than piling up.
+     */
+    private void wakeUp(int jobs) {
+        int idle = Math.min(jobs, workers - wakeups.availablePermits());
+        if (idle > 0) {
+            wakeups.release(idle);
+        }
+    }
+
+    private static ScoringJobResponseDto toDto(ScoringJob job) {
+        return new ScoringJobResponseDto(
+                job.getId(),
+                job.getMeasurementId(),
+                job.getUserId(),
+                job.getStatus() != null ? job.getStatus().name() : null,
+                job.getAttempts(),
+                job.getModelOutputId(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt(),
+                job.getError()
+        );
+    }
+}
@@ -0,0 +1,184 @@
+package ceng.hrv4.backend.scoring;
+
+import ceng.hrv4.backend.entity.ModelOutput;
+import ceng.hrv4.backend.entity.ProcessedData;
+import ceng.hrv4.backend.entity.ScoringJob;
+import ceng.hrv4.backend.entity.User;
+import ceng.hrv4.backend.repository.ProcessedDataRepository;
+import ceng.hrv4.backend.service.LeasedJobs;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed pool of {@code hrv.scoring.workers} threads that drain the {@link ScoringQueue}.
+ *
+ * Each worker claims a job atomically, so several instances can share the queue, scores the
+ * job's ProcessedData with {@link HrvScorer} and upserts the ModelOutput with the same
+ * measurement id, so scoring a measurement again replaces its output. An idle worker sleeps
+ * until jobs are queued on this instance or {@code hrv.scoring.poll-interval} passes. A job
+ * that fails is queued again until it was tried {@code hrv.scoring.max-attempts} times; one
+ * that cannot be scored at all, such as a measurement without RMSSD, fails at once.
+ * The outcomes are counted in the "hrv.scoring.jobs" metric. 0 workers turns scoring off.
+ */
+@Slf4j
+@Service
+public class ScoringWorkers {
+
+    private final MongoTemplate mongoTemplate;
+    private final ProcessedDataRepository processedDataRepository;
+    private final ScoringQueue scoringQueue;
+    private final HrvScorer hrvScorer;
+    private final ModelOutputWriter modelOutputWriter;
+    private final MeterRegistry meterRegistry;
+    private final int workers;
+    private final Duration pollInterval;
+    private final LeasedJobs<ScoringJob> jobs;
+    private final int maxAttempts;
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    public ScoringWorkers(MongoTemplate mongoTemplate, ProcessedDataRepository processedDataRepository,
+                          ScoringQueue scoringQueue, HrvScorer hrvScorer, ModelOutputWriter modelOutputWriter,
+                          MeterRegistry meterRegistry,
+                          @Value("${hrv.scoring.workers:2}") int workers,
+                          @Value("${hrv.scoring.poll-interval:PT5S}") Duration pollInterval,
+                          @Value("${hrv.scoring.lease:PT2M}") Duration lease,
+                          @Value("${hrv.scoring.max-attempts:3}") int maxAttempts) {
+        this.mongoTemplate = mongoTemplate;
+        this.processedDataRepository = processedDataRepository;
+        this.scoringQueue = scoringQueue;
+        this.hrvScorer = hrvScorer;
+        this.modelOutputWriter = modelOutputWriter;
+        this.meterRegistry = meterRegistry;
+        this.workers = workers;
+        this.pollInterval = pollInterval;
+        this.jobs = new LeasedJobs<>(mongoTemplate, ScoringJob.class, ScoringJob.Status.QUEUED,
+                ScoringJob.Status.RUNNING, lease);
+        this.maxAttempts = maxAttempts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (workers <= 0) {
+            return;
+        }
+        running = true;
+        executor = Executors.newFixedThreadPool(workers, new ScoringThreadFactory());
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+        log.info("Started {} scoring workers", workers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                ScoringJob job;
+                while (running && (job = jobs.claim()) != null) {
+                    run(job);
+                }
+                scoringQueue.awaitWork(pollInterval);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (Exception e) {
+                log.warn("Scoring poll failed: {}", e.getMessage());
+                if (!pause()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void run(ScoringJob job) {
+        try {
+            ProcessedData processed = processedDataRepository.findById(job.getProcessedDataId()).orElse(null);
+            if (processed == null) {
+                // Replaced by a newer upload or removed with its user; nothing left to score.
+                finish(job, ScoringJob.Status.FAILED, null, "Processed data no longer exists");
+                return;
+            }
+            ModelOutput output = hrvScorer.score(processed, age(processed.getUserId()));
+            finish(job, ScoringJob.Status.DONE, modelOutputWriter.upsert(output), null);
+        }
+        catch (IllegalArgumentException e) {
+            finish(job, ScoringJob.Status.FAILED, null, e.getMessage());
+        }
+        catch (Exception e) {
+            log.warn("Scoring of measurement {} failed (job {}, attempt {}): {}",
+                    job.getMeasurementId(), job.getId(), job.getAttempts(), e.getMessage());
+            finish(job, job.getAttempts() < maxAttempts ? ScoringJob.Status.QUEUED : ScoringJob.Status.FAILED,
+                    null, e.getMessage());
+        }
+    }
+
+    private Integer age(String userId) {
+        Query query = Query.query(Criteria.where("id").is(userId));
+        query.fields().include("age");
+        User user = mongoTemplate.findOne(query, User.class);
+        return user != null ? user.getAge() : null;
+    }
+
+    private void finish(ScoringJob job, ScoringJob.Status status, String modelOutputId, String error) {
+        Instant now = Instant.now();
+        Update update = new Update()
+                .set("status", status)
+                .set("model_output_id", modelOutputId)
+                .set("error", error)
+                .set("updated_at", now);
+        if (status != ScoringJob.Status.QUEUED) {
+            update.set("finished_at", now);
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(job.getId())), update, ScoringJob.class);
+        String outcome = status == ScoringJob.Status.QUEUED ? "retried" : status.name().toLowerCase();
+        meterRegistry.counter("hrv.scoring.jobs", "outcome", outcome).increment();
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pollInterval);
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static final class ScoringThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "scoring-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -2,10 +2,13 @@ package ceng.hrv4.backend.service;
 
 import ceng.hrv4.backend.dto.request.ActivityRequestDto;
 import ceng.hrv4.backend.dto.response.ActivityResponseDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
 
 import java.util.List;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Service interface for managing Activity entities.
@@ -21,6 +24,14 @@ public interface ActivityService {
      */
     ResponseEntity<ActivityResponseDto> saveActivity(ActivityRequestDto dto);
 
+    /**
+     * Saves several Activity records with one bulk write.
+     *
+     * @param dtos the request DTOs containing activity details
+     * @return the status of each item, 201 if all were created or 207 otherwise
+     */
+    ResponseEntity<BatchResponseDto> saveActivityBatch(List<ActivityRequestDto> dtos);
+
     /**
      * Finds an Activity record by its ID.
      *
@@ -52,6 +63,40 @@ public interface ActivityService {
      */
     ResponseEntity<List<ActivityResponseDto>> findAllActivities();
 
+    /**
+     * Retrieves one page of Activity records ordered by ID.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param limit  the maximum number of records to return
+     * @return the page, or 400 if the cursor is invalid
+     */
+    ResponseEntity<PageResponseDto<ActivityResponseDto>> findActivityPage(String cursor, int limit);
+
+    /**
+     * Retrieves one page of a user's Activity records ordered by ID.
+     *
+     * @param userId the user ID to search for
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param limit  the maximum number of records to return
+     * @return the page, or 400 if the cursor is invalid
+     */
+    ResponseEntity<PageResponseDto<ActivityResponseDto>> findActivityPageByUserId(String userId, String cursor, int limit);
+
+    /**
+     * Streams all Activity records as NDJSON.
+     *
+     * @return a response body writing one ActivityResponseDto per line
+     */
+    ResponseEntity<StreamingResponseBody> streamAllActivities();
+
+    /**
+     * Streams a user's Activity records as NDJSON.
+     *
+     * @param userId the user ID to search for
+     * @return a response body writing one ActivityResponseDto per line
+     */
+    ResponseEntity<StreamingResponseBody> streamActivitiesByUserId(String userId);
+
     /**
      * Deletes an Activity record by its ID.
      *
@@ -2,6 +2,8 @@ package ceng.hrv4.backend.service;
 
 import ceng.hrv4.backend.dto.request.ActivityRequestDto;
 import ceng.hrv4.backend.dto.response.ActivityResponseDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
 import ceng.hrv4.backend.entity.Activity;
 import ceng.hrv4.backend.mapper.ActivityMapper;
 import ceng.hrv4.backend.repository.ActivityRepository;
@@ -10,6 +12,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -20,10 +23,18 @@ public class ActivityServiceImpl implements ActivityService {
 
     private final ActivityRepository activityRepository;
     private final ActivityMapper activityMapper;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final BatchInsertService batchInsertService;
+    private final RecentActivityService recentActivityService;
 
-    public ActivityServiceImpl(ActivityRepository activityRepository, ActivityMapper activityMapper) {
+    public ActivityServiceImpl(ActivityRepository activityRepository, ActivityMapper activityMapper,
+                               NdjsonStreamer ndjsonStreamer, BatchInsertService batchInsertService,
+                               RecentActivityService recentActivityService) {
         this.activityRepository = activityRepository;
         this.activityMapper = activityMapper;
+        this.ndjsonStreamer = ndjsonStreamer;
+        this.batchInsertService = batchInsertService;
+        this.recentActivityService = recentActivityService;
     }
 
     @Override
@@ -31,6 +42,7 @@ public class ActivityServiceImpl implements ActivityService {
         try {
             Activity entity = activityMapper.toEntity(dto);
             Activity saved = activityRepository.save(entity);
+            recentActivityService.add(List.of(saved));
             return new ResponseEntity<>(activityMapper.toDto(saved), HttpStatus.CREATED);
         } catch (Exception e) {
             log.error("Error saving activity: {}", e.getMessage());
@@ -38,6 +50,30 @@ public class ActivityServiceImpl implements ActivityService {
         }
     }
 
+    /**
+     * Saves several activities with one unordered bulk write.
+     * The user ID is optional on activities, so only the ones that are given are checked.
+     */
+    @Override
+    public ResponseEntity<BatchResponseDto> saveActivityBatch(List<ActivityRequestDto> dtos) {
+        try {
+            if (batchInsertService.exceedsMaxSize(dtos)) {
+                return new ResponseEntity<>(null, HttpStatus.PAYLOAD_TOO_LARGE);
+            }
+            BatchResponseDto response = batchInsertService.insertAll(dtos, ActivityRequestDto::userId, false,
+                    activityMapper::toEntity,
+                    inserted -> {
+                        recentActivityService.add(inserted);
+                        return List.of();
+                    },
+                    Activity.class);
+            return new ResponseEntity<>(response, BatchInsertService.status(response));
+        } catch (Exception e) {
+            log.error("Error saving activity batch: {}", e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @Override
     public ResponseEntity<ActivityResponseDto> findActivityByMeasurementID(String MeasurementID) {
         try {
@@ -107,13 +143,53 @@ public class ActivityServiceImpl implements ActivityService {
         }
     }
 
+    @Override
+    public ResponseEntity<PageResponseDto<ActivityResponseDto>> findActivityPage(String cursor, int limit) {
+        try {
+            List<Activity> entities = activityRepository.findByIdGreaterThan(
+                    KeysetPages.start(cursor), KeysetPages.pageable(limit));
+            return new ResponseEntity<>(KeysetPages.page(entities, limit, activityMapper::toDto), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            log.error("Error paging activities: {}", e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Override
+    public ResponseEntity<PageResponseDto<ActivityResponseDto>> findActivityPageByUserId(String userId, String cursor, int limit) {
+        try {
+            List<Activity> entities = activityRepository.findByUserIdAndIdGreaterThan(
+                    userId, KeysetPages.start(cursor), KeysetPages.pageable(limit));
+            return new ResponseEntity<>(KeysetPages.page(entities, limit, activityMapper::toDto), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            log.error("Error paging activities by userId: {}", e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamAllActivities() {
+        return ndjsonStreamer.stream(activityRepository::streamAllBy, activityMapper::toDto);
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamActivitiesByUserId(String userId) {
+        return ndjsonStreamer.stream(() -> activityRepository.streamByUserId(userId), activityMapper::toDto);
+    }
+
     @Override
     public ResponseEntity<String> deleteActivityByMeasurementID(String MeasurementID) {
         try {
-            if (!activityRepository.existsById(MeasurementID)) {
+            Activity activity = activityRepository.findById(MeasurementID).orElse(null);
+            if (activity == null) {
                 return new ResponseEntity<>("Activity not found.", HttpStatus.NOT_FOUND);
             }
             activityRepository.deleteById(MeasurementID);
+            recentActivityService.remove(activity);
             return new ResponseEntity<>("Activity deleted successfully.", HttpStatus.OK);
         } catch (Exception e) {
             log.error("Error deleting activity: {}", e.getMessage());
@@ -0,0 +1,205 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.dto.response.BatchItemResultDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
+import ceng.hrv4.backend.entity.BaseDocument;
+import ceng.hrv4.backend.repository.UserRepository;
+import ceng.hrv4.backend.repository.projection.IdOnly;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts the items of a batch request with a single unordered bulk write and reports a
+ * status per item.
+ *
+ * Each item is validated against its request DTO constraints, and the users referenced by
+ * the batch are checked with one {@code $in} query. The remaining items are inserted
+ * together; because the write is unordered, a failing item does not stop the others.
+ */
+@Slf4j
+@Service
+public class BatchInsertService {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final UserRepository userRepository;
+    private final Validator validator;
+    private final int maxSize;
+
+    public BatchInsertService(MongoTemplate mongoTemplate, UserRepository userRepository, Validator validator,
+                              @Value("${hrv.batch.max-size:1000}") int maxSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.userRepository = userRepository;
+        this.validator = validator;
+        this.maxSize = maxSize;
+    }
+
+    public boolean exceedsMaxSize(List<?> requests) {
+        return requests.size() > maxSize;
+    }
+
+    /**
+     * 201 when every item was created, 207 when some or all items failed.
+     */
+    public static HttpStatus status(BatchResponseDto response) {
+        return response.failed() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+    }
+
+    /**
+     * @param requests     the batch items
+     * @param userIdOf     extracts the referenced user id of an item
+     * @param userRequired whether an item without a user id is rejected
+     * @param toEntity     maps a valid item to the entity to insert
+     * @param afterInsert  post-processing of the inserted entities; returns those for which it
+     *                     failed, which are then reported as failed too
+     * @param type         the entity type, selecting the collection
+     */
+    public <D, E extends BaseDocument> BatchResponseDto insertAll(List<D> requests,
+                                                                Function<D, String> userIdOf,
+                                                                boolean userRequired,
+                                                                Function<D, E> toEntity,
+                                                                Function<List<E>, Collection<E>> afterInsert,
+                                                                Class<E> type) {
+        BatchItemResultDto[] results = new BatchItemResultDto[requests.size()];
+
+        for (int i = 0; i < requests.size(); i++) {
+            D request = requests.get(i);
+            if (request == null) {
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, "Item is null.");
+                continue;
+            }
+            Set<ConstraintViolation<D>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(" "));
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, message);
+            }
+            else if (userRequired && userIdOf.apply(request) == null) {
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, "User ID cannot be empty.");
+            }
+        }
+
+        Set<String> existingUsers = existingUsers(requests, results, userIdOf);
+
+        List<E> pending = new ArrayList<>();
+        List<Integer> pendingIndex = new ArrayList<>();
+        Instant now = Instant.now();
+        for (int i = 0; i < requests.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            String userId = userIdOf.apply(requests.get(i));
+            if (userId != null && !existingUsers.contains(userId)) {
+                results[i] = failure(i, HttpStatus.NOT_FOUND, "User not found: " + userId);
+                continue;
+            }
+            E entity = toEntity.apply(requests.get(i));
+            // Assigned up front so the response can report them; auditing only fills
+            // created_at for documents without an id, so it is set here as well.
+            entity.setId(new ObjectId().toHexString());
+            entity.setCreatedAt(now);
+            entity.setUpdatedAt(now);
+            pending.add(entity);
+            pendingIndex.add(i);
+        }
+
+        Map<Integer, BulkWriteError> writeErrors = insert(pending, type);
+
+        List<E> inserted = new ArrayList<>();
+        for (int p = 0; p < pending.size(); p++) {
+            BulkWriteError error = writeErrors.get(p);
+            int i = pendingIndex.get(p);
+            if (error == null) {
+                inserted.add(pending.get(p));
+            }
+            else if (error.getCode() == DUPLICATE_KEY) {
+                results[i] = failure(i, HttpStatus.CONFLICT, error.getMessage());
+            }
+            else {
+                results[i] = failure(i, HttpStatus.INTERNAL_SERVER_ERROR, error.getMessage());
+            }
+        }
+
+        Set<E> failedAfterInsert = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (!inserted.isEmpty()) {
+            failedAfterInsert.addAll(afterInsert.apply(inserted));
+        }
+        for (int p = 0; p < pending.size(); p++) {
+            int i = pendingIndex.get(p);
+            if (results[i] != null) {
+                continue;
+            }
+            E entity = pending.get(p);
+            results[i] = failedAfterInsert.contains(entity)
+                    ? failure(i, HttpStatus.INTERNAL_SERVER_ERROR, "Could not store item.")
+                    : new BatchItemResultDto(i, HttpStatus.CREATED.value(), entity.getId(), null);
+        }
+
+        int created = (int) Arrays.stream(results).filter(r -> r.status() == HttpStatus.CREATED.value()).count();
+        return new BatchResponseDto(requests.size(), created, requests.size() - created, Arrays.asList(results));
+    }
+
+    private <D> Set<String> existingUsers(List<D> requests, BatchItemResultDto[] results, Function<D, String> userIdOf) {
+        Set<String> referenced = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (results[i] == null && userIdOf.apply(requests.get(i)) != null) {
+                referenced.add(userIdOf.apply(requests.get(i)));
+            }
+        }
+        if (referenced.isEmpty()) {
+            return Set.of();
+        }
+        return userRepository.findByIdIn(referenced).stream()
+                .map(IdOnly::getId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the write errors keyed by position in {@code entities}
+     */
+    private <E> Map<Integer, BulkWriteError> insert(List<E> entities, Class<E> type) {
+        if (entities.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type)
+                    .insert(entities)
+                    .execute();
+            return Map.of();
+        }
+        catch (BulkOperationException e) {
+            return e.getErrors().stream()
+                    .collect(Collectors.toMap(BulkWriteError::getIndex, error -> error));
+        }
+        catch (DataAccessException e) {
+            if (e.getCause() instanceof MongoBulkWriteException bulk) {
+                return bulk.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, error -> error));
+            }
+            throw e;
+        }
+    }
+
+    private static BatchItemResultDto failure(int index, HttpStatus status, String error) {
+        return new BatchItemResultDto(index, status.value(), null, error);
+    }
+}
@@ -0,0 +1,34 @@
+package ceng.hrv4.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.function.Function;
+
+/**
+ * Returns a reactive repository {@link Flux} as a streamed response, one DTO per line.
+ *
+ * Spring MVC writes each element as it arrives when the endpoint produces
+ * {@code application/x-ndjson}, and only requests the next element once the previous one
+ * has been written, so a slow client slows down the database cursor instead of filling
+ * memory. Because MVC requests one element at a time, the source is read through
+ * {@link Flux#limitRate(int)}: the driver sizes its getMore batches from the demand it
+ * sees, and without it would fetch a single document per round trip.
+ */
+@Slf4j
+@Component
+public class FluxNdjsonStreamer {
+
+    static final int PREFETCH = 256;
+
+    public <E, D> ResponseEntity<Flux<D>> stream(Flux<E> source, Function<E, D> mapper) {
+        Flux<D> body = source
+                .limitRate(PREFETCH)
+                .map(mapper)
+                // Once the first line is written the status is sent, so a later failure only cuts the body short.
+                .doOnError(e -> log.warn("Reactive stream failed after the response was committed", e));
+        return ResponseEntity.ok(body);
+    }
+}
@@ -0,0 +1,51 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.entity.HrvRollup;
+import ceng.hrv4.backend.entity.ModelOutput;
+import ceng.hrv4.backend.entity.ProcessedData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * One-off startup job that rebuilds the HRV rollups from the stored ProcessedData and
+ * ModelOutputs, one user at a time. Adds the measurements stored before the rollups existed and repairs the drift
+ * left by rollup updates that failed. Users that only have rollups left lose them.
+ *
+ * Run it while no measurements are being uploaded, see {@link HrvRollupService#rebuild}.
+ * Enabled with {@code hrv.rollups.rebuild=true}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "hrv.rollups.rebuild", havingValue = "true")
+public class HrvRollupRebuildRunner implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final HrvRollupService hrvRollupService;
+
+    public HrvRollupRebuildRunner(MongoTemplate mongoTemplate, HrvRollupService hrvRollupService) {
+        this.mongoTemplate = mongoTemplate;
+        this.hrvRollupService = hrvRollupService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Set<String> userIds = new TreeSet<>();
+        userIds.addAll(mongoTemplate.findDistinct(new Query(), "user_id", ProcessedData.class, String.class));
+        userIds.addAll(mongoTemplate.findDistinct(new Query(), "user_id", ModelOutput.class, String.class));
+        userIds.addAll(mongoTemplate.findDistinct(new Query(), "user_id", HrvRollup.class, String.class));
+
+        long measurements = 0;
+        for (String userId : userIds) {
+            measurements += hrvRollupService.rebuild(userId);
+        }
+        log.info("Rebuilt the HRV rollups of {} users from {} measurements", userIds.size(), measurements);
+    }
+}
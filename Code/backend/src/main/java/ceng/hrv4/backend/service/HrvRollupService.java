@@ -0,0 +1,373 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.dto.response.HrvRollupResponseDto;
+import ceng.hrv4.backend.entity.HrvRollup;
+import ceng.hrv4.backend.entity.ModelOutput;
+import ceng.hrv4.backend.entity.ProcessedData;
+import ceng.hrv4.backend.repository.HrvRollupRepository;
+import ceng.hrv4.backend.repository.ModelOutputRepository;
+import ceng.hrv4.backend.repository.ProcessedDataRepository;
+import ceng.hrv4.backend.repository.UserRepository;
+import ceng.hrv4.backend.repository.projection.UserTimeZone;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the per-user daily, weekly and monthly rollups of ProcessedData and of the
+ * scores in its ModelOutput.
+ *
+ * Every write of ProcessedData is folded into the three rollups of its measurement time
+ * with {@code $inc} upserts, so a trend chart reads one small document per bucket instead
+ * of every measurement. Removing a measurement applies the same increments negated.
+ * Stress and health state are produced by scoring, not stored on ProcessedData, so they
+ * are folded in the same way whenever a ModelOutput is written or removed.
+ * A failed rollup update is logged and does not fail the write of the measurement; the
+ * drift it leaves is repaired by {@link #rebuild} (see {@link HrvRollupRebuildRunner}).
+ *
+ * Days, weeks and months are cut in the user's time zone, or in {@code hrv.rollups.zone}
+ * for users without a valid one. A change of the user's zone moves every bucket, so the
+ * user's rollups are then rebuilt.
+ */
+@Slf4j
+@Service
+public class HrvRollupService {
+
+    /** Metrics kept in the rollups, by the name used in the stored document and the API. */
+    static final Map<String, Function<ProcessedData, Double>> METRICS = new LinkedHashMap<>();
+
+    static {
+        METRICS.put("rmssd", ProcessedData::getRmssd);
+        METRICS.put("sdnn", ProcessedData::getSdnn);
+        METRICS.put("pnn50", ProcessedData::getPnn50);
+        METRICS.put("rmssd_night", ProcessedData::getRmssdNight);
+        METRICS.put("sdnn_night", ProcessedData::getSdnnNight);
+        METRICS.put("pnn50_night", ProcessedData::getPnn50Night);
+        METRICS.put("tp_night", ProcessedData::getTpNight);
+        METRICS.put("ulf_night", ProcessedData::getUlfNight);
+        METRICS.put("vlf_night", ProcessedData::getVlfNight);
+        METRICS.put("lf_night", ProcessedData::getLfNight);
+        METRICS.put("hf_night", ProcessedData::getHfNight);
+    }
+
+    /** Scores kept in the rollups, taken from the ModelOutput of each measurement. */
+    static final Map<String, Function<ModelOutput, Double>> SCORES = new LinkedHashMap<>();
+
+    static {
+        SCORES.put("stress", ModelOutput::getStress);
+        SCORES.put("health_state", ModelOutput::getHealthState);
+    }
+
+    private final HrvRollupRepository rollupRepository;
+    private final ProcessedDataRepository processedDataRepository;
+    private final ModelOutputRepository modelOutputRepository;
+    private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ZoneId defaultZone;
+    private final int rebuildBatchSize;
+
+    public HrvRollupService(HrvRollupRepository rollupRepository, ProcessedDataRepository processedDataRepository,
+                            ModelOutputRepository modelOutputRepository, UserRepository userRepository,
+                            MongoTemplate mongoTemplate,
+                            @Value("${hrv.rollups.zone:Europe/Istanbul}") ZoneId defaultZone,
+                            @Value("${hrv.rollups.rebuild-batch-size:1000}") int rebuildBatchSize) {
+        this.rollupRepository = rollupRepository;
+        this.processedDataRepository = processedDataRepository;
+        this.modelOutputRepository = modelOutputRepository;
+        this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.defaultZone = defaultZone;
+        this.rebuildBatchSize = rebuildBatchSize;
+    }
+
+    public void add(Collection<ProcessedData> added) {
+        try {
+            applyMeasurements(added, 1);
+        }
+        catch (Exception e) {
+            log.error("Error adding {} measurements to the HRV rollups, rebuild them to repair: {}", added.size(), e.getMessage());
+        }
+    }
+
+    public void remove(Collection<ProcessedData> removed) {
+        try {
+            applyMeasurements(removed, -1);
+        }
+        catch (Exception e) {
+            log.error("Error removing {} measurements from the HRV rollups, rebuild them to repair: {}", removed.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the scores of model outputs in the rollups: the previous versions are taken
+     * out and the current ones folded in, with one bulk write.
+     *
+     * @param previous outputs as they were before the write; empty for new outputs
+     * @param current  outputs as written; empty when they were removed
+     */
+    public void replaceScores(Collection<ModelOutput> previous, Collection<ModelOutput> current) {
+        try {
+            Set<String> userIds = new HashSet<>();
+            previous.forEach(output -> userIds.add(output.getUserId()));
+            current.forEach(output -> userIds.add(output.getUserId()));
+            Map<String, ZoneId> zones = zones(userIds);
+            Map<String, Delta> deltas = new LinkedHashMap<>();
+            collect(deltas, zones, previous, ModelOutput::getUserId, HrvRollupService::time, SCORES, false, -1);
+            collect(deltas, zones, current, ModelOutput::getUserId, HrvRollupService::time, SCORES, false, 1);
+            write(deltas);
+        }
+        catch (Exception e) {
+            log.error("Error updating the HRV rollups with {} model outputs, rebuild them to repair: {}",
+                    previous.size() + current.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces a user's rollups with ones computed from all of the user's stored ProcessedData
+     * and ModelOutputs, see {@link #rebuild(String, Stream, Stream, int)}.
+     *
+     * @return the number of measurements folded in
+     */
+    public long rebuild(String userId) {
+        try (Stream<ProcessedData> measurements = processedDataRepository.streamByUserId(userId);
+             Stream<ModelOutput> outputs = modelOutputRepository.streamByUserId(userId)) {
+            return rebuild(userId, measurements, outputs, rebuildBatchSize);
+        }
+    }
+
+    /**
+     * Replaces a user's rollups with ones computed from the given measurements and model
+     * outputs, which must be all of the user's ProcessedData and ModelOutputs. Measurements
+     * written for the user while this runs may be missed or counted twice.
+     *
+     * @param batchSize measurements or outputs folded in per bulk write
+     * @return the number of measurements folded in
+     */
+    public long rebuild(String userId, Stream<ProcessedData> measurements, Stream<ModelOutput> outputs, int batchSize) {
+        mongoTemplate.remove(Query.query(Criteria.where("user_id").is(userId)), HrvRollup.class);
+        long count = 0;
+        List<ProcessedData> batch = new ArrayList<>(batchSize);
+        for (ProcessedData data : (Iterable<ProcessedData>) measurements::iterator) {
+            batch.add(data);
+            if (batch.size() == batchSize) {
+                applyMeasurements(batch, 1);
+                count += batch.size();
+                batch.clear();
+            }
+        }
+        applyMeasurements(batch, 1);
+        count += batch.size();
+
+        List<ModelOutput> scored = new ArrayList<>(batchSize);
+        for (ModelOutput output : (Iterable<ModelOutput>) outputs::iterator) {
+            scored.add(output);
+            if (scored.size() == batchSize) {
+                applyScores(scored);
+                scored.clear();
+            }
+        }
+        applyScores(scored);
+        return count;
+    }
+
+    private void applyMeasurements(Collection<ProcessedData> measurements, int sign) {
+        Set<String> userIds = new HashSet<>();
+        measurements.forEach(data -> userIds.add(data.getUserId()));
+        Map<String, Delta> deltas = new LinkedHashMap<>();
+        collect(deltas, zones(userIds), measurements, ProcessedData::getUserId, HrvRollupService::time, METRICS, true, sign);
+        write(deltas);
+    }
+
+    private void applyScores(Collection<ModelOutput> outputs) {
+        Set<String> userIds = new HashSet<>();
+        outputs.forEach(output -> userIds.add(output.getUserId()));
+        Map<String, Delta> deltas = new LinkedHashMap<>();
+        collect(deltas, zones(userIds), outputs, ModelOutput::getUserId, HrvRollupService::time, SCORES, false, 1);
+        write(deltas);
+    }
+
+    /**
+     * Looks up the zones the users' buckets are cut in, with one query. Users without a valid
+     * zone are left out and use the default zone.
+     */
+    private Map<String, ZoneId> zones(Set<String> userIds) {
+        userIds.remove(null);
+        Map<String, ZoneId> zones = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return zones;
+        }
+        for (UserTimeZone user : userRepository.findTimeZonesByIdIn(userIds)) {
+            ZoneId zone = parseZone(user.getTimeZone());
+            if (zone != null) {
+                zones.put(user.getId(), zone);
+            }
+        }
+        return zones;
+    }
+
+    private static ZoneId parseZone(String timeZone) {
+        if (timeZone == null || timeZone.isBlank()) {
+            return null;
+        }
+        try {
+            return ZoneId.of(timeZone);
+        }
+        catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static Instant time(ProcessedData data) {
+        return data.getMeasurementTime() != null ? data.getMeasurementTime() : data.getCreatedAt();
+    }
+
+    private static Instant time(ModelOutput output) {
+        return output.getMeasurementTime() != null ? output.getMeasurementTime() : output.getCreatedAt();
+    }
+
+    /**
+     * Adds the increments of the given documents to {@code deltas}, merging those that hit
+     * the same bucket.
+     *
+     * @param zones   the zones of the documents' users, see {@link #zones}
+     * @param counted whether each document counts as a measurement of its buckets
+     */
+    private <T> void collect(Map<String, Delta> deltas, Map<String, ZoneId> zones,
+                             Collection<T> documents, Function<T, String> userIdOf,
+                             Function<T, Instant> timeOf, Map<String, Function<T, Double>> metrics,
+                             boolean counted, int sign) {
+        for (T document : documents) {
+            if (document == null || userIdOf.apply(document) == null) {
+                continue;
+            }
+            String userId = userIdOf.apply(document);
+            Instant time = timeOf.apply(document);
+            if (time == null) {
+                continue;
+            }
+            ZoneId zone = zones.getOrDefault(userId, defaultZone);
+            LocalDate day = time.atZone(zone).toLocalDate();
+            for (HrvRollup.Period period : HrvRollup.Period.values()) {
+                Instant start = bucketStart(day, period, zone);
+                Delta delta = deltas.computeIfAbsent(userId + ":" + period + ":" + start,
+                        id -> new Delta(userId, period, start));
+                if (counted) {
+                    delta.measurements += sign;
+                }
+                metrics.forEach((name, getter) -> {
+                    Double value = getter.apply(document);
+                    if (value != null && !value.isNaN()) {
+                        double[] stat = delta.metrics.computeIfAbsent(name, key -> new double[3]);
+                        stat[0] += sign;
+                        stat[1] += sign * value;
+                        stat[2] += sign * value * value;
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Applies the increments with one bulk write.
+     */
+    private void write(Map<String, Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HrvRollup.class);
+        deltas.forEach((id, delta) -> {
+            Update update = new Update()
+                    .setOnInsert("user_id", delta.userId)
+                    .setOnInsert("period", delta.period.name())
+                    .setOnInsert("bucket_start", delta.start)
+                    .set("updated_at", now)
+                    .inc("measurements", delta.measurements);
+            delta.metrics.forEach((name, stat) -> update
+                    .inc("metrics." + name + ".n", (long) stat[0])
+                    .inc("metrics." + name + ".sum", stat[1])
+                    .inc("metrics." + name + ".sum_sq", stat[2]));
+            bulk.upsert(Query.query(Criteria.where("_id").is(id)), update);
+        });
+        bulk.execute();
+    }
+
+    /** Pending increments of one rollup document: count, sum and sum of squares per metric. */
+    private static final class Delta {
+        final String userId;
+        final HrvRollup.Period period;
+        final Instant start;
+        final Map<String, double[]> metrics = new LinkedHashMap<>();
+        long measurements;
+
+        Delta(String userId, HrvRollup.Period period, Instant start) {
+            this.userId = userId;
+            this.period = period;
+            this.start = start;
+        }
+    }
+
+    private static Instant bucketStart(LocalDate day, HrvRollup.Period period, ZoneId zone) {
+        LocalDate start = switch (period) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+        return start.atStartOfDay(zone).toInstant();
+    }
+
+    /**
+     * Rollups of a user whose bucket starts on a day within [from, to), oldest first.
+     * The days are taken in the zone the user's buckets are cut in.
+     */
+    public List<HrvRollupResponseDto> findRange(String userId, HrvRollup.Period period, LocalDate from, LocalDate to) {
+        ZoneId zone = zones(new HashSet<>(List.of(userId))).getOrDefault(userId, defaultZone);
+        return rollupRepository.findRange(userId, period, from.atStartOfDay(zone).toInstant(),
+                        to.atStartOfDay(zone).toInstant())
+                .stream()
+                .map(HrvRollupService::toDto)
+                .toList();
+    }
+
+    private static HrvRollupResponseDto toDto(HrvRollup rollup) {
+        Map<String, HrvRollupResponseDto.Metric> metrics = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(METRICS.keySet());
+        names.addAll(SCORES.keySet());
+        for (String name : names) {
+            HrvRollup.Stat stat = rollup.getMetrics() != null ? rollup.getMetrics().get(name) : null;
+            long n = stat != null ? stat.getN() : 0;
+            Double mean = n > 0 ? stat.getSum() / n : null;
+            Double sd = null;
+            if (n > 1) {
+                double variance = (stat.getSumSq() - stat.getSum() * stat.getSum() / n) / (n - 1);
+                sd = Math.sqrt(Math.max(variance, 0));
+            }
+            metrics.put(name, new HrvRollupResponseDto.Metric(n, mean, sd));
+        }
+        return new HrvRollupResponseDto(rollup.getPeriod().name(), rollup.getBucketStart(),
+                rollup.getMeasurements(), metrics);
+    }
+}
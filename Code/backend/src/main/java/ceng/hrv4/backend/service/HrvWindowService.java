@@ -0,0 +1,241 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.analysis.HrvWindowAnalyzer;
+import ceng.hrv4.backend.analysis.HrvWindowSeries;
+import ceng.hrv4.backend.analysis.HrvWindowStream;
+import ceng.hrv4.backend.dto.response.HrvWindowsResponseDto;
+import ceng.hrv4.backend.entity.HrvWindowBucket;
+import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.repository.HrvWindowBucketRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Computes the rolling-window HRV metrics of a recording and stores them in hrv_windows,
+ * {@code hrv.windows.bucket-size} windows per document.
+ *
+ * Live stream sessions are windowed as their batches are ingested: each session keeps its
+ * {@link HrvWindowStream} in memory, and every appended batch stores the windows it
+ * completes as one more bucket. That state is per instance and dropped after
+ * {@code hrv.windows.live-idle}; a session that loses it, or whose batches reach this
+ * instance out of order, gets its windows recomputed from the stored series when it is
+ * closed.
+ */
+@Slf4j
+@Service
+public class HrvWindowService {
+
+    /** Tolerance when matching a batch's reserved start against the stream's clock. */
+    private static final double OFFSET_TOLERANCE_MS = 0.5;
+
+    private final HrvWindowBucketRepository bucketRepository;
+    private final HrvWindowAnalyzer analyzer;
+    private final int windowBeats;
+    private final int stepBeats;
+    private final int bucketSize;
+    private final Cache<String, LiveWindows> live;
+
+    public HrvWindowService(HrvWindowBucketRepository bucketRepository, HrvWindowAnalyzer analyzer,
+                            @Value("${hrv.windows.beats:100}") int windowBeats,
+                            @Value("${hrv.windows.step:10}") int stepBeats,
+                            @Value("${hrv.windows.bucket-size:1000}") int bucketSize,
+                            @Value("${hrv.windows.live-idle:PT30M}") Duration liveIdle,
+                            @Value("${hrv.windows.live-max-sessions:10000}") long liveMaxSessions) {
+        this.bucketRepository = bucketRepository;
+        this.analyzer = analyzer;
+        this.windowBeats = windowBeats;
+        this.stepBeats = stepBeats;
+        this.bucketSize = bucketSize;
+        this.live = Caffeine.newBuilder()
+                .maximumSize(liveMaxSessions)
+                .expireAfterAccess(liveIdle)
+                .build();
+    }
+
+    /**
+     * Windowing state of one live session. The lock is held from reserving a batch until its
+     * windows are stored, so batches are fed in the order they were placed on the time axis.
+     * A lock rather than a monitor, as the store is a blocking database write.
+     */
+    private static final class LiveWindows {
+        final ReentrantLock lock = new ReentrantLock();
+        final HrvWindowStream stream;
+        int nextSequence;
+        // Set once a batch could not be fed in order; the session is recomputed on close.
+        boolean broken;
+
+        LiveWindows(HrvWindowStream stream) {
+            this.stream = stream;
+        }
+    }
+
+    /**
+     * Stores a batch of a live session through {@code store} and then the rolling windows that
+     * the batch completes. Failing to window the batch does not fail the append; the session
+     * is then recomputed on close.
+     *
+     * @param store appends the batch to the recording, e.g. {@link RawDataChunkService#append}
+     * @return the result of {@code store}
+     */
+    public RawDataChunkService.AppendedBatch appendLive(RawData header, double[] values, int length,
+                                                        Supplier<RawDataChunkService.AppendedBatch> store) {
+        LiveWindows state = live.get(header.getId(), id -> new LiveWindows(new HrvWindowStream(windowBeats, stepBeats)));
+        state.lock.lock();
+        try {
+            RawDataChunkService.AppendedBatch appended = store.get();
+            if (state.broken) {
+                return appended;
+            }
+            if (Math.abs(appended.startOffsetMs() - state.stream.elapsedMs()) > OFFSET_TOLERANCE_MS) {
+                // A batch went through another instance, or this state was evicted and restarted.
+                state.broken = true;
+                return appended;
+            }
+            try {
+                HrvWindowSeries series = state.stream.feed(values, 0, length);
+                if (series.size() > 0) {
+                    bucketRepository.insert(bucket(header, series, 0, series.size(), state.nextSequence++));
+                }
+            }
+            catch (Exception e) {
+                state.broken = true;
+                log.error("Error computing live HRV windows for raw data {}: {}", header.getId(), e.getMessage());
+            }
+            return appended;
+        }
+        finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the live windowing of a closed session.
+     *
+     * @param header the header after closing, holding the session's final elapsed time
+     * @return whether the stored windows already cover the whole session; if not, the caller
+     *         recomputes them with {@link #save}
+     */
+    public boolean finishLive(RawData header) {
+        LiveWindows state = live.getIfPresent(header.getId());
+        if (state == null) {
+            return false;
+        }
+        state.lock.lock();
+        try {
+            live.invalidate(header.getId());
+            double elapsedMs = header.getStreamElapsedMs() != null ? header.getStreamElapsedMs() : 0;
+            return !state.broken && Math.abs(elapsedMs - state.stream.elapsedMs()) <= OFFSET_TOLERANCE_MS;
+        }
+        finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the stored windows of a recording with ones computed from its RR series.
+     */
+    public void save(RawData raw, double[] rrIntervalsMs) {
+        bucketRepository.deleteByRawDataId(raw.getId());
+        insert(buckets(raw, rrIntervalsMs));
+    }
+
+    /**
+     * Inserts buckets produced by {@link #buckets} for several recordings in one write.
+     */
+    public void insert(List<HrvWindowBucket> buckets) {
+        if (!buckets.isEmpty()) {
+            bucketRepository.insert(buckets);
+        }
+    }
+
+    /**
+     * Computes the window buckets of a recording without storing them, for callers that
+     * write several recordings at once.
+     */
+    public List<HrvWindowBucket> buckets(RawData raw, double[] rrIntervalsMs) {
+        List<HrvWindowBucket> buckets = new ArrayList<>();
+        if (rrIntervalsMs == null || raw.getMeasurementStartTime() == null) {
+            return buckets;
+        }
+        HrvWindowSeries series = analyzer.analyze(rrIntervalsMs, windowBeats, stepBeats);
+        for (int from = 0; from < series.size(); from += bucketSize) {
+            buckets.add(bucket(raw, series, from, Math.min(from + bucketSize, series.size()), buckets.size()));
+        }
+        return buckets;
+    }
+
+    private static HrvWindowBucket bucket(RawData raw, HrvWindowSeries series, int from, int to, int sequence) {
+        Instant start = raw.getMeasurementStartTime();
+        HrvWindowBucket bucket = new HrvWindowBucket();
+        bucket.setRawDataId(raw.getId());
+        bucket.setUserId(raw.getUserId());
+        bucket.setSequence(sequence);
+        bucket.setWindowBeats(series.windowBeats());
+        bucket.setStepBeats(series.stepBeats());
+        List<Instant> endTimes = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            endTimes.add(start.plusMillis(series.endOffsetsMs()[i]));
+        }
+        bucket.setEndTimes(endTimes);
+        bucket.setMeanRr(Arrays.copyOfRange(series.meanRr(), from, to));
+        bucket.setRmssd(Arrays.copyOfRange(series.rmssd(), from, to));
+        bucket.setSdnn(Arrays.copyOfRange(series.sdnn(), from, to));
+        bucket.setPnn50(Arrays.copyOfRange(series.pnn50(), from, to));
+        bucket.setMode(Arrays.copyOfRange(series.mode(), from, to));
+        bucket.setAmo(Arrays.copyOfRange(series.amo(), from, to));
+        bucket.setStressIndex(Arrays.copyOfRange(series.stressIndex(), from, to));
+        return bucket;
+    }
+
+    /**
+     * Reassembles the stored windows of a recording.
+     */
+    public HrvWindowsResponseDto find(String rawDataId) {
+        List<HrvWindowBucket> buckets = bucketRepository.findByRawDataIdOrderBySequenceAsc(rawDataId);
+        List<Instant> endTimes = new ArrayList<>();
+        for (HrvWindowBucket bucket : buckets) {
+            endTimes.addAll(bucket.getEndTimes());
+        }
+        HrvWindowBucket first = buckets.isEmpty() ? null : buckets.get(0);
+        return new HrvWindowsResponseDto(
+                rawDataId,
+                first != null ? first.getWindowBeats() : windowBeats,
+                first != null ? first.getStepBeats() : stepBeats,
+                endTimes,
+                column(buckets, HrvWindowBucket::getMeanRr),
+                column(buckets, HrvWindowBucket::getRmssd),
+                column(buckets, HrvWindowBucket::getSdnn),
+                column(buckets, HrvWindowBucket::getPnn50),
+                column(buckets, HrvWindowBucket::getMode),
+                column(buckets, HrvWindowBucket::getAmo),
+                column(buckets, HrvWindowBucket::getStressIndex)
+        );
+    }
+
+    private static List<Double> column(List<HrvWindowBucket> buckets, Function<HrvWindowBucket, double[]> getter) {
+        List<Double> values = new ArrayList<>();
+        for (HrvWindowBucket bucket : buckets) {
+            for (double value : getter.apply(bucket)) {
+                values.add(Double.isNaN(value) ? null : value);
+            }
+        }
+        return values;
+    }
+
+    public void delete(String rawDataId) {
+        live.invalidate(rawDataId);
+        bucketRepository.deleteByRawDataId(rawDataId);
+    }
+}
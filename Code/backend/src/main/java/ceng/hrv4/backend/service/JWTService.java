@@ -1,9 +1,18 @@
 package ceng.hrv4.backend.service;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 
@@ -13,6 +22,7 @@ import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 import java.util.UUID;
 import java.util.function.Function;
@@ -21,10 +31,22 @@ import java.util.function.Function;
 public class JWTService {
     private final SecretKey secretKey;
 
+    // Built once: JwtParser is immutable and thread-safe.
+    private final JwtParser parser;
+
+    // SHA-256 digest of a recently verified token -> its claims, kept until the token expires.
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
     @Value("${jwt.access-expiration-ms}")
     private long accessExpirationMs;
 
-    public JWTService(@Value("${jwt.secret}") String secret) {
+    /**
+     * Claims of a token whose signature and expiry have been checked.
+     */
+    public record VerifiedToken(String subject, Instant expiresAt) {}
+
+    public JWTService(@Value("${jwt.secret}") String secret,
+                      @Value("${jwt.verified-cache.max-size:10000}") long verifiedCacheSize) {
         try {
             this.secretKey = Keys.hmacShaKeyFor(
                     secret.getBytes(StandardCharsets.UTF_8)
@@ -33,6 +55,28 @@ public class JWTService {
         catch (Exception e) {
             throw new RuntimeException(e);
         }
+        this.parser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     public String generateToken(String username) {
@@ -53,9 +97,7 @@ public class JWTService {
 
     private <T> T extractClaim(String token, Function<Claims, T> claimResolver) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
+            Claims claims = parser
                     .parseSignedClaims(token)
                     .getPayload();
 
@@ -66,6 +108,47 @@ public class JWTService {
         }
     }
 
+    /**
+     * Verifies the signature and expiry of a token and returns its claims, parsing it at most
+     * once: tokens verified before are recognised by their digest until they expire.
+     *
+     * @return the verified claims, or null if the token is invalid or expired
+     */
+    public VerifiedToken validate(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return cached.expiresAt().isAfter(Instant.now()) ? cached : null;
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        }
+        catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            return null;
+        }
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(), claims.getExpiration().toInstant());
+        if (!verified.expiresAt().isAfter(Instant.now())) {
+            return null;
+        }
+        verifiedTokens.put(digest, verified);
+        return verified;
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public String extractUserName(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -0,0 +1,61 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.dto.response.PageResponseDto;
+import ceng.hrv4.backend.entity.BaseDocument;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Helpers for keyset (cursor) pagination on {@code _id}.
+ * A page is fetched with an {@code id > cursor} query sorted by id, so the cost of a page
+ * does not grow with its position and no count query is issued.
+ */
+final class KeysetPages {
+
+    static final int MAX_LIMIT = 500;
+
+    /** Smallest possible ObjectId, used as the cursor of the first page. */
+    static final String FIRST_CURSOR = "000000000000000000000000";
+
+    private KeysetPages() {}
+
+    /**
+     * @throws IllegalArgumentException if the cursor is not an id returned by a previous page
+     */
+    static String start(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST_CURSOR;
+        }
+        if (!ObjectId.isValid(cursor)) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return cursor;
+    }
+
+    static Pageable pageable(int limit) {
+        return PageRequest.of(0, clamp(limit), Sort.by(Sort.Direction.ASC, "id"));
+    }
+
+    static <E extends BaseDocument, D> PageResponseDto<D> page(List<E> entities, int limit, Function<E, D> mapper) {
+        return page(entities, limit, BaseDocument::getId, mapper);
+    }
+
+    /**
+     * Variant for projections that do not extend {@link BaseDocument}.
+     */
+    static <E, D> PageResponseDto<D> page(List<E> entities, int limit, Function<E, String> idOf, Function<E, D> mapper) {
+        String nextCursor = entities.size() == clamp(limit) && !entities.isEmpty()
+                ? idOf.apply(entities.get(entities.size() - 1))
+                : null;
+        return new PageResponseDto<>(entities.stream().map(mapper).toList(), nextCursor);
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+}
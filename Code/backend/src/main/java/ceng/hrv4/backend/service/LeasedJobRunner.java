@@ -0,0 +1,74 @@
+package ceng.hrv4.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Works through {@link LeasedJobs} one job at a time on a dedicated daemon thread.
+ *
+ * {@link #wakeUp()} only hands the work to that thread, so it can be called from request and
+ * scheduler threads; it does nothing while the thread is already draining the queue.
+ */
+@Slf4j
+public final class LeasedJobRunner<T> {
+
+    private final String name;
+    private final LeasedJobs<T> jobs;
+    private final Consumer<T> run;
+    private final ExecutorService runner;
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    /**
+     * @param name name of the thread, also used in the log
+     * @param run  runs a claimed job to its end; must record the outcome on the job itself
+     */
+    public LeasedJobRunner(String name, LeasedJobs<T> jobs, Consumer<T> run) {
+        this.name = name;
+        this.jobs = jobs;
+        this.run = run;
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void wakeUp() {
+        if (!busy.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            runner.execute(this::processPending);
+        }
+        catch (RejectedExecutionException e) {
+            busy.set(false);
+        }
+    }
+
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    /**
+     * Runs claimed jobs until none is left.
+     */
+    private void processPending() {
+        try {
+            T job;
+            while ((job = jobs.claim()) != null) {
+                run.accept(job);
+            }
+        }
+        catch (Exception e) {
+            log.warn("{} poll failed: {}", name, e.getMessage());
+        }
+        finally {
+            busy.set(false);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ceng.hrv4.backend.service;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A queue of background jobs stored in MongoDB that several instances work through together.
+ *
+ * A job is claimed atomically with one findAndModify, which sets it running and stamps
+ * {@code updated_at}. A running job whose {@code updated_at} did not move for the lease is
+ * taken to be left behind by a stopped instance and can be claimed again, so whoever runs a
+ * job must touch {@code updated_at} as it makes progress. Jobs are claimed oldest first; each
+ * claim increments {@code attempts} and the first one sets {@code started_at}.
+ *
+ * @param <T> the job entity, with {@code status}, {@code updated_at}, {@code started_at}
+ *            and {@code attempts} fields
+ */
+public final class LeasedJobs<T> {
+
+    private final MongoTemplate mongoTemplate;
+    private final Class<T> type;
+    private final Enum<?> queued;
+    private final Enum<?> running;
+    private final Duration lease;
+
+    /**
+     * @param queued  status of the jobs waiting to be claimed
+     * @param running status of the claimed jobs
+     */
+    public LeasedJobs(MongoTemplate mongoTemplate, Class<T> type, Enum<?> queued, Enum<?> running, Duration lease) {
+        this.mongoTemplate = mongoTemplate;
+        this.type = type;
+        this.queued = queued;
+        this.running = running;
+        this.lease = lease;
+    }
+
+    /**
+     * @return the claimed job as stored after the claim, or null if no job can be claimed
+     */
+    public T claim() {
+        Instant now = Instant.now();
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("status").is(queued),
+                Criteria.where("status").is(running).and("updated_at").lt(now.minus(lease))))
+                .with(Sort.by("updated_at"));
+        Update update = new Update()
+                .set("status", running)
+                .set("updated_at", now)
+                .min("started_at", now)
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), type);
+    }
+}
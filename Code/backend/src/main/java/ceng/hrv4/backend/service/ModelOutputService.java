@@ -1,9 +1,17 @@
 package ceng.hrv4.backend.service;
 
 import ceng.hrv4.backend.dto.request.ModelOutputRequestDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
 import ceng.hrv4.backend.dto.response.ModelOutputResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
+import ceng.hrv4.backend.dto.response.RescoringJobResponseDto;
+import ceng.hrv4.backend.dto.response.ScoringJobResponseDto;
+import ceng.hrv4.backend.dto.response.ScoringModelResponseDto;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface ModelOutputService {
@@ -33,6 +41,36 @@ public interface ModelOutputService {
      */
     public ResponseEntity<List<ModelOutputResponseDto>> findAllModelOutputs();
 
+    /**
+     * Gets one page of model outputs ordered by ID.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param limit The maximum number of outputs to return.
+     * @return The page, or 400 if the cursor is invalid.
+     */
+    public ResponseEntity<PageResponseDto<ModelOutputResponseDto>> findModelOutputPage(String cursor, int limit);
+
+    /**
+     * Gets one page of a user's model outputs ordered by ID.
+     * @param userId The ID of the user.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param limit The maximum number of outputs to return.
+     * @return The page, 404 if the user does not exist, or 400 if the cursor is invalid.
+     */
+    public ResponseEntity<PageResponseDto<ModelOutputResponseDto>> getOutputPageByUserId(String userId, String cursor, int limit);
+
+    /**
+     * Streams all model outputs as NDJSON.
+     * @return A response body writing one ModelOutputResponseDto per line.
+     */
+    public ResponseEntity<StreamingResponseBody> streamAllModelOutputs();
+
+    /**
+     * Streams a user's model outputs as NDJSON.
+     * @param userId The ID of the user.
+     * @return A response body writing one ModelOutputResponseDto per line, or 404 if the user does not exist.
+     */
+    public ResponseEntity<StreamingResponseBody> streamOutputsByUserId(String userId);
+
     /**
      * Deletes a model output by its measurement ID.
      * @param measurementId The ID of the measurement to delete.
@@ -43,9 +81,109 @@ public interface ModelOutputService {
 
     /**
      * Creates and saves a new ModelOutput from a DTO.
+     * The output of a measurement is owned by the scoring pipeline (ModelOutputWriter), which
+     * replaces it whenever the measurement is scored again. A client can only create the output
+     * of a measurement that has none yet, or one without a measurement id.
      * @param requestDto The DTO containing the input data.
-     * @return A ResponseEntity containing the saved DTO or an error message.
+     * @return A ResponseEntity containing the saved DTO, or 409 if the measurement already
+     *         has an output.
      */
     public ResponseEntity<ModelOutputResponseDto> createModelOutput(ModelOutputRequestDto requestDto);
 
-}
\ No newline at end of file
+    /**
+     * Creates several ModelOutputs with one bulk write. Items for a measurement that already
+     * has an output are rejected with 409, see {@link #createModelOutput}.
+     * @param requestDtos The DTOs containing the input data.
+     * @return The status of each item, 201 if all were created or 207 otherwise.
+     */
+    public ResponseEntity<BatchResponseDto> createModelOutputBatch(List<ModelOutputRequestDto> requestDtos);
+
+    /**
+     * Gets a user's model outputs for measurements taken within a time range, newest first.
+     * @param userId The ID of the user.
+     * @param from Start of the range (inclusive), or null for no lower bound.
+     * @param to End of the range (exclusive), or null for no upper bound.
+     * @param limit The maximum number of outputs to return.
+     * @return The outputs, 404 if the user does not exist, or 400 if the range is empty.
+     */
+    public ResponseEntity<List<ModelOutputResponseDto>> getOutputsInRange(String userId, Instant from, Instant to, int limit);
+
+    /**
+     * Streams a user's model outputs for measurements taken within a time range, newest first,
+     * through the reactive MongoDB driver.
+     * @param userId The ID of the user.
+     * @param from Start of the range (inclusive), or null for no lower bound.
+     * @param to End of the range (exclusive), or null for no upper bound.
+     * @return The outputs as they are read, 404 if the user does not exist, or 400 if the range is empty.
+     */
+    public ResponseEntity<Flux<ModelOutputResponseDto>> streamOutputsInRangeReactive(String userId, Instant from, Instant to);
+
+    /**
+     * Streams several users' model outputs for measurements taken within a time range through
+     * the reactive MongoDB driver, grouped by user and newest first within each user.
+     * Unknown user IDs contribute no outputs.
+     * @param userIds The IDs of the users.
+     * @param from Start of the range (inclusive), or null for no lower bound.
+     * @param to End of the range (exclusive), or null for no upper bound.
+     * @return The outputs as they are read, or 400 if the range is empty or too many users are given.
+     */
+    public ResponseEntity<Flux<ModelOutputResponseDto>> streamOutputsForUsersReactive(List<String> userIds, Instant from, Instant to);
+
+    /**
+     * Gets the state of a job computing a measurement's model output.
+     * @param jobId The ID of the scoring job.
+     * @return The job, or 404 if no such job exists.
+     */
+    public ResponseEntity<ScoringJobResponseDto> getScoringJob(String jobId);
+
+    /**
+     * Gets the jobs computing the model output of a measurement, newest first.
+     * A measurement is scored again each time its ProcessedData is saved.
+     * @param measurementId The ID of the measurement.
+     * @return The jobs, empty if the measurement was never queued.
+     */
+    public ResponseEntity<List<ScoringJobResponseDto>> getScoringJobsByMeasurementId(String measurementId);
+
+    /**
+     * Gets the scoring model new model outputs are computed with.
+     * @return The model's version and where it was loaded from.
+     */
+    public ResponseEntity<ScoringModelResponseDto> getScoringModel();
+
+    /**
+     * Loads the configured model file again and switches scoring to it.
+     * The current model stays in use if the file cannot be loaded.
+     * Only users listed in hrv.rescoring.operators may reload the model.
+     * @param requestedBy The email of the authenticated caller.
+     * @return The model now in use, 400 if the file is not a valid model,
+     *         403 if the caller is not a rescoring operator, or 409 if no model file is configured.
+     */
+    public ResponseEntity<ScoringModelResponseDto> reloadScoringModel(String requestedBy);
+
+    /**
+     * Starts scoring stored measurements again with the current scoring model, in the background.
+     * Existing outputs are replaced; outputs of measurements the model cannot score are kept.
+     * Only users listed in hrv.rescoring.operators may start a job.
+     * @param userId The ID of the user whose measurements to rescore, or null for all users.
+     * @param requestedBy The email of the authenticated caller.
+     * @return The queued job (202), 403 if the caller is not a rescoring operator,
+     *         404 if the user does not exist, or 409 if a rescoring job is already queued or running.
+     */
+    public ResponseEntity<RescoringJobResponseDto> startRescoring(String userId, String requestedBy);
+
+    /**
+     * Gets the progress of a rescoring job.
+     * @param jobId The ID of the rescoring job.
+     * @return The job, or 404 if no such job exists.
+     */
+    public ResponseEntity<RescoringJobResponseDto> getRescoringJob(String jobId);
+
+    /**
+     * Cancels a rescoring job. A running job stops after the batch in progress;
+     * outputs written until then are kept.
+     * @param jobId The ID of the rescoring job.
+     * @param requestedBy The email of the authenticated caller.
+     * @return The job, 403 if the caller is not a rescoring operator, or 404 if no such job exists.
+     */
+    public ResponseEntity<RescoringJobResponseDto> cancelRescoring(String jobId, String requestedBy);
+}
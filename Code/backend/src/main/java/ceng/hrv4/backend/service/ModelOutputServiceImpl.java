@@ -4,13 +4,26 @@ import ceng.hrv4.backend.entity.ModelOutput;
 import ceng.hrv4.backend.repository.ModelOutputRepository;
 import ceng.hrv4.backend.mapper.ModelOutputMapper;
 import ceng.hrv4.backend.dto.request.ModelOutputRequestDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
 import ceng.hrv4.backend.dto.response.ModelOutputResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
+import ceng.hrv4.backend.dto.response.RescoringJobResponseDto;
+import ceng.hrv4.backend.dto.response.ScoringJobResponseDto;
+import ceng.hrv4.backend.dto.response.ScoringModelResponseDto;
 import ceng.hrv4.backend.repository.UserRepository; // We need this to link the user
+import ceng.hrv4.backend.repository.reactive.ReactiveModelOutputRepository;
+import ceng.hrv4.backend.scoring.RescoringService;
+import ceng.hrv4.backend.scoring.ScoringModelRegistry;
+import ceng.hrv4.backend.scoring.ScoringQueue;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.time.Instant;
 import java.util.List;
 
 @Service
@@ -22,12 +35,37 @@ public class ModelOutputServiceImpl implements ModelOutputService {
     private final ModelOutputRepository modelOutputRepository;
     private final UserRepository userRepository;
     private final ModelOutputMapper modelOutputMapper;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final BatchInsertService batchInsertService;
+    // Non-blocking reads for the reactive streaming endpoints.
+    private final ReactiveModelOutputRepository reactiveModelOutputRepository;
+    private final FluxNdjsonStreamer fluxNdjsonStreamer;
+    // Jobs computing outputs from saved ProcessedData.
+    private final ScoringQueue scoringQueue;
+    private final ScoringModelRegistry scoringModelRegistry;
+    private final RescoringService rescoringService;
+    // Stress and health state rollups are fed from the outputs.
+    private final HrvRollupService hrvRollupService;
 
     @Autowired
-    public ModelOutputServiceImpl(ModelOutputRepository modelOutputRepository, UserRepository userRepository, ModelOutputMapper modelOutputMapper) {
+    public ModelOutputServiceImpl(ModelOutputRepository modelOutputRepository, UserRepository userRepository,
+                                  ModelOutputMapper modelOutputMapper, NdjsonStreamer ndjsonStreamer,
+                                  BatchInsertService batchInsertService,
+                                  ReactiveModelOutputRepository reactiveModelOutputRepository,
+                                  FluxNdjsonStreamer fluxNdjsonStreamer, ScoringQueue scoringQueue,
+                                  ScoringModelRegistry scoringModelRegistry, RescoringService rescoringService,
+                                  HrvRollupService hrvRollupService) {
         this.modelOutputRepository = modelOutputRepository;
         this.userRepository = userRepository;
         this.modelOutputMapper = modelOutputMapper;
+        this.ndjsonStreamer = ndjsonStreamer;
+        this.batchInsertService = batchInsertService;
+        this.reactiveModelOutputRepository = reactiveModelOutputRepository;
+        this.fluxNdjsonStreamer = fluxNdjsonStreamer;
+        this.scoringQueue = scoringQueue;
+        this.scoringModelRegistry = scoringModelRegistry;
+        this.rescoringService = rescoringService;
+        this.hrvRollupService = hrvRollupService;
     }
 
     /**
@@ -100,6 +138,80 @@ public class ModelOutputServiceImpl implements ModelOutputService {
         }
     }
 
+    /**
+     * Gets one page of model outputs ordered by ID.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param limit The maximum number of outputs to return.
+     * @return The page, or 400 if the cursor is invalid.
+     */
+    @Override
+    public ResponseEntity<PageResponseDto<ModelOutputResponseDto>> findModelOutputPage(String cursor, int limit) {
+        try {
+            List<ModelOutput> outputs = modelOutputRepository.findByIdGreaterThan(
+                    KeysetPages.start(cursor), KeysetPages.pageable(limit));
+            return new ResponseEntity<>(KeysetPages.page(outputs, limit, modelOutputMapper::toDto), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Gets one page of a user's model outputs ordered by ID.
+     * @param userId The ID of the user.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param limit The maximum number of outputs to return.
+     * @return The page, 404 if the user does not exist, or 400 if the cursor is invalid.
+     */
+    @Override
+    public ResponseEntity<PageResponseDto<ModelOutputResponseDto>> getOutputPageByUserId(String userId, String cursor, int limit) {
+        try {
+            if (!userRepository.existsById(userId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+
+            List<ModelOutput> outputs = modelOutputRepository.findByUserIdAndIdGreaterThan(
+                    userId, KeysetPages.start(cursor), KeysetPages.pageable(limit));
+            return new ResponseEntity<>(KeysetPages.page(outputs, limit, modelOutputMapper::toDto), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Streams all model outputs as NDJSON.
+     * @return A response body writing one ModelOutputResponseDto per line.
+     */
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamAllModelOutputs() {
+        return ndjsonStreamer.stream(modelOutputRepository::streamAllBy, modelOutputMapper::toDto);
+    }
+
+    /**
+     * Streams a user's model outputs as NDJSON.
+     * @param userId The ID of the user.
+     * @return A response body writing one ModelOutputResponseDto per line, or 404 if the user does not exist.
+     */
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamOutputsByUserId(String userId) {
+        try {
+            if (!userRepository.existsById(userId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+            return ndjsonStreamer.stream(() -> modelOutputRepository.streamByUserId(userId), modelOutputMapper::toDto);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Deletes a model output by its measurement ID.
      * @param measurementId The ID of the measurement to delete.
@@ -109,12 +221,14 @@ public class ModelOutputServiceImpl implements ModelOutputService {
     public ResponseEntity<String> deleteModelOutput(String measurementId) {
         try {
             // Business Logic: Check if it exists before trying to delete.
-            if (!modelOutputRepository.existsById(measurementId)) {
+            ModelOutput existing = modelOutputRepository.findById(measurementId).orElse(null);
+            if (existing == null) {
                 return new ResponseEntity<>("ModelOutput not found, cannot delete.", HttpStatus.NOT_FOUND);
             }
 
-            // Use the built-in 'deleteById' method.
+            // Use the built-in 'deleteById' method, then take its scores out of the rollups.
             modelOutputRepository.deleteById(measurementId);
+            hrvRollupService.replaceScores(List.of(existing), List.of());
             return new ResponseEntity<>("ModelOutput deleted successfully.", HttpStatus.OK);
         }
         catch (Exception e) {
@@ -124,8 +238,12 @@ public class ModelOutputServiceImpl implements ModelOutputService {
 
     /**
      * Creates and saves a new ModelOutput from a DTO.
+     * The output of a measurement is owned by the scoring pipeline (ModelOutputWriter), which
+     * replaces it whenever the measurement is scored again. A client can only create the output
+     * of a measurement that has none yet, or one without a measurement id.
      * @param requestDto The DTO containing the input data.
-     * @return A ResponseEntity containing the saved DTO or an error message.
+     * @return A ResponseEntity containing the saved DTO, or 409 if the measurement already
+     *         has an output.
      */
     @Override
     public ResponseEntity<ModelOutputResponseDto> createModelOutput(ModelOutputRequestDto requestDto) {
@@ -141,6 +259,7 @@ public class ModelOutputServiceImpl implements ModelOutputService {
 
              // 3. Save the new entity to the database
              ModelOutput savedOutput = modelOutputRepository.save(newOutput);
+             hrvRollupService.replaceScores(List.of(), List.of(savedOutput));
 
              // 4. Map the saved entity to a response DTO
              ModelOutputResponseDto responseDto = modelOutputMapper.toDto(savedOutput);
@@ -148,8 +267,255 @@ public class ModelOutputServiceImpl implements ModelOutputService {
              // 5. Return the new DTO with a 201 CREATED status
              return new ResponseEntity<>(responseDto, HttpStatus.CREATED);
          }
+         catch (DuplicateKeyException e) {
+             return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+         }
          catch (Exception e) {
              return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
          }
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates several ModelOutputs with one unordered bulk write.
+     * All referenced users are checked with a single query. As with a single output, an item
+     * for a measurement that already has an output is rejected with 409.
+     * @param requestDtos The DTOs containing the input data.
+     * @return The status of each item, 201 if all were created or 207 otherwise.
+     */
+    @Override
+    public ResponseEntity<BatchResponseDto> createModelOutputBatch(List<ModelOutputRequestDto> requestDtos) {
+        try {
+            if (batchInsertService.exceedsMaxSize(requestDtos)) {
+                return new ResponseEntity<>(null, HttpStatus.PAYLOAD_TOO_LARGE);
+            }
+            BatchResponseDto response = batchInsertService.insertAll(requestDtos, ModelOutputRequestDto::userId, true,
+                    modelOutputMapper::toEntity, inserted -> {
+                        hrvRollupService.replaceScores(List.of(), inserted);
+                        return List.of();
+                    }, ModelOutput.class);
+            return new ResponseEntity<>(response, BatchInsertService.status(response));
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Gets a user's model outputs for measurements taken within [from, to), newest first.
+     * @param userId The ID of the user.
+     * @param from Start of the range, or null.
+     * @param to End of the range, or null.
+     * @param limit The maximum number of outputs to return.
+     * @return The outputs in a ResponseEntity.
+     */
+    @Override
+    public ResponseEntity<List<ModelOutputResponseDto>> getOutputsInRange(String userId, Instant from, Instant to, int limit) {
+        try {
+            TimeRanges.check(from, to);
+            if (!userRepository.existsById(userId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+
+            List<ModelOutputResponseDto> dtos = modelOutputRepository.findInRange(
+                            userId, TimeRanges.from(from), TimeRanges.to(to), TimeRanges.limit(limit))
+                    .stream()
+                    .map(modelOutputMapper::toDto)
+                    .toList();
+            return new ResponseEntity<>(dtos, HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Streams a user's model outputs for measurements taken within [from, to), newest first,
+     * reading them through the reactive driver as the client consumes the response.
+     * @param userId The ID of the user.
+     * @param from Start of the range, or null.
+     * @param to End of the range, or null.
+     * @return The outputs as a Flux in a ResponseEntity.
+     */
+    @Override
+    public ResponseEntity<Flux<ModelOutputResponseDto>> streamOutputsInRangeReactive(String userId, Instant from, Instant to) {
+        try {
+            TimeRanges.check(from, to);
+            if (!userRepository.existsById(userId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+            return fluxNdjsonStreamer.stream(
+                    reactiveModelOutputRepository.findInRange(userId, TimeRanges.from(from), TimeRanges.to(to)),
+                    modelOutputMapper::toDto);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Streams several users' model outputs for measurements taken within [from, to) with one
+     * query, reading them through the reactive driver as the client consumes the response.
+     * @param userIds The IDs of the users.
+     * @param from Start of the range, or null.
+     * @param to End of the range, or null.
+     * @return The outputs as a Flux in a ResponseEntity, grouped by user.
+     */
+    @Override
+    public ResponseEntity<Flux<ModelOutputResponseDto>> streamOutputsForUsersReactive(List<String> userIds, Instant from, Instant to) {
+        try {
+            TimeRanges.check(from, to);
+            TimeRanges.checkUsers(userIds);
+            return fluxNdjsonStreamer.stream(
+                    reactiveModelOutputRepository.findForUsersInRange(userIds, TimeRanges.from(from), TimeRanges.to(to)),
+                    modelOutputMapper::toDto);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Gets the state of a job computing a measurement's model output.
+     * @param jobId The ID of the scoring job.
+     * @return The job, or 404 if no such job exists.
+     */
+    @Override
+    public ResponseEntity<ScoringJobResponseDto> getScoringJob(String jobId) {
+        try {
+            return scoringQueue.find(jobId)
+                    .map(job -> new ResponseEntity<>(job, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(null, HttpStatus.NOT_FOUND));
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Gets the jobs computing the model output of a measurement, newest first.
+     * @param measurementId The ID of the measurement.
+     * @return The jobs, empty if the measurement was never queued.
+     */
+    @Override
+    public ResponseEntity<List<ScoringJobResponseDto>> getScoringJobsByMeasurementId(String measurementId) {
+        try {
+            return new ResponseEntity<>(scoringQueue.findByMeasurementId(measurementId), HttpStatus.OK);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Gets the scoring model new model outputs are computed with.
+     * @return The model's version and where it was loaded from.
+     */
+    @Override
+    public ResponseEntity<ScoringModelResponseDto> getScoringModel() {
+        try {
+            return new ResponseEntity<>(scoringModelRegistry.describe(), HttpStatus.OK);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Loads the configured model file again and switches scoring to it.
+     * @param requestedBy The email of the authenticated caller.
+     * @return The model now in use, 400 if the file is not a valid model,
+     *         403 if the caller is not a rescoring operator, or 409 if no model file is configured.
+     */
+    @Override
+    public ResponseEntity<ScoringModelResponseDto> reloadScoringModel(String requestedBy) {
+        try {
+            if (!rescoringService.isOperator(requestedBy)) {
+                return new ResponseEntity<>(null, HttpStatus.FORBIDDEN);
+            }
+            scoringModelRegistry.reload();
+            return new ResponseEntity<>(scoringModelRegistry.describe(), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (IllegalStateException e) {
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Starts scoring stored measurements again with the current scoring model, in the background.
+     * @param userId The ID of the user whose measurements to rescore, or null for all users.
+     * @param requestedBy The email of the authenticated caller.
+     * @return The queued job (202), 403 if the caller is not a rescoring operator,
+     *         404 if the user does not exist, or 409 if a rescoring job is already queued or running.
+     */
+    @Override
+    public ResponseEntity<RescoringJobResponseDto> startRescoring(String userId, String requestedBy) {
+        try {
+            if (!rescoringService.isOperator(requestedBy)) {
+                return new ResponseEntity<>(null, HttpStatus.FORBIDDEN);
+            }
+            if (userId != null && !userRepository.existsById(userId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(rescoringService.start(userId), HttpStatus.ACCEPTED);
+        }
+        catch (IllegalStateException e) {
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Gets the progress of a rescoring job.
+     * @param jobId The ID of the rescoring job.
+     * @return The job, or 404 if no such job exists.
+     */
+    @Override
+    public ResponseEntity<RescoringJobResponseDto> getRescoringJob(String jobId) {
+        try {
+            return rescoringService.find(jobId)
+                    .map(job -> new ResponseEntity<>(job, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(null, HttpStatus.NOT_FOUND));
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Cancels a rescoring job.
+     * @param jobId The ID of the rescoring job.
+     * @param requestedBy The email of the authenticated caller.
+     * @return The job, 403 if the caller is not a rescoring operator, or 404 if no such job exists.
+     */
+    @Override
+    public ResponseEntity<RescoringJobResponseDto> cancelRescoring(String jobId, String requestedBy) {
+        try {
+            if (!rescoringService.isOperator(requestedBy)) {
+                return new ResponseEntity<>(null, HttpStatus.FORBIDDEN);
+            }
+            return rescoringService.cancel(jobId)
+                    .map(job -> new ResponseEntity<>(job, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(null, HttpStatus.NOT_FOUND));
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package ceng.hrv4.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a repository {@link Stream} to the response as NDJSON, one DTO per line.
+ *
+ * The stream is opened lazily on the response thread and closed when writing ends, so the
+ * underlying Mongo cursor is held only while the client reads and memory use stays
+ * constant regardless of how many documents match.
+ */
+@Component
+public class NdjsonStreamer {
+
+    private static final int FLUSH_EVERY = 256;
+
+    private final ObjectWriter writer;
+    private final ObjectMapper objectMapper;
+
+    public NdjsonStreamer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writer();
+    }
+
+    public <E, D> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<E>> source, Function<E, D> mapper) {
+        StreamingResponseBody body = out -> {
+            try (Stream<E> stream = source.get();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                Iterator<E> it = stream.iterator();
+                int written = 0;
+                while (it.hasNext()) {
+                    writer.writeValue(generator, mapper.apply(it.next()));
+                    generator.writeRaw('\n');
+                    if (++written % FLUSH_EVERY == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -1,9 +1,16 @@
 package ceng.hrv4.backend.service;
 
 import ceng.hrv4.backend.dto.request.ProcessedDataRequestDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
+import ceng.hrv4.backend.dto.response.HrvRollupResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
 import ceng.hrv4.backend.dto.response.ProcessedDataResponseDto;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -20,6 +27,14 @@ public interface ProcessedDataService {
      */
     ResponseEntity<ProcessedDataResponseDto> saveProcessedData(ProcessedDataRequestDto dto);
 
+    /**
+     * Saves several ProcessedData records with one bulk write.
+     *
+     * @param dtos the request DTOs containing processed measurement details
+     * @return the status of each item, 201 if all were created or 207 otherwise
+     */
+    ResponseEntity<BatchResponseDto> saveProcessedDataBatch(List<ProcessedDataRequestDto> dtos);
+
     /**
      * Finds a ProcessedData record by its measurement ID.
      *
@@ -49,4 +64,83 @@ public interface ProcessedDataService {
      * @return a list of ProcessedDataResponseDto objects for that user
      */
     ResponseEntity<List<ProcessedDataResponseDto>> findProcessedDataByUserID(String UserId);
+
+    /**
+     * Retrieves one page of ProcessedData records ordered by ID.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param limit  the maximum number of records to return
+     * @return the page, or 400 if the cursor is invalid
+     */
+    ResponseEntity<PageResponseDto<ProcessedDataResponseDto>> findProcessedDataPage(String cursor, int limit);
+
+    /**
+     * Retrieves one page of a user's ProcessedData records ordered by ID.
+     *
+     * @param UserId the ID of the user whose processed measurements are requested
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param limit  the maximum number of records to return
+     * @return the page, 404 if the user does not exist, or 400 if the cursor is invalid
+     */
+    ResponseEntity<PageResponseDto<ProcessedDataResponseDto>> findProcessedDataPageByUserID(String UserId, String cursor, int limit);
+
+    /**
+     * Streams all ProcessedData records as NDJSON.
+     *
+     * @return a response body writing one ProcessedDataResponseDto per line
+     */
+    ResponseEntity<StreamingResponseBody> streamAllProcessedData();
+
+    /**
+     * Streams a user's ProcessedData records as NDJSON.
+     *
+     * @param UserId the ID of the user whose processed measurements are requested
+     * @return a response body writing one ProcessedDataResponseDto per line, or 404 if the user does not exist
+     */
+    ResponseEntity<StreamingResponseBody> streamProcessedDataByUserID(String UserId);
+
+    /**
+     * Retrieves a user's ProcessedData records measured within a time range, newest first.
+     *
+     * @param UserId the ID of the user whose processed measurements are requested
+     * @param from   start of the range (inclusive), or null for no lower bound
+     * @param to     end of the range (exclusive), or null for no upper bound
+     * @param limit  the maximum number of records to return
+     * @return the records, 404 if the user does not exist, or 400 if the range is empty
+     */
+    ResponseEntity<List<ProcessedDataResponseDto>> findProcessedDataInRange(String UserId, Instant from, Instant to, int limit);
+
+    /**
+     * Streams a user's ProcessedData records measured within a time range, newest first,
+     * through the reactive MongoDB driver.
+     *
+     * @param UserId the ID of the user whose processed measurements are requested
+     * @param from   start of the range (inclusive), or null for no lower bound
+     * @param to     end of the range (exclusive), or null for no upper bound
+     * @return the records as they are read, 404 if the user does not exist, or 400 if the range is empty
+     */
+    ResponseEntity<Flux<ProcessedDataResponseDto>> streamProcessedDataInRangeReactive(String UserId, Instant from, Instant to);
+
+    /**
+     * Streams several users' ProcessedData records measured within a time range through the
+     * reactive MongoDB driver, grouped by user and newest first within each user.
+     * Unknown user IDs contribute no records.
+     *
+     * @param UserIds the IDs of the users whose processed measurements are requested
+     * @param from    start of the range (inclusive), or null for no lower bound
+     * @param to      end of the range (exclusive), or null for no upper bound
+     * @return the records as they are read, or 400 if the range is empty or too many users are given
+     */
+    ResponseEntity<Flux<ProcessedDataResponseDto>> streamProcessedDataForUsersReactive(List<String> UserIds, Instant from, Instant to);
+
+    /**
+     * Retrieves a user's precomputed daily, weekly or monthly HRV aggregates.
+     *
+     * @param UserId the ID of the user whose rollups are requested
+     * @param period "day", "week" or "month"
+     * @param from   first day of the range (inclusive)
+     * @param to     last day of the range (exclusive)
+     * @return the rollups ordered by bucket start, 404 if the user does not exist, or 400 for an invalid range or period
+     */
+    ResponseEntity<List<HrvRollupResponseDto>> findRollupsByUserID(String UserId, String period, LocalDate from, LocalDate to);
 }
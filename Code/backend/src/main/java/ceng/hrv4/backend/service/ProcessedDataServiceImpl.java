@@ -1,15 +1,25 @@
 package ceng.hrv4.backend.service;
 
 import ceng.hrv4.backend.dto.request.ProcessedDataRequestDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
+import ceng.hrv4.backend.dto.response.HrvRollupResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
 import ceng.hrv4.backend.dto.response.ProcessedDataResponseDto;
+import ceng.hrv4.backend.entity.HrvRollup;
 import ceng.hrv4.backend.entity.ProcessedData;
 import ceng.hrv4.backend.mapper.ProcessedDataMapper;
 import ceng.hrv4.backend.repository.ProcessedDataRepository;
 import ceng.hrv4.backend.repository.UserRepository;
+import ceng.hrv4.backend.repository.reactive.ReactiveProcessedDataRepository;
+import ceng.hrv4.backend.scoring.ScoringQueue;
 import org.springframework.stereotype.Service;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.time.LocalDate;
+import java.time.Instant;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,6 +33,12 @@ public class ProcessedDataServiceImpl implements ProcessedDataService {
     private final ProcessedDataRepository processedDataRepository;
     private final ProcessedDataMapper processedDataMapper;
     private final UserRepository userRepository;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final BatchInsertService batchInsertService;
+    private final HrvRollupService hrvRollupService;
+    private final ReactiveProcessedDataRepository reactiveProcessedDataRepository;
+    private final FluxNdjsonStreamer fluxNdjsonStreamer;
+    private final ScoringQueue scoringQueue;
 
     /**
      * Constructor injection for required dependencies.
@@ -30,11 +46,27 @@ public class ProcessedDataServiceImpl implements ProcessedDataService {
      * @param processedDataRepository repository for ProcessedData entity
      * @param processedDataMapper mapper for converting between DTO and entity
      * @param userRepository repository for User entity
+     * @param ndjsonStreamer writer for streamed responses
+     * @param batchInsertService bulk writer for batch requests
+     * @param hrvRollupService maintains the daily, weekly and monthly rollups
+     * @param reactiveProcessedDataRepository non-blocking repository for the reactive read endpoints
+     * @param fluxNdjsonStreamer writer for reactive streamed responses
+     * @param scoringQueue queues the computation of the ModelOutput of each saved record
      */
-    public ProcessedDataServiceImpl(ProcessedDataRepository processedDataRepository, ProcessedDataMapper processedDataMapper, UserRepository userRepository) {
+    public ProcessedDataServiceImpl(ProcessedDataRepository processedDataRepository, ProcessedDataMapper processedDataMapper,
+                                    UserRepository userRepository, NdjsonStreamer ndjsonStreamer,
+                                    BatchInsertService batchInsertService, HrvRollupService hrvRollupService,
+                                    ReactiveProcessedDataRepository reactiveProcessedDataRepository,
+                                    FluxNdjsonStreamer fluxNdjsonStreamer, ScoringQueue scoringQueue) {
         this.processedDataRepository = processedDataRepository;
         this.processedDataMapper = processedDataMapper;
         this.userRepository = userRepository;
+        this.ndjsonStreamer = ndjsonStreamer;
+        this.batchInsertService = batchInsertService;
+        this.hrvRollupService = hrvRollupService;
+        this.reactiveProcessedDataRepository = reactiveProcessedDataRepository;
+        this.fluxNdjsonStreamer = fluxNdjsonStreamer;
+        this.scoringQueue = scoringQueue;
     }
 
     /**
@@ -48,6 +80,8 @@ public class ProcessedDataServiceImpl implements ProcessedDataService {
         try {
             ProcessedData entity = processedDataMapper.toEntity(dto);
             ProcessedData saved = processedDataRepository.save(entity);
+            hrvRollupService.add(List.of(saved));
+            scoringQueue.enqueue(List.of(saved));
             return new ResponseEntity<>(processedDataMapper.toDto(saved), HttpStatus.CREATED);
         }
         catch (Exception e) {
@@ -55,6 +89,34 @@ public class ProcessedDataServiceImpl implements ProcessedDataService {
         }
     }
 
+    /**
+     * Saves several ProcessedData records with one unordered bulk write.
+     * All referenced users are checked with a single query.
+     *
+     * @param dtos request DTOs containing processed measurement details
+     * @return status of each item
+     */
+    @Override
+    public ResponseEntity<BatchResponseDto> saveProcessedDataBatch(List<ProcessedDataRequestDto> dtos) {
+        try {
+            if (batchInsertService.exceedsMaxSize(dtos)) {
+                return new ResponseEntity<>(null, HttpStatus.PAYLOAD_TOO_LARGE);
+            }
+            BatchResponseDto response = batchInsertService.insertAll(dtos, ProcessedDataRequestDto::userId, true,
+                    processedDataMapper::toEntity,
+                    inserted -> {
+                        hrvRollupService.add(inserted);
+                        scoringQueue.enqueue(inserted);
+                        return List.of();
+                    },
+                    ProcessedData.class);
+            return new ResponseEntity<>(response, BatchInsertService.status(response));
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Finds a ProcessedData record by its measurement ID.
      *
@@ -102,11 +164,13 @@ public class ProcessedDataServiceImpl implements ProcessedDataService {
     @Override
     public ResponseEntity<String> deleteProcessedDataByMeasurementID(String MeasurementID) {
         try {
-            if (!processedDataRepository.existsById(MeasurementID)) {
+            ProcessedData existing = processedDataRepository.findById(MeasurementID).orElse(null);
+            if (existing == null) {
                 return new ResponseEntity<>("Processed Data not found with id" + MeasurementID + ", cannot delete.", HttpStatus.NOT_FOUND);
             }
 
             processedDataRepository.deleteById(MeasurementID);
+            hrvRollupService.remove(List.of(existing));
             return new ResponseEntity<>("Processed Data deleted successfully.", HttpStatus.OK);
         }
         catch (Exception e) {
@@ -138,4 +202,200 @@ public class ProcessedDataServiceImpl implements ProcessedDataService {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    /**
+     * Retrieves one page of ProcessedData records ordered by ID.
+     *
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param limit maximum number of records to return
+     * @return page of ProcessedDataResponseDto objects
+     */
+    @Override
+    public ResponseEntity<PageResponseDto<ProcessedDataResponseDto>> findProcessedDataPage(String cursor, int limit) {
+        try {
+            List<ProcessedData> entities = processedDataRepository.findByIdGreaterThan(
+                    KeysetPages.start(cursor), KeysetPages.pageable(limit));
+            return new ResponseEntity<>(KeysetPages.page(entities, limit, processedDataMapper::toDto), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Retrieves one page of a user's ProcessedData records ordered by ID.
+     *
+     * @param UserId ID of the user whose processed measurements are requested
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param limit maximum number of records to return
+     * @return page of ProcessedDataResponseDto objects for that user
+     */
+    @Override
+    public ResponseEntity<PageResponseDto<ProcessedDataResponseDto>> findProcessedDataPageByUserID(String UserId, String cursor, int limit) {
+        try {
+            if (!userRepository.existsById(UserId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+
+            List<ProcessedData> entities = processedDataRepository.findByUserIdAndIdGreaterThan(
+                    UserId, KeysetPages.start(cursor), KeysetPages.pageable(limit));
+            return new ResponseEntity<>(KeysetPages.page(entities, limit, processedDataMapper::toDto), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Streams all ProcessedData records as NDJSON.
+     *
+     * @return response body writing one ProcessedDataResponseDto per line
+     */
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamAllProcessedData() {
+        return ndjsonStreamer.stream(processedDataRepository::streamAllBy, processedDataMapper::toDto);
+    }
+
+    /**
+     * Streams a user's ProcessedData records as NDJSON.
+     *
+     * @param UserId ID of the user whose processed measurements are requested
+     * @return response body writing one ProcessedDataResponseDto per line
+     */
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamProcessedDataByUserID(String UserId) {
+        try {
+            if (!userRepository.existsById(UserId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+            return ndjsonStreamer.stream(() -> processedDataRepository.streamByUserId(UserId), processedDataMapper::toDto);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Retrieves a user's rollups of one period, for buckets starting on a day within [from, to).
+     *
+     * @param UserId ID of the user whose rollups are requested
+     * @param period "day", "week" or "month"
+     * @param from first day of the range (inclusive)
+     * @param to last day of the range (exclusive)
+     * @return rollups ordered by bucket start
+     */
+    @Override
+    public ResponseEntity<List<HrvRollupResponseDto>> findRollupsByUserID(String UserId, String period, LocalDate from, LocalDate to) {
+        HrvRollup.Period rollupPeriod;
+        try {
+            rollupPeriod = HrvRollup.Period.valueOf(period.toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        if (!from.isBefore(to)) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        try {
+            if (!userRepository.existsById(UserId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(hrvRollupService.findRange(UserId, rollupPeriod, from, to), HttpStatus.OK);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Retrieves a user's ProcessedData records measured within [from, to), newest first.
+     *
+     * @param UserId ID of the user whose processed measurements are requested
+     * @param from start of the range, or null
+     * @param to end of the range, or null
+     * @param limit maximum number of records to return
+     * @return list of ProcessedDataResponseDto objects
+     */
+    @Override
+    public ResponseEntity<List<ProcessedDataResponseDto>> findProcessedDataInRange(String UserId, Instant from, Instant to, int limit) {
+        try {
+            TimeRanges.check(from, to);
+            if (!userRepository.existsById(UserId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+
+            List<ProcessedDataResponseDto> dtos = processedDataRepository.findInRange(
+                            UserId, TimeRanges.from(from), TimeRanges.to(to), TimeRanges.limit(limit))
+                    .stream()
+                    .map(processedDataMapper::toDto)
+                    .toList();
+            return new ResponseEntity<>(dtos, HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Streams a user's ProcessedData records measured within [from, to), newest first,
+     * reading them through the reactive driver as the client consumes the response.
+     *
+     * @param UserId ID of the user whose processed measurements are requested
+     * @param from start of the range, or null
+     * @param to end of the range, or null
+     * @return Flux of ProcessedDataResponseDto objects
+     */
+    @Override
+    public ResponseEntity<Flux<ProcessedDataResponseDto>> streamProcessedDataInRangeReactive(String UserId, Instant from, Instant to) {
+        try {
+            TimeRanges.check(from, to);
+            if (!userRepository.existsById(UserId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+            return fluxNdjsonStreamer.stream(
+                    reactiveProcessedDataRepository.findInRange(UserId, TimeRanges.from(from), TimeRanges.to(to)),
+                    processedDataMapper::toDto);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Streams several users' ProcessedData records measured within [from, to) with one query,
+     * reading them through the reactive driver as the client consumes the response.
+     *
+     * @param UserIds IDs of the users whose processed measurements are requested
+     * @param from start of the range, or null
+     * @param to end of the range, or null
+     * @return Flux of ProcessedDataResponseDto objects, grouped by user
+     */
+    @Override
+    public ResponseEntity<Flux<ProcessedDataResponseDto>> streamProcessedDataForUsersReactive(List<String> UserIds, Instant from, Instant to) {
+        try {
+            TimeRanges.check(from, to);
+            TimeRanges.checkUsers(UserIds);
+            return fluxNdjsonStreamer.stream(
+                    reactiveProcessedDataRepository.findForUsersInRange(UserIds, TimeRanges.from(from), TimeRanges.to(to)),
+                    processedDataMapper::toDto);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
 }
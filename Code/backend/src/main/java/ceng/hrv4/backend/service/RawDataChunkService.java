@@ -0,0 +1,287 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.entity.RawDataChunk;
+import ceng.hrv4.backend.repository.RawDataChunkRepository;
+import ceng.hrv4.backend.repository.RawDataRepository;
+import ceng.hrv4.backend.repository.RawDataRepositoryCustom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits long RR recordings into fixed-duration chunks and reassembles them.
+ *
+ * Recordings longer than {@code hrv.raw-data.chunk-duration} are stored as a RawData
+ * header without RR intervals plus one {@link RawDataChunk} per period, keyed by the
+ * chunk's start time. Shorter recordings keep their RR intervals inline. The read
+ * methods hide this distinction from callers.
+ */
+@Service
+public class RawDataChunkService {
+
+    private static final Instant OPEN_START = Instant.EPOCH;
+    private static final Instant OPEN_END = Instant.ofEpochMilli(Long.MAX_VALUE);
+
+    private final RawDataChunkRepository chunkRepository;
+    private final RawDataRepository rawDataRepository;
+    private final long chunkDurationMs;
+
+    public RawDataChunkService(RawDataChunkRepository chunkRepository, RawDataRepository rawDataRepository,
+                               @Value("${hrv.raw-data.chunk-duration:PT1H}") Duration chunkDuration) {
+        this.chunkRepository = chunkRepository;
+        this.rawDataRepository = rawDataRepository;
+        this.chunkDurationMs = chunkDuration.toMillis();
+    }
+
+    /**
+     * Whether the series is long enough to be stored in chunks.
+     */
+    public boolean shouldChunk(RawData raw, double[] rrIntervalsMs) {
+        if (raw.getMeasurementStartTime() == null || rrIntervalsMs == null) {
+            return false;
+        }
+        double totalMs = 0;
+        for (double rr : rrIntervalsMs) {
+            totalMs += advanceMs(rr);
+            if (totalMs > chunkDurationMs) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores the chunks produced by {@link #split} for a RawData header that has just been saved.
+     */
+    public List<RawDataChunk> saveChunks(RawData saved, List<RawDataChunk> chunks) {
+        for (RawDataChunk chunk : chunks) {
+            chunk.setRawDataId(saved.getId());
+        }
+        return chunkRepository.insert(chunks);
+    }
+
+    /**
+     * Appends a batch of streamed RR intervals to a chunked recording. The chunk sequence
+     * numbers and the batch's range of the time axis are reserved atomically on the header,
+     * so concurrent appends never overlap and the batch becomes visible to readers as soon
+     * as its chunks are inserted.
+     *
+     * @param values buffer holding the batch
+     * @param length number of valid values in the buffer
+     * @return where the batch was placed on the recording's time axis
+     * @throws IllegalStateException if the recording no longer exists or has been closed
+     */
+    public AppendedBatch append(RawData header, double[] values, int length) {
+        double[] batch = Arrays.copyOf(values, length);
+        double durationMs = 0;
+        for (double rr : batch) {
+            durationMs += advanceMs(rr);
+        }
+
+        List<RawDataChunk> chunks = split(header, batch, 0, Instant.EPOCH);
+        RawDataRepositoryCustom.ChunkReservation reservation =
+                rawDataRepository.reserveChunks(header.getId(), chunks.size(), length, durationMs);
+        if (reservation == null) {
+            throw new IllegalStateException("Raw data " + header.getId() + " is closed or no longer exists");
+        }
+        // Chunks were split relative to the epoch; move them to where the batch begins.
+        long batchStartMs = header.getMeasurementStartTime().toEpochMilli() + Math.round(reservation.startOffsetMs());
+        for (RawDataChunk chunk : chunks) {
+            chunk.setSequence(reservation.firstSequence() + chunk.getSequence());
+            chunk.setStartTime(chunk.getStartTime().plusMillis(batchStartMs));
+            chunk.setEndTime(chunk.getEndTime().plusMillis(batchStartMs));
+        }
+        chunkRepository.insert(chunks);
+        return new AppendedBatch(reservation.startOffsetMs(), Instant.ofEpochMilli(batchStartMs + Math.round(durationMs)));
+    }
+
+    /**
+     * Where a batch stored by {@link #append} lies on the recording's time axis.
+     *
+     * @param startOffsetMs start of the batch relative to the measurement start (ms)
+     * @param endTime       time at which the last interval of the batch ends
+     */
+    public record AppendedBatch(double startOffsetMs, Instant endTime) {
+    }
+
+    /**
+     * Merges the chunks of a closed stream session into full-duration chunks and returns
+     * its RR series. Every append stores at least one chunk, so a session fed by many small
+     * requests would otherwise keep one short chunk per request.
+     *
+     * Nothing is merged while a reserved chunk is still missing, i.e. an append that started
+     * before the session was closed has not inserted it yet.
+     */
+    public double[] compact(RawData header) {
+        List<RawDataChunk> chunks = chunkRepository.findByRawDataIdOrderBySequenceAsc(header.getId());
+        double[] values = concat(chunks);
+        int reserved = header.getChunkCount() != null ? header.getChunkCount() : 0;
+        if (chunks.size() != reserved) {
+            return values;
+        }
+
+        List<RawDataChunk> merged = split(header, values, reserved);
+        if (merged.size() >= chunks.size()) {
+            return values;
+        }
+        // Insert before deleting, so readers never see the recording with beats missing.
+        chunkRepository.insert(merged);
+        chunkRepository.deleteAll(chunks);
+        rawDataRepository.setChunkCount(header.getId(), reserved + merged.size());
+        return values;
+    }
+
+    /**
+     * Splits the series into chunks that each cover at most the configured duration,
+     * starting at the measurement start time.
+     *
+     * @param firstSequence sequence number of the first chunk produced
+     */
+    public List<RawDataChunk> split(RawData raw, double[] rrIntervalsMs, int firstSequence) {
+        return split(raw, rrIntervalsMs, firstSequence, raw.getMeasurementStartTime());
+    }
+
+    /**
+     * Splits the series into chunks starting at {@code startTime}, which is the time the
+     * first interval of the series begins.
+     */
+    public List<RawDataChunk> split(RawData raw, double[] rrIntervalsMs, int firstSequence, Instant startTime) {
+        List<RawDataChunk> chunks = new ArrayList<>();
+        long startMs = startTime.toEpochMilli();
+        double elapsedMs = 0;
+        double chunkStartMs = 0;
+        int chunkFrom = 0;
+
+        for (int i = 0; i < rrIntervalsMs.length; i++) {
+            if (elapsedMs - chunkStartMs >= chunkDurationMs) {
+                chunks.add(chunk(raw, firstSequence + chunks.size(), rrIntervalsMs, chunkFrom, i,
+                        startMs + chunkStartMs, startMs + elapsedMs));
+                chunkFrom = i;
+                chunkStartMs = elapsedMs;
+            }
+            elapsedMs += advanceMs(rrIntervalsMs[i]);
+        }
+        if (chunkFrom < rrIntervalsMs.length) {
+            chunks.add(chunk(raw, firstSequence + chunks.size(), rrIntervalsMs, chunkFrom, rrIntervalsMs.length,
+                    startMs + chunkStartMs, startMs + elapsedMs));
+        }
+        return chunks;
+    }
+
+    private static RawDataChunk chunk(RawData raw, int sequence, double[] rrIntervalsMs, int from, int to,
+                                      double startMs, double endMs) {
+        RawDataChunk chunk = new RawDataChunk();
+        chunk.setRawDataId(raw.getId());
+        chunk.setUserId(raw.getUserId());
+        chunk.setSequence(sequence);
+        chunk.setStartTime(Instant.ofEpochMilli(Math.round(startMs)));
+        chunk.setEndTime(Instant.ofEpochMilli(Math.round(endMs)));
+        chunk.setRrIntervalsMs(Arrays.copyOfRange(rrIntervalsMs, from, to));
+        return chunk;
+    }
+
+    /**
+     * Reassembles the full RR series of a recording.
+     */
+    public double[] readAll(RawData raw) {
+        if (!raw.isChunked()) {
+            return raw.getRrIntervalsMs() != null ? raw.getRrIntervalsMs() : new double[0];
+        }
+        return concat(chunkRepository.findByRawDataIdOrderBySequenceAsc(raw.getId()));
+    }
+
+    private static double[] concat(List<RawDataChunk> chunks) {
+        int total = 0;
+        for (RawDataChunk chunk : chunks) {
+            total += chunk.getRrIntervalsMs().length;
+        }
+        double[] values = new double[total];
+        int offset = 0;
+        for (RawDataChunk chunk : chunks) {
+            double[] part = chunk.getRrIntervalsMs();
+            System.arraycopy(part, 0, values, offset, part.length);
+            offset += part.length;
+        }
+        return values;
+    }
+
+    /**
+     * Returns the RR intervals of the beats that end within [from, to).
+     * Only the chunks overlapping the window are loaded.
+     *
+     * @param from window start, or null for the start of the recording
+     * @param to   window end, or null for the end of the recording
+     */
+    public double[] readRange(RawData raw, Instant from, Instant to) {
+        if (from == null && to == null) {
+            return readAll(raw);
+        }
+        Instant start = from != null ? from : OPEN_START;
+        Instant end = to != null ? to : OPEN_END;
+
+        if (!raw.isChunked()) {
+            double[] values = raw.getRrIntervalsMs();
+            if (values == null || raw.getMeasurementStartTime() == null) {
+                return new double[0];
+            }
+            return slice(values, raw.getMeasurementStartTime().toEpochMilli(), start, end);
+        }
+
+        List<RawDataChunk> chunks = chunkRepository.findOverlapping(raw.getId(), start, end);
+        double[][] parts = new double[chunks.size()][];
+        int total = 0;
+        for (int c = 0; c < parts.length; c++) {
+            RawDataChunk chunk = chunks.get(c);
+            parts[c] = slice(chunk.getRrIntervalsMs(), chunk.getStartTime().toEpochMilli(), start, end);
+            total += parts[c].length;
+        }
+        double[] values = new double[total];
+        int offset = 0;
+        for (double[] part : parts) {
+            System.arraycopy(part, 0, values, offset, part.length);
+            offset += part.length;
+        }
+        return values;
+    }
+
+    private static double[] slice(double[] rrIntervalsMs, long startMs, Instant from, Instant to) {
+        double fromMs = from.toEpochMilli();
+        double toMs = to.toEpochMilli();
+
+        double beatEnd = startMs;
+        int first = -1;
+        int last = rrIntervalsMs.length;
+        for (int i = 0; i < rrIntervalsMs.length; i++) {
+            beatEnd += advanceMs(rrIntervalsMs[i]);
+            if (first < 0 && beatEnd >= fromMs) {
+                first = i;
+            }
+            if (beatEnd >= toMs) {
+                last = i;
+                break;
+            }
+        }
+        if (first < 0 || first >= last) {
+            return new double[0];
+        }
+        return Arrays.copyOfRange(rrIntervalsMs, first, last);
+    }
+
+    /**
+     * Time a beat adds to the recording clock. Missing (NaN) and non-positive intervals add
+     * nothing, so one bad value does not shift every later beat.
+     */
+    private static double advanceMs(double rr) {
+        return rr > 0 && Double.isFinite(rr) ? rr : 0;
+    }
+
+    public void deleteChunks(String rawDataId) {
+        chunkRepository.deleteByRawDataId(rawDataId);
+    }
+}
@@ -1,9 +1,18 @@
 package ceng.hrv4.backend.service;
 
 import ceng.hrv4.backend.dto.request.RawDataRequestDto;
+import ceng.hrv4.backend.dto.request.StreamSessionRequestDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
+import ceng.hrv4.backend.dto.response.HrvWindowsResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
 import ceng.hrv4.backend.dto.response.RawDataResponseDto;
+import ceng.hrv4.backend.dto.response.RrIntervalsResponseDto;
+import ceng.hrv4.backend.dto.response.StreamIngestResponseDto;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
 
 /**
@@ -20,6 +29,15 @@ public interface RawDataService {
      */
     ResponseEntity<RawDataResponseDto> saveRawData(RawDataRequestDto dto);
 
+    /**
+     * Saves several RawData records with one bulk write, chunking long recordings and
+     * computing the ProcessedData of each one like {@link #saveRawData} does.
+     *
+     * @param dtos the request DTOs containing measurement details
+     * @return the status of each item, 201 if all were created or 207 otherwise
+     */
+    ResponseEntity<BatchResponseDto> saveRawDataBatch(List<RawDataRequestDto> dtos);
+
     /**
      * Finds a RawData record by its measurement ID.
      *
@@ -36,7 +54,8 @@ public interface RawDataService {
     ResponseEntity<List<RawDataResponseDto>> findAllRawData();
 
     /**
-     * Deletes a RawData record by its measurement ID.
+     * Deletes a RawData record by its measurement ID, together with the ProcessedData derived
+     * from it and that data's contribution to the rollups.
      *
      * @param MeasurementID the unique identifier of the measurement to delete
      */
@@ -49,4 +68,100 @@ public interface RawDataService {
      * @return a list of RawDataResponseDto objects for that user
      */
     ResponseEntity<List<RawDataResponseDto>> findRawDataByUserID(String UserId);
+
+    /**
+     * Retrieves one page of RawData records ordered by ID.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param limit the maximum number of records to return
+     * @return the page, or 400 if the cursor is invalid
+     */
+    ResponseEntity<PageResponseDto<RawDataResponseDto>> findRawDataPage(String cursor, int limit);
+
+    /**
+     * Retrieves one page of a user's RawData records ordered by ID.
+     *
+     * @param UserId the ID of the user whose measurements are requested
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param limit the maximum number of records to return
+     * @return the page, 404 if the user does not exist, or 400 if the cursor is invalid
+     */
+    ResponseEntity<PageResponseDto<RawDataResponseDto>> findRawDataPageByUserID(String UserId, String cursor, int limit);
+
+    /**
+     * Streams all RawData records as NDJSON.
+     *
+     * @return a response body writing one RawDataResponseDto per line
+     */
+    ResponseEntity<StreamingResponseBody> streamAllRawData();
+
+    /**
+     * Streams a user's RawData records as NDJSON.
+     *
+     * @param UserId the ID of the user whose measurements are requested
+     * @return a response body writing one RawDataResponseDto per line, or 404 if the user does not exist
+     */
+    ResponseEntity<StreamingResponseBody> streamRawDataByUserID(String UserId);
+
+    /**
+     * Returns the RR intervals of a measurement, optionally limited to a time window.
+     * For chunked recordings only the chunks overlapping the window are read.
+     *
+     * @param MeasurementID the unique identifier of the measurement
+     * @param from start of the window (inclusive), or null for the start of the recording
+     * @param to end of the window (exclusive), or null for the end of the recording
+     * @return the RR intervals of the beats ending within the window
+     */
+    ResponseEntity<RrIntervalsResponseDto> findRrIntervals(String MeasurementID, Instant from, Instant to);
+
+    /**
+     * Retrieves a user's RawData records that started within a time range, newest first.
+     *
+     * @param UserId the ID of the user whose measurements are requested
+     * @param from   start of the range (inclusive), or null for no lower bound
+     * @param to     end of the range (exclusive), or null for no upper bound
+     * @param limit  the maximum number of records to return
+     * @return the records, 404 if the user does not exist, or 400 if the range is empty
+     */
+    ResponseEntity<List<RawDataResponseDto>> findRawDataInRange(String UserId, Instant from, Instant to, int limit);
+
+    /**
+     * Returns the rolling-window metrics (RMSSD, SDNN, pNN50, mode, AMo and the Baevsky
+     * stress index) that were computed when the measurement was stored.
+     *
+     * @param MeasurementID the unique identifier of the measurement
+     * @return the windows in recording order
+     */
+    ResponseEntity<HrvWindowsResponseDto> findHrvWindows(String MeasurementID);
+
+    /**
+     * Opens a streamed recording: creates an empty RawData header that samples are appended to.
+     *
+     * @param dto the request DTO containing the session details
+     * @return the created RawData header as a response DTO
+     */
+    ResponseEntity<RawDataResponseDto> startStreamSession(StreamSessionRequestDto dto);
+
+    /**
+     * Appends the RR samples of an NDJSON body to a streamed recording in batched chunk writes.
+     * The body is consumed incrementally, so it can be a long-lived chunked upload.
+     * Concurrent calls for the same recording get consecutive time ranges. The rolling
+     * windows completed by each batch are stored with it, so they can be read while the
+     * session is still open.
+     *
+     * @param MeasurementID the unique identifier of the streamed recording
+     * @param body the NDJSON request body
+     * @return how many samples were received and stored; 409 once the session is closed
+     */
+    ResponseEntity<StreamIngestResponseDto> appendStream(String MeasurementID, InputStream body);
+
+    /**
+     * Closes a streamed recording, merges the short chunks left by small appends and computes
+     * its ProcessedData from all received samples. The rolling windows are recomputed only
+     * if they could not be kept up to date during the session. Later appends are rejected.
+     *
+     * @param MeasurementID the unique identifier of the streamed recording
+     * @return the RawData header as a response DTO; 409 if the session is already closed
+     */
+    ResponseEntity<RawDataResponseDto> closeStreamSession(String MeasurementID);
 }
@@ -1,28 +1,68 @@
 package ceng.hrv4.backend.service;
 
+import ceng.hrv4.backend.analysis.HrvMetrics;
+import ceng.hrv4.backend.analysis.HrvMetricsEngine;
 import ceng.hrv4.backend.dto.request.RawDataRequestDto;
+import ceng.hrv4.backend.dto.request.StreamSessionRequestDto;
+import ceng.hrv4.backend.dto.response.BatchResponseDto;
+import ceng.hrv4.backend.dto.response.HrvWindowsResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
 import ceng.hrv4.backend.dto.response.RawDataResponseDto;
+import ceng.hrv4.backend.dto.response.RrIntervalsResponseDto;
+import ceng.hrv4.backend.dto.response.StreamIngestResponseDto;
+import ceng.hrv4.backend.entity.HrvWindowBucket;
+import ceng.hrv4.backend.entity.ProcessedData;
 import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.entity.RawDataChunk;
+import ceng.hrv4.backend.mapper.ProcessedDataMapper;
 import ceng.hrv4.backend.mapper.RawDataMapper;
+import ceng.hrv4.backend.repository.ProcessedDataRepository;
 import ceng.hrv4.backend.repository.RawDataRepository;
 import ceng.hrv4.backend.repository.UserRepository;
+import ceng.hrv4.backend.repository.projection.RawDataSummary;
+import ceng.hrv4.backend.repository.projection.UserTimeZone;
+import ceng.hrv4.backend.scoring.ScoringQueue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * Implementation of RawDataService interface.
  * Provides CRUD operations and user-specific queries for RawData entities.
  */
+@Slf4j
 @Service
 public class RawDataServiceImpl implements RawDataService {
 
     private final RawDataRepository rawDataRepository;
     private final RawDataMapper rawDataMapper;
     private final UserRepository userRepository;
+    private final ProcessedDataRepository processedDataRepository;
+    private final ProcessedDataMapper processedDataMapper;
+    private final HrvMetricsEngine hrvMetricsEngine;
+    private final RawDataChunkService rawDataChunkService;
+    private final ObjectMapper objectMapper;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final BatchInsertService batchInsertService;
+    private final HrvWindowService hrvWindowService;
+    private final HrvRollupService hrvRollupService;
+    private final ScoringQueue scoringQueue;
+    private final int ingestBatchSize;
 
     /**
      * Constructor injection for required dependencies.
@@ -30,15 +70,45 @@ public class RawDataServiceImpl implements RawDataService {
      * @param rawDataRepository repository for RawData entity
      * @param rawDataMapper mapper for converting between DTO and entity
      * @param userRepository repository for User entity
+     * @param processedDataRepository repository for the ProcessedData derived from each upload
+     * @param processedDataMapper mapper for building ProcessedData from computed metrics
+     * @param hrvMetricsEngine engine computing HRV metrics from the RR intervals
+     * @param rawDataChunkService splits long recordings into chunks and reads them back
+     * @param objectMapper JSON factory used to parse streamed NDJSON bodies
+     * @param ndjsonStreamer writer for streamed listing responses
+     * @param batchInsertService bulk writer for batch uploads
+     * @param hrvWindowService computes and stores the rolling-window metrics of each upload
+     * @param hrvRollupService folds the ProcessedData of each upload into the user's rollups
+     * @param scoringQueue queues the computation of the ModelOutput of each upload
+     * @param ingestBatchSize number of streamed samples buffered per chunk write
      */
-    public RawDataServiceImpl(RawDataRepository rawDataRepository, RawDataMapper rawDataMapper, UserRepository userRepository) {
+    public RawDataServiceImpl(RawDataRepository rawDataRepository, RawDataMapper rawDataMapper, UserRepository userRepository,
+                              ProcessedDataRepository processedDataRepository, ProcessedDataMapper processedDataMapper,
+                              HrvMetricsEngine hrvMetricsEngine, RawDataChunkService rawDataChunkService,
+                              ObjectMapper objectMapper, NdjsonStreamer ndjsonStreamer,
+                              BatchInsertService batchInsertService, HrvWindowService hrvWindowService,
+                              HrvRollupService hrvRollupService, ScoringQueue scoringQueue,
+                              @Value("${hrv.ingest.batch-size:1024}") int ingestBatchSize) {
         this.rawDataRepository = rawDataRepository;
         this.rawDataMapper = rawDataMapper;
         this.userRepository = userRepository;
+        this.processedDataRepository = processedDataRepository;
+        this.processedDataMapper = processedDataMapper;
+        this.hrvMetricsEngine = hrvMetricsEngine;
+        this.rawDataChunkService = rawDataChunkService;
+        this.objectMapper = objectMapper;
+        this.ndjsonStreamer = ndjsonStreamer;
+        this.batchInsertService = batchInsertService;
+        this.hrvWindowService = hrvWindowService;
+        this.hrvRollupService = hrvRollupService;
+        this.scoringQueue = scoringQueue;
+        this.ingestBatchSize = ingestBatchSize;
     }
 
     /**
-     * Saves a new RawData record into the database.
+     * Saves a new RawData record into the database and stores the HRV metrics
+     * computed from its RR intervals as the matching ProcessedData record.
+     * Recordings longer than the configured chunk duration are stored in chunks.
      *
      * @param dto request DTO containing measurement details
      * @return saved RawData as a response DTO
@@ -47,7 +117,29 @@ public class RawDataServiceImpl implements RawDataService {
     public ResponseEntity<RawDataResponseDto> saveRawData(RawDataRequestDto dto) {
         try {
             RawData entity = rawDataMapper.toEntity(dto);
+            double[] rrIntervals = entity.getRrIntervalsMs();
+            boolean chunked = rawDataChunkService.shouldChunk(entity, rrIntervals);
+            List<RawDataChunk> chunks = List.of();
+            if (chunked) {
+                chunks = rawDataChunkService.split(entity, rrIntervals, 0);
+                entity.setRrIntervalsMs(null);
+                entity.setChunked(true);
+                entity.setChunkCount(chunks.size());
+            }
+
             RawData saved = rawDataRepository.save(entity);
+            if (chunked) {
+                try {
+                    rawDataChunkService.saveChunks(saved, chunks);
+                }
+                catch (Exception e) {
+                    // Do not leave a header without its RR intervals behind.
+                    rawDataRepository.deleteById(saved.getId());
+                    throw e;
+                }
+            }
+            saveProcessedData(saved, rrIntervals);
+            saveHrvWindows(saved, rrIntervals);
             return new ResponseEntity<>(rawDataMapper.toDto(saved), HttpStatus.CREATED);
         }
         catch (Exception e) {
@@ -55,6 +147,136 @@ public class RawDataServiceImpl implements RawDataService {
         }
     }
 
+    /**
+     * Saves several RawData records with one unordered bulk write. All referenced users are
+     * checked with a single query. Long recordings are chunked as in {@link #saveRawData}, and
+     * the ProcessedData of the stored recordings is inserted in one more write.
+     *
+     * @param dtos request DTOs containing measurement details
+     * @return status of each item
+     */
+    @Override
+    public ResponseEntity<BatchResponseDto> saveRawDataBatch(List<RawDataRequestDto> dtos) {
+        try {
+            if (batchInsertService.exceedsMaxSize(dtos)) {
+                return new ResponseEntity<>(null, HttpStatus.PAYLOAD_TOO_LARGE);
+            }
+            Map<RawData, double[]> rrIntervals = new IdentityHashMap<>();
+            Map<RawData, List<RawDataChunk>> chunks = new IdentityHashMap<>();
+
+            BatchResponseDto response = batchInsertService.insertAll(dtos, RawDataRequestDto::userId, true,
+                    dto -> {
+                        RawData entity = rawDataMapper.toEntity(dto);
+                        double[] rr = entity.getRrIntervalsMs();
+                        rrIntervals.put(entity, rr);
+                        if (rawDataChunkService.shouldChunk(entity, rr)) {
+                            List<RawDataChunk> parts = rawDataChunkService.split(entity, rr, 0);
+                            entity.setRrIntervalsMs(null);
+                            entity.setChunked(true);
+                            entity.setChunkCount(parts.size());
+                            chunks.put(entity, parts);
+                        }
+                        return entity;
+                    },
+                    inserted -> {
+                        List<RawData> failed = new ArrayList<>();
+                        List<ProcessedData> processed = new ArrayList<>();
+                        List<HrvWindowBucket> windows = new ArrayList<>();
+                        Map<String, String> zones = timeZones(inserted.stream().map(RawData::getUserId).toList());
+                        for (RawData raw : inserted) {
+                            List<RawDataChunk> parts = chunks.get(raw);
+                            if (parts != null) {
+                                try {
+                                    rawDataChunkService.saveChunks(raw, parts);
+                                }
+                                catch (Exception e) {
+                                    // Do not leave a header without its RR intervals behind.
+                                    log.error("Error saving chunks of raw data {}: {}", raw.getId(), e.getMessage());
+                                    rawDataRepository.deleteById(raw.getId());
+                                    failed.add(raw);
+                                    continue;
+                                }
+                            }
+                            HrvMetrics metrics = hrvMetricsEngine.compute(rrIntervals.get(raw),
+                                    raw.getMeasurementStartTime(), zones.get(raw.getUserId()));
+                            processed.add(processedDataMapper.toEntity(raw, metrics));
+                            windows.addAll(hrvWindowService.buckets(raw, rrIntervals.get(raw)));
+                        }
+                        try {
+                            processedDataRepository.insert(processed);
+                            hrvRollupService.add(processed);
+                            scoringQueue.enqueue(processed);
+                        }
+                        catch (Exception e) {
+                            log.error("Error saving processed data of raw data batch: {}", e.getMessage());
+                        }
+                        try {
+                            hrvWindowService.insert(windows);
+                        }
+                        catch (Exception e) {
+                            log.error("Error saving HRV windows of raw data batch: {}", e.getMessage());
+                        }
+                        return failed;
+                    },
+                    RawData.class);
+            return new ResponseEntity<>(response, BatchInsertService.status(response));
+        }
+        catch (Exception e) {
+            log.error("Error saving raw data batch: {}", e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Computes the HRV metrics of a stored measurement and saves them as ProcessedData.
+     * A failure here is logged but does not reject the raw upload.
+     */
+    private void saveProcessedData(RawData raw, double[] rrIntervals) {
+        try {
+            String zone = timeZones(List.of(raw.getUserId())).get(raw.getUserId());
+            HrvMetrics metrics = hrvMetricsEngine.compute(rrIntervals, raw.getMeasurementStartTime(), zone);
+            ProcessedData processed = processedDataMapper.toEntity(raw, metrics);
+            List<ProcessedData> previous = processedDataRepository.findByMeasurementId(raw.getId());
+            if (!previous.isEmpty()) {
+                processedDataRepository.deleteAll(previous);
+                hrvRollupService.remove(previous);
+            }
+            List<ProcessedData> saved = List.of(processedDataRepository.save(processed));
+            hrvRollupService.add(saved);
+            scoringQueue.enqueue(saved);
+        }
+        catch (Exception e) {
+            log.error("Error computing processed data for raw data {}: {}", raw.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Looks up the time zones the users' recordings are split into day and night by.
+     * Users without one are left out, the metrics engine then uses the default zone.
+     */
+    private Map<String, String> timeZones(Collection<String> userIds) {
+        Map<String, String> zones = new HashMap<>();
+        for (UserTimeZone user : userRepository.findTimeZonesByIdIn(userIds)) {
+            if (user.getTimeZone() != null) {
+                zones.put(user.getId(), user.getTimeZone());
+            }
+        }
+        return zones;
+    }
+
+    /**
+     * Computes the rolling-window metrics of a stored measurement and saves them next to it.
+     * Like the ProcessedData, a failure here does not fail the upload.
+     */
+    private void saveHrvWindows(RawData raw, double[] rrIntervals) {
+        try {
+            hrvWindowService.save(raw, rrIntervals);
+        }
+        catch (Exception e) {
+            log.error("Error computing HRV windows for raw data {}: {}", raw.getId(), e.getMessage());
+        }
+    }
+
     /**
      * Finds a RawData record by its measurement ID.
      *
@@ -83,7 +305,7 @@ public class RawDataServiceImpl implements RawDataService {
     @Override
     public ResponseEntity<List<RawDataResponseDto>> findAllRawData() {
         try {
-            List<RawDataResponseDto> dtos = rawDataRepository.findAll()
+            List<RawDataResponseDto> dtos = rawDataRepository.findSummariesBy()
                     .stream()
                     .map(rawDataMapper::toDto)
                     .collect(Collectors.toList());
@@ -95,7 +317,8 @@ public class RawDataServiceImpl implements RawDataService {
     }
 
     /**
-     * Deletes a RawData record by its measurement ID.
+     * Deletes a RawData record by its measurement ID, together with its chunks, window buckets
+     * and the ProcessedData derived from it, whose contribution is removed from the rollups.
      *
      * @param MeasurementID unique identifier of the measurement to delete
      */
@@ -106,6 +329,13 @@ public class RawDataServiceImpl implements RawDataService {
                 return new ResponseEntity<>("Raw Data not found with id" + MeasurementID + ", cannot delete.", HttpStatus.NOT_FOUND);
             }
 
+            List<ProcessedData> processed = processedDataRepository.findByMeasurementId(MeasurementID);
+            if (!processed.isEmpty()) {
+                processedDataRepository.deleteAll(processed);
+                hrvRollupService.remove(processed);
+            }
+            rawDataChunkService.deleteChunks(MeasurementID);
+            hrvWindowService.delete(MeasurementID);
             rawDataRepository.deleteById(MeasurementID);
             return new ResponseEntity<>("Raw Data deleted successfully.", HttpStatus.OK);
         }
@@ -127,7 +357,7 @@ public class RawDataServiceImpl implements RawDataService {
                 return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
             }
 
-            List<RawDataResponseDto> dtos = rawDataRepository.findByUserId(UserId)
+            List<RawDataResponseDto> dtos = rawDataRepository.findSummariesByUserId(UserId)
                     .stream()
                     .map(rawDataMapper::toDto)
                     .collect(Collectors.toList());
@@ -138,4 +368,299 @@ public class RawDataServiceImpl implements RawDataService {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    /**
+     * Retrieves one page of RawData records ordered by ID.
+     *
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param limit maximum number of records to return
+     * @return page of RawDataResponseDto objects
+     */
+    @Override
+    public ResponseEntity<PageResponseDto<RawDataResponseDto>> findRawDataPage(String cursor, int limit) {
+        try {
+            List<RawDataSummary> summaries = rawDataRepository.findSummariesByIdGreaterThan(
+                    KeysetPages.start(cursor), KeysetPages.pageable(limit));
+            return new ResponseEntity<>(KeysetPages.page(summaries, limit, RawDataSummary::getId, rawDataMapper::toDto), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            log.error("Error paging raw data: {}", e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Retrieves one page of a user's RawData records ordered by ID.
+     *
+     * @param UserId ID of the user whose measurements are requested
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param limit maximum number of records to return
+     * @return page of RawDataResponseDto objects for that user
+     */
+    @Override
+    public ResponseEntity<PageResponseDto<RawDataResponseDto>> findRawDataPageByUserID(String UserId, String cursor, int limit) {
+        try {
+            if (!userRepository.existsById(UserId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+
+            List<RawDataSummary> summaries = rawDataRepository.findSummariesByUserIdAndIdGreaterThan(
+                    UserId, KeysetPages.start(cursor), KeysetPages.pageable(limit));
+            return new ResponseEntity<>(KeysetPages.page(summaries, limit, RawDataSummary::getId, rawDataMapper::toDto), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            log.error("Error paging raw data by userId: {}", e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Streams all RawData records as NDJSON.
+     *
+     * @return response body writing one RawDataResponseDto per line
+     */
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamAllRawData() {
+        return ndjsonStreamer.stream(rawDataRepository::streamSummariesBy, rawDataMapper::toDto);
+    }
+
+    /**
+     * Streams a user's RawData records as NDJSON.
+     *
+     * @param UserId ID of the user whose measurements are requested
+     * @return response body writing one RawDataResponseDto per line
+     */
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamRawDataByUserID(String UserId) {
+        try {
+            if (!userRepository.existsById(UserId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+            return ndjsonStreamer.stream(() -> rawDataRepository.streamSummariesByUserId(UserId), rawDataMapper::toDto);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Returns the RR intervals of a measurement, optionally limited to a time window.
+     *
+     * @param MeasurementID unique identifier of the measurement
+     * @param from start of the window (inclusive), or null
+     * @param to end of the window (exclusive), or null
+     * @return RR intervals of the beats ending within the window
+     */
+    @Override
+    public ResponseEntity<RrIntervalsResponseDto> findRrIntervals(String MeasurementID, Instant from, Instant to) {
+        try {
+            RawData entity = rawDataRepository.findById(MeasurementID).orElse(null);
+            if (entity == null) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+            if (from != null && to != null && !from.isBefore(to)) {
+                return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+            }
+
+            double[] values = rawDataChunkService.readRange(entity, from, to);
+            return new ResponseEntity<>(new RrIntervalsResponseDto(MeasurementID, from, to, values), HttpStatus.OK);
+        }
+        catch (Exception e) {
+            log.error("Error reading RR intervals of raw data {}: {}", MeasurementID, e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Returns the rolling-window metrics computed when the measurement was stored.
+     *
+     * @param MeasurementID unique identifier of the measurement
+     * @return the windows in recording order
+     */
+    @Override
+    public ResponseEntity<HrvWindowsResponseDto> findHrvWindows(String MeasurementID) {
+        try {
+            if (!rawDataRepository.existsById(MeasurementID)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(hrvWindowService.find(MeasurementID), HttpStatus.OK);
+        }
+        catch (Exception e) {
+            log.error("Error reading HRV windows of raw data {}: {}", MeasurementID, e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Opens a streamed recording.
+     *
+     * @param dto request DTO containing the session details
+     * @return the created RawData header as a response DTO
+     */
+    @Override
+    public ResponseEntity<RawDataResponseDto> startStreamSession(StreamSessionRequestDto dto) {
+        try {
+            RawData saved = rawDataRepository.save(rawDataMapper.toEntity(dto));
+            return new ResponseEntity<>(rawDataMapper.toDto(saved), HttpStatus.CREATED);
+        }
+        catch (Exception e) {
+            log.error("Error starting stream session: {}", e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Appends streamed RR samples to a recording. Samples are buffered and written as one
+     * chunk insert per {@code hrv.ingest.batch-size} samples, together with the rolling
+     * windows each batch completes. If the body turns out to be
+     * malformed, the samples read before the error are kept and 400 is returned.
+     *
+     * @param MeasurementID unique identifier of the streamed recording
+     * @param body NDJSON request body
+     * @return how many samples were received and stored
+     */
+    @Override
+    public ResponseEntity<StreamIngestResponseDto> appendStream(String MeasurementID, InputStream body) {
+        try {
+            RawData header = rawDataRepository.findById(MeasurementID).orElse(null);
+            if (header == null) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+            if (!header.isChunked() || header.getMeasurementStartTime() == null) {
+                return new ResponseEntity<>(new StreamIngestResponseDto(MeasurementID, 0, 0, header.getMeasurementEndTime(),
+                        "Raw data is not a stream session."), HttpStatus.CONFLICT);
+            }
+            if (header.isStreamClosed()) {
+                return new ResponseEntity<>(new StreamIngestResponseDto(MeasurementID, 0, 0, header.getMeasurementEndTime(),
+                        "Stream session is closed."), HttpStatus.CONFLICT);
+            }
+
+            Instant cursor = header.getMeasurementEndTime() != null ? header.getMeasurementEndTime() : header.getMeasurementStartTime();
+            double[] batch = new double[ingestBatchSize];
+            int size = 0;
+            long received = 0;
+            long stored = 0;
+            String error = null;
+            HttpStatus status = HttpStatus.OK;
+
+            try (RrSampleReader reader = new RrSampleReader(objectMapper.getFactory().createParser(body))) {
+                double sample;
+                while (!Double.isNaN(sample = reader.next())) {
+                    received++;
+                    batch[size++] = sample;
+                    if (size == batch.length) {
+                        cursor = appendBatch(header, batch, size);
+                        stored += size;
+                        size = 0;
+                    }
+                }
+            }
+            catch (JsonProcessingException e) {
+                error = "Malformed sample after " + received + " samples: " + e.getOriginalMessage();
+                status = HttpStatus.BAD_REQUEST;
+            }
+            catch (IllegalStateException e) {
+                // Closed while this request was still streaming.
+                error = "Stream session was closed after " + stored + " stored samples.";
+                status = HttpStatus.CONFLICT;
+                size = 0;
+            }
+            if (size > 0) {
+                try {
+                    cursor = appendBatch(header, batch, size);
+                    stored += size;
+                }
+                catch (IllegalStateException e) {
+                    error = "Stream session was closed after " + stored + " stored samples.";
+                    status = HttpStatus.CONFLICT;
+                }
+            }
+
+            StreamIngestResponseDto response = new StreamIngestResponseDto(MeasurementID, received, stored, cursor, error);
+            return new ResponseEntity<>(response, status);
+        }
+        catch (Exception e) {
+            log.error("Error appending stream to raw data {}: {}", MeasurementID, e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Stores one batch of a stream session and the rolling windows it completes.
+     *
+     * @return the time at which the batch ends
+     */
+    private Instant appendBatch(RawData header, double[] batch, int size) {
+        return hrvWindowService.appendLive(header, batch, size,
+                () -> rawDataChunkService.append(header, batch, size)).endTime();
+    }
+
+    /**
+     * Closes a streamed recording, merges its chunks and computes its ProcessedData.
+     * The rolling windows were stored as the batches came in; they are only recomputed if
+     * that was interrupted. Samples sent after this are rejected.
+     *
+     * @param MeasurementID unique identifier of the streamed recording
+     * @return the RawData header as a response DTO; 409 if it is not an open stream session
+     */
+    @Override
+    public ResponseEntity<RawDataResponseDto> closeStreamSession(String MeasurementID) {
+        try {
+            RawData header = rawDataRepository.closeStream(MeasurementID);
+            if (header == null) {
+                HttpStatus status = rawDataRepository.existsById(MeasurementID) ? HttpStatus.CONFLICT : HttpStatus.NOT_FOUND;
+                return new ResponseEntity<>(null, status);
+            }
+
+            double[] rrIntervals = rawDataChunkService.compact(header);
+            saveProcessedData(header, rrIntervals);
+            if (!hrvWindowService.finishLive(header)) {
+                saveHrvWindows(header, rrIntervals);
+            }
+            return new ResponseEntity<>(rawDataMapper.toDto(header), HttpStatus.OK);
+        }
+        catch (Exception e) {
+            log.error("Error closing stream session {}: {}", MeasurementID, e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Retrieves a user's RawData records that started within [from, to), newest first.
+     * The RR intervals are not loaded.
+     *
+     * @param UserId ID of the user whose measurements are requested
+     * @param from start of the range, or null
+     * @param to end of the range, or null
+     * @param limit maximum number of records to return
+     * @return list of RawDataResponseDto objects
+     */
+    @Override
+    public ResponseEntity<List<RawDataResponseDto>> findRawDataInRange(String UserId, Instant from, Instant to, int limit) {
+        try {
+            TimeRanges.check(from, to);
+            if (!userRepository.existsById(UserId)) {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+
+            List<RawDataResponseDto> dtos = rawDataRepository.findSummariesInRange(
+                            UserId, TimeRanges.from(from), TimeRanges.to(to), TimeRanges.limit(limit))
+                    .stream()
+                    .map(rawDataMapper::toDto)
+                    .toList();
+            return new ResponseEntity<>(dtos, HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
 }
@@ -0,0 +1,103 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.entity.Activity;
+import ceng.hrv4.backend.entity.User;
+import ceng.hrv4.backend.repository.ActivityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the bounded list of a user's latest activities kept on the user document.
+ *
+ * New activities are added with a single {@code $push} that sorts the list by creation time
+ * and trims it to {@code hrv.users.recent-activities} entries, so the user document keeps a
+ * fixed size however many activities the user records. A deleted activity is handled by
+ * rebuilding the list from the activities collection. Like the HRV rollups, a failed update
+ * is logged and does not fail the write of the activity. A size of 0 turns the list off.
+ */
+@Slf4j
+@Service
+public class RecentActivityService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ActivityRepository activityRepository;
+    private final int size;
+
+    public RecentActivityService(MongoTemplate mongoTemplate, ActivityRepository activityRepository,
+                                 @Value("${hrv.users.recent-activities:5}") int size) {
+        this.mongoTemplate = mongoTemplate;
+        this.activityRepository = activityRepository;
+        this.size = size;
+    }
+
+    public void add(Collection<Activity> added) {
+        if (size <= 0) {
+            return;
+        }
+        try {
+            Map<String, List<User.RecentActivity>> byUser = new LinkedHashMap<>();
+            for (Activity activity : added) {
+                if (activity != null && activity.getUserId() != null) {
+                    byUser.computeIfAbsent(activity.getUserId(), id -> new ArrayList<>())
+                            .add(User.RecentActivity.of(activity));
+                }
+            }
+            if (byUser.isEmpty()) {
+                return;
+            }
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+            byUser.forEach((userId, recent) -> {
+                Update update = new Update();
+                update.push("recent_activities")
+                        .sort(Sort.by(Sort.Direction.DESC, "created_at"))
+                        .slice(size)
+                        .each(recent.toArray());
+                bulk.updateOne(Query.query(Criteria.where("id").is(userId)), update);
+            });
+            bulk.execute();
+        }
+        catch (Exception e) {
+            log.error("Error adding {} activities to the recent activities: {}", added.size(), e.getMessage());
+        }
+    }
+
+    public void remove(Activity removed) {
+        if (removed.getUserId() == null) {
+            return;
+        }
+        try {
+            refresh(removed.getUserId());
+        }
+        catch (Exception e) {
+            log.error("Error removing activity {} from the recent activities: {}", removed.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the user's list from the activities collection.
+     */
+    public void refresh(String userId) {
+        List<User.RecentActivity> recent = activityRepository
+                .findByUserId(userId, PageRequest.of(0, Math.max(size, 1), Sort.by(Sort.Direction.DESC, "createdAt")))
+                .stream()
+                .limit(size)
+                .map(User.RecentActivity::of)
+                .toList();
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(userId)),
+                Update.update("recent_activities", recent), User.class);
+    }
+}
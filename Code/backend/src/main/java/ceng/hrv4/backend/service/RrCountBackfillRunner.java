@@ -0,0 +1,45 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.repository.RawDataRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+/**
+ * One-off startup job that fills in rr_count for RawData written before it was persisted.
+ * Plain-array documents are counted on the server with {@code $size}; the remaining ones
+ * (packed or chunked) are read one at a time through a cursor.
+ *
+ * Enabled with {@code hrv.raw-data.backfill-rr-count=true}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "hrv.raw-data.backfill-rr-count", havingValue = "true")
+public class RrCountBackfillRunner implements ApplicationRunner {
+
+    private final RawDataRepository rawDataRepository;
+    private final RawDataChunkService rawDataChunkService;
+
+    public RrCountBackfillRunner(RawDataRepository rawDataRepository, RawDataChunkService rawDataChunkService) {
+        this.rawDataRepository = rawDataRepository;
+        this.rawDataChunkService = rawDataChunkService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long fromArrays = rawDataRepository.setRrCountFromArraySize();
+        long fromReads = 0;
+        try (Stream<RawData> remaining = rawDataRepository.streamByRrCountIsNull()) {
+            for (RawData raw : (Iterable<RawData>) remaining::iterator) {
+                rawDataRepository.setRrCount(raw.getId(), rawDataChunkService.readAll(raw).length);
+                fromReads++;
+            }
+        }
+        log.info("Backfilled rr_count on {} raw data documents ({} via $size)", fromArrays + fromReads, fromArrays);
+    }
+}
@@ -0,0 +1,129 @@
+package ceng.hrv4.backend.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Pulls RR samples one at a time from an NDJSON stream without materializing the body.
+ *
+ * Every line is either a bare number, an array of samples, or an object carrying the
+ * samples in one of the {@link #SAMPLE_FIELDS} (a number or an array of samples). An array
+ * element is a number or an object with the value in one of the {@link #ELEMENT_FIELDS},
+ * which is how the mobile Polar module sends its {@code onPpiData} events, e.g.
+ * <pre>
+ * 812
+ * [790, 805]
+ * {"rr": 812, "hr": 74}
+ * {"rrsMs": [790, 805]}
+ * {"ppi": [{"ppi": 790, "timestamp": "22:14:05"}, {"ppi": 805, "timestamp": "22:14:05"}]}
+ * </pre>
+ * Other object fields are ignored.
+ */
+class RrSampleReader implements Closeable {
+
+    static final Set<String> SAMPLE_FIELDS = Set.of("rr", "rrMs", "rrsMs", "ppi");
+    static final Set<String> ELEMENT_FIELDS = Set.of("ppi", "rr", "rrMs");
+
+    private final JsonParser parser;
+    private boolean inObject;
+    private boolean inSampleArray;
+
+    RrSampleReader(JsonParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * @return the next RR sample in milliseconds, or {@link Double#NaN} at the end of the stream
+     * @throws JsonParseException if the stream is not valid NDJSON of the accepted shape
+     */
+    double next() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (inSampleArray) {
+                if (token == JsonToken.END_ARRAY) {
+                    inSampleArray = false;
+                    continue;
+                }
+                if (token.isNumeric()) {
+                    return parser.getDoubleValue();
+                }
+                if (token == JsonToken.START_OBJECT) {
+                    return element();
+                }
+                throw new JsonParseException(parser, "Expected a number or an object in RR sample array");
+            }
+
+            switch (token) {
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> {
+                    if (!inObject || isSampleField()) {
+                        return parser.getDoubleValue();
+                    }
+                }
+                case START_ARRAY -> {
+                    if (inObject && !isSampleField()) {
+                        parser.skipChildren();
+                    } else {
+                        inSampleArray = true;
+                    }
+                }
+                case START_OBJECT -> {
+                    if (inObject) {
+                        parser.skipChildren();
+                    } else {
+                        inObject = true;
+                    }
+                }
+                case END_OBJECT -> inObject = false;
+                case FIELD_NAME -> {
+                }
+                default -> {
+                    if (!inObject) {
+                        throw new JsonParseException(parser, "Unexpected token " + token + " in RR sample stream");
+                    }
+                }
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Reads the sample out of an object element of a sample array, the parser positioned on
+     * its START_OBJECT. Other fields, e.g. the Polar timestamp, are skipped.
+     */
+    private double element() throws IOException {
+        double sample = Double.NaN;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_OBJECT) {
+            if (token == null) {
+                throw new JsonParseException(parser, "Unexpected end of RR sample object");
+            }
+            if (token == JsonToken.FIELD_NAME) {
+                continue;
+            }
+            if (token.isNumeric() && ELEMENT_FIELDS.contains(parser.currentName())) {
+                sample = parser.getDoubleValue();
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        if (Double.isNaN(sample)) {
+            throw new JsonParseException(parser, "RR sample object has none of the fields " + ELEMENT_FIELDS);
+        }
+        return sample;
+    }
+
+    private boolean isSampleField() throws IOException {
+        return SAMPLE_FIELDS.contains(parser.currentName());
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,56 @@
+package ceng.hrv4.backend.service;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Helpers for "user X between t1 and t2, newest first, limit N" queries. The queries are
+ * served by the compound (user_id, measurement time) indexes, which return the documents
+ * already in order, so the limit is applied without an in-memory sort.
+ */
+final class TimeRanges {
+
+    static final int MAX_LIMIT = 500;
+
+    /** Upper bound on the users of one multi-user query, which all go into a single $in. */
+    static final int MAX_USERS = 500;
+
+    private static final Instant OPEN_START = Instant.EPOCH;
+    private static final Instant OPEN_END = Instant.ofEpochMilli(Long.MAX_VALUE);
+
+    private TimeRanges() {}
+
+    static Instant from(Instant from) {
+        return from != null ? from : OPEN_START;
+    }
+
+    static Instant to(Instant to) {
+        return to != null ? to : OPEN_END;
+    }
+
+    /**
+     * @throws IllegalArgumentException if both bounds are given and do not form a range
+     */
+    static void check(Instant from, Instant to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if no users or more than {@link #MAX_USERS} are given
+     */
+    static void checkUsers(Collection<String> userIds) {
+        if (userIds == null || userIds.isEmpty() || userIds.size() > MAX_USERS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_USERS + " users must be given");
+        }
+    }
+
+    /** The sort is part of each range query, so the page only carries the limit. */
+    static Pageable limit(int limit) {
+        return PageRequest.of(0, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+}
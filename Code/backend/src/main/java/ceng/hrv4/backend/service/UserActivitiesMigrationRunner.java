@@ -0,0 +1,100 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.entity.Activity;
+import ceng.hrv4.backend.entity.User;
+import ceng.hrv4.backend.repository.ActivityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * One-off startup job that moves activities embedded in user documents into the activities
+ * collection and replaces them with the bounded recent-activities list.
+ *
+ * Embedded activities that are not in the collection yet are inserted with the user's id,
+ * then the user's list is rebuilt and the embedded array removed. Users without embedded
+ * activities only get their list built. Users are picked by what is still missing, so an
+ * interrupted run continues where it stopped when started again.
+ *
+ * Enabled with {@code hrv.users.migrate-activities=true}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "hrv.users.migrate-activities", havingValue = "true")
+public class UserActivitiesMigrationRunner implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final ActivityRepository activityRepository;
+    private final RecentActivityService recentActivityService;
+
+    public UserActivitiesMigrationRunner(MongoTemplate mongoTemplate, ActivityRepository activityRepository,
+                                         RecentActivityService recentActivityService) {
+        this.mongoTemplate = mongoTemplate;
+        this.activityRepository = activityRepository;
+        this.recentActivityService = recentActivityService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long users = 0;
+        long moved = 0;
+        Query embedded = new Query(Criteria.where("activities").exists(true));
+        embedded.fields().include("activities");
+        try (Stream<User> stream = mongoTemplate.stream(embedded, User.class)) {
+            for (User user : (Iterable<User>) stream::iterator) {
+                moved += moveToCollection(user);
+                recentActivityService.refresh(user.getId());
+                mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(user.getId())),
+                        new Update().unset("activities"), User.class);
+                users++;
+            }
+        }
+
+        Query withoutList = new Query(Criteria.where("recent_activities").exists(false));
+        withoutList.fields().include("_id");
+        try (Stream<User> stream = mongoTemplate.stream(withoutList, User.class)) {
+            for (User user : (Iterable<User>) stream::iterator) {
+                recentActivityService.refresh(user.getId());
+                users++;
+            }
+        }
+        log.info("Migrated the activities of {} users, {} embedded activities moved to the activities collection",
+                users, moved);
+    }
+
+    private int moveToCollection(User user) {
+        List<Activity> embedded = user.getLegacyActivities();
+        if (embedded == null || embedded.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        List<Activity> missing = new ArrayList<>();
+        for (Activity activity : embedded) {
+            if (activity == null || (activity.getId() != null && activityRepository.existsById(activity.getId()))) {
+                continue;
+            }
+            activity.setUserId(user.getId());
+            // Inserted directly, so the auditing fields are not filled in for us.
+            if (activity.getCreatedAt() == null) {
+                activity.setCreatedAt(now);
+            }
+            activity.setUpdatedAt(now);
+            missing.add(activity);
+        }
+        if (!missing.isEmpty()) {
+            mongoTemplate.insertAll(missing);
+        }
+        return missing.size();
+    }
+}
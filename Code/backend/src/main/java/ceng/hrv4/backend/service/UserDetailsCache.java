@@ -0,0 +1,70 @@
+package ceng.hrv4.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-expiring cache of authenticated principals keyed by JWT subject (the user's email).
+ *
+ * Lets the JWT filter authenticate requests without a MongoDB lookup. Entries are evicted
+ * explicitly when the user's profile or password changes or the user is deleted; the TTL
+ * bounds how long a change made outside this service can go unnoticed.
+ */
+@Service
+public class UserDetailsCache {
+
+    private final Cache<String, UserDetails> cache;
+    // Bumped before every invalidation; see get().
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserDetailsCache(@Value("${hrv.auth.user-cache.max-size:10000}") long maxSize,
+                            @Value("${hrv.auth.user-cache.ttl:PT5M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Returns the cached principal, loading and caching it on a miss.
+     * Exceptions thrown by the loader are propagated and nothing is cached.
+     *
+     * The loader runs outside the cache's atomic compute: that holds a monitor, which on
+     * Java 21 would pin a virtual thread's carrier for the whole database lookup. Concurrent
+     * misses for the same user may therefore load it more than once.
+     *
+     * A load that overlaps an {@link #invalidate} may have read the user before the change,
+     * so its result is not kept: every invalidation bumps a generation counter, and an entry
+     * put while the counter moved is removed again.
+     */
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        UserDetails cached = cache.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = invalidations.get();
+        UserDetails loaded = loader.apply(username);
+        if (invalidations.get() == generation) {
+            cache.put(username, loaded);
+            // An invalidation between the check and the put may have run before the put.
+            if (invalidations.get() != generation) {
+                cache.invalidate(username);
+            }
+        }
+        return loaded;
+    }
+
+    public void invalidate(String username) {
+        if (username != null) {
+            invalidations.incrementAndGet();
+            cache.invalidate(username);
+        }
+    }
+}
@@ -5,27 +5,37 @@ import ceng.hrv4.backend.dto.request.LoginRequestDto;
 import ceng.hrv4.backend.dto.request.UserUpdateDto;
 import ceng.hrv4.backend.dto.request.ChangePasswordDto;
 import ceng.hrv4.backend.dto.request.UserRegisterDto;
+import ceng.hrv4.backend.dto.response.DeletionJobResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
 import ceng.hrv4.backend.dto.response.UserResponseDto;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface UserService {
 
-    ResponseEntity<UserResponseDto> registerUser(UserRegisterDto registerDto);
+    CompletableFuture<ResponseEntity<UserResponseDto>> registerUser(UserRegisterDto registerDto);
 
     ResponseEntity<String> deleteUser(String userId);
 
+    ResponseEntity<DeletionJobResponseDto> findDeletionJob(String jobId);
+
     ResponseEntity<UserResponseDto> findUserById(String userId);
 
     ResponseEntity<UserResponseDto> findUserByEmail(String email);
 
     ResponseEntity<List<UserResponseDto>> findAllUsers();
 
+    ResponseEntity<PageResponseDto<UserResponseDto>> findUserPage(String cursor, int limit);
+
+    ResponseEntity<StreamingResponseBody> streamAllUsers();
+
     ResponseEntity<UserResponseDto> updateUser(String userId, UserUpdateDto updateDto);
 
-    ResponseEntity<String> changePassword(String userId, ChangePasswordDto dto);
+    CompletableFuture<ResponseEntity<String>> changePassword(String userId, ChangePasswordDto dto);
 
-    ResponseEntity<?> loginUser(LoginRequestDto loginRequestDto);
+    CompletableFuture<ResponseEntity<?>> loginUser(LoginRequestDto loginRequestDto);
 
     ResponseEntity<?> refreshToken(String refreshToken);
 
@@ -1,15 +1,20 @@
 // package is a Java keyword that declares which folder (or "package") this file lives in, to organize your project.
 package ceng.hrv4.backend.service;
 
+import ceng.hrv4.backend.cleanup.CascadeDeleteService;
 import ceng.hrv4.backend.dto.request.LoginRequestDto;
+import ceng.hrv4.backend.entity.DeletionJob;
 import ceng.hrv4.backend.entity.RefreshToken;
 import ceng.hrv4.backend.entity.User;
 import ceng.hrv4.backend.mapper.UserRegisterMapper;
 import ceng.hrv4.backend.dto.request.UserUpdateDto;
 import ceng.hrv4.backend.dto.request.ChangePasswordDto;
 import ceng.hrv4.backend.dto.request.UserRegisterDto;
+import ceng.hrv4.backend.dto.response.DeletionJobResponseDto;
+import ceng.hrv4.backend.dto.response.PageResponseDto;
 import ceng.hrv4.backend.dto.response.UserResponseDto;
 import ceng.hrv4.backend.repository.UserRepository;
+import ceng.hrv4.backend.repository.projection.UserCredentials;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired; //This is the Spring annotation for Dependency Injection.
@@ -18,23 +23,28 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails; //The tools we need to build a secure login system.
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.DateTimeException;
+import java.time.ZoneId;
 import java.util.ArrayList; // For UserDetails
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 //UserDetailsService is an interface from Spring Security. By "implementing" it, we are promising to provide
 //a specific method (loadUserByUsername) that Spring Security can use to find a user when they try to log in.
 @Slf4j
 @Service  //Used to label this class as a Service.
-public class UserServiceImpl implements UserService, UserDetailsService {
+public class UserServiceImpl implements UserService, UserDetailsService, UserDetailsPasswordService {
     // private final means that they will be const after they'se set in the constructor (I guess)
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder; // Injected from SecurityConfig
@@ -42,83 +52,129 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     private final AuthenticationManager authenticationManager;
     private final JWTService jwtService;
     private final RefreshTokenService refreshTokenService;
+    private final NdjsonStreamer ndjsonStreamer;
+    private final UserDetailsCache userDetailsCache;
+    private final PasswordHashingService passwordHashingService;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final HrvRollupService hrvRollupService;
 
     //It tells Spring, "When you create this UserService, you must also find the UserRepository bean and the PasswordEncoder bean and pass them into this constructor."
     //This is Dependency Injection. You never have to write new UserRepository() or new PasswordEncoder(); Spring handles it all.
     @Autowired
     public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder, UserRegisterMapper userRegisterMapper, @Lazy AuthenticationManager authenticationManager,
-                           JWTService jwtService, RefreshTokenService refreshTokenService) {
+                           JWTService jwtService, RefreshTokenService refreshTokenService, NdjsonStreamer ndjsonStreamer,
+                           UserDetailsCache userDetailsCache, PasswordHashingService passwordHashingService,
+                           CascadeDeleteService cascadeDeleteService, HrvRollupService hrvRollupService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder; //the password encryption tool
         this.userRegisterMapper = userRegisterMapper;
         this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
         this.refreshTokenService = refreshTokenService;
+        this.ndjsonStreamer = ndjsonStreamer;
+        this.userDetailsCache = userDetailsCache;
+        this.passwordHashingService = passwordHashingService;
+        this.cascadeDeleteService = cascadeDeleteService;
+        this.hrvRollupService = hrvRollupService;
     }
 
 
     /**
      * Business logic for registering a new user using a DTO and Mapper.
      * @param registerDto The DTO containing registration data.
+     * The password is hashed on the BCrypt pool; 429 is returned when the pool is saturated.
      * @return A UserResponseDto of the newly created user.
      * @throws RuntimeException if the email is already in use.
      */
     @Override
-    public ResponseEntity<UserResponseDto> registerUser(UserRegisterDto registerDto) {
+    public CompletableFuture<ResponseEntity<UserResponseDto>> registerUser(UserRegisterDto registerDto) {
         try {
             // 1. Business Logic: Check if email already exists
             if (userRepository.existsByEmail(registerDto.email())) {
                 log.error("Email is already in use!");
-                return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+                return CompletableFuture.completedFuture(new ResponseEntity<>(null, HttpStatus.BAD_REQUEST));
             }
 
             // 2. Mapping Logic: Use the mapper to create the entity
             User newUser = userRegisterMapper.toEntity(registerDto);
 
-            // 3. Business Logic: Handle fields the mapper doesn't
-            // Call the User entity's setPassword, which handles encoding
-            String encodedPassword = passwordEncoder.encode(registerDto.password());
-            newUser.setPassword(encodedPassword);
-
             // Convert List<String> clinicalStory to a single String for the database
             if (registerDto.clinicalStory() != null && !registerDto.clinicalStory().isEmpty()) {
                 String clinicalStoryString = String.join(";", registerDto.clinicalStory());
                 newUser.setClinicalStory(clinicalStoryString);
             }
 
-            // 4. Save the user to the database
-            User savedUser = userRepository.save(newUser);
-
-            // 5. Mapping Logic: Convert the saved entity to a DTO and return it
-            return new ResponseEntity<>(userRegisterMapper.toResponseDto(savedUser), HttpStatus.CREATED);
+            // 3. Business Logic: Handle fields the mapper doesn't
+            // Hash the password off the request thread, then save the user to the database
+            return passwordHashingService.encode(registerDto.password())
+                    .thenApply(encodedPassword -> {
+                        newUser.setPassword(encodedPassword);
+                        User savedUser = userRepository.save(newUser);
+
+                        // 4. Mapping Logic: Convert the saved entity to a DTO and return it
+                        return new ResponseEntity<>(userRegisterMapper.toResponseDto(savedUser), HttpStatus.CREATED);
+                    })
+                    .exceptionally(e -> {
+                        log.error("Error registering user: {}", e.getMessage());
+                        return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+                    });
+        }
+        catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", "1")
+                    .build());
         }
         catch (Exception e) {
-            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR));
         }
     }
 
     /**
      * Deletes a user by their ID.
+     * The user document is removed right away; their recordings, results, activities and
+     * tokens are removed afterwards by a background cascade-delete job.
      * @param userId The ID of the user to delete.
-     * @throws RuntimeException if the user is not found.
+     * @return 202 with the id of the cascade-delete job, or 404 if the user is not found.
      */
     @Override
     public ResponseEntity<String> deleteUser(String userId) {
         try {
             // Check if user exists before trying to delete
-            if (!userRepository.existsById(userId)) {
+            User user = userRepository.findById(userId).orElse(null);
+            if (user == null) {
                 return new ResponseEntity<>("User not found, cannot delete.", HttpStatus.NOT_FOUND);
             }
 
             // We call the built-in 'deleteById' method from JpaRepository.
             userRepository.deleteById(userId);
-            return new ResponseEntity<>("User deleted successfully.", HttpStatus.OK);
+            userDetailsCache.invalidate(user.getEmail());
+            // Queued after the user is gone, so nothing new can be written for them meanwhile.
+            // Should this fail, the orphan sweeper queues the job later.
+            DeletionJob job = cascadeDeleteService.enqueue(userId, user.getEmail(), DeletionJob.Trigger.USER_DELETED);
+            return new ResponseEntity<>("User deleted, their data is being removed by job " + job.getId() + ".", HttpStatus.ACCEPTED);
         }
         catch (Exception e) {
             return new ResponseEntity<>("Cannot delete user.", HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Finds the progress of a cascade delete started by deleteUser.
+     * @param jobId The ID returned when the user was deleted.
+     * @return The job's progress, or 404 if no such job exists.
+     */
+    @Override
+    public ResponseEntity<DeletionJobResponseDto> findDeletionJob(String jobId) {
+        try {
+            return cascadeDeleteService.find(jobId)
+                    .map(job -> new ResponseEntity<>(job, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(null, HttpStatus.NOT_FOUND));
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Finds a single user by their ID.
      * @param userId The ID of the user to find.
@@ -181,11 +237,41 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         }
     }
 
+    /**
+     * Finds one page of users ordered by ID.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param limit The maximum number of users to return.
+     * @return The page, or 400 if the cursor is invalid.
+     */
+    @Override
+    public ResponseEntity<PageResponseDto<UserResponseDto>> findUserPage(String cursor, int limit) {
+        try {
+            List<User> users = userRepository.findByIdGreaterThan(KeysetPages.start(cursor), KeysetPages.pageable(limit));
+            return new ResponseEntity<>(KeysetPages.page(users, limit, userRegisterMapper::toResponseDto), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        catch (Exception e) {
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Streams all users as NDJSON, one UserResponseDto per line.
+     */
+    @Override
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return ndjsonStreamer.stream(userRepository::streamAllBy, userRegisterMapper::toResponseDto);
+    }
+
     /**
      * Updates a user's profile information.
+     * A new time zone moves the user's daily, weekly and monthly rollups, so they are rebuilt.
      * @param userId The ID of the user to update.
      * @param updateDto A DTO containing the fields to update (null fields are ignored).
-     * @return UserResponseDTo of the updated and saved User object.
+     * @return UserResponseDTo of the updated and saved User object,
+     *         or 400 if the time zone is not a known zone id.
      * @throws RuntimeException if the user is not found.
      */
     @Override
@@ -212,48 +298,87 @@ public class UserServiceImpl implements UserService, UserDetailsService {
             if (updateDto.notes() != null) {
                 existingUser.setNotes(updateDto.notes());
             }
+            String previousZone = existingUser.getTimeZone();
+            if (updateDto.timeZone() != null) {
+                // Rejects ids that are not a known zone, e.g. a misspelt region.
+                existingUser.setTimeZone(ZoneId.of(updateDto.timeZone()).getId());
+            }
 
             // 3. Save the modified user back to the database
             // JPA knows that this is an UPDATE, not a new INSERT.
             User user = userRepository.save(existingUser);
+            userDetailsCache.invalidate(user.getEmail());
+            if (!Objects.equals(previousZone, user.getTimeZone())) {
+                rebuildRollups(user.getId());
+            }
             return new ResponseEntity<>(userRegisterMapper.toResponseDto(user), HttpStatus.OK);
         }
+        catch (DateTimeException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
         catch (Exception e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Rebuilds a user's rollups after a change of time zone. A failure does not fail the
+     * update; the rollups stay in the old zone until rebuilt (see HrvRollupRebuildRunner).
+     */
+    private void rebuildRollups(String userId) {
+        try {
+            hrvRollupService.rebuild(userId);
+        }
+        catch (Exception e) {
+            log.error("Error rebuilding the HRV rollups of user {} in the new time zone: {}", userId, e.getMessage());
+        }
+    }
+
     /**
      * Securely changes a user's password.
+     * The BCrypt check of the old password and the hashing of the new one run on the hashing
+     * pool, not on the request thread; 429 is returned when the pool is saturated.
      * @param userId The ID of the user changing their password.
      * @param dto A DTO containing the old and new password.
-     * @throws RuntimeException if the user is not found or old password doesn't match.
      */
     @Override
-    public ResponseEntity<String> changePassword(String userId, ChangePasswordDto dto) {
+    public CompletableFuture<ResponseEntity<String>> changePassword(String userId, ChangePasswordDto dto) {
         try {
             // 1. Find the user
             User user = userRepository.findById(userId).orElse(null);
             if (user == null) {
-                return new ResponseEntity<>("User not found, cannot change password", HttpStatus.NOT_FOUND);
-            }
-            // 2. Check if the OLD password is correct
-            // We use the passwordEncoder's "matches" method for this.
-            //
-            if (!passwordEncoder.matches(dto.oldPassword(), user.getPassword())) {
-                return new ResponseEntity<>("Old password does not match.", HttpStatus.BAD_REQUEST);
+                return CompletableFuture.completedFuture(
+                        new ResponseEntity<>("User not found, cannot change password", HttpStatus.NOT_FOUND));
             }
-
-            // 3. If it matches, encode and set the NEW password
-            user.setPassword(dto.newPassword());
-
-            // 4. Save the user
-            userRepository.save(user);
-
-            return new ResponseEntity<>("Password changed successfully.", HttpStatus.OK);
+            // 2. Check if the OLD password is correct, and if it is, encode the NEW password.
+            // Both run on the hashing pool; null means the old password did not match.
+            return passwordHashingService
+                    .submit(() -> passwordEncoder.matches(dto.oldPassword(), user.getPassword())
+                            ? passwordEncoder.encode(dto.newPassword())
+                            : null)
+                    .thenApply(encodedPassword -> {
+                        if (encodedPassword == null) {
+                            return new ResponseEntity<>("Old password does not match.", HttpStatus.BAD_REQUEST);
+                        }
+                        // 3. Save the user and drop the cached principal holding the old password
+                        user.setPassword(encodedPassword);
+                        userRepository.save(user);
+                        userDetailsCache.invalidate(user.getEmail());
+                        return new ResponseEntity<>("Password changed successfully.", HttpStatus.OK);
+                    })
+                    .exceptionally(e -> {
+                        log.error("Error changing password of user {}: {}", userId, e.getMessage());
+                        return new ResponseEntity<>("Cannot change password.", HttpStatus.INTERNAL_SERVER_ERROR);
+                    });
+        }
+        catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", "1")
+                    .body("Too many password changes in progress, try again later."));
         }
         catch (Exception e) {
-            return new ResponseEntity<>("Cannot change password.", HttpStatus.INTERNAL_SERVER_ERROR);
+            return CompletableFuture.completedFuture(
+                    new ResponseEntity<>("Cannot change password.", HttpStatus.INTERNAL_SERVER_ERROR));
         }
     }
 
@@ -287,7 +412,8 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     //We are overriding this method from the UserDetailsService interface.
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
+        // Only the email and password hash are fetched, not the rest of the profile.
+        UserCredentials user = userRepository.findCredentialsByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + email));
         //This is how Spring Security knows the login failed due to a bad username.
 
@@ -302,31 +428,56 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         //and either approve or deny the login.
     }
 
+    /**
+     * Called by Spring Security's DaoAuthenticationProvider after a successful login when the
+     * stored hash was made with a lower BCrypt strength than the configured one.
+     * Stores the rehashed password so the cost change is applied transparently.
+     * @param user The authenticated user.
+     * @param newPassword The password re-encoded with the current strength.
+     * @return The UserDetails carrying the new password hash.
+     */
     @Override
-    public ResponseEntity<?> loginUser(LoginRequestDto dto) {
-        try {
-            String username = dto.email();
-            String password = dto.password();
-
-            Authentication authentication =
-                    authenticationManager.authenticate(
-                            new UsernamePasswordAuthenticationToken(username, password)
-                    );
-
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-
-            String accessToken = jwtService.generateToken(username);
-            String refreshToken = refreshTokenService.createRefreshToken(username);
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.findByEmail(user.getUsername()).ifPresent(entity -> {
+            entity.setPassword(newPassword);
+            userRepository.save(entity);
+            userDetailsCache.invalidate(entity.getEmail());
+        });
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
 
-            return ResponseEntity.ok(
-                    Map.of(
-                            "accessToken", accessToken,
-                            "refreshToken", refreshToken
-                    )
-            );
+    /**
+     * Authenticates a user and issues an access and refresh token.
+     * The BCrypt check runs on the hashing pool, not on the request thread; 429 is returned
+     * when the pool is saturated.
+     */
+    @Override
+    public CompletableFuture<ResponseEntity<?>> loginUser(LoginRequestDto dto) {
+        String username = dto.email();
+        String password = dto.password();
+        try {
+            return passwordHashingService
+                    .submit(() -> authenticationManager.authenticate(
+                            new UsernamePasswordAuthenticationToken(username, password)))
+                    .<ResponseEntity<?>>thenApply(authentication -> {
+                        String accessToken = jwtService.generateToken(username);
+                        String refreshToken = refreshTokenService.createRefreshToken(username);
+
+                        return ResponseEntity.ok(
+                                Map.of(
+                                        "accessToken", accessToken,
+                                        "refreshToken", refreshToken
+                                )
+                        );
+                    })
+                    .exceptionally(e -> new ResponseEntity<>("Invalid credentials", HttpStatus.UNAUTHORIZED));
         }
-        catch (Exception e) {
-            return new ResponseEntity<>("Invalid credentials", HttpStatus.UNAUTHORIZED);
+        catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", "1")
+                    .body("Too many login attempts in progress, try again later."));
         }
     }
 
@@ -0,0 +1,139 @@
+package ceng.hrv4.backend.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HrvMetricsEngineTests {
+
+    private static final double EPSILON = 1e-9;
+
+    private final HrvMetricsEngine engine = new HrvMetricsEngine(new SpectralAnalyzer(),
+            new NightSegmenter(LocalTime.of(22, 0), LocalTime.of(6, 0), ZoneId.of("UTC")));
+
+    @Test
+    void timeDomainOfAlternatingSeries() {
+        HrvMetrics metrics = engine.compute(new double[] {800, 900, 800, 900});
+
+        assertEquals(4, metrics.heartBeats());
+        assertEquals(100.0, metrics.rmssd(), EPSILON);
+        // Mean 850, every beat 50 ms away from it: sqrt(4 * 2500 / 3)
+        assertEquals(Math.sqrt(10000.0 / 3), metrics.sdnn(), EPSILON);
+        assertEquals(100.0, metrics.pnn50(), EPSILON);
+        assertEquals(60000.0 / 900, metrics.minHr(), EPSILON);
+        assertEquals(75.0, metrics.maxHr(), EPSILON);
+    }
+
+    @Test
+    void constantSeriesHasNoVariability() {
+        double[] rr = new double[100];
+        Arrays.fill(rr, 1000);
+
+        HrvMetrics metrics = engine.compute(rr);
+
+        assertEquals(100, metrics.heartBeats());
+        assertEquals(0.0, metrics.rmssd(), EPSILON);
+        assertEquals(0.0, metrics.sdnn(), EPSILON);
+        assertEquals(0.0, metrics.pnn50(), EPSILON);
+        assertEquals(60.0, metrics.minHr(), EPSILON);
+        assertEquals(60.0, metrics.maxHr(), EPSILON);
+    }
+
+    @Test
+    void artifactsAreCountedButBreakSuccessiveDifferences() {
+        HrvMetrics metrics = engine.compute(new double[] {800, 5000, 900, 800});
+
+        assertEquals(4, metrics.heartBeats());
+        // Only 900 -> 800 is a difference between two consecutive valid beats.
+        assertEquals(100.0, metrics.rmssd(), EPSILON);
+        assertEquals(100.0, metrics.pnn50(), EPSILON);
+        assertEquals(60000.0 / 900, metrics.minHr(), EPSILON);
+    }
+
+    @Test
+    void emptyAndShortSeries() {
+        HrvMetrics empty = engine.compute(null);
+        assertEquals(0, empty.heartBeats());
+        assertTrue(Double.isNaN(empty.rmssd()));
+        assertTrue(Double.isNaN(empty.tp()));
+        assertNull(empty.night());
+
+        // Ten seconds are too short for the spectral metrics.
+        HrvMetrics shortSeries = engine.compute(new double[] {1000, 1000, 1000, 1000, 1000, 1000, 1000, 1000, 1000, 1000});
+        assertEquals(0.0, shortSeries.rmssd(), EPSILON);
+        assertTrue(Double.isNaN(shortSeries.tp()));
+        assertTrue(Double.isNaN(shortSeries.hf()));
+    }
+
+    @Test
+    void rangeIsComputedLikeACopy() {
+        double[] rr = {700, 800, 900, 800, 700, 1000, 900};
+
+        HrvMetrics range = engine.compute(rr, 2, 6);
+        HrvMetrics copy = engine.compute(Arrays.copyOfRange(rr, 2, 6));
+
+        assertEquals(copy, range);
+    }
+
+    /**
+     * An hour of constant beats ending just before 22:00, then an hour of alternating beats:
+     * only the second hour is night, and the step into it is not a night difference.
+     */
+    @Test
+    void nightMetricsCoverTheBeatsEndingInTheNight() {
+        double[] rr = dayThenNight();
+        Instant start = Instant.parse("2024-03-01T20:59:59.500Z");
+
+        HrvMetrics metrics = engine.compute(rr, start, null);
+        HrvMetrics night = metrics.night();
+
+        assertNotNull(night);
+        assertNull(night.night());
+        assertEquals(3600, night.heartBeats());
+        assertEquals(200.0, night.rmssd(), EPSILON);
+        assertEquals(100.0, night.pnn50(), EPSILON);
+        assertEquals(engine.compute(rr, 3600, rr.length).sdnn(), night.sdnn(), EPSILON);
+        assertEquals(engine.compute(rr, 3600, rr.length).hf(), night.hf(), EPSILON);
+
+        // The whole recording is unaffected by the split and includes the 1000 -> 900 step.
+        HrvMetrics whole = engine.compute(rr);
+        assertEquals(7200, metrics.heartBeats());
+        assertEquals(whole.rmssd(), metrics.rmssd(), EPSILON);
+        assertEquals(whole.sdnn(), metrics.sdnn(), EPSILON);
+        assertEquals(whole.hf(), metrics.hf(), EPSILON);
+    }
+
+    @Test
+    void nightFollowsTheUsersTimeZone() {
+        double[] rr = dayThenNight();
+        Instant start = Instant.parse("2024-03-01T20:59:59.500Z");
+
+        // 21:00-23:00 UTC is 00:00-02:00 in Istanbul, all of it night.
+        HrvMetrics istanbul = engine.compute(rr, start, "Europe/Istanbul");
+        assertEquals(7200, istanbul.night().heartBeats());
+
+        // 21:00-23:00 UTC is 16:00-18:00 in New York, none of it night.
+        assertNull(engine.compute(rr, start, "America/New_York").night());
+    }
+
+    @Test
+    void noNightMetricsWithoutAStartTime() {
+        assertNull(engine.compute(dayThenNight(), null, "UTC").night());
+    }
+
+    private static double[] dayThenNight() {
+        double[] rr = new double[7200];
+        for (int i = 0; i < rr.length; i++) {
+            rr[i] = i < 3600 ? 1000 : (i % 2 == 0 ? 900 : 1100);
+        }
+        return rr;
+    }
+}
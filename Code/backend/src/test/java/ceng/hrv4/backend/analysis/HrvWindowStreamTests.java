@@ -0,0 +1,48 @@
+package ceng.hrv4.backend.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HrvWindowStreamTests {
+
+    @Test
+    void batchesEmitTheSameWindowsAsTheWholeSeries() {
+        double[] rr = new double[3000];
+        Random random = new Random(11);
+        for (int i = 0; i < rr.length; i++) {
+            rr[i] = random.nextInt(50) == 0 ? Double.NaN : 850 + 100 * random.nextGaussian();
+        }
+        HrvWindowSeries whole = new HrvWindowAnalyzer().analyze(rr, 100, 10);
+
+        HrvWindowStream stream = new HrvWindowStream(100, 10);
+        int windows = 0;
+        int from = 0;
+        for (int batch : new int[] {7, 93, 1, 499, 1000, 400}) {
+            HrvWindowSeries part = stream.feed(rr, from, from + batch);
+            for (int i = 0; i < part.size(); i++, windows++) {
+                assertEquals(whole.endOffsetsMs()[windows], part.endOffsetsMs()[i]);
+                assertEquals(whole.rmssd()[windows], part.rmssd()[i], 1e-9);
+                assertEquals(whole.stressIndex()[windows], part.stressIndex()[i], 1e-9);
+            }
+            from += batch;
+        }
+        HrvWindowSeries rest = stream.feed(rr, from, rr.length);
+
+        assertEquals(whole.size(), windows + rest.size());
+        assertEquals(whole.endOffsetsMs()[whole.size() - 1], rest.endOffsetsMs()[rest.size() - 1]);
+    }
+
+    @Test
+    void missingIntervalsDoNotMoveWindowEnds() {
+        double[] rr = {1000, 1000, Double.NaN, 1000, 1000, 1000};
+
+        HrvWindowSeries series = new HrvWindowAnalyzer().analyze(rr, 2, 1);
+
+        // Windows end with the 2nd, 4th, 5th and 6th beat.
+        assertArrayEquals(new long[] {2000, 3000, 4000, 5000}, series.endOffsetsMs());
+    }
+}
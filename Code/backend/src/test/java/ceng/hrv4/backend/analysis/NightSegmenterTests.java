@@ -0,0 +1,63 @@
+package ceng.hrv4.backend.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NightSegmenterTests {
+
+    private final NightSegmenter segmenter =
+            new NightSegmenter(LocalTime.of(22, 0), LocalTime.of(6, 0), ZoneId.of("UTC"));
+
+    @Test
+    void missingIntervalsDoNotMoveTheClock() {
+        NightSegmenter.Clock clock = segmenter.clock(Instant.parse("2024-03-01T21:59:58Z"), null);
+
+        // Beats end at 21:59:59, 21:59:59, 22:00:00, 22:00:00 and 22:00:01.
+        assertArrayEquals(new boolean[] {false, false, true, true, true},
+                walk(clock, 1000, Double.NaN, 1000, -5, 1000));
+    }
+
+    @Test
+    void nightEndsAtSixByTheWallClockWhenClocksGoForward() {
+        // Berlin moves from CET to CEST in the night to 2024-03-31: 06:00 is 04:00 UTC.
+        NightSegmenter.Clock clock = segmenter.clock(Instant.parse("2024-03-31T03:59:58Z"), "Europe/Berlin");
+
+        assertArrayEquals(new boolean[] {true, false}, walk(clock, 1000, 1000));
+    }
+
+    @Test
+    void nightStartsAtTenByTheWallClockWhenClocksGoBack() {
+        // Berlin is back on CET from 2024-10-27: 22:00 that evening is 21:00 UTC.
+        NightSegmenter.Clock clock = segmenter.clock(Instant.parse("2024-10-27T20:59:58Z"), "Europe/Berlin");
+
+        assertArrayEquals(new boolean[] {false, true}, walk(clock, 1000, 1000));
+    }
+
+    @Test
+    void invalidTimeZonesUseTheDefault() {
+        NightSegmenter.Clock clock = segmenter.clock(Instant.parse("2024-03-01T21:59:59Z"), "Mars/Olympus");
+
+        assertArrayEquals(new boolean[] {true}, walk(clock, 1000));
+    }
+
+    @Test
+    void noClockWithoutAStartOrANight() {
+        assertNull(segmenter.clock(null, "UTC"));
+        assertNull(new NightSegmenter(LocalTime.of(22, 0), LocalTime.of(22, 0), ZoneId.of("UTC"))
+                .clock(Instant.parse("2024-03-01T21:59:59Z"), null));
+    }
+
+    private static boolean[] walk(NightSegmenter.Clock clock, double... rrMs) {
+        boolean[] night = new boolean[rrMs.length];
+        for (int i = 0; i < rrMs.length; i++) {
+            night[i] = clock.next(rrMs[i]);
+        }
+        return night;
+    }
+}
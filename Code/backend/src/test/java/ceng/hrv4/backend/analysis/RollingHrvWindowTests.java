@@ -0,0 +1,116 @@
+package ceng.hrv4.backend.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollingHrvWindowTests {
+
+    private static final double EPSILON = 1e-6;
+
+    @Test
+    void rejectsWindowsShorterThanTwoBeats() {
+        assertThrows(IllegalArgumentException.class, () -> new RollingHrvWindow(1));
+    }
+
+    @Test
+    void invalidIntervalsAreNotAdded() {
+        RollingHrvWindow window = new RollingHrvWindow(4);
+
+        assertTrue(window.add(800));
+        assertFalse(window.add(250));
+        assertFalse(window.add(Double.NaN));
+        assertEquals(1, window.count());
+    }
+
+    @Test
+    void modeAmplitudeAndStressIndex() {
+        RollingHrvWindow window = new RollingHrvWindow(4);
+        for (double rr : new double[] {800, 810, 820, 1000}) {
+            window.add(rr);
+        }
+
+        assertTrue(window.isFull());
+        // Three of four beats in the 800-850 ms bin.
+        assertEquals(825.0, window.mode(), EPSILON);
+        assertEquals(75.0, window.amo(), EPSILON);
+        assertEquals(75.0 / (2 * 0.825 * 0.2), window.stressIndex(), EPSILON);
+        assertEquals(857.5, window.meanRr(), EPSILON);
+    }
+
+    /**
+     * After every beat the window must match the metrics recomputed from scratch over the last
+     * {@code size} valid beats, including the successive differences broken by artifacts.
+     */
+    @Test
+    void matchesRecomputationOverTheLastBeats() {
+        int size = 50;
+        RollingHrvWindow window = new RollingHrvWindow(size);
+        List<double[]> valid = new ArrayList<>();
+        Random random = new Random(7);
+        boolean gap = true;
+
+        for (int i = 0; i < 2000; i++) {
+            double rr = random.nextInt(40) == 0 ? 2500 : 850 + 120 * random.nextGaussian();
+            boolean added = window.add(rr);
+            assertEquals(HrvMetricsEngine.isValidRr(rr), added);
+            if (!added) {
+                gap = true;
+                continue;
+            }
+            double previous = valid.isEmpty() ? Double.NaN : valid.get(valid.size() - 1)[0];
+            valid.add(new double[] {rr, gap ? Double.NaN : rr - previous});
+            gap = false;
+
+            List<double[]> last = valid.subList(Math.max(0, valid.size() - size), valid.size());
+            assertEquals(last.size(), window.count());
+            assertEquals(sdnn(last), window.sdnn(), EPSILON);
+            // The difference of the oldest beat to the one before the window is not counted.
+            List<double[]> diffs = last.subList(1, last.size());
+            assertEquals(rmssd(diffs), window.rmssd(), EPSILON);
+            assertEquals(pnn50(diffs), window.pnn50(), EPSILON);
+        }
+    }
+
+    private static double sdnn(List<double[]> beats) {
+        if (beats.size() < 2) {
+            return Double.NaN;
+        }
+        double mean = beats.stream().mapToDouble(beat -> beat[0]).average().orElseThrow();
+        double squares = beats.stream().mapToDouble(beat -> (beat[0] - mean) * (beat[0] - mean)).sum();
+        return Math.sqrt(squares / (beats.size() - 1));
+    }
+
+    private static double rmssd(List<double[]> beats) {
+        double[] diffs = beats.stream().mapToDouble(beat -> beat[1]).filter(diff -> !Double.isNaN(diff)).toArray();
+        if (diffs.length == 0) {
+            return Double.NaN;
+        }
+        double squares = 0;
+        for (double diff : diffs) {
+            squares += diff * diff;
+        }
+        return Math.sqrt(squares / diffs.length);
+    }
+
+    private static double pnn50(List<double[]> beats) {
+        double[] diffs = beats.stream().mapToDouble(beat -> beat[1]).filter(diff -> !Double.isNaN(diff)).toArray();
+        if (diffs.length == 0) {
+            return Double.NaN;
+        }
+        long above = 0;
+        for (double diff : diffs) {
+            if (Math.abs(diff) > HrvMetricsEngine.NN50_THRESHOLD_MS) {
+                above++;
+            }
+        }
+        return 100.0 * above / diffs.length;
+    }
+}
@@ -0,0 +1,96 @@
+package ceng.hrv4.backend.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpectralAnalyzerTests {
+
+    /** Amplitude of the test oscillations; a sinusoid of amplitude A has power A² / 2. */
+    private static final double AMPLITUDE_MS = 40;
+    private static final double POWER = AMPLITUDE_MS * AMPLITUDE_MS / 2;
+
+    private final SpectralAnalyzer analyzer = new SpectralAnalyzer();
+
+    @Test
+    void tooShortSeriesHasNoBands() {
+        double[] rr = oscillation(50, 0.25);
+
+        assertSame(SpectralBands.EMPTY, analyzer.analyze(rr, 0, rr.length));
+    }
+
+    @Test
+    void highFrequencyOscillationLandsInHf() {
+        double[] rr = oscillation(600, 0.25);
+
+        SpectralBands bands = analyzer.analyze(rr, 0, rr.length);
+
+        assertEquals(POWER, bands.hf(), 0.1 * POWER);
+        assertTrue(bands.lf() < 0.05 * POWER, "lf " + bands.lf());
+        assertEquals(bands.tp(), bands.vlf() + bands.lf() + bands.hf(), 0.05 * POWER);
+    }
+
+    @Test
+    void lowFrequencyOscillationLandsInLf() {
+        double[] rr = oscillation(600, 0.1);
+
+        SpectralBands bands = analyzer.analyze(rr, 0, rr.length);
+
+        assertEquals(POWER, bands.lf(), 0.1 * POWER);
+        assertTrue(bands.hf() < 0.05 * POWER, "hf " + bands.hf());
+    }
+
+    @Test
+    void artifactsDoNotShiftLaterBeats() {
+        double[] rr = oscillation(600, 0.25);
+        // A missed beat every 200 beats: its time still passes, only its value is dropped.
+        for (int i = 100; i < rr.length; i += 200) {
+            rr[i] = 2500;
+        }
+
+        SpectralBands bands = analyzer.analyze(rr, 0, rr.length);
+
+        assertEquals(POWER, bands.hf(), 0.1 * POWER);
+    }
+
+    @Test
+    void longRecordingsUseWelchSegments() {
+        // Two hours is longer than one segment of 4096 s.
+        double[] rr = oscillation(7200, 0.25);
+
+        SpectralBands bands = analyzer.analyze(rr, 0, rr.length);
+
+        assertEquals(POWER, bands.hf(), 0.1 * POWER);
+        assertTrue(bands.lf() < 0.05 * POWER, "lf " + bands.lf());
+    }
+
+    @Test
+    void rangeIsAnalyzedOnItsOwn() {
+        double[] rr = new double[1200];
+        double[] hf = oscillation(600, 0.25);
+        double[] lf = oscillation(600, 0.1);
+        System.arraycopy(lf, 0, rr, 0, 600);
+        System.arraycopy(hf, 0, rr, 600, 600);
+
+        SpectralBands bands = analyzer.analyze(rr, 600, 1200);
+
+        assertEquals(POWER, bands.hf(), 0.1 * POWER);
+        assertTrue(bands.lf() < 0.05 * POWER, "lf " + bands.lf());
+    }
+
+    /**
+     * About {@code seconds} of beats around 1000 ms whose intervals oscillate at
+     * {@code frequencyHz} in time.
+     */
+    private static double[] oscillation(int seconds, double frequencyHz) {
+        double[] rr = new double[seconds];
+        double t = 0;
+        for (int i = 0; i < rr.length; i++) {
+            rr[i] = Math.rint(1000 + AMPLITUDE_MS * Math.sin(2 * Math.PI * frequencyHz * t));
+            t += rr[i] / 1000.0;
+        }
+        return rr;
+    }
+}
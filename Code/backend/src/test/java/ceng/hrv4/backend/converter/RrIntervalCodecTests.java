@@ -0,0 +1,85 @@
+package ceng.hrv4.backend.converter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RrIntervalCodecTests {
+
+    @Test
+    void wholeMillisecondsRoundTripAsDeltas() {
+        double[] rr = new double[10000];
+        Random random = new Random(3);
+        double previous = 850;
+        for (int i = 0; i < rr.length; i++) {
+            previous = Math.max(300, Math.min(2000, previous + random.nextInt(61) - 30));
+            rr[i] = previous;
+        }
+
+        byte[] packed = RrIntervalCodec.encode(rr);
+
+        assertEquals(RrIntervalCodec.INT_DELTA, packed[0]);
+        // Deltas within ±63 ms take one byte each, after the first beat and the header.
+        assertTrue(packed.length < rr.length + 8, "packed to " + packed.length + " bytes");
+        assertArrayEquals(rr, RrIntervalCodec.decode(packed));
+    }
+
+    @Test
+    void emptySeriesRoundTrips() {
+        assertArrayEquals(new double[0], RrIntervalCodec.decode(RrIntervalCodec.encode(new double[0])));
+    }
+
+    @Test
+    void fractionalValuesFallBackToFloat32() {
+        double[] rr = {812.5, 799.25, 1001.75};
+
+        byte[] packed = RrIntervalCodec.encode(rr);
+
+        assertEquals(RrIntervalCodec.FLOAT32, packed[0]);
+        assertArrayEquals(rr, RrIntervalCodec.decode(packed));
+    }
+
+    @Test
+    void nonFiniteValuesFallBackToFloat32() {
+        double[] rr = {800, Double.NaN, Double.POSITIVE_INFINITY};
+
+        byte[] packed = RrIntervalCodec.encode(rr);
+
+        assertEquals(RrIntervalCodec.FLOAT32, packed[0]);
+        assertArrayEquals(rr, RrIntervalCodec.decode(packed));
+    }
+
+    @Test
+    void largestDeltaEncodedValuesRoundTripExactly() {
+        int max = RrIntervalCodec.MAX_INT_DELTA_VALUE;
+        // Swinging between the bounds gives the largest deltas the int layout has to hold.
+        double[] rr = {max, -max, max, 0, -max, 1, -1};
+
+        byte[] packed = RrIntervalCodec.encode(rr);
+
+        assertEquals(RrIntervalCodec.INT_DELTA, packed[0]);
+        assertArrayEquals(rr, RrIntervalCodec.decode(packed));
+    }
+
+    @Test
+    void valuesBeyondTheDeltaRangeFallBackToFloat32() {
+        double beyond = RrIntervalCodec.MAX_INT_DELTA_VALUE + 1.0;
+        double[] rr = {-beyond, 1 << 30, -(1 << 30), 800};
+
+        byte[] packed = RrIntervalCodec.encode(rr);
+
+        assertEquals(RrIntervalCodec.FLOAT32, packed[0]);
+        // Powers of two and small integers are exact in float32.
+        assertArrayEquals(rr, RrIntervalCodec.decode(packed));
+    }
+
+    @Test
+    void unknownCodecIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RrIntervalCodec.decode(new byte[] {9, 0}));
+    }
+}
@@ -0,0 +1,31 @@
+package ceng.hrv4.backend.converter;
+
+import org.bson.types.Binary;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class RrIntervalsConverterTests {
+
+    private final RrIntervalsConverter converter = new RrIntervalsConverter();
+
+    @Test
+    void readsLegacyArraysWithNullElements() {
+        double[] values = converter.read(Arrays.asList(800, null, 812.5), null);
+
+        assertArrayEquals(new double[] {800, Double.NaN, 812.5}, values);
+    }
+
+    @Test
+    void writesPackedBinary() {
+        double[] rr = {800, 810, 805};
+
+        Object written = converter.write(rr, null);
+
+        assertInstanceOf(Binary.class, written);
+        assertArrayEquals(rr, converter.read(written, null));
+    }
+}
@@ -0,0 +1,153 @@
+package ceng.hrv4.backend.scoring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScoringModelLoaderTests {
+
+    private static final double EPSILON = 1e-9;
+
+    /** One split on ln_rmssd at 3.4; missing values go right. */
+    private static final String SPLIT_TREE = """
+            { "feature": [0, -1, -1], "threshold": [3.4, 0, 0],
+              "left": [1, -1, -1], "right": [2, -1, -1],
+              "default_left": [false, false, false], "value": [0, -0.4, 0.6] }""";
+
+    private static final String LEAF_TREE = """
+            { "feature": [-1], "threshold": [0], "left": [-1], "right": [-1], "value": [0.25] }""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScoringModelLoader loader = new ScoringModelLoader(objectMapper);
+
+    @Test
+    void gbdtFollowsSplitsAndMissingValueSide() throws IOException {
+        ScoringModel model = read(gbdt("\"stress\": { \"base\": 1.0, \"trees\": [" + SPLIT_TREE + "] }"));
+
+        assertEquals("gbdt", model.type());
+        assertEquals("test-model", model.version());
+        assertEquals(0.6, stress(model, "ln_rmssd", 3.0), EPSILON);
+        assertEquals(1.6, stress(model, "ln_rmssd", 4.0), EPSILON);
+        // The threshold itself goes right.
+        assertEquals(1.6, stress(model, "ln_rmssd", 3.4), EPSILON);
+        assertEquals(1.6, stress(model, "ln_rmssd", Double.NaN), EPSILON);
+    }
+
+    @Test
+    void gbdtSumsTreesBeforeTheLink() throws IOException {
+        ScoringModel model = read(gbdt("""
+                "stress": { "base": -0.25, "link": "logistic", "scale": 10,
+                            "trees": [%s, %s] }""".formatted(LEAF_TREE, SPLIT_TREE)));
+
+        // -0.25 + 0.25 - 0.4 = -0.4
+        assertEquals(10 / (1 + Math.exp(0.4)), stress(model, "ln_rmssd", 3.0), EPSILON);
+        // -0.25 + 0.25 + 0.6 = 0.6
+        assertEquals(10 / (1 + Math.exp(-0.6)), stress(model, "ln_rmssd", 5.0), EPSILON);
+    }
+
+    @Test
+    void gbdtClampsAndLeavesOtherTargetsUnset() throws IOException {
+        ScoringModel model = read(gbdt("\"stress\": { \"base\": 5, \"max\": 5.5, \"trees\": [" + SPLIT_TREE + "] }"));
+
+        double[] scores = model.score(features("ln_rmssd", 4.0));
+
+        assertEquals(ScoreTarget.values().length, scores.length);
+        assertEquals(5.5, scores[ScoreTarget.STRESS.ordinal()], EPSILON);
+        assertTrue(Double.isNaN(scores[ScoreTarget.HEALTH_STATE.ordinal()]));
+    }
+
+    @Test
+    void linearModelImputesMissingFeatures() throws IOException {
+        ScoringModel model = read("""
+                { "type": "linear", "version": "linear-test",
+                  "imputation": { "ln_sdnn": 4.0 },
+                  "targets": { "health_state": { "intercept": 1.0,
+                                                 "weights": { "ln_rmssd": 2.0, "ln_sdnn": -0.5 } } } }""");
+
+        double[] features = features("ln_rmssd", 3.0);
+        features[HrvFeatures.index("ln_sdnn")] = 2.0;
+        assertEquals(6.0, model.score(features)[ScoreTarget.HEALTH_STATE.ordinal()], EPSILON);
+
+        // 1 + 2 * 3 - 0.5 * 4
+        features[HrvFeatures.index("ln_sdnn")] = Double.NaN;
+        assertEquals(5.0, model.score(features)[ScoreTarget.HEALTH_STATE.ordinal()], EPSILON);
+
+        // No imputation value for ln_rmssd.
+        assertTrue(Double.isNaN(model.score(features("ln_sdnn", 2.0))[ScoreTarget.HEALTH_STATE.ordinal()]));
+    }
+
+    @Test
+    void loadsFromAFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("model.json");
+        Files.writeString(file, gbdt("\"stress\": { \"trees\": [" + LEAF_TREE + "] }"));
+
+        ScoringModel model = loader.load(file);
+
+        assertEquals(0.25, model.score(features("ln_rmssd", 3.0))[ScoreTarget.STRESS.ordinal()], EPSILON);
+    }
+
+    @Test
+    void rejectsInvalidModels() {
+        assertInvalid("{ \"type\": \"gbdt\", \"version\": \"v\", \"features\": [\"ln_rmssd\"], \"targets\": {} }");
+        assertInvalid("{ \"type\": \"forest\", \"version\": \"v\", \"targets\": { \"stress\": {} } }");
+        assertInvalid("{ \"type\": \"linear\", \"targets\": { \"stress\": {} } }");
+        assertInvalid("""
+                { "type": "linear", "version": "v", "targets": { "stress": { "weights": { "ln_rmssd_day": 1 } } } }""");
+        assertInvalid("""
+                { "type": "linear", "version": "v", "targets": { "stress": { "link": "probit" } } }""");
+        assertInvalid("""
+                { "type": "linear", "version": "v", "targets": { "stres": { } } }""");
+        assertInvalid("""
+                { "type": "gbdt", "version": "v", "targets": { "stress": { "trees": [%s] } } }""".formatted(LEAF_TREE));
+        assertInvalid(gbdt("\"stress\": { \"trees\": [] }"));
+        // A child pointing back at its parent.
+        assertInvalid(gbdt("""
+                "stress": { "trees": [{ "feature": [0, 0, -1], "threshold": [1, 1, 0],
+                                        "left": [1, 0, -1], "right": [2, 2, -1], "value": [0, 0, 0] }] }"""));
+        // Two parents of the same node.
+        assertInvalid(gbdt("""
+                "stress": { "trees": [{ "feature": [0, 0, -1, -1], "threshold": [1, 1, 0, 0],
+                                        "left": [1, 2, -1, -1], "right": [2, 3, -1, -1], "value": [0, 0, 0, 0] }] }"""));
+        // Feature index past the features list.
+        assertInvalid(gbdt("""
+                "stress": { "trees": [{ "feature": [1, -1, -1], "threshold": [1, 0, 0],
+                                        "left": [1, -1, -1], "right": [2, -1, -1], "value": [0, 0, 0] }] }"""));
+        assertInvalid(gbdt("""
+                "stress": { "trees": [{ "feature": [0, -1, -1], "threshold": [1, 0],
+                                        "left": [1, -1, -1], "right": [2, -1, -1], "value": [0, 0, 0] }] }"""));
+    }
+
+    private ScoringModel read(String json) throws IOException {
+        return loader.read(objectMapper.readTree(json));
+    }
+
+    private void assertInvalid(String json) {
+        assertThrows(IllegalArgumentException.class, () -> read(json), json);
+    }
+
+    private static String gbdt(String targets) {
+        return """
+                { "type": "gbdt", "version": "test-model", "features": ["ln_rmssd"],
+                  "targets": { %s } }""".formatted(targets);
+    }
+
+    private static double stress(ScoringModel model, String feature, double value) {
+        return model.score(features(feature, value))[ScoreTarget.STRESS.ordinal()];
+    }
+
+    private static double[] features(String feature, double value) {
+        double[] features = new double[HrvFeatures.NAMES.size()];
+        Arrays.fill(features, Double.NaN);
+        features[HrvFeatures.index(feature)] = value;
+        return features;
+    }
+}
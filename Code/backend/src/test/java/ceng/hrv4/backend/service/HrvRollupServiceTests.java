@@ -0,0 +1,164 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.entity.HrvRollup;
+import ceng.hrv4.backend.entity.ModelOutput;
+import ceng.hrv4.backend.entity.ProcessedData;
+import ceng.hrv4.backend.repository.HrvRollupRepository;
+import ceng.hrv4.backend.repository.ModelOutputRepository;
+import ceng.hrv4.backend.repository.ProcessedDataRepository;
+import ceng.hrv4.backend.repository.UserRepository;
+import ceng.hrv4.backend.repository.projection.UserTimeZone;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HrvRollupServiceTests {
+
+    private static final Instant TIME = Instant.parse("2024-03-06T08:00:00Z");
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final HrvRollupService service = new HrvRollupService(mock(HrvRollupRepository.class),
+            mock(ProcessedDataRepository.class), mock(ModelOutputRepository.class), userRepository,
+            mongoTemplate, ZoneId.of("UTC"), 1000);
+
+    @BeforeEach
+    void bulkWrites() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HrvRollup.class)).thenReturn(bulk);
+    }
+
+    @Test
+    void measurementsAddTheirNightValues() {
+        ProcessedData data = new ProcessedData();
+        data.setUserId("user-1");
+        data.setMeasurementTime(TIME);
+        data.setRmssd(40.0);
+        data.setTpNight(1200.0);
+        data.setVlfNight(300.0);
+        data.setUlfNight(Double.NaN);
+
+        service.add(List.of(data));
+
+        Map<String, Document> incs = increments(3);
+        Document day = incs.get("user-1:DAY:2024-03-06T00:00:00Z");
+        assertEquals(1L, day.get("measurements"));
+        assertEquals(40.0, day.get("metrics.rmssd.sum"));
+        assertEquals(1200.0, day.get("metrics.tp_night.sum"));
+        assertEquals(300.0, day.get("metrics.vlf_night.sum"));
+        assertFalse(day.containsKey("metrics.ulf_night.n"));
+        assertFalse(day.containsKey("metrics.stress.n"));
+        // Mondays start the weeks.
+        assertEquals(1L, incs.get("user-1:WEEK:2024-03-04T00:00:00Z").get("measurements"));
+    }
+
+    @Test
+    void rescoringReplacesTheScoresWithoutCountingAMeasurement() {
+        ModelOutput previous = output(40.0, 7.0);
+        ModelOutput current = output(60.0, null);
+
+        service.replaceScores(List.of(previous), List.of(current));
+
+        Document day = increments(3).get("user-1:DAY:2024-03-06T00:00:00Z");
+        assertEquals(0L, day.get("measurements"));
+        assertEquals(0L, day.get("metrics.stress.n"));
+        assertEquals(20.0, day.get("metrics.stress.sum"));
+        assertEquals(60.0 * 60.0 - 40.0 * 40.0, day.get("metrics.stress.sum_sq"));
+        assertEquals(-1L, day.get("metrics.health_state.n"));
+    }
+
+    @Test
+    void bucketsAreCutInTheUsersTimeZone() {
+        when(userRepository.findTimeZonesByIdIn(any())).thenReturn(List.of(zone("user-1", "America/New_York")));
+        ProcessedData data = new ProcessedData();
+        data.setUserId("user-1");
+        // Still Sunday evening in New York, Monday by UTC.
+        data.setMeasurementTime(Instant.parse("2024-03-04T02:00:00Z"));
+        data.setRmssd(40.0);
+
+        service.add(List.of(data));
+
+        Map<String, Document> incs = increments(3);
+        assertEquals(1L, incs.get("user-1:DAY:2024-03-03T05:00:00Z").get("measurements"));
+        assertEquals(1L, incs.get("user-1:WEEK:2024-02-26T05:00:00Z").get("measurements"));
+        assertEquals(1L, incs.get("user-1:MONTH:2024-03-01T05:00:00Z").get("measurements"));
+    }
+
+    @Test
+    void usersWithAnInvalidTimeZoneUseTheDefault() {
+        when(userRepository.findTimeZonesByIdIn(any())).thenReturn(List.of(zone("user-1", "Mars/Olympus")));
+        ProcessedData data = new ProcessedData();
+        data.setUserId("user-1");
+        data.setMeasurementTime(TIME);
+
+        service.add(List.of(data));
+
+        assertEquals(1L, increments(3).get("user-1:DAY:2024-03-06T00:00:00Z").get("measurements"));
+    }
+
+    @Test
+    void nothingIsWrittenWithoutATime() {
+        ProcessedData data = new ProcessedData();
+        data.setUserId("user-1");
+
+        service.add(List.of(data));
+
+        verify(bulk, times(0)).upsert(any(Query.class), any(Update.class));
+        verify(mongoTemplate, times(0)).bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(HrvRollup.class));
+    }
+
+    private ModelOutput output(Double stress, Double healthState) {
+        ModelOutput output = new ModelOutput("user-1", TIME);
+        output.setStress(stress);
+        output.setHealthState(healthState);
+        return output;
+    }
+
+    private static UserTimeZone zone(String userId, String timeZone) {
+        return new UserTimeZone() {
+            @Override
+            public String getId() {
+                return userId;
+            }
+
+            @Override
+            public String getTimeZone() {
+                return timeZone;
+            }
+        };
+    }
+
+    /** The $inc of each upserted rollup, by rollup id. */
+    private Map<String, Document> increments(int upserts) {
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(upserts)).upsert(queries.capture(), updates.capture());
+        verify(bulk).execute();
+        Map<String, Document> incs = new HashMap<>();
+        for (int i = 0; i < upserts; i++) {
+            String id = queries.getAllValues().get(i).getQueryObject().getString("_id");
+            incs.put(id, (Document) updates.getAllValues().get(i).getUpdateObject().get("$inc"));
+        }
+        return incs;
+    }
+}
@@ -0,0 +1,96 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.analysis.HrvWindowAnalyzer;
+import ceng.hrv4.backend.entity.HrvWindowBucket;
+import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.repository.HrvWindowBucketRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class HrvWindowServiceTests {
+
+    private static final Instant START = Instant.parse("2024-03-01T22:00:00Z");
+
+    private final HrvWindowBucketRepository repository = mock(HrvWindowBucketRepository.class);
+    private final HrvWindowService service = new HrvWindowService(repository, new HrvWindowAnalyzer(),
+            4, 2, 1000, Duration.ofMinutes(30), 100);
+
+    @Test
+    void storesTheWindowsOfEachBatchAsItIsAppended() {
+        RawData header = header(12000.0);
+        double[] batch = filled(6, 1000);
+
+        append(header, batch, 0);
+        append(header, batch, 6000);
+
+        ArgumentCaptor<HrvWindowBucket> buckets = ArgumentCaptor.forClass(HrvWindowBucket.class);
+        verify(repository, times(2)).insert(buckets.capture());
+        HrvWindowBucket first = buckets.getAllValues().get(0);
+        HrvWindowBucket second = buckets.getAllValues().get(1);
+        // Windows of 4 beats every 2 beats: ends at 4, 6, 8, 10 and 12 s.
+        assertEquals(List.of(START.plusSeconds(4), START.plusSeconds(6)), first.getEndTimes());
+        assertEquals(List.of(START.plusSeconds(8), START.plusSeconds(10), START.plusSeconds(12)), second.getEndTimes());
+        assertEquals(0, first.getSequence());
+        assertEquals(1, second.getSequence());
+
+        assertTrue(service.finishLive(header));
+    }
+
+    @Test
+    void batchesOutOfOrderLeaveTheSessionToBeRecomputed() {
+        RawData header = header(12000.0);
+        double[] batch = filled(6, 1000);
+
+        // The first batch went through another instance.
+        append(header, batch, 6000);
+
+        verify(repository, never()).insert(any(HrvWindowBucket.class));
+        assertFalse(service.finishLive(header));
+    }
+
+    @Test
+    void sessionsWithMissingBatchesAreRecomputed() {
+        append(header(12000.0), filled(6, 1000), 0);
+
+        assertFalse(service.finishLive(header(18000.0)));
+    }
+
+    @Test
+    void unknownSessionsAreRecomputed() {
+        assertFalse(service.finishLive(header(0.0)));
+    }
+
+    private void append(RawData header, double[] batch, double startOffsetMs) {
+        service.appendLive(header, batch, batch.length, () -> new RawDataChunkService.AppendedBatch(startOffsetMs,
+                START.plusMillis(Math.round(startOffsetMs + Arrays.stream(batch).sum()))));
+    }
+
+    private static RawData header(double elapsedMs) {
+        RawData header = new RawData();
+        header.setId("live-1");
+        header.setUserId("user-1");
+        header.setMeasurementStartTime(START);
+        header.setStreamElapsedMs(elapsedMs);
+        return header;
+    }
+
+    private static double[] filled(int length, double rr) {
+        double[] values = new double[length];
+        Arrays.fill(values, rr);
+        return values;
+    }
+}
@@ -0,0 +1,75 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.dto.response.PageResponseDto;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeysetPagesTests {
+
+    @Test
+    void firstPageStartsBelowEveryObjectId() {
+        assertEquals(KeysetPages.FIRST_CURSOR, KeysetPages.start(null));
+        assertEquals(KeysetPages.FIRST_CURSOR, KeysetPages.start(" "));
+        assertTrue(new ObjectId(KeysetPages.FIRST_CURSOR).compareTo(new ObjectId()) < 0);
+    }
+
+    @Test
+    void cursorsMustBeObjectIds() {
+        String id = new ObjectId().toHexString();
+
+        assertEquals(id, KeysetPages.start(id));
+        assertThrows(IllegalArgumentException.class, () -> KeysetPages.start("page-2"));
+    }
+
+    @Test
+    void pageableIsSortedByIdAndClamped() {
+        Pageable pageable = KeysetPages.pageable(50);
+        assertEquals(0, pageable.getPageNumber());
+        assertEquals(50, pageable.getPageSize());
+        assertEquals(Sort.by(Sort.Direction.ASC, "id"), pageable.getSort());
+
+        assertEquals(KeysetPages.MAX_LIMIT, KeysetPages.pageable(10_000).getPageSize());
+        assertEquals(1, KeysetPages.pageable(0).getPageSize());
+    }
+
+    @Test
+    void fullPageReturnsTheLastIdAsNextCursor() {
+        List<String> ids = ids(3);
+
+        PageResponseDto<String> page = KeysetPages.page(ids, 3, Function.identity(), String::toUpperCase);
+
+        assertEquals(3, page.items().size());
+        assertEquals(ids.get(2).toUpperCase(), page.items().get(2));
+        assertEquals(ids.get(2), page.nextCursor());
+    }
+
+    @Test
+    void shortOrEmptyPageIsTheLast() {
+        assertNull(KeysetPages.page(ids(2), 3, Function.identity(), Function.identity()).nextCursor());
+        assertNull(KeysetPages.page(List.<String>of(), 3, Function.identity(), Function.identity()).nextCursor());
+    }
+
+    @Test
+    void nextCursorFollowsTheClampedLimit() {
+        List<String> ids = ids(KeysetPages.MAX_LIMIT);
+
+        PageResponseDto<String> page = KeysetPages.page(ids, 10_000, Function.identity(), Function.identity());
+
+        assertEquals(ids.get(ids.size() - 1), page.nextCursor());
+    }
+
+    private static List<String> ids(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new ObjectId().toHexString()).toList();
+    }
+}
@@ -0,0 +1,71 @@
+package ceng.hrv4.backend.service;
+
+import ceng.hrv4.backend.entity.RawData;
+import ceng.hrv4.backend.entity.RawDataChunk;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RawDataChunkServiceTests {
+
+    private static final Instant START = Instant.parse("2024-03-01T10:00:00Z");
+
+    // The repositories are only used by the chunked read and write paths.
+    private final RawDataChunkService service = new RawDataChunkService(null, null, Duration.ofSeconds(3));
+
+    @Test
+    void splitsByDurationAndStampsChunkTimes() {
+        double[] rr = {1000, 1000, 1000, 1000, 1000, 500};
+
+        List<RawDataChunk> chunks = service.split(recording(null), rr, 0, START);
+
+        assertEquals(2, chunks.size());
+        assertArrayEquals(new double[] {1000, 1000, 1000}, chunks.get(0).getRrIntervalsMs());
+        assertEquals(START, chunks.get(0).getStartTime());
+        assertEquals(START.plusSeconds(3), chunks.get(0).getEndTime());
+        assertEquals(START.plusSeconds(3), chunks.get(1).getStartTime());
+        assertEquals(START.plusMillis(5500), chunks.get(1).getEndTime());
+        assertEquals(1, chunks.get(1).getSequence());
+    }
+
+    @Test
+    void rangeIncludesTheBeatEndingAtItsStart() {
+        RawData raw = recording(new double[] {1000, 1000, 1000, 1000});
+
+        // Beats end at +1, +2, +3 and +4 s.
+        double[] range = service.readRange(raw, START.plusSeconds(2), START.plusSeconds(4));
+
+        assertEquals(2, range.length);
+    }
+
+    @Test
+    void missingIntervalsDoNotMoveTheClock() {
+        double[] rr = {1000, Double.NaN, 1000, 1000, 1000, 1000};
+
+        assertFalse(service.shouldChunk(recording(null), new double[] {1000, Double.NaN, 1000}));
+        assertTrue(service.shouldChunk(recording(null), rr));
+
+        List<RawDataChunk> chunks = service.split(recording(null), rr, 0, START);
+        assertEquals(START.plusSeconds(3), chunks.get(0).getEndTime());
+        assertEquals(START.plusSeconds(5), chunks.get(1).getEndTime());
+
+        // The NaN still ends at +1 s, so beats end at +2, +3 and +4 s within the range.
+        double[] range = service.readRange(recording(rr), START.plusSeconds(2), START.plusSeconds(5));
+        assertArrayEquals(new double[] {1000, 1000, 1000}, range);
+    }
+
+    private static RawData recording(double[] rr) {
+        RawData raw = new RawData();
+        raw.setId("raw-1");
+        raw.setMeasurementStartTime(START);
+        raw.setRrIntervalsMs(rr);
+        return raw;
+    }
+}
@@ -0,0 +1,78 @@
+package ceng.hrv4.backend.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RrSampleReaderTests {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    @Test
+    void readsEveryAcceptedLineShape() throws IOException {
+        String body = """
+                812
+                [790, 805.5]
+                {"rr": 800, "hr": 74}
+                {"rrsMs": [790, 805], "hr": 75}
+                {"contacts": [1, 2], "rrMs": 820}
+                """;
+
+        assertEquals(List.of(812.0, 790.0, 805.5, 800.0, 790.0, 805.0, 820.0), readAll(body));
+    }
+
+    @Test
+    void readsPolarPpiObjects() throws IOException {
+        String body = """
+                {"ppi": [{"ppi": 790, "errorEstimate": 10, "timestamp": "22:14:05"}, {"ppi": 805, "timestamp": "22:14:06"}]}
+                {"ppi": [{"blocker": false, "ppi": 812}]}
+                """;
+
+        assertEquals(List.of(790.0, 805.0, 812.0), readAll(body));
+    }
+
+    @Test
+    void heartRateOnlyEventsCarryNoSamples() throws IOException {
+        assertEquals(List.of(), readAll("{\"hr\": 74}\n{\"hr\": 75, \"contact\": true}\n"));
+    }
+
+    @Test
+    void rejectsObjectElementsWithoutASample() {
+        assertThrows(JsonParseException.class, () -> readAll("{\"ppi\": [{\"timestamp\": \"22:14:05\"}]}"));
+    }
+
+    @Test
+    void rejectsTopLevelStrings() {
+        assertThrows(JsonParseException.class, () -> readAll("812\n\"813\"\n"));
+    }
+
+    @Test
+    void keepsSamplesReadBeforeMalformedInput() throws IOException {
+        List<Double> samples = new ArrayList<>();
+        try (RrSampleReader reader = new RrSampleReader(JSON.createParser("800\n810\n{\"rr\": }"))) {
+            samples.add(reader.next());
+            samples.add(reader.next());
+            assertThrows(IOException.class, reader::next);
+        }
+
+        assertEquals(List.of(800.0, 810.0), samples);
+    }
+
+    private static List<Double> readAll(String body) throws IOException {
+        List<Double> samples = new ArrayList<>();
+        try (RrSampleReader reader = new RrSampleReader(JSON.createParser(body))) {
+            double sample;
+            while (!Double.isNaN(sample = reader.next())) {
+                samples.add(sample);
+            }
+        }
+        return samples;
+    }
+}